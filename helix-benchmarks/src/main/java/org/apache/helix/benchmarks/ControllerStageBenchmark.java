@@ -0,0 +1,135 @@
+package org.apache.helix.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.pipeline.AbstractAsyncBaseStage;
+import org.apache.helix.controller.pipeline.Stage;
+import org.apache.helix.controller.pipeline.StageContext;
+import org.apache.helix.controller.stages.AttributeName;
+import org.apache.helix.controller.stages.BestPossibleStateCalcStage;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ExternalViewComputeStage;
+import org.apache.helix.controller.stages.IntermediateStateCalcStage;
+import org.apache.helix.controller.stages.MessageGenerationPhase;
+import org.apache.helix.controller.stages.MessageSelectionStage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the rebalance pipeline stages one at a time against a synthetic cluster snapshot.
+ * The default parameters describe 1k instances, 10k resources and ~1M replicas. Use the "-p"
+ * option of the JMH runner for smaller runs, and "-prof gc" for the allocation rate, e.g.
+ * <pre>
+ *   java -jar helix-benchmarks/target/benchmarks.jar ControllerStageBenchmark -prof gc \
+ *       -p numInstances=100 -p numResources=1000
+ * </pre>
+ * Every stage is fed the output of its upstream stages, which is computed once per trial, so
+ * the score of a benchmark only covers the stage named by the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class ControllerStageBenchmark {
+  @Param({"1000"})
+  public int numInstances;
+
+  @Param({"10000"})
+  public int numResources;
+
+  @Param({"34"})
+  public int numPartitions;
+
+  @Param({"3"})
+  public int numReplicas;
+
+  private ClusterEvent _event;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    SyntheticCluster cluster =
+        new SyntheticCluster(numInstances, numResources, numPartitions, numReplicas, false);
+    ResourceControllerDataProvider dataProvider = cluster.refreshDataProvider();
+    _event = cluster.newEvent(dataProvider);
+
+    // Prepare the inputs of the downstream stages.
+    runStage(new BestPossibleStateCalcStage(), _event);
+    runStage(new MessageGenerationPhase(), _event);
+    runStage(new MessageSelectionStage(), _event);
+  }
+
+  @Benchmark
+  public void bestPossibleStateCalcStage(Blackhole blackhole) throws Exception {
+    runStage(new BestPossibleStateCalcStage(), _event);
+    blackhole.consume(_event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name()));
+  }
+
+  @Benchmark
+  public void messageGenerationPhase(Blackhole blackhole) throws Exception {
+    runStage(new MessageGenerationPhase(), _event);
+    blackhole.consume(_event.getAttribute(AttributeName.MESSAGES_ALL.name()));
+  }
+
+  @Benchmark
+  public void intermediateStateCalcStage(Blackhole blackhole) throws Exception {
+    runStage(new IntermediateStateCalcStage(), _event);
+    blackhole.consume(_event.getAttribute(AttributeName.INTERMEDIATE_STATE.name()));
+  }
+
+  /**
+   * Note that after the first invocation the cached ExternalViews match the computed ones, so this
+   * measures the steady state of the stage in which nothing needs to be written.
+   */
+  @Benchmark
+  public void externalViewComputeStage(Blackhole blackhole) throws Exception {
+    runStage(new ExternalViewComputeStage(), _event);
+    ResourceControllerDataProvider dataProvider =
+        _event.getAttribute(AttributeName.ControllerDataProvider.name());
+    blackhole.consume(dataProvider.getExternalViews());
+  }
+
+  static void runStage(Stage stage, ClusterEvent event) throws Exception {
+    stage.init(new StageContext());
+    stage.preProcess();
+    if (stage instanceof AbstractAsyncBaseStage) {
+      // Run the async stages inline, the benchmark measures the computation itself.
+      ((AbstractAsyncBaseStage) stage).execute(event);
+    } else {
+      stage.process(event);
+    }
+    stage.postProcess();
+  }
+}
@@ -0,0 +1,140 @@
+package org.apache.helix.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.NotificationContext;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.spectator.ResourceRoutingView;
+import org.apache.helix.spectator.RoutingTableProvider;
+import org.apache.helix.spectator.RoutingTableSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the name based RoutingTable lookup with the index based lookup of the
+ * {@link ResourceRoutingView} on the request path of a router.
+ * Every invocation looks up the MASTER of the next partition, cycling over all the partitions of
+ * the cluster. Run with "-prof gc" to compare the allocation rate, e.g.
+ * <pre>
+ *   java -jar helix-benchmarks/target/benchmarks.jar RoutingTableLookupBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RoutingTableLookupBenchmark {
+  private static final String STATE = "MASTER";
+
+  @Param({"100"})
+  public int numInstances;
+
+  @Param({"1000"})
+  public int numResources;
+
+  @Param({"50"})
+  public int numPartitions;
+
+  @Param({"3"})
+  public int numReplicas;
+
+  private RoutingTableProvider _routingTableProvider;
+  private RoutingTableSnapshot _snapshot;
+  private String[] _resourceNames;
+  private String[][] _partitionNames;
+  // The views and partition indexes that a router resolves once per snapshot.
+  private ResourceRoutingView[] _views;
+  private int[][] _partitionIndexes;
+  private int _resource;
+  private int _partition;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SyntheticCluster cluster =
+        new SyntheticCluster(numInstances, numResources, numPartitions, numReplicas, false);
+    _routingTableProvider = new RoutingTableProvider();
+    _routingTableProvider
+        .onExternalViewChange(cluster.getExternalViews(), new NotificationContext(cluster.getManager()));
+    _snapshot = _routingTableProvider.getRoutingTableSnapshot();
+
+    _resourceNames = new String[numResources];
+    _partitionNames = new String[numResources][numPartitions];
+    _views = new ResourceRoutingView[numResources];
+    _partitionIndexes = new int[numResources][numPartitions];
+    for (int r = 0; r < numResources; r++) {
+      _resourceNames[r] = SyntheticCluster.RESOURCE_PREFIX + r;
+      _views[r] = _snapshot.getResourceRoutingView(_resourceNames[r]);
+      for (int p = 0; p < numPartitions; p++) {
+        _partitionNames[r][p] = SyntheticCluster.partitionName(_resourceNames[r], p);
+        _partitionIndexes[r][p] = _views[r].getPartitionIndex(_partitionNames[r][p]);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    _routingTableProvider.shutdown();
+  }
+
+  @Benchmark
+  public List<InstanceConfig> getInstancesForResource() {
+    next();
+    return _snapshot.getInstancesForResource(_resourceNames[_resource],
+        _partitionNames[_resource][_partition], STATE);
+  }
+
+  @Benchmark
+  public List<InstanceConfig> routingViewByPartitionName() {
+    next();
+    return _snapshot.getResourceRoutingView(_resourceNames[_resource])
+        .getInstances(_partitionNames[_resource][_partition], STATE);
+  }
+
+  @Benchmark
+  public List<InstanceConfig> routingViewByPartitionIndex() {
+    next();
+    return _views[_resource].getInstances(_partitionIndexes[_resource][_partition], STATE);
+  }
+
+  private void next() {
+    if (++_partition == numPartitions) {
+      _partition = 0;
+      if (++_resource == numResources) {
+        _resource = 0;
+      }
+    }
+  }
+}
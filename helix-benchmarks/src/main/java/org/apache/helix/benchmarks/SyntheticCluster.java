@@ -0,0 +1,259 @@
+package org.apache.helix.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixManager;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.waged.WagedRebalancer;
+import org.apache.helix.controller.stages.AttributeName;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventType;
+import org.apache.helix.controller.stages.CurrentStateOutput;
+import org.apache.helix.mock.MockManager;
+import org.apache.helix.model.BuiltInStateModelDefinitions;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.tools.StateModelConfigGenerator;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * Builds a synthetic cluster in the in-memory {@link MockManager} so that the controller stages
+ * and the WAGED algorithm can be measured without a ZooKeeper server.
+ * The generated cluster uses the MasterSlave state model. Each resource has the given number of
+ * partitions and replicas, placed round-robin over the instances through the preference lists.
+ * The current states put every replica in SLAVE, so each pipeline run has a top state to bring up
+ * for every partition.
+ */
+public class SyntheticCluster {
+  public static final String INSTANCE_PREFIX = "localhost_";
+  public static final String RESOURCE_PREFIX = "resource_";
+  public static final String SESSION_PREFIX = "session_";
+  public static final String CAPACITY_KEY = "CU";
+  private static final int FAULT_ZONE_COUNT = 10;
+
+  private final String _clusterName;
+  private final HelixManager _manager;
+  private final int _numInstances;
+  private final int _numResources;
+  private final int _numPartitions;
+  private final int _numReplicas;
+  private final boolean _waged;
+
+  /**
+   * @param numInstances  number of instances, all of them live and enabled
+   * @param numResources  number of resources
+   * @param numPartitions number of partitions per resource
+   * @param numReplicas   number of replicas per partition
+   * @param waged         if true, the resources use the WAGED rebalancer and the cluster is
+   *                      configured with instance capacity and partition weights
+   */
+  public SyntheticCluster(int numInstances, int numResources, int numPartitions,
+      int numReplicas, boolean waged) {
+    _clusterName = "benchmarkCluster";
+    _manager = new MockManager(_clusterName);
+    _numInstances = numInstances;
+    _numResources = numResources;
+    _numPartitions = numPartitions;
+    _numReplicas = numReplicas;
+    _waged = waged;
+    populate();
+  }
+
+  public HelixManager getManager() {
+    return _manager;
+  }
+
+  public String getClusterName() {
+    return _clusterName;
+  }
+
+  /**
+   * @return a fully refreshed data provider of the synthetic cluster
+   */
+  public ResourceControllerDataProvider refreshDataProvider() {
+    ResourceControllerDataProvider dataProvider = new ResourceControllerDataProvider(_clusterName);
+    dataProvider.refresh(_manager.getHelixDataAccessor());
+    return dataProvider;
+  }
+
+  /**
+   * @return the resources of the cluster, keyed by the resource name
+   */
+  public Map<String, Resource> getResourceMap() {
+    Map<String, Resource> resourceMap = new HashMap<>();
+    for (int r = 0; r < _numResources; r++) {
+      String resourceName = RESOURCE_PREFIX + r;
+      Resource resource = new Resource(resourceName);
+      resource.setStateModelDefRef(BuiltInStateModelDefinitions.MasterSlave.name());
+      for (int p = 0; p < _numPartitions; p++) {
+        resource.addPartition(partitionName(resourceName, p));
+      }
+      resourceMap.put(resourceName, resource);
+    }
+    return resourceMap;
+  }
+
+  /**
+   * @return the current states of the cluster, every replica is in the SLAVE state
+   */
+  public CurrentStateOutput getCurrentStateOutput() {
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    for (int r = 0; r < _numResources; r++) {
+      String resourceName = RESOURCE_PREFIX + r;
+      currentStateOutput.setResourceStateModelDef(resourceName,
+          BuiltInStateModelDefinitions.MasterSlave.name());
+      for (int p = 0; p < _numPartitions; p++) {
+        Partition partition = new Partition(partitionName(resourceName, p));
+        for (String instance : preferenceList(r, p)) {
+          currentStateOutput.setCurrentState(resourceName, partition, instance, "SLAVE");
+        }
+      }
+    }
+    return currentStateOutput;
+  }
+
+  /**
+   * @return the ExternalViews of the cluster, the first instance of every preference list is the
+   *         MASTER and the others are SLAVEs
+   */
+  public List<ExternalView> getExternalViews() {
+    List<ExternalView> externalViews = new ArrayList<>(_numResources);
+    for (int r = 0; r < _numResources; r++) {
+      String resourceName = RESOURCE_PREFIX + r;
+      ExternalView externalView = new ExternalView(resourceName);
+      for (int p = 0; p < _numPartitions; p++) {
+        List<String> preferenceList = preferenceList(r, p);
+        for (int replica = 0; replica < preferenceList.size(); replica++) {
+          externalView.setState(partitionName(resourceName, p), preferenceList.get(replica),
+              replica == 0 ? "MASTER" : "SLAVE");
+        }
+      }
+      externalViews.add(externalView);
+    }
+    return externalViews;
+  }
+
+  /**
+   * Create a cluster event that carries everything the rebalance pipeline stages read before
+   * BestPossibleStateCalcStage.
+   */
+  public ClusterEvent newEvent(ResourceControllerDataProvider dataProvider) {
+    ClusterEvent event = new ClusterEvent(_clusterName, ClusterEventType.Unknown);
+    Map<String, Resource> resourceMap = getResourceMap();
+    CurrentStateOutput currentStateOutput = getCurrentStateOutput();
+    event.addAttribute(AttributeName.helixmanager.name(), _manager);
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), dataProvider);
+    event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+    event.addAttribute(AttributeName.CURRENT_STATE_EXCLUDING_UNKNOWN.name(), currentStateOutput);
+    return event;
+  }
+
+  private void populate() {
+    HelixDataAccessor accessor = _manager.getHelixDataAccessor();
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    ClusterConfig clusterConfig = new ClusterConfig(_clusterName);
+    if (_waged) {
+      clusterConfig.setTopologyAwareEnabled(true);
+      clusterConfig.setTopology("/zone/instance");
+      clusterConfig.setFaultZoneType("zone");
+      clusterConfig.setInstanceCapacityKeys(Collections.singletonList(CAPACITY_KEY));
+      // Leave 50% headroom so that the algorithm is never starved of capacity.
+      int replicasPerInstance =
+          (_numResources * _numPartitions * _numReplicas + _numInstances - 1) / _numInstances;
+      clusterConfig.setDefaultInstanceCapacityMap(
+          Collections.singletonMap(CAPACITY_KEY, replicasPerInstance * 2));
+      clusterConfig.setDefaultPartitionWeightMap(Collections.singletonMap(CAPACITY_KEY, 1));
+    }
+    accessor.setProperty(keyBuilder.clusterConfig(), clusterConfig);
+
+    StateModelConfigGenerator generator = new StateModelConfigGenerator();
+    ZNRecord masterSlave = generator.generateConfigForMasterSlave();
+    accessor.setProperty(keyBuilder.stateModelDef(masterSlave.getId()),
+        new StateModelDefinition(masterSlave));
+
+    for (int i = 0; i < _numInstances; i++) {
+      String instanceName = INSTANCE_PREFIX + i;
+      InstanceConfig instanceConfig = new InstanceConfig(instanceName);
+      instanceConfig.setHostName("localhost");
+      instanceConfig.setPort(String.valueOf(i));
+      if (_waged) {
+        instanceConfig.setDomain(
+            String.format("zone=zone_%d,instance=%s", i % FAULT_ZONE_COUNT, instanceName));
+      }
+      accessor.setProperty(keyBuilder.instanceConfig(instanceName), instanceConfig);
+
+      LiveInstance liveInstance = new LiveInstance(instanceName);
+      liveInstance.setSessionId(SESSION_PREFIX + i);
+      liveInstance.setHelixVersion("1.4.4");
+      accessor.setProperty(keyBuilder.liveInstance(instanceName), liveInstance);
+    }
+
+    for (int r = 0; r < _numResources; r++) {
+      String resourceName = RESOURCE_PREFIX + r;
+      IdealState idealState = new IdealState(resourceName);
+      idealState.setStateModelDefRef(BuiltInStateModelDefinitions.MasterSlave.name());
+      idealState.setNumPartitions(_numPartitions);
+      idealState.setReplicas(String.valueOf(_numReplicas));
+      if (_waged) {
+        idealState.setRebalanceMode(IdealState.RebalanceMode.FULL_AUTO);
+        idealState.setRebalancerClassName(WagedRebalancer.class.getName());
+      } else {
+        idealState.setRebalanceMode(IdealState.RebalanceMode.SEMI_AUTO);
+      }
+      for (int p = 0; p < _numPartitions; p++) {
+        idealState.setPreferenceList(partitionName(resourceName, p), preferenceList(r, p));
+      }
+      accessor.setProperty(keyBuilder.idealStates(resourceName), idealState);
+    }
+  }
+
+  private List<String> preferenceList(int resourceIndex, int partitionIndex) {
+    List<String> preferenceList = new ArrayList<>(_numReplicas);
+    int start = resourceIndex * _numPartitions + partitionIndex;
+    for (int replica = 0; replica < _numReplicas; replica++) {
+      preferenceList.add(INSTANCE_PREFIX + (start + replica) % _numInstances);
+    }
+    return preferenceList;
+  }
+
+  /**
+   * @return the name of a partition of the synthetic cluster
+   */
+  public static String partitionName(String resourceName, int partitionIndex) {
+    return resourceName + "_" + partitionIndex;
+  }
+}
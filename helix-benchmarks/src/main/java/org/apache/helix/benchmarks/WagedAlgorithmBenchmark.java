@@ -0,0 +1,102 @@
+package org.apache.helix.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.HelixRebalanceException;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.waged.RebalanceAlgorithm;
+import org.apache.helix.controller.rebalancer.waged.constraints.ConstraintBasedAlgorithmFactory;
+import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
+import org.apache.helix.controller.rebalancer.waged.model.ClusterModelProvider;
+import org.apache.helix.controller.rebalancer.waged.model.OptimalAssignment;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the WAGED constraint based algorithm for a global baseline calculation, in which every
+ * replica of the cluster is placed from scratch.
+ * The algorithm assigns the replicas into the given cluster model, so a fresh model is generated
+ * before each invocation. The model generation is not part of the score.
+ * The default parameters are smaller than the ones of {@link ControllerStageBenchmark} so that a
+ * single invocation completes in seconds. Use the "-p" option of the JMH runner to scale up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WagedAlgorithmBenchmark {
+  @Param({"100"})
+  public int numInstances;
+
+  @Param({"100"})
+  public int numResources;
+
+  @Param({"30"})
+  public int numPartitions;
+
+  @Param({"3"})
+  public int numReplicas;
+
+  private RebalanceAlgorithm _algorithm;
+  private ResourceControllerDataProvider _dataProvider;
+  private Map<String, Resource> _resourceMap;
+  private ClusterModel _clusterModel;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SyntheticCluster cluster =
+        new SyntheticCluster(numInstances, numResources, numPartitions, numReplicas, true);
+    _dataProvider = cluster.refreshDataProvider();
+    _resourceMap = cluster.getResourceMap();
+    _algorithm =
+        ConstraintBasedAlgorithmFactory.getInstance(ClusterConfig.DEFAULT_GLOBAL_REBALANCE_PREFERENCE);
+  }
+
+  @Setup(Level.Invocation)
+  public void generateClusterModel() {
+    _clusterModel = ClusterModelProvider.generateClusterModelForBaseline(_dataProvider,
+        _resourceMap, new HashSet<>(_dataProvider.getAssignableInstances()),
+        Collections.emptyMap(), Collections.emptyMap());
+  }
+
+  @Benchmark
+  public OptimalAssignment calculate() throws HelixRebalanceException {
+    return _algorithm.calculate(_clusterModel);
+  }
+}
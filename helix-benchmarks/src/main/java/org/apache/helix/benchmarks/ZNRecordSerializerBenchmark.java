@@ -0,0 +1,110 @@
+package org.apache.helix.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordBinarySerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordFastSerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of serializing and deserializing an ExternalView sized ZNRecord with the
+ * default {@link ZNRecordSerializer}, the {@link ZNRecordFastSerializer} and the
+ * {@link ZNRecordBinarySerializer}, e.g.
+ * <pre>
+ *   java -jar helix-benchmarks/target/benchmarks.jar ZNRecordSerializerBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ZNRecordSerializerBenchmark {
+  @Param({"ZNRecordSerializer", "ZNRecordFastSerializer", "ZNRecordBinarySerializer"})
+  public String serializer;
+
+  @Param({"1000"})
+  public int numPartitions;
+
+  @Param({"3"})
+  public int numReplicas;
+
+  private ZkSerializer _serializer;
+  private ZNRecord _record;
+  private byte[] _bytes;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    switch (serializer) {
+    case "ZNRecordFastSerializer":
+      _serializer = new ZNRecordFastSerializer();
+      break;
+    case "ZNRecordBinarySerializer":
+      _serializer = new ZNRecordBinarySerializer();
+      break;
+    default:
+      _serializer = new ZNRecordSerializer();
+    }
+    ExternalView externalView = new ExternalView(SyntheticCluster.RESOURCE_PREFIX + 0);
+    List<String> instances = new ArrayList<>();
+    for (int i = 0; i < numReplicas; i++) {
+      instances.add(SyntheticCluster.INSTANCE_PREFIX + i);
+    }
+    for (int p = 0; p < numPartitions; p++) {
+      String partition = SyntheticCluster.partitionName(externalView.getResourceName(), p);
+      for (int r = 0; r < numReplicas; r++) {
+        externalView.setState(partition, instances.get((p + r) % numReplicas),
+            r == 0 ? "MASTER" : "SLAVE");
+      }
+    }
+    _record = externalView.getRecord();
+    _bytes = _serializer.serialize(_record);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return _serializer.serialize(_record);
+  }
+
+  @Benchmark
+  public Object deserialize() {
+    return _serializer.deserialize(_bytes);
+  }
+}
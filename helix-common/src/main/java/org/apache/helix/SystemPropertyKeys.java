@@ -69,9 +69,53 @@ public class SystemPropertyKeys {
 
   public static final String LEGACY_ASYNC_BATCH_MODE_ENABLED = "isAsyncBatchModeEnabled";
 
+  // ZkBaseDataAccessor
+  // The number of threads that deserialize the records of the batched reads in parallel.
+  // 0 (default) deserializes the records on the calling thread.
+  public static final String ZK_BATCH_READ_DESERIALIZE_THREADS =
+      "helix.zkBaseDataAccessor.batchRead.deserializeThreads";
+
+  // GroupCommit
+  // The time in ms the current state updates of the same node are collected before they are
+  // merged and written in one ZK write. 0 (default) writes the updates that are pending already.
+  // It only applies to the CURRENTSTATES updates of ZKHelixDataAccessor, which the participants
+  // write on state transitions. The other properties, including the task current states and the
+  // customized states, are written without waiting.
+  public static final String CURRENT_STATE_COMMIT_WINDOW_MS =
+      "helix.participant.currentState.commitWindowMs";
+
   // Controller
   public static final String CONTROLLER_MESSAGE_PURGE_DELAY = "helix.controller.stages.MessageGenerationPhase.messagePurgeDelay";
 
+  // The time in ms a controller event is held in the event queue after the last event of the same
+  // type, so a burst of events triggers one pipeline run. 0 (default) disables the coalescing.
+  public static final String CONTROLLER_EVENT_COALESCE_WINDOW_MS =
+      "helix.controller.eventQueue.coalesceWindowMs";
+
+  // The max time in ms a controller event is held in the event queue for coalescing. It defaults
+  // to the coalescing window.
+  public static final String CONTROLLER_EVENT_COALESCE_MAX_DELAY_MS =
+      "helix.controller.eventQueue.coalesceMaxDelayMs";
+
+  // Take the membership and leadership change events ahead of the other events, and the
+  // periodic rebalance events after them.
+  public static final String CONTROLLER_EVENT_PRIORITY_ENABLED =
+      "helix.controller.eventQueue.priorityEnabled";
+
+  // The directory of the local snapshot files of the controller caches. A new leader loads the
+  // snapshot and then only reads the znodes whose version changed. Unset (default) disables it.
+  public static final String CONTROLLER_CACHE_SNAPSHOT_DIR = "helix.controller.cacheSnapshot.dir";
+
+  // The min time in ms between two writes of the controller cache snapshot file.
+  public static final String CONTROLLER_CACHE_SNAPSHOT_INTERVAL_MS =
+      "helix.controller.cacheSnapshot.intervalMs";
+
+  // The interval in ms a controller that is not the leader refreshes its caches and the WAGED
+  // assignment metadata, so it can run the pipeline right away once it becomes the leader.
+  // 0 (default) disables the warm standby.
+  public static final String CONTROLLER_WARM_STANDBY_INTERVAL_MS =
+      "helix.controller.warmStandby.intervalMs";
+
   // Message
   public static final String MESSAGE_EXPECTED_COMPLETION_PERIOD = "helix.controller.message.ExpectMessageCompletionPeriod";
 
@@ -40,6 +40,16 @@ public interface BucketDataAccessor {
   <T extends HelixProperty> HelixProperty compressedBucketRead(String path,
       Class<T> helixPropertySubType);
 
+  /**
+   * Get the version of the last successful write of the data in the given path. The version
+   * changes whenever new data is written, so a reader can tell whether its copy is stale.
+   * @param path
+   * @return the version, or null if there is no data or the version is not tracked
+   */
+  default String getLastSuccessfulWriteVersion(String path) {
+    return null;
+  }
+
   /**
    * Delete the HelixProperty in the given path.
    * @param path
@@ -25,6 +25,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.helix.monitoring.mbeans.GroupCommitMonitor;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.slf4j.Logger;
@@ -33,7 +34,10 @@ import org.slf4j.LoggerFactory;
 // TODO: move to mananger.zk
 
 /**
- * Support committing updates to data such that they are ordered for each key
+ * Support committing updates to data such that they are ordered for each key. The updates of
+ * the same key that are pending when a write starts are merged into the write. With a commit
+ * window, an update waits for its window to elapse before it starts a write, so that more of the
+ * concurrent updates are merged.
  */
 public class GroupCommit {
   private static Logger LOG = LoggerFactory.getLogger(GroupCommit.class);
@@ -47,6 +51,7 @@ public class GroupCommit {
   private static class Entry {
     final String _key;
     final ZNRecord _record;
+    final long _submitTime = System.currentTimeMillis();
     AtomicBoolean _sent = new AtomicBoolean(false);
 
     Entry(String key, ZNRecord record) {
@@ -56,15 +61,35 @@ public class GroupCommit {
   }
 
   private final Queue[] _queues = new Queue[100];
+  private final long _commitWindowMs;
+  private volatile GroupCommitMonitor _monitor;
 
   /**
    * Set up a group committer and its associated queues
    */
   public GroupCommit() {
+    this(0);
+  }
+
+  /**
+   * Set up a group committer that collects the updates of a key for a commit window
+   * @param commitWindowMs the max time in ms a write waits after its first update is submitted,
+   *          0 to write the pending updates right away
+   */
+  public GroupCommit(long commitWindowMs) {
     // Don't use Arrays.fill();
     for (int i = 0; i < _queues.length; ++i) {
       _queues[i] = new Queue();
     }
+    _commitWindowMs = Math.max(0, commitWindowMs);
+  }
+
+  /**
+   * Set the monitor the writes are reported to
+   * @param monitor the monitor, or null to stop reporting
+   */
+  public void setMonitor(GroupCommitMonitor monitor) {
+    _monitor = monitor;
   }
 
   private Queue getQueue(String key) {
@@ -89,9 +114,23 @@ public class GroupCommit {
     Queue queue = getQueue(key);
     Entry entry = new Entry(key, record);
 
-    boolean success = true;
     queue._pending.add(entry);
+    // Wait for the commit window before competing for the queue, so the updates that are
+    // submitted meanwhile are pending and merged into the same write.
+    boolean interrupted = waitForCommitWindow(entry);
+    try {
+      return commit(queue, entry, accessor, options, removeIfEmpty);
+    } finally {
+      if (interrupted) {
+        // Restore interrupt status
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
 
+  private boolean commit(Queue queue, Entry entry, BaseDataAccessor<ZNRecord> accessor,
+      int options, boolean removeIfEmpty) {
+    boolean success = true;
     while (!entry._sent.get()) {
       if (queue._running.compareAndSet(null, Thread.currentThread())) {
         ArrayList<Entry> processed = new ArrayList<>();
@@ -165,6 +204,11 @@ public class GroupCommit {
               }
             }
           }
+          GroupCommitMonitor monitor = _monitor;
+          if (monitor != null) {
+            monitor.reportCommit(processed.size(),
+                System.currentTimeMillis() - first._submitTime);
+          }
         } finally {
           queue._running.set(null);
           for (Entry e : processed) {
@@ -179,8 +223,8 @@ public class GroupCommit {
           try {
             entry.wait(10);
           } catch (InterruptedException e) {
-            LOG.error("Interrupted while committing change, key: " + key + ", record: " + record,
-                e);
+            LOG.error("Interrupted while committing change, key: " + entry._key + ", record: "
+                + entry._record, e);
             // Restore interrupt status
             Thread.currentThread().interrupt();
             return false;
@@ -190,4 +234,29 @@ public class GroupCommit {
     }
     return success;
   }
+
+  /**
+   * Wait until the commit window of the update elapses, or the update is written by another
+   * thread meanwhile. The queue is not held while waiting, so the concurrent updates keep joining
+   * the pending ones. If interrupted, the update is written right away and the interrupt status is
+   * restored after the write.
+   * @return true if interrupted while waiting
+   */
+  private boolean waitForCommitWindow(Entry entry) {
+    if (_commitWindowMs <= 0) {
+      return false;
+    }
+    long commitTime = entry._submitTime + _commitWindowMs;
+    synchronized (entry) {
+      long waitTime;
+      while (!entry._sent.get() && (waitTime = commitTime - System.currentTimeMillis()) > 0) {
+        try {
+          entry.wait(waitTime);
+        } catch (InterruptedException e) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
 }
@@ -18,6 +18,10 @@ package org.apache.helix.common;
  * specific language governing permissions and limitations
  * under the License.
  */
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 
 import org.apache.helix.controller.stages.ClusterEvent;
@@ -31,74 +35,178 @@ import org.slf4j.LoggerFactory;
  * made. This queue has no capacity. This class is meant to be a limited implementation of the
  * {@link BlockingQueue} interface.
  *
+ * Optionally, an event is held in the queue for a coalescing window after the last event of the
+ * same type was put, so that a burst of events is processed once. The window is bounded by a max
+ * delay after the first event of the burst was put. Also optionally, the events are taken by the
+ * priority of their types first, so the membership and leadership changes are processed ahead of
+ * the periodic rebalances. The events of a higher priority are not held for the window.
+ *
  * This class is deprecated, please use {@link org.apache.helix.common.DedupEventBlockingQueue}.
  */
 @Deprecated
 public class ClusterEventBlockingQueue {
   private static final Logger LOG = LoggerFactory.getLogger(ClusterEventBlockingQueue.class);
 
-  private DedupEventBlockingQueue<ClusterEventType, ClusterEvent> _eventQueue;
+  private static final Set<ClusterEventType> HIGH_PRIORITY_EVENT_TYPES =
+      EnumSet.of(ClusterEventType.ControllerChange, ClusterEventType.LiveInstanceChange);
+  private static final Set<ClusterEventType> LOW_PRIORITY_EVENT_TYPES = EnumSet
+      .of(ClusterEventType.PeriodicalRebalance, ClusterEventType.OnDemandRebalance,
+          ClusterEventType.RetryRebalance, ClusterEventType.StateVerifier);
+
+  private static class Entry {
+    private final long _firstPutTime;
+    private long _lastPutTime;
+    private ClusterEvent _event;
+    private int _coalescedEventCount;
+
+    Entry(ClusterEvent event, long putTime) {
+      _event = event;
+      _firstPutTime = putTime;
+      _lastPutTime = putTime;
+    }
+  }
+
+  // The events by type, in the order the first event of every type was put
+  private final Map<ClusterEventType, Entry> _eventMap = new LinkedHashMap<>();
+  private final long _coalesceWindowMs;
+  private final long _coalesceMaxDelayMs;
+  private final boolean _prioritized;
 
   /**
    * Instantiate the queue
    */
   public ClusterEventBlockingQueue() {
-    _eventQueue = new DedupEventBlockingQueue();
+    this(0, 0, false);
+  }
+
+  /**
+   * Instantiate the queue
+   * @param coalesceWindowMs the time in ms an event is held after the last event of the same
+   *          type was put, 0 to take the events right away
+   * @param coalesceMaxDelayMs the max time in ms an event is held after the first event of the
+   *          same type was put
+   * @param prioritized true to take the events by the priority of their types first
+   */
+  public ClusterEventBlockingQueue(long coalesceWindowMs, long coalesceMaxDelayMs,
+      boolean prioritized) {
+    _coalesceWindowMs = Math.max(0, coalesceWindowMs);
+    _coalesceMaxDelayMs = Math.max(_coalesceWindowMs, coalesceMaxDelayMs);
+    _prioritized = prioritized;
   }
 
   /**
    * Remove all events from the queue
    */
-  public void clear() {
-    _eventQueue.clear();
+  public synchronized void clear() {
+    _eventMap.clear();
   }
 
   /**
    * Add a single event to the queue, overwriting events with the same name
    * @param event ClusterEvent event to add
    */
-  public void put(ClusterEvent event) {
-    _eventQueue.put(event.getEventType(), event);
+  public synchronized void put(ClusterEvent event) {
+    long now = System.currentTimeMillis();
+    Entry entry = _eventMap.get(event.getEventType());
+    if (entry == null) {
+      _eventMap.put(event.getEventType(), new Entry(event, now));
+    } else {
+      // always overwrite the existing event in case the event is different
+      entry._event = event;
+      entry._lastPutTime = now;
+      entry._coalescedEventCount++;
+    }
+    notifyAll();
     LOG.debug("Putting event {}", event.getEventType());
-    LOG.debug("Event queue size: {}", _eventQueue.size());
+    LOG.debug("Event queue size: {}", _eventMap.size());
   }
 
   /**
    * Remove an element from the front of the queue, blocking if none is available. This method
-   * will return the most recent event seen with the oldest enqueued event name.
+   * will return the most recent event seen with the oldest enqueued event name. If the queue is
+   * prioritized, the events of the highest priority are taken first.
    * @return ClusterEvent at the front of the queue
    * @throws InterruptedException if the wait for elements was interrupted
    */
-  public ClusterEvent take() throws InterruptedException {
-    ClusterEvent event = _eventQueue.take();
-    if (event != null) {
-      LOG.debug("Taking event " + event.getEventType());
-      LOG.debug("Event queue size: " + _eventQueue.size());
+  public synchronized ClusterEvent take() throws InterruptedException {
+    while (true) {
+      long now = System.currentTimeMillis();
+      Entry next = null;
+      long nextReadyTime = Long.MAX_VALUE;
+      for (Entry entry : _eventMap.values()) {
+        long readyTime = getReadyTime(entry);
+        if (readyTime > now) {
+          nextReadyTime = Math.min(nextReadyTime, readyTime);
+        } else if (next == null || getPriority(entry) < getPriority(next)) {
+          next = entry;
+        }
+      }
+      if (next != null) {
+        _eventMap.remove(next._event.getEventType());
+        ClusterEvent event = next._event;
+        event.setCoalescedEventCount(next._coalescedEventCount);
+        LOG.debug("Taking event {}", event.getEventType());
+        LOG.debug("Event queue size: {}", _eventMap.size());
+        return event;
+      }
+      if (nextReadyTime == Long.MAX_VALUE) {
+        wait();
+      } else {
+        wait(nextReadyTime - now);
+      }
     }
-    return event;
   }
 
   /**
    * Get at the head of the queue without removing it
    * @return ClusterEvent at the front of the queue, or null if none available
    */
-  public ClusterEvent peek() {
-    return _eventQueue.peek();
+  public synchronized ClusterEvent peek() {
+    Entry head = null;
+    for (Entry entry : _eventMap.values()) {
+      if (head == null || getPriority(entry) < getPriority(head)) {
+        head = entry;
+      }
+    }
+    return head == null ? null : head._event;
   }
 
   /**
    * Get the queue size
    * @return integer size of the queue
    */
-  public int size() {
-    return _eventQueue.size();
+  public synchronized int size() {
+    return _eventMap.size();
   }
 
   /**
    * Check if the queue is empty
    * @return true if events are not present, false otherwise
    */
-  public boolean isEmpty() {
-    return _eventQueue.isEmpty();
+  public synchronized boolean isEmpty() {
+    return _eventMap.isEmpty();
+  }
+
+  /**
+   * Get the priority of an event, the lower the value the higher the priority. All the events
+   * have the same priority if the queue is not prioritized.
+   */
+  private int getPriority(Entry entry) {
+    if (!_prioritized) {
+      return 0;
+    }
+    ClusterEventType eventType = entry._event.getEventType();
+    if (HIGH_PRIORITY_EVENT_TYPES.contains(eventType)) {
+      return 0;
+    }
+    return LOW_PRIORITY_EVENT_TYPES.contains(eventType) ? 2 : 1;
+  }
+
+  private long getReadyTime(Entry entry) {
+    if (_coalesceWindowMs == 0 || (_prioritized && getPriority(entry) == 0)) {
+      return entry._firstPutTime;
+    }
+    return Math.min(entry._lastPutTime + _coalesceWindowMs,
+        entry._firstPutTime + _coalesceMaxDelayMs);
   }
 }
@@ -136,6 +136,16 @@ public abstract class ParticipantStateCache<T> extends AbstractDataCache {
     }
   }
 
+  /**
+   * Seed the cache with participant states that were read earlier, e.g. from a local snapshot.
+   * The states are not served until the next refresh, which only reloads the ones whose stat
+   * does not match the data store.
+   * @param participantStates participant states by their property keys
+   */
+  public void preload(Map<PropertyKey, T> participantStates) {
+    _participantStateCache = Collections.unmodifiableMap(new HashMap<>(participantStates));
+  }
+
   protected abstract Set<PropertyKey> PopulateParticipantKeys(HelixDataAccessor accessor,
       Map<String, LiveInstance> liveInstanceMap);
 
@@ -181,6 +181,16 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
     _objMap = new HashMap<>(_objCache);
   }
 
+  /**
+   * Seed the cache with properties that were read earlier, e.g. from a local snapshot. The
+   * properties are not served until the next refresh, which only reloads the ones whose stat
+   * does not match the data store.
+   * @param objMap properties by their names, with the stats they were read with
+   */
+  public void preload(Map<String, T> objMap) {
+    _objCache = new HashMap<>(objMap);
+  }
+
   private Map<String, T> propertyKeyMapToStringMap(Map<PropertyKey, T> propertyKeyMap,
       PropertyCache.PropertyCacheKeyFuncs<T> objNameFunc) {
     Map<String, T> stringMap = new HashMap<>();
@@ -41,6 +41,7 @@ import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.WorkflowConfig;
 import org.apache.helix.task.WorkflowContext;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +59,8 @@ public class TaskDataCache extends AbstractDataCache {
   // TODO: context and previous assignment should be wrapped into a class. Otherwise, int the future,
   // concurrency will be hard to handle.
   private Map<String, ZNRecord> _contextMap = new HashMap<>();
+  // The ZK versions of the cached contexts that are in sync with ZK <resource name, version>
+  private Map<String, Integer> _contextVersionMap = new HashMap<>();
   private Set<String> _contextToUpdate = new HashSet<>();
   private Set<String> _contextToRemove = new HashSet<>();
   // The following fields have been added for quota-based task scheduling
@@ -141,42 +144,73 @@ public class TaskDataCache extends AbstractDataCache {
     return true;
   }
 
+  /**
+   * Refresh the contexts incrementally. The stats of all the contexts are read, and only the
+   * contexts whose version has changed since they were cached are read again.
+   */
   private void refreshContexts(HelixDataAccessor accessor) {
-    // TODO: Need an optimize for reading context only if the refresh is needed.
     long start = System.currentTimeMillis();
-    _contextMap.clear();
     if (_controlContextProvider.getClusterName() == null || _controlContextProvider.getClusterName()
         .equalsIgnoreCase(UNKNOWN_CLUSTER)) {
+      _contextMap.clear();
+      _contextVersionMap.clear();
       return;
     }
     String path = String.format("/%s/%s%s", _controlContextProvider.getClusterName(),
         PropertyType.PROPERTYSTORE.name(), TaskConstants.REBALANCER_CONTEXT_ROOT);
-    List<String> contextPaths = new ArrayList<>();
     List<String> childNames = accessor.getBaseDataAccessor().getChildNames(path, 0);
-    if (childNames == null) {
+    if (childNames == null || childNames.isEmpty()) {
+      _contextMap.clear();
+      _contextVersionMap.clear();
       return;
     }
+    List<String> contextPaths = new ArrayList<>();
     for (String resourceName : childNames) {
       contextPaths.add(getTaskDataPath(resourceName, TaskDataType.CONTEXT));
     }
+    Stat[] stats = accessor.getBaseDataAccessor().getStats(contextPaths, 0);
+
+    Map<String, ZNRecord> newContextMap = new HashMap<>();
+    Map<String, Integer> newContextVersionMap = new HashMap<>();
+    List<String> reloadNames = new ArrayList<>();
+    List<String> reloadPaths = new ArrayList<>();
+    for (int i = 0; i < childNames.size(); i++) {
+      String resourceName = childNames.get(i);
+      Integer cachedVersion = _contextVersionMap.get(resourceName);
+      if (stats[i] != null && cachedVersion != null && cachedVersion == stats[i].getVersion()
+          && _contextMap.get(resourceName) != null) {
+        newContextMap.put(resourceName, _contextMap.get(resourceName));
+        newContextVersionMap.put(resourceName, cachedVersion);
+      } else {
+        reloadNames.add(resourceName);
+        reloadPaths.add(contextPaths.get(i));
+      }
+    }
 
-    List<ZNRecord> contexts = accessor.getBaseDataAccessor().get(contextPaths, null, 0, true);
-
+    List<Stat> reloadStats = new ArrayList<>();
+    List<ZNRecord> contexts =
+        accessor.getBaseDataAccessor().get(reloadPaths, reloadStats, 0, true);
     for (int i = 0; i < contexts.size(); i++) {
       ZNRecord context = contexts.get(i);
+      String resourceName = reloadNames.get(i);
       if (context != null && context.getSimpleField(NAME) != null) {
-        _contextMap.put(context.getSimpleField(NAME), context);
+        newContextMap.put(context.getSimpleField(NAME), context);
+        if (resourceName.equals(context.getSimpleField(NAME)) && reloadStats.get(i) != null) {
+          newContextVersionMap.put(resourceName, reloadStats.get(i).getVersion());
+        }
       } else {
-        _contextMap.put(childNames.get(i), context);
+        newContextMap.put(resourceName, context);
         LogUtil.logDebug(LOG, genEventInfo(),
-            String.format("Context for %s is null or miss the context NAME!", childNames.get((i))));
+            String.format("Context for %s is null or miss the context NAME!", resourceName));
       }
     }
+    _contextMap = newContextMap;
+    _contextVersionMap = newContextVersionMap;
 
     if (LOG.isDebugEnabled()) {
       LogUtil.logDebug(LOG, genEventInfo(),
-          "# of workflow/job context read from zk: " + _contextMap.size() + ". Take " + (
-              System.currentTimeMillis() - start) + " ms");
+          "# of workflow/job context: " + _contextMap.size() + ", read from zk: "
+              + contexts.size() + ". Take " + (System.currentTimeMillis() - start) + " ms");
     }
   }
 
@@ -272,6 +306,8 @@ public class TaskDataCache extends AbstractDataCache {
   private void updateContext(String resourceName, ZNRecord record) {
     _contextMap.put(resourceName, record);
     _contextToUpdate.add(resourceName);
+    // The context is read again after it is written
+    _contextVersionMap.remove(resourceName);
   }
 
   public void persistDataChanges(HelixDataAccessor accessor) {
@@ -351,6 +387,7 @@ public class TaskDataCache extends AbstractDataCache {
   public void removeContext(String resourceName) {
     if (_contextMap.containsKey(resourceName)) {
       _contextMap.remove(resourceName);
+      _contextVersionMap.remove(resourceName);
       _contextToRemove.add(resourceName);
     }
   }
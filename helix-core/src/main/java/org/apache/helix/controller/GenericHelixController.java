@@ -19,6 +19,7 @@ package org.apache.helix.controller;
  * under the License.
  */
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -39,6 +40,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import org.apache.helix.HelixDataAccessor;
@@ -46,6 +48,7 @@ import org.apache.helix.HelixManager;
 import org.apache.helix.NotificationContext;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
 import org.apache.helix.api.listeners.ClusterConfigChangeListener;
 import org.apache.helix.api.listeners.ControllerChangeListener;
@@ -70,6 +73,8 @@ import org.apache.helix.controller.pipeline.AsyncWorkerType;
 import org.apache.helix.controller.pipeline.Pipeline;
 import org.apache.helix.controller.pipeline.PipelineRegistry;
 import org.apache.helix.controller.rebalancer.StatefulRebalancer;
+import org.apache.helix.controller.rebalancer.util.WagedValidationUtil;
+import org.apache.helix.controller.rebalancer.waged.AssignmentMetadataStore;
 import org.apache.helix.controller.rebalancer.waged.WagedRebalancer;
 import org.apache.helix.controller.stages.AttributeName;
 import org.apache.helix.controller.stages.BestPossibleStateCalcStage;
@@ -111,6 +116,7 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.apache.helix.util.HelixUtil;
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -142,6 +148,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
 
   private static final long EVENT_THREAD_JOIN_TIMEOUT = 1000;
   private static final int ASYNC_TASKS_THREADPOOL_SIZE = 10;
+  private static final long DEFAULT_CACHE_SNAPSHOT_INTERVAL_MS = 30 * 1000L;
   private final PipelineRegistry _registry;
   private final PipelineRegistry _taskRegistry;
   private final PipelineRegistry _managementModeRegistry;
@@ -186,6 +193,13 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
   private final ScheduledExecutorService _periodicalRebalanceExecutor =
       Executors.newSingleThreadScheduledExecutor();
   private ScheduledFuture _periodicRebalanceFutureTask = null;
+  private ScheduledFuture _warmStandbyFutureTask = null;
+  // Guards the warm standby refresh, so stopping the standby waits for the refresh in progress
+  private final Object _warmStandbyLock = new Object();
+  private boolean _warmStandbyEnabled = false;
+  // The WAGED assignment metadata the warm standby keeps up to date. It is separate from the
+  // rebalancer's store, and handed over to the rebalancer once this controller becomes the leader.
+  private AssignmentMetadataStore _warmStandbyMetadataStore = null;
   long _timerPeriod = Long.MAX_VALUE;
 
   /**
@@ -713,10 +727,11 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     if (_enabledPipelineTypes.contains(Pipeline.Type.DEFAULT)) {
       logger.info("Initializing {} pipeline", Pipeline.Type.DEFAULT.name());
       _resourceControlDataProvider = new ResourceControllerDataProvider(clusterName);
-      _eventQueue = new ClusterEventBlockingQueue();
+      _eventQueue = createEventQueue();
       _eventThread = new ClusterEventProcessor(_resourceControlDataProvider, _eventQueue,
           "default-" + clusterName);
       initPipeline(_eventThread, _resourceControlDataProvider);
+      enableCacheSnapshot(_resourceControlDataProvider, clusterName);
       logger.info("Initialized {} pipeline", Pipeline.Type.DEFAULT.name());
     } else {
       _eventQueue = null;
@@ -727,7 +742,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     if (_enabledPipelineTypes.contains(Pipeline.Type.TASK)) {
       logger.info("Initializing {} pipeline", Pipeline.Type.TASK.name());
       _workflowControlDataProvider = new WorkflowControllerDataProvider(clusterName);
-      _taskEventQueue = new ClusterEventBlockingQueue();
+      _taskEventQueue = createEventQueue();
       _taskEventThread = new ClusterEventProcessor(_workflowControlDataProvider, _taskEventQueue,
           "task-" + clusterName);
       initPipeline(_taskEventThread, _workflowControlDataProvider);
@@ -741,7 +756,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     logger.info("Initializing {} pipeline", Pipeline.Type.MANAGEMENT_MODE.name());
     _managementControllerDataProvider =
         new ManagementControllerDataProvider(clusterName, Pipeline.Type.MANAGEMENT_MODE.name());
-    _managementModeEventQueue = new ClusterEventBlockingQueue();
+    _managementModeEventQueue = createEventQueue();
     _managementModeEventThread =
         new ClusterEventProcessor(_managementControllerDataProvider, _managementModeEventQueue,
             Pipeline.Type.MANAGEMENT_MODE.name() + "-" + clusterName);
@@ -964,6 +979,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
             enqueueTime - zkCallbackTime));
       }
       if (_isMonitoring) {
+        _clusterStatusMonitor.reportCoalescedClusterEvents(event.getCoalescedEventCount());
         _clusterStatusMonitor
             .updateClusterEventDuration(ClusterEventMonitor.PhaseName.InQueue.name(),
                 startTime - enqueueTime);
@@ -1311,6 +1327,27 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
         event.clone(String.format("%s_%s", uid, Pipeline.Type.TASK.name())));
   }
 
+  private static ClusterEventBlockingQueue createEventQueue() {
+    long coalesceWindowMs = HelixUtil
+        .getSystemPropertyAsLong(SystemPropertyKeys.CONTROLLER_EVENT_COALESCE_WINDOW_MS, 0L);
+    long coalesceMaxDelayMs = HelixUtil
+        .getSystemPropertyAsLong(SystemPropertyKeys.CONTROLLER_EVENT_COALESCE_MAX_DELAY_MS,
+            coalesceWindowMs);
+    return new ClusterEventBlockingQueue(coalesceWindowMs, coalesceMaxDelayMs,
+        Boolean.getBoolean(SystemPropertyKeys.CONTROLLER_EVENT_PRIORITY_ENABLED));
+  }
+
+  private static void enableCacheSnapshot(ResourceControllerDataProvider dataProvider,
+      String clusterName) {
+    String snapshotDir = System.getProperty(SystemPropertyKeys.CONTROLLER_CACHE_SNAPSHOT_DIR);
+    if (snapshotDir == null || snapshotDir.isEmpty()) {
+      return;
+    }
+    dataProvider.enableCacheSnapshot(new File(snapshotDir, clusterName + ".cache"),
+        HelixUtil.getSystemPropertyAsLong(SystemPropertyKeys.CONTROLLER_CACHE_SNAPSHOT_INTERVAL_MS,
+            DEFAULT_CACHE_SNAPSHOT_INTERVAL_MS));
+  }
+
   private void enqueueEvent(ClusterEventBlockingQueue queue, ClusterEvent event) {
     if (event == null || queue == null) {
       return;
@@ -1352,6 +1389,119 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     logger.info("END: GenericClusterController.onControllerChange() for cluster " + _clusterName);
   }
 
+  /**
+   * Keep the caches of the resource pipeline and the WAGED assignment metadata up to date while
+   * this controller is not the leader, so the first pipeline after it becomes the leader only
+   * reads what changed since the last refresh. The data is refreshed periodically until
+   * {@link #stopWarmStandby()} is called.
+   * @param manager the manager of this controller
+   * @param intervalMs the refresh interval in ms
+   */
+  public synchronized void startWarmStandby(HelixManager manager, long intervalMs) {
+    if (_resourceControlDataProvider == null || _warmStandbyFutureTask != null) {
+      return;
+    }
+    logger.info("Start warm standby for cluster {}, refresh interval {} ms", _clusterName,
+        intervalMs);
+    synchronized (_warmStandbyLock) {
+      _warmStandbyEnabled = true;
+    }
+    _warmStandbyFutureTask = _asyncTasksThreadPool
+        .scheduleWithFixedDelay(() -> refreshWarmStandby(manager), 0, intervalMs,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop refreshing the data of the warm standby. It returns after the refresh in progress, if
+   * any, is done, so the caller can take the leadership right away.
+   */
+  public synchronized void stopWarmStandby() {
+    if (_warmStandbyFutureTask != null) {
+      logger.info("Stop warm standby for cluster {}", _clusterName);
+      _warmStandbyFutureTask.cancel(false /* mayInterruptIfRunning */);
+      _warmStandbyFutureTask = null;
+      synchronized (_warmStandbyLock) {
+        _warmStandbyEnabled = false;
+      }
+    }
+  }
+
+  private void refreshWarmStandby(HelixManager manager) {
+    synchronized (_warmStandbyLock) {
+      // The leader's pipeline refreshes the data itself.
+      if (!_warmStandbyEnabled || manager.isLeader()) {
+        return;
+      }
+      try {
+        long startTime = System.currentTimeMillis();
+        // The caches only read the znodes whose version changed since the last refresh.
+        _resourceControlDataProvider.requireFullRefresh();
+        _resourceControlDataProvider.refreshReadOnly(manager.getHelixDataAccessor());
+        // The rebalancer belongs to the pipeline, so the assignment metadata is kept in a separate
+        // store that only reads the assignments whose version changed.
+        if (_resourceControlDataProvider.getIdealStates().values().stream()
+            .anyMatch(WagedValidationUtil::isWagedEnabled)) {
+          if (_warmStandbyMetadataStore == null
+              && manager.getMetadataStoreConnectionString() != null) {
+            _warmStandbyMetadataStore = new AssignmentMetadataStore(
+                manager.getMetadataStoreConnectionString(), manager.getClusterName());
+          }
+          if (_warmStandbyMetadataStore != null) {
+            _warmStandbyMetadataStore.refresh();
+          }
+        }
+        logger.info("Refreshed warm standby data for cluster {}, took {} ms", _clusterName,
+            System.currentTimeMillis() - startTime);
+      } catch (Exception e) {
+        logger.warn("Failed to refresh warm standby data for cluster {}", _clusterName, e);
+      }
+    }
+  }
+
+  /**
+   * Hand the assignment metadata of the warm standby over to the rebalancer once this controller
+   * is the leader and the standby has stopped. The metadata is kept while the standby is running.
+   */
+  private void handOverWarmStandby(HelixManager manager, StatefulRebalancer rebalancer) {
+    AssignmentMetadataStore metadataStore;
+    synchronized (_warmStandbyLock) {
+      if (_warmStandbyEnabled || _warmStandbyMetadataStore == null || manager == null
+          || !manager.isLeader()) {
+        return;
+      }
+      metadataStore = _warmStandbyMetadataStore;
+      _warmStandbyMetadataStore = null;
+    }
+    try {
+      if (rebalancer instanceof WagedRebalancer) {
+        ((WagedRebalancer) rebalancer).loadAssignmentMetadata(metadataStore);
+        logger.info("Loaded the warm standby assignment metadata for cluster {}", _clusterName);
+      }
+    } catch (Exception e) {
+      logger.warn("Failed to load the warm standby assignment metadata for cluster {}",
+          _clusterName, e);
+    } finally {
+      metadataStore.close();
+    }
+  }
+
+  private void closeWarmStandbyMetadataStore() {
+    synchronized (_warmStandbyLock) {
+      if (_warmStandbyMetadataStore != null) {
+        _warmStandbyMetadataStore.close();
+        _warmStandbyMetadataStore = null;
+      }
+    }
+  }
+
+  /**
+   * @return the data provider of the resource pipeline, or null if the pipeline is not enabled
+   */
+  @VisibleForTesting
+  public ResourceControllerDataProvider getResourceControllerDataProvider() {
+    return _resourceControlDataProvider;
+  }
+
   /**
    * Go through the list of liveinstances in the cluster, and add currentstateChange listener and
    * Message listeners to them if they are newly added. For current state change, the observation is
@@ -1450,6 +1600,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     removeController(this);
 
     stopPeriodRebalance();
+    stopWarmStandby();
     _periodicalRebalanceExecutor.shutdown();
     if (!_periodicalRebalanceExecutor
         .awaitTermination(EVENT_THREAD_JOIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
@@ -1474,9 +1625,17 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     // shutdown async workers
     shutdownAsyncFIFOWorkers();
 
+    if (_resourceControlDataProvider != null) {
+      _resourceControlDataProvider.shutdownResourceComputePool();
+    }
+    if (_workflowControlDataProvider != null) {
+      _workflowControlDataProvider.shutdownResourceComputePool();
+    }
+
     enableClusterStatusMonitor(false);
 
     _rebalancerRef.closeRebalancer();
+    closeWarmStandbyMetadataStore();
 
     // TODO controller shouldn't be used in anyway after shutdown.
     // Need to record shutdown and throw Exception if the controller is used again.
@@ -1625,6 +1784,8 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
         _rebalancer.reset();
         _isRebalancerValid = true;
       }
+      // The rebalancer only takes the assignments it has not loaded yet.
+      handOverWarmStandby(helixManager, _rebalancer);
       return _rebalancer;
     }
 
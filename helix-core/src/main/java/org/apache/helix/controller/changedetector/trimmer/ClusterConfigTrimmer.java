@@ -56,6 +56,8 @@ public class ClusterConfigTrimmer extends HelixPropertyTrimmer<ClusterConfig> {
    * DELAY_REBALANCE_ENABLED,
    * DELAY_REBALANCE_TIME,
    * GLOBAL_REBALANCE_ASYNC_MODE,
+   * PARTIAL_REBALANCE_INCREMENTAL_MODE,
+   * ASSIGNMENT_ASYNC_PERSISTENCE_MODE,
    * P2P_MESSAGE_ENABLED,
    * All StateTransitionTimeoutConfig,
    * All StateTransitionThrottleConfig
@@ -19,6 +19,8 @@ package org.apache.helix.controller.dataproviders;
  * under the License.
  */
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,6 +32,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -90,11 +95,18 @@ public class BaseControllerDataProvider implements ControlContextProvider {
   private ClusterConfig _clusterConfig;
 
   private boolean _updateInstanceOfflineTime = true;
+  // In the read-only mode, the refresh does not write the data it cleans up or derives back to ZK
+  private boolean _readOnly = false;
   private MaintenanceSignal _maintenanceSignal;
   private PauseSignal _pauseSignal;
   private boolean _isMaintenanceModeEnabled;
   private boolean _hasMaintenanceSignalChanged;
   private ExecutorService _asyncTasksThreadPool;
+  private ForkJoinPool _resourceComputePool;
+  private ControllerCacheSnapshot _cacheSnapshot;
+  private long _cacheSnapshotIntervalMs;
+  private long _lastCacheSnapshotTime;
+  private final AtomicBoolean _cacheSnapshotWriting = new AtomicBoolean(false);
 
   // A map recording what data has changed
   protected Map<HelixConstants.ChangeType, AtomicBoolean> _propertyDataChangedMap;
@@ -283,7 +295,8 @@ public class BaseControllerDataProvider implements ControlContextProvider {
       refreshedType.add(HelixConstants.ChangeType.CLUSTER_CONFIG);
       // TODO: This is a temp function to clean up incompatible batched disabled instances format.
       // Remove in later version.
-      if (_clusterConfig!=null && needCleanUpBatchedDisabledInstance(_clusterConfig.getRecord())
+      if (!_readOnly && _clusterConfig != null
+          && needCleanUpBatchedDisabledInstance(_clusterConfig.getRecord())
           && cleanBatchDisableMapField(accessor)) {
         LogUtil.logInfo(logger, getClusterEventId(), String
             .format("Clean ClusterConfig mapField for cluster %s, pipeline %s", _clusterName,
@@ -533,6 +546,21 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     doRefresh(accessor);
   }
 
+  /**
+   * Refresh the caches without writing anything to ZK, for a controller that is not the leader.
+   * The participant history and the cluster config clean up are left to the next refresh that is
+   * not read-only.
+   * @param accessor
+   */
+  public synchronized void refreshReadOnly(HelixDataAccessor accessor) {
+    _readOnly = true;
+    try {
+      refresh(accessor);
+    } finally {
+      _readOnly = false;
+    }
+  }
+
   /**
    * @param accessor
    * @return The types that has been updated during the refresh.
@@ -571,6 +599,10 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     updateDisabledInstances(getInstanceConfigMap().values(),
         getClusterConfig());
 
+    if (_cacheSnapshot != null) {
+      writeCacheSnapshot();
+    }
+
     return refreshedTypes;
   }
 
@@ -1048,6 +1080,10 @@ public class BaseControllerDataProvider implements ControlContextProvider {
   }
 
   private void updateOfflineInstanceHistory(HelixDataAccessor accessor) {
+    if (_readOnly) {
+      // Keep _updateInstanceOfflineTime, so the next refresh that may write updates the history.
+      return;
+    }
     if (!_updateInstanceOfflineTime) {
       // Clean up entries for nodes that have been removed from the cluster. This prevents a stale offline time from
       // being used when the node is re-added to the cluster but before it updates its offline time.
@@ -1185,6 +1221,149 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     _asyncTasksThreadPool = asyncTasksThreadPool;
   }
 
+  /**
+   * Get the pool the pipeline stages compute the resources on concurrently. The pool is sized
+   * by the resource compute parallelism of the cluster config, and replaced once it changes.
+   * @return the pool, or null if the resources are computed sequentially
+   */
+  public synchronized ForkJoinPool getResourceComputePool() {
+    int parallelism =
+        _clusterConfig == null ? 1 : _clusterConfig.getResourceComputeParallelism();
+    if (_resourceComputePool != null && _resourceComputePool.getParallelism() != parallelism) {
+      _resourceComputePool.shutdown();
+      _resourceComputePool = null;
+    }
+    if (_resourceComputePool == null && parallelism > 1) {
+      _resourceComputePool = new ForkJoinPool(parallelism, pool -> {
+        ForkJoinWorkerThread thread =
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName(
+            String.format("HelixController-resource_compute-%s-%d", _clusterName,
+                thread.getPoolIndex()));
+        return thread;
+      }, null, false);
+    }
+    return _resourceComputePool;
+  }
+
+  /**
+   * Shutdown the pool the pipeline stages compute the resources on
+   */
+  public synchronized void shutdownResourceComputePool() {
+    if (_resourceComputePool != null) {
+      _resourceComputePool.shutdown();
+      _resourceComputePool = null;
+    }
+  }
+
+  /**
+   * Keep a local snapshot of the ideal states, instance configs and current states in the given
+   * file, written after a refresh at most once per interval. The caches are seeded from the
+   * existing snapshot, so the next refresh only reads the znodes whose stat changed since the
+   * snapshot was written.
+   * @param file the snapshot file
+   * @param writeIntervalMs the min time in ms between two writes of the snapshot
+   */
+  public synchronized void enableCacheSnapshot(File file, long writeIntervalMs) {
+    _cacheSnapshot = new ControllerCacheSnapshot(file, _clusterName);
+    _cacheSnapshotIntervalMs = writeIntervalMs;
+    _lastCacheSnapshotTime = 0;
+
+    Map<ControllerCacheSnapshot.Section, Map<List<String>, ZNRecord>> records =
+        _cacheSnapshot.read();
+    Map<String, IdealState> idealStates = new HashMap<>();
+    Map<String, InstanceConfig> instanceConfigs = new HashMap<>();
+    Map<PropertyKey, CurrentState> currentStates = new HashMap<>();
+    try {
+      records.get(ControllerCacheSnapshot.Section.IDEAL_STATE)
+          .forEach((names, record) -> idealStates.put(names.get(0), new IdealState(record)));
+      records.get(ControllerCacheSnapshot.Section.INSTANCE_CONFIG).forEach(
+          (names, record) -> instanceConfigs.put(names.get(0), new InstanceConfig(record)));
+      PropertyKey.Builder keyBuilder = new PropertyKey.Builder(_clusterName);
+      records.get(ControllerCacheSnapshot.Section.CURRENT_STATE).forEach((names, record) ->
+          currentStates.put(keyBuilder.currentState(names.get(0), names.get(1), names.get(2)),
+              new CurrentState(record)));
+    } catch (RuntimeException e) {
+      // Nothing is preloaded yet. Read everything from ZK instead.
+      LogUtil.logWarn(logger, getClusterEventId(),
+          "Failed to load the cache snapshot " + file + ", fall back to a full refresh: " + e);
+      requireFullRefresh();
+      return;
+    }
+    if (idealStates.isEmpty() && instanceConfigs.isEmpty() && currentStates.isEmpty()) {
+      return;
+    }
+
+    _idealStateCache.preload(idealStates);
+    _allInstanceConfigCache.preload(instanceConfigs);
+    _currentStateCache.preload(currentStates);
+    // The preloaded data must be validated before it is served.
+    notifyDataChange(HelixConstants.ChangeType.IDEAL_STATE);
+    notifyDataChange(HelixConstants.ChangeType.INSTANCE_CONFIG);
+    LogUtil.logInfo(logger, getClusterEventId(), String.format(
+        "Preloaded %d ideal states, %d instance configs and %d current states of cluster %s from"
+            + " the cache snapshot %s", idealStates.size(), instanceConfigs.size(),
+        currentStates.size(), _clusterName, file));
+  }
+
+  /**
+   * Update the cache snapshot to the refreshed caches and write it asynchronously, if the write
+   * interval has passed and no other write is in progress.
+   */
+  private void writeCacheSnapshot() {
+    long now = System.currentTimeMillis();
+    if (now - _lastCacheSnapshotTime < _cacheSnapshotIntervalMs
+        || !_cacheSnapshotWriting.compareAndSet(false, true)) {
+      return;
+    }
+    _lastCacheSnapshotTime = now;
+
+    final ControllerCacheSnapshot cacheSnapshot = _cacheSnapshot;
+    try {
+      Map<List<String>, IdealState> idealStates = new HashMap<>();
+      getIdealStates().forEach((name, idealState) ->
+          idealStates.put(Collections.singletonList(name), idealState));
+      cacheSnapshot.update(ControllerCacheSnapshot.Section.IDEAL_STATE, idealStates);
+      Map<List<String>, InstanceConfig> instanceConfigs = new HashMap<>();
+      getInstanceConfigMap().forEach((name, instanceConfig) ->
+          instanceConfigs.put(Collections.singletonList(name), instanceConfig));
+      cacheSnapshot.update(ControllerCacheSnapshot.Section.INSTANCE_CONFIG, instanceConfigs);
+      Map<List<String>, CurrentState> currentStates = new HashMap<>();
+      _currentStateCache.getParticipantStatesMap().forEach(
+          (instance, sessionMap) -> sessionMap.forEach((session, resourceMap) -> resourceMap
+              .forEach((resource, currentState) -> currentStates
+                  .put(Arrays.asList(instance, session, resource), currentState))));
+      cacheSnapshot.update(ControllerCacheSnapshot.Section.CURRENT_STATE, currentStates);
+      cacheSnapshot.commit();
+    } catch (RuntimeException e) {
+      _cacheSnapshotWriting.set(false);
+      LogUtil.logWarn(logger, getClusterEventId(),
+          "Failed to update the cache snapshot of cluster " + _clusterName + ": " + e);
+      return;
+    }
+
+    Runnable write = () -> {
+      try {
+        cacheSnapshot.write();
+      } catch (IOException | RuntimeException e) {
+        LogUtil.logWarn(logger, getClusterEventId(),
+            "Failed to write the cache snapshot " + cacheSnapshot.getFile() + ": " + e);
+      } finally {
+        _cacheSnapshotWriting.set(false);
+      }
+    };
+    if (_asyncTasksThreadPool != null) {
+      try {
+        _asyncTasksThreadPool.submit(write);
+        return;
+      } catch (RejectedExecutionException e) {
+        LogUtil.logWarn(logger, getClusterEventId(),
+            "Async tasks thread pool rejected the cache snapshot write, write it inline.");
+      }
+    }
+    write.run();
+  }
+
   public MonitoredAbnormalResolver getAbnormalStateResolver(String stateModel) {
     return _abnormalStateResolverMap
         .getOrDefault(stateModel, MonitoredAbnormalResolver.DUMMY_STATE_RESOLVER);
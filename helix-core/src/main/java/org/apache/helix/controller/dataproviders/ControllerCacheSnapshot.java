@@ -0,0 +1,331 @@
+package org.apache.helix.controller.dataproviders;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.HelixProperty;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordBinarySerializer;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local, memory-mapped snapshot of the controller caches. The snapshot keeps the records of
+ * the ideal states, instance configs and current states together with their znode stats, so a
+ * controller that takes over the leadership can load it and only read the znodes whose stat
+ * changed since, instead of reading the whole cluster.
+ *
+ * The records are serialized when they are added to the snapshot, and only again when the cached
+ * object changes, so keeping the snapshot up to date costs in proportion to the changes.
+ * The file is written to a temp file and then moved, so a reader never sees a partial snapshot.
+ * The snapshot is only a hint: the loaded records are always validated against the znode stats.
+ */
+class ControllerCacheSnapshot {
+  private static final Logger LOG = LoggerFactory.getLogger(ControllerCacheSnapshot.class);
+
+  private static final int MAGIC = 0x48435331; // "HCS1"
+  private static final int FORMAT_VERSION = 1;
+  private static final ZNRecordBinarySerializer SERIALIZER = new ZNRecordBinarySerializer();
+  // sun.misc.Unsafe.invokeCleaner, to unmap the buffers. Null if it is not available.
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.info("The mapped cache snapshot buffers cannot be unmapped explicitly: {}", e.toString());
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  enum Section {
+    IDEAL_STATE(1),
+    INSTANCE_CONFIG(1),
+    // <instance, session, resource>
+    CURRENT_STATE(3);
+
+    // The number of the names that identify a record of the section.
+    private final int _nameCount;
+
+    Section(int nameCount) {
+      _nameCount = nameCount;
+    }
+  }
+
+  private static class Entry {
+    private final HelixProperty _source;
+    private final Section _section;
+    private final List<String> _names;
+    private final HelixProperty.Stat _stat;
+    private final byte[] _data;
+
+    private Entry(HelixProperty source, Section section, List<String> names, byte[] data) {
+      _source = source;
+      _section = section;
+      _names = names;
+      _stat = source.getStat();
+      _data = data;
+    }
+
+    private int size() {
+      int size = 2 + 4 + 3 * 8 + 4 + _data.length;
+      for (String name : _names) {
+        size += 4 + name.getBytes(StandardCharsets.UTF_8).length;
+      }
+      return size;
+    }
+  }
+
+  private final File _file;
+  private final String _clusterName;
+  private final Map<Section, Map<List<String>, Entry>> _entries = new EnumMap<>(Section.class);
+  private volatile List<Entry> _snapshotEntries = Collections.emptyList();
+
+  ControllerCacheSnapshot(File file, String clusterName) {
+    _file = file;
+    _clusterName = clusterName;
+    for (Section section : Section.values()) {
+      _entries.put(section, new HashMap<>());
+    }
+  }
+
+  File getFile() {
+    return _file;
+  }
+
+  /**
+   * Update a section of the snapshot to the given cached properties. A property is serialized
+   * only if the cached object is not the one already in the snapshot.
+   * @param section the section to update
+   * @param properties the cached properties by their names
+   */
+  synchronized void update(Section section, Map<List<String>, ? extends HelixProperty> properties) {
+    Map<List<String>, Entry> oldEntries = _entries.get(section);
+    Map<List<String>, Entry> newEntries = new HashMap<>();
+    for (Map.Entry<List<String>, ? extends HelixProperty> property : properties.entrySet()) {
+      Entry entry = oldEntries.get(property.getKey());
+      if (entry == null || entry._source != property.getValue()) {
+        try {
+          entry = new Entry(property.getValue(), section, property.getKey(),
+              SERIALIZER.serialize(property.getValue().getRecord()));
+        } catch (ZkMarshallingError e) {
+          LOG.warn("Failed to serialize {} {} into the cache snapshot, skip it.", section,
+              property.getKey(), e);
+          continue;
+        }
+      }
+      newEntries.put(property.getKey(), entry);
+    }
+    _entries.put(section, newEntries);
+  }
+
+  /**
+   * Freeze the current content of the snapshot, to be written by {@link #write()}.
+   */
+  synchronized void commit() {
+    List<Entry> entries = new ArrayList<>();
+    for (Map<List<String>, Entry> sectionEntries : _entries.values()) {
+      entries.addAll(sectionEntries.values());
+    }
+    _snapshotEntries = entries;
+  }
+
+  /**
+   * Write the last committed content to the snapshot file.
+   */
+  void write() throws IOException {
+    List<Entry> entries = _snapshotEntries;
+    byte[] clusterName = _clusterName.getBytes(StandardCharsets.UTF_8);
+    long size = 3 * 4 + clusterName.length + 4;
+    for (Entry entry : entries) {
+      size += entry.size();
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Cache snapshot of " + size + " bytes is too large to be mapped.");
+    }
+
+    File parent = _file.getAbsoluteFile().getParentFile();
+    Files.createDirectories(parent.toPath());
+    File tmpFile = File.createTempFile(_file.getName(), ".tmp", parent);
+    MappedByteBuffer buffer = null;
+    try {
+      try (FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        putBytes(buffer, clusterName);
+        buffer.putInt(entries.size());
+        for (Entry entry : entries) {
+          buffer.put((byte) entry._section.ordinal());
+          buffer.put((byte) entry._names.size());
+          for (String name : entry._names) {
+            putBytes(buffer, name.getBytes(StandardCharsets.UTF_8));
+          }
+          buffer.putInt(entry._stat.getVersion());
+          buffer.putLong(entry._stat.getCreationTime());
+          buffer.putLong(entry._stat.getModifiedTime());
+          buffer.putLong(entry._stat.getEphemeralOwner());
+          putBytes(buffer, entry._data);
+        }
+        buffer.force();
+      } finally {
+        // Release the mapping before the file replaces the previous snapshot.
+        unmap(buffer);
+      }
+      Files.move(tmpFile.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile.toPath());
+    }
+    LOG.info("Wrote {} records of cluster {} to the cache snapshot {}, {} bytes.", entries.size(),
+        _clusterName, _file, size);
+  }
+
+  /**
+   * Read the records of the snapshot file. The returned records carry the znode stats they were
+   * cached with.
+   * @return the records by section and names. Empty if the file does not exist, belongs to
+   *         another cluster or cannot be read.
+   */
+  Map<Section, Map<List<String>, ZNRecord>> read() {
+    Map<Section, Map<List<String>, ZNRecord>> records = new EnumMap<>(Section.class);
+    for (Section section : Section.values()) {
+      records.put(section, new HashMap<>());
+    }
+    if (!_file.isFile()) {
+      return records;
+    }
+    MappedByteBuffer buffer = null;
+    try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        LOG.warn("Ignore the cache snapshot {} of an unknown format.", _file);
+        return records;
+      }
+      String clusterName = new String(getBytes(buffer), StandardCharsets.UTF_8);
+      if (!_clusterName.equals(clusterName)) {
+        LOG.warn("Ignore the cache snapshot {} of cluster {}.", _file, clusterName);
+        return records;
+      }
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        int sectionId = buffer.get();
+        if (sectionId < 0 || sectionId >= Section.values().length) {
+          throw new IOException("Unknown section " + sectionId);
+        }
+        Section section = Section.values()[sectionId];
+        int nameCount = buffer.get();
+        if (nameCount != section._nameCount) {
+          throw new IOException(
+              "Expect " + section._nameCount + " names of a " + section + " record, but got "
+                  + nameCount);
+        }
+        String[] names = new String[nameCount];
+        for (int j = 0; j < names.length; j++) {
+          names[j] = new String(getBytes(buffer), StandardCharsets.UTF_8);
+        }
+        int version = buffer.getInt();
+        long creationTime = buffer.getLong();
+        long modifiedTime = buffer.getLong();
+        long ephemeralOwner = buffer.getLong();
+        ZNRecord record = (ZNRecord) SERIALIZER.deserialize(getBytes(buffer));
+        if (record == null) {
+          throw new IOException("Failed to deserialize the " + section + " record " + names[0]);
+        }
+        record.setVersion(version);
+        record.setCreationTime(creationTime);
+        record.setModifiedTime(modifiedTime);
+        record.setEphemeralOwner(ephemeralOwner);
+        records.get(section).put(Arrays.asList(names), record);
+      }
+      LOG.info("Read {} records of cluster {} from the cache snapshot {}.", count, _clusterName,
+          _file);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to read the cache snapshot {}, ignore it.", _file, e);
+      for (Map<List<String>, ZNRecord> sectionRecords : records.values()) {
+        sectionRecords.clear();
+      }
+    } finally {
+      // The records are copied out of the buffer.
+      unmap(buffer);
+    }
+    return records;
+  }
+
+  /**
+   * Unmap the buffer right away instead of when it is garbage collected, so the mapped snapshot
+   * files are not held after they are replaced. The buffer must not be accessed afterwards.
+   * If the JVM does not support it, the buffer is left to the garbage collector.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    if (buffer == null || INVOKE_CLEANER == null) {
+      return;
+    }
+    try {
+      INVOKE_CLEANER.invoke(UNSAFE, buffer);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.debug("Failed to unmap the cache snapshot buffer, leave it to GC.", e);
+    }
+  }
+
+  private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static byte[] getBytes(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
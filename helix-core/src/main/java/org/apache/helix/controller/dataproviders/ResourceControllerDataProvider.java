@@ -42,8 +42,12 @@ import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.common.CapacityNode;
 import org.apache.helix.controller.pipeline.Pipeline;
 import org.apache.helix.controller.rebalancer.strategy.GreedyRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.topology.Topology;
+import org.apache.helix.controller.rebalancer.topology.TopologyCache;
 import org.apache.helix.controller.rebalancer.waged.WagedInstanceCapacity;
 import org.apache.helix.controller.rebalancer.waged.WagedResourceWeightsProvider;
+import org.apache.helix.controller.stages.BestPossibleAssignmentCache;
+import org.apache.helix.controller.stages.ExternalViewDeltaWriter;
 import org.apache.helix.controller.stages.MissingTopStateRecord;
 import org.apache.helix.model.CustomizedState;
 import org.apache.helix.model.CustomizedStateConfig;
@@ -69,6 +73,7 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
   // Resource control specific property caches
   private final PropertyCache<ExternalView> _externalViewCache;
   private final PropertyCache<ExternalView> _targetExternalViewCache;
+  private final ExternalViewDeltaWriter _externalViewDeltaWriter = new ExternalViewDeltaWriter();
   private final CustomizedStateCache _customizedStateCache;
   // a map from customized state type to customized view cache
   private final Map<String, CustomizedViewCache> _customizedViewCacheMap;
@@ -80,6 +85,14 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
   // maintain a cache of idealmapping (preference list) for full-auto resource across pipeline runs
   private Map<String, ZNRecord> _idealMappingCache;
 
+  // maintain a cache of the best possible assignments of the non-WAGED resources across pipeline
+  // runs, validated by the fingerprint of the inputs of each resource
+  private final BestPossibleAssignmentCache _bestPossibleAssignmentCache =
+      new BestPossibleAssignmentCache();
+
+  // maintain a cache of the topology trees shared by the resources across pipeline runs
+  private final TopologyCache _topologyCache = new TopologyCache();
+
   // records for top state handoff
   private Map<String, Map<String, MissingTopStateRecord>> _missingTopStateMap;
   private Map<String, Map<String, String>> _lastTopStateLocationMap;
@@ -142,8 +155,8 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
         return obj.getResourceName();
       }
     }, true);
-    _resourceAssignmentCache = new HashMap<>();
-    _idealMappingCache = new HashMap<>();
+    _resourceAssignmentCache = new ConcurrentHashMap<>();
+    _idealMappingCache = new ConcurrentHashMap<>();
     _missingTopStateMap = new HashMap<>();
     _lastTopStateLocationMap = new HashMap<>();
     _refreshedChangeTypes = ConcurrentHashMap.newKeySet();
@@ -166,6 +179,12 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
         || changedTypes.contains((HelixConstants.ChangeType.CLUSTER_CONFIG))) {
       clearCachedResourceAssignments();
     }
+    // The cached topologies are validated on each lookup, only drop the ones of the old nodes.
+    if (changedTypes.contains(HelixConstants.ChangeType.LIVE_INSTANCE)
+        || changedTypes.contains(HelixConstants.ChangeType.INSTANCE_CONFIG)
+        || changedTypes.contains(HelixConstants.ChangeType.CLUSTER_CONFIG)) {
+      _topologyCache.clear();
+    }
 
     // Refresh resource controller specific property caches
     refreshCustomizedStateConfig(accessor);
@@ -236,6 +255,8 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
       synchronized (_externalViewCache) {
         _externalViewCache.refresh(accessor);
       }
+      // The ExternalViews may have been written by another controller.
+      _externalViewDeltaWriter.reset();
     }
   }
 
@@ -304,6 +325,14 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
     }
   }
 
+  /**
+   * Get the writer of the delta-encoded external views
+   * @return
+   */
+  public ExternalViewDeltaWriter getExternalViewDeltaWriter() {
+    return _externalViewDeltaWriter;
+  }
+
   /**
    * Update the cached external view map
    * @param externalViews
@@ -429,6 +458,7 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
    */
   public void invalidateCachedIdealStateMapping(String resource) {
     _idealMappingCache.remove(resource);
+    _bestPossibleAssignmentCache.invalidate(resource);
   }
 
   /**
@@ -448,6 +478,30 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
     _idealMappingCache.put(resource, mapping);
   }
 
+  /**
+   * Get the cache of the best possible assignments of the resources that are not rebalanced by
+   * the WAGED rebalancer.
+   * @return the best possible assignment cache
+   */
+  public BestPossibleAssignmentCache getBestPossibleAssignmentCache() {
+    return _bestPossibleAssignmentCache;
+  }
+
+  /**
+   * Get the topology of the given nodes. The same topology is shared by all the resources that
+   * are placed on the same nodes, until the instance configs or the cluster config change.
+   * @param allNodes all the nodes of the resource
+   * @param liveNodes the live nodes of the resource
+   * @param faultZoneLevelOnly whether to include additional non-faultZone level nodes in the
+   *                           topology tree above the end-nodes
+   * @return the shared topology, which must not be modified
+   */
+  public Topology getTopology(List<String> allNodes, List<String> liveNodes,
+      boolean faultZoneLevelOnly) {
+    return _topologyCache.getTopology(allNodes, liveNodes, getAssignableInstanceConfigMap(),
+        getClusterConfig(), faultZoneLevelOnly);
+  }
+
   /**
    * Return the set of all PropertyTypes that changed prior to this round of rebalance. The caller
    * should clear this set by calling {@link #clearRefreshedChangeTypes()}.
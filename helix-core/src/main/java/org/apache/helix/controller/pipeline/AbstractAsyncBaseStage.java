@@ -22,6 +22,7 @@ package org.apache.helix.controller.pipeline;
 import org.apache.helix.common.DedupEventProcessor;
 import org.apache.helix.controller.stages.AttributeName;
 import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,9 +39,17 @@ public abstract class AbstractAsyncBaseStage extends AbstractBaseStage {
       throw new StageException("No async worker found for " + taskType);
     }
 
+    final long queuedTimestamp = System.currentTimeMillis();
     worker.queueEvent(taskType, () -> {
       long startTimestamp = System.currentTimeMillis();
       logger.info("START AsyncProcess: {}", taskType);
+      ClusterStatusMonitor clusterStatusMonitor =
+          event.getAttribute(AttributeName.clusterStatusMonitor.name());
+      if (clusterStatusMonitor != null) {
+        clusterStatusMonitor.updatePipelineStageQueueTime(pipelineType, getStageName(),
+            startTimestamp - queuedTimestamp);
+      }
+      StageMeasurement measurement = StageMeasurement.start();
       try {
         execute(event);
       } catch (InterruptedException e) {
@@ -49,6 +58,7 @@ public abstract class AbstractAsyncBaseStage extends AbstractBaseStage {
       } catch (Exception e) {
         logger.error("Failed to process {} asynchronously", taskType, e);
       }
+      measurement.finish(event, pipelineType, getStageName());
       long endTimestamp = System.currentTimeMillis();
       logger.info("END AsyncProcess: {}, took {} ms", taskType, endTimestamp - startTimestamp);
     });
@@ -70,6 +70,9 @@ public class Pipeline {
     }
     for (Stage stage : _stages) {
       long startTime = System.currentTimeMillis();
+      // The asynchronous stages report their own measurement once they are executed
+      StageMeasurement measurement =
+          stage instanceof AbstractAsyncBaseStage ? null : StageMeasurement.start();
 
       stage.preProcess();
       stage.process(event);
@@ -77,6 +80,9 @@ public class Pipeline {
 
       long endTime = System.currentTimeMillis();
       long duration = endTime - startTime;
+      if (measurement != null) {
+        measurement.finish(event, _pipelineType, stage.getStageName());
+      }
       logger.info(String.format("END %s for %s pipeline for cluster %s. took: %d ms for event %s",
           stage.getStageName(), _pipelineType, event.getClusterName(), duration,
           event.getEventId()));
@@ -0,0 +1,91 @@
+package org.apache.helix.controller.pipeline;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+import org.apache.helix.controller.stages.AttributeName;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.apache.helix.zookeeper.zkclient.ZkClient;
+
+/**
+ * Measures a run of a stage on the current thread: the latency, the bytes allocated by the
+ * thread and the ZooKeeper reads issued by the thread. The result is reported to the
+ * {@link ClusterStatusMonitor} of the event.
+ */
+class StageMeasurement {
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final boolean ALLOCATED_BYTES_SUPPORTED =
+      THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+          && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported()
+          && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+
+  private final long _startTime;
+  private final long _startAllocatedBytes;
+  private final long _startZkReads;
+
+  private StageMeasurement() {
+    _startTime = System.currentTimeMillis();
+    _startAllocatedBytes = getThreadAllocatedBytes();
+    _startZkReads = ZkClient.getThreadReadCount();
+  }
+
+  static StageMeasurement start() {
+    return new StageMeasurement();
+  }
+
+  /**
+   * Report the measurement of the stage to the cluster status monitor of the event, if any.
+   * @return the latency of the stage in ms
+   */
+  long finish(ClusterEvent event, String pipelineType, String stageName) {
+    long duration = System.currentTimeMillis() - _startTime;
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    if (clusterStatusMonitor != null) {
+      long allocatedBytes =
+          ALLOCATED_BYTES_SUPPORTED ? getThreadAllocatedBytes() - _startAllocatedBytes : -1;
+      clusterStatusMonitor.updatePipelineStageStats(pipelineType, stageName, duration,
+          allocatedBytes, ZkClient.getThreadReadCount() - _startZkReads,
+          getProcessedItemCount(event));
+    }
+    return duration;
+  }
+
+  private static long getThreadAllocatedBytes() {
+    return ALLOCATED_BYTES_SUPPORTED ? ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN)
+        .getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+  }
+
+  /**
+   * The items of a stage are the resources in the event, since most stages process the event
+   * resource by resource.
+   */
+  private static int getProcessedItemCount(ClusterEvent event) {
+    Map<?, ?> resources = event.getAttribute(AttributeName.RESOURCES_TO_REBALANCE.name());
+    if (resources == null) {
+      resources = event.getAttribute(AttributeName.RESOURCES.name());
+    }
+    return resources == null ? 0 : resources.size();
+  }
+}
@@ -223,10 +223,18 @@ public class CRUSHPlacementAlgorithm {
    * Selection algorithm based on the "straw" bucket type as described in the CRUSH algorithm.
    */
   private class Selector {
-    private final Map<Node,Long> straws = new HashMap<Node,Long>();
+    private final Map<Node,Long> straws;
     private final JenkinsHash hashFunction;
 
     public Selector(Node node) {
+      hashFunction = new JenkinsHash();
+      // the straws are shared by all the selections from the same node
+      Map<Node, Long> cachedStraws = node.getChildStraws();
+      if (cachedStraws != null) {
+        straws = cachedStraws;
+        return;
+      }
+      Map<Node, Long> straws = new HashMap<Node, Long>();
       if (!node.isLeaf()) {
         // create a map from the nodes to their values
         List<Node> sortedNodes = sortNodes(node.getChildren()); // do a reverse sort by weight
@@ -269,7 +277,8 @@ public class CRUSHPlacementAlgorithm {
           lastw = previous.getWeight();
         }
       }
-      hashFunction = new JenkinsHash();
+      this.straws = Collections.unmodifiableMap(straws);
+      node.setChildStraws(this.straws);
     }
 
     /**
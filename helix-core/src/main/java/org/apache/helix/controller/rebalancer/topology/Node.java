@@ -22,6 +22,7 @@ package org.apache.helix.controller.rebalancer.topology;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Node implements Comparable<Node> {
   private String _name;
@@ -34,6 +35,10 @@ public class Node implements Comparable<Node> {
 
   private boolean _failed;
 
+  // The CRUSH straws of the children, computed by the first selection from this node. The tree
+  // must not be changed once a selection is made.
+  private volatile Map<Node, Long> _childStraws;
+
   public Node() { }
 
   protected Node(Node node) {
@@ -104,6 +109,7 @@ public class Node implements Comparable<Node> {
    */
   public void addChild(Node child) {
     _children.put(child.getName(), child);
+    _childStraws = null;
   }
 
   /**
@@ -129,6 +135,14 @@ public class Node implements Comparable<Node> {
     return _children == null || _children.isEmpty();
   }
 
+  public Map<Node, Long> getChildStraws() {
+    return _childStraws;
+  }
+
+  public void setChildStraws(Map<Node, Long> childStraws) {
+    _childStraws = childStraws;
+  }
+
   public Node getParent() {
     return _parent;
   }
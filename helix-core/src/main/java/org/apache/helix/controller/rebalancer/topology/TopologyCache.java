@@ -0,0 +1,164 @@
+package org.apache.helix.controller.rebalancer.topology;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.InstanceConfig;
+
+/**
+ * A cache of the built Topology trees of a cluster. The resources that are placed on the same
+ * nodes share one tree, instead of each building its own from the instance configs. A cached
+ * tree is only reused while the cluster config and the configs and weights of its instances
+ * are the same objects and values it was built from.
+ *
+ * The cached trees must not be modified. Use {@link Topology#clone} to change the weights.
+ */
+public class TopologyCache {
+  private static final int MAX_CACHED_TOPOLOGIES = 64;
+
+  private static class TopologyKey {
+    private final List<String> _allNodes;
+    private final List<String> _liveNodes;
+    private final boolean _faultZoneLevelOnly;
+    private final int _hashCode;
+
+    private TopologyKey(List<String> allNodes, List<String> liveNodes,
+        boolean faultZoneLevelOnly) {
+      _allNodes = allNodes;
+      _liveNodes = liveNodes;
+      _faultZoneLevelOnly = faultZoneLevelOnly;
+      _hashCode = Objects.hash(allNodes, liveNodes, faultZoneLevelOnly);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof TopologyKey)) {
+        return false;
+      }
+      TopologyKey that = (TopologyKey) obj;
+      return _hashCode == that._hashCode && _faultZoneLevelOnly == that._faultZoneLevelOnly
+          && _allNodes.equals(that._allNodes) && _liveNodes.equals(that._liveNodes);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  private static class CachedTopology {
+    private final Topology _topology;
+    private final ClusterConfig _clusterConfig;
+    private final InstanceConfig[] _instanceConfigs;
+    private final int[] _instanceWeights;
+
+    private CachedTopology(Topology topology, List<String> allNodes,
+        Map<String, InstanceConfig> instanceConfigMap, ClusterConfig clusterConfig) {
+      _topology = topology;
+      _clusterConfig = clusterConfig;
+      _instanceConfigs = new InstanceConfig[allNodes.size()];
+      _instanceWeights = new int[allNodes.size()];
+      for (int i = 0; i < allNodes.size(); i++) {
+        _instanceConfigs[i] = instanceConfigMap.get(allNodes.get(i));
+        _instanceWeights[i] = _instanceConfigs[i].getWeight();
+      }
+    }
+
+    private boolean isValid(List<String> allNodes, Map<String, InstanceConfig> instanceConfigMap,
+        ClusterConfig clusterConfig) {
+      if (_clusterConfig != clusterConfig) {
+        return false;
+      }
+      for (int i = 0; i < _instanceConfigs.length; i++) {
+        InstanceConfig instanceConfig = instanceConfigMap.get(allNodes.get(i));
+        // the weights are overridden temporarily by some strategies
+        if (instanceConfig != _instanceConfigs[i]
+            || instanceConfig.getWeight() != _instanceWeights[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private final Map<TopologyKey, CachedTopology> _topologies =
+      new LinkedHashMap<TopologyKey, CachedTopology>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TopologyKey, CachedTopology> eldest) {
+          return size() > MAX_CACHED_TOPOLOGIES;
+        }
+      };
+
+  /**
+   * Get the Topology of the given nodes, build it if it is not cached or out of date.
+   *
+   * @param allNodes           allNodes of the given cluster.
+   * @param liveNodes          liveNodes of the given cluster.
+   * @param instanceConfigMap  instanceConfigMap of the given cluster.
+   * @param clusterConfig      clusterConfig of the given cluster.
+   * @param faultZoneLevelOnly whether to include additional non-faultZone level nodes in the
+   *                           topology tree above the end-nodes.
+   * @return the shared Topology, which must not be modified.
+   */
+  public Topology getTopology(List<String> allNodes, List<String> liveNodes,
+      Map<String, InstanceConfig> instanceConfigMap, ClusterConfig clusterConfig,
+      boolean faultZoneLevelOnly) {
+    TopologyKey key =
+        new TopologyKey(new ArrayList<>(allNodes), new ArrayList<>(liveNodes), faultZoneLevelOnly);
+    synchronized (_topologies) {
+      CachedTopology cachedTopology = _topologies.get(key);
+      if (cachedTopology != null && cachedTopology
+          .isValid(key._allNodes, instanceConfigMap, clusterConfig)) {
+        return cachedTopology._topology;
+      }
+    }
+
+    // Build it outside of the lock, so the resources of the other nodes are not blocked.
+    Topology topology = new Topology(key._allNodes, key._liveNodes, instanceConfigMap,
+        clusterConfig, faultZoneLevelOnly);
+    CachedTopology cachedTopology =
+        new CachedTopology(topology, key._allNodes, instanceConfigMap, clusterConfig);
+    synchronized (_topologies) {
+      _topologies.put(key, cachedTopology);
+    }
+    return topology;
+  }
+
+  public void clear() {
+    synchronized (_topologies) {
+      _topologies.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (_topologies) {
+      return _topologies.size();
+    }
+  }
+}
@@ -23,6 +23,13 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import java.util.stream.Collectors;
 import org.apache.helix.BucketDataAccessor;
@@ -34,11 +41,14 @@ import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordJacksonSerializer;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A placeholder before we have the real assignment metadata store.
  */
 public class AssignmentMetadataStore {
+  private static final Logger LOG = LoggerFactory.getLogger(AssignmentMetadataStore.class);
   private static final String ASSIGNMENT_METADATA_KEY = "ASSIGNMENT_METADATA";
   private static final String BASELINE_TEMPLATE = "/%s/%s/BASELINE";
   private static final String BEST_POSSIBLE_TEMPLATE = "/%s/%s/BEST_POSSIBLE";
@@ -46,7 +56,10 @@ public class AssignmentMetadataStore {
   private static final String BEST_POSSIBLE_KEY = "BEST_POSSIBLE";
   private static final ZkSerializer SERIALIZER = new ZNRecordJacksonSerializer();
 
+  private static final long WRITER_SHUTDOWN_TIMEOUT_MS = 5000L;
+
   private final BucketDataAccessor _dataAccessor;
+  private final String _clusterName;
   private final String _baselinePath;
   private final String _bestPossiblePath;
   // volatile for double-checked locking
@@ -54,13 +67,30 @@ public class AssignmentMetadataStore {
   protected volatile Map<String, ResourceAssignment> _bestPossibleAssignment;
   protected volatile int _bestPossibleVersion = 0;
   protected volatile int _lastPersistedBestPossibleVersion = 0;
+  // The metadata store versions the in-memory assignments were refreshed from
+  private String _baselineWriteVersion;
+  private String _bestPossibleWriteVersion;
+
+  // The async write-behind mode. The in-memory assignments are updated right away, while the
+  // assignments to write wait in one pending slot per path. A newer assignment replaces the one
+  // that is not written yet, so only the latest version is written. Failed writes are kept until
+  // the next pipeline retries them, unless a newer assignment is pending. Each assignment gets the
+  // next sequence of its path, so a failed write that is older than the last assignment of the
+  // path is dropped instead of being retried over the newer one.
+  private volatile boolean _asyncPersistenceEnabled = false;
+  private ExecutorService _writer;
+  private final Map<String, AtomicReference<SequencedAssignment>> _pendingWrites =
+      new ConcurrentHashMap<>();
+  private final Map<String, SequencedAssignment> _failedWrites = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> _writeSequences = new ConcurrentHashMap<>();
 
-  AssignmentMetadataStore(String metadataStoreAddrs, String clusterName) {
+  public AssignmentMetadataStore(String metadataStoreAddrs, String clusterName) {
     this(new ZkBucketDataAccessor(metadataStoreAddrs), clusterName);
   }
 
   protected AssignmentMetadataStore(BucketDataAccessor bucketDataAccessor, String clusterName) {
     _dataAccessor = bucketDataAccessor;
+    _clusterName = clusterName;
     _baselinePath = String.format(BASELINE_TEMPLATE, clusterName, ASSIGNMENT_METADATA_KEY);
     _bestPossiblePath = String.format(BEST_POSSIBLE_TEMPLATE, clusterName, ASSIGNMENT_METADATA_KEY);
   }
@@ -101,6 +131,47 @@ public class AssignmentMetadataStore {
     return _bestPossibleAssignment;
   }
 
+  /**
+   * Reload the in-memory assignments that are older than the ones in the metadata store. A
+   * controller that is not the leader calls it on its own store to follow the assignments the
+   * leader persists. It only reads the data versions unless an assignment changed.
+   */
+  public synchronized void refresh() {
+    String baselineWriteVersion = _dataAccessor.getLastSuccessfulWriteVersion(_baselinePath);
+    if (_globalBaseline == null || baselineWriteVersion == null
+        || !baselineWriteVersion.equals(_baselineWriteVersion)) {
+      _globalBaseline = fetchAssignmentOrDefault(_baselinePath);
+      _baselineWriteVersion = baselineWriteVersion;
+    }
+    String bestPossibleWriteVersion =
+        _dataAccessor.getLastSuccessfulWriteVersion(_bestPossiblePath);
+    if (_bestPossibleAssignment == null || bestPossibleWriteVersion == null
+        || !bestPossibleWriteVersion.equals(_bestPossibleWriteVersion)) {
+      _bestPossibleAssignment = fetchAssignmentOrDefault(_bestPossiblePath);
+      _bestPossibleWriteVersion = bestPossibleWriteVersion;
+    }
+  }
+
+  /**
+   * Take the assignments of a store that {@link #refresh()} keeps up to date, instead of reading
+   * them again. The given store is refreshed first, so only the latest assignments are taken. The
+   * assignments that this store has already loaded are kept.
+   * @param refreshedStore the store of the warm standby
+   */
+  public synchronized void loadFrom(AssignmentMetadataStore refreshedStore) {
+    refreshedStore.refresh();
+    synchronized (refreshedStore) {
+      if (_globalBaseline == null) {
+        _globalBaseline = new HashMap<>(refreshedStore._globalBaseline);
+        _baselineWriteVersion = refreshedStore._baselineWriteVersion;
+      }
+      if (_bestPossibleAssignment == null) {
+        _bestPossibleAssignment = new HashMap<>(refreshedStore._bestPossibleAssignment);
+        _bestPossibleWriteVersion = refreshedStore._bestPossibleWriteVersion;
+      }
+    }
+  }
+
   private Map<String, ResourceAssignment> fetchAssignmentOrDefault(String path) {
     try {
       HelixProperty assignment = _dataAccessor.compressedBucketRead(path, HelixProperty.class);
@@ -119,7 +190,6 @@ public class AssignmentMetadataStore {
    */
   private void persistAssignmentToMetadataStore(Map<String, ResourceAssignment> newAssignment, String path, String key)
       throws HelixException {
-    // TODO: Make the write async?
     // Persist to ZK
     HelixProperty combinedAssignments = combineAssignments(key, newAssignment);
     try {
@@ -129,6 +199,123 @@ public class AssignmentMetadataStore {
     }
   }
 
+  /**
+   * Write the assignment to the metadata store. In the async mode, the assignment is queued to be
+   * written by the writer thread. Otherwise, the pending async writes are finished first, so
+   * they cannot overwrite this assignment.
+   */
+  private void persistAssignment(Map<String, ResourceAssignment> assignment, String path,
+      String key) throws HelixException {
+    // Take the sequence before dropping the failed write, so a write that fails in between is
+    // already older than this assignment.
+    long sequence = nextWriteSequence(path);
+    _failedWrites.remove(path);
+    if (_asyncPersistenceEnabled) {
+      schedulePersist(new SequencedAssignment(assignment, sequence), path, key);
+    } else {
+      awaitPendingWrites();
+      persistAssignmentToMetadataStore(assignment, path, key);
+    }
+  }
+
+  private long nextWriteSequence(String path) {
+    return _writeSequences.computeIfAbsent(path, k -> new AtomicLong()).incrementAndGet();
+  }
+
+  private boolean isLatestWrite(SequencedAssignment write, String path) {
+    AtomicLong sequence = _writeSequences.get(path);
+    return sequence == null || write._sequence >= sequence.get();
+  }
+
+  private synchronized void schedulePersist(SequencedAssignment assignment, String path,
+      String key) {
+    AtomicReference<SequencedAssignment> pendingWrite =
+        _pendingWrites.computeIfAbsent(path, k -> new AtomicReference<>());
+    if (pendingWrite.getAndSet(assignment) != null) {
+      // The writer has not picked up the previous assignment yet, it will write this one instead.
+      return;
+    }
+    if (_writer == null) {
+      _writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "AssignmentMetadataStore-writer-" + _clusterName);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    _writer.submit(() -> {
+      SequencedAssignment latestAssignment = pendingWrite.getAndSet(null);
+      if (latestAssignment == null) {
+        return;
+      }
+      try {
+        persistAssignmentToMetadataStore(latestAssignment._assignment, path, key);
+      } catch (Exception e) {
+        LOG.error("Failed to persist {} assignment to path {} asynchronously. It will be retried"
+            + " by the next rebalance.", key, path, e);
+        // Atomic with the removal in persistAssignment(), which follows the new sequence.
+        _failedWrites.compute(path, (k, failedWrite) ->
+            isLatestWrite(latestAssignment, path) ? latestAssignment : failedWrite);
+      }
+    });
+  }
+
+  /**
+   * Write the assignments whose async write failed again, unless a newer assignment has been
+   * queued since. The rebalancer calls it on every pipeline run.
+   */
+  public synchronized void retryFailedWrites() {
+    if (_failedWrites.isEmpty()) {
+      return;
+    }
+    Map<String, SequencedAssignment> failedWrites = new HashMap<>(_failedWrites);
+    _failedWrites.clear();
+    failedWrites.forEach((path, assignment) -> {
+      if (!isLatestWrite(assignment, path)) {
+        return;
+      }
+      LOG.info("Retry persisting the assignment to path {}.", path);
+      schedulePersist(assignment, path,
+          path.equals(_baselinePath) ? BASELINE_KEY : BEST_POSSIBLE_KEY);
+    });
+  }
+
+  /**
+   * Enable or disable the async write-behind of the assignments. The pipeline then does not wait
+   * for the metadata store writes.
+   */
+  public void setAsyncPersistenceEnabled(boolean asyncPersistenceEnabled) {
+    _asyncPersistenceEnabled = asyncPersistenceEnabled;
+  }
+
+  /**
+   * @return true if there is no async write that is pending or failed
+   */
+  public boolean hasNoPendingWrites() {
+    return _failedWrites.isEmpty() && _pendingWrites.values().stream()
+        .allMatch(pendingWrite -> pendingWrite.get() == null);
+  }
+
+  /**
+   * Wait for the queued async writes to finish.
+   */
+  public void awaitPendingWrites() {
+    ExecutorService writer;
+    synchronized (this) {
+      writer = _writer;
+    }
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.submit(() -> { }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HelixException("Interrupted while waiting for the assignment writes.", e);
+    } catch (ExecutionException e) {
+      throw new HelixException("Failed to wait for the assignment writes.", e);
+    }
+  }
+
   /**
    * Persist a new baseline assignment to metadata store first, then to memory
    * @param globalBaseline
@@ -139,7 +326,7 @@ public class AssignmentMetadataStore {
         Collectors.toMap(Map.Entry::getKey,
             entry -> new ResourceAssignment(entry.getValue().getRecord())));
     // write to metadata store
-    persistAssignmentToMetadataStore(baselineCopy, _baselinePath, BASELINE_KEY);
+    persistAssignment(baselineCopy, _baselinePath, BASELINE_KEY);
     // write to memory
     getBaseline().clear();
     getBaseline().putAll(baselineCopy);
@@ -156,7 +343,7 @@ public class AssignmentMetadataStore {
         Collectors.toMap(Map.Entry::getKey,
             entry -> new ResourceAssignment(entry.getValue().getRecord())));
     // write to metadata store
-    persistAssignmentToMetadataStore(bestPossibleAssignmentCopy, _bestPossiblePath, BEST_POSSIBLE_KEY);
+    persistAssignment(bestPossibleAssignmentCopy, _bestPossiblePath, BEST_POSSIBLE_KEY);
     // write to memory
     getBestPossibleAssignment().clear();
     getBestPossibleAssignment().putAll(bestPossibleAssignmentCopy);
@@ -189,6 +376,11 @@ public class AssignmentMetadataStore {
   }
 
   public synchronized void clearAssignmentMetadata() {
+    _pendingWrites.values().forEach(pendingWrite -> pendingWrite.set(null));
+    // A write in progress that fails afterwards is older than the dropped ones.
+    _writeSequences.values().forEach(AtomicLong::incrementAndGet);
+    _failedWrites.clear();
+    awaitPendingWrites();
     persistAssignmentToMetadataStore(Collections.emptyMap(), _baselinePath, BASELINE_KEY);
     persistAssignmentToMetadataStore(Collections.emptyMap(), _bestPossiblePath, BEST_POSSIBLE_KEY);
     getBaseline().clear();
@@ -196,6 +388,13 @@ public class AssignmentMetadataStore {
   }
 
   protected synchronized void reset() {
+    // The assignments that are not written yet belong to the previous leadership, drop them.
+    _pendingWrites.values().forEach(pendingWrite -> pendingWrite.set(null));
+    // A write in progress that fails afterwards is older than the dropped ones.
+    _writeSequences.values().forEach(AtomicLong::incrementAndGet);
+    _failedWrites.clear();
+    _baselineWriteVersion = null;
+    _bestPossibleWriteVersion = null;
     if (_bestPossibleAssignment != null) {
       _bestPossibleAssignment.clear();
       _bestPossibleAssignment = null;
@@ -213,6 +412,24 @@ public class AssignmentMetadataStore {
 
   // Close to release all the resources.
   public void close() {
+    ExecutorService writer;
+    synchronized (this) {
+      writer = _writer;
+      _writer = null;
+    }
+    if (writer != null) {
+      // Finish the queued writes before disconnecting from the metadata store.
+      writer.shutdown();
+      try {
+        if (!writer.awaitTermination(WRITER_SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          LOG.warn("Timed out waiting for the assignment writes of cluster {}.", _clusterName);
+          writer.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        writer.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
     _dataAccessor.disconnect();
   }
 
@@ -254,4 +471,14 @@ public class AssignmentMetadataStore {
   protected boolean isBestPossibleChanged(Map<String, ResourceAssignment> newBestPossible) {
     return !getBestPossibleAssignment().equals(newBestPossible);
   }
+
+  private static class SequencedAssignment {
+    private final Map<String, ResourceAssignment> _assignment;
+    private final long _sequence;
+
+    private SequencedAssignment(Map<String, ResourceAssignment> assignment, long sequence) {
+      _assignment = assignment;
+      _sequence = sequence;
+    }
+  }
 }
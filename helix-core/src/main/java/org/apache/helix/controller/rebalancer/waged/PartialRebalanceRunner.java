@@ -19,19 +19,26 @@ package org.apache.helix.controller.rebalancer.waged;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixRebalanceException;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelProvider;
 import org.apache.helix.controller.stages.CurrentStateOutput;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.monitoring.metrics.MetricCollector;
@@ -50,11 +57,23 @@ import org.slf4j.LoggerFactory;
  * minimal rebalance scope. In short, the rebalance scope only contains the following two types of partitions.
  * 1. The partition's current assignment becomes invalid.
  * 2. The Baseline contains some new partition assignments that do not exist in the current assignment.
+ * In the incremental mode, the scope is further limited to the resources that have been changed since the
+ * previous partial rebalance. The other resources keep their previous Best Possible assignment.
  */
 class PartialRebalanceRunner implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(PartialRebalanceRunner.class);
 
+  // When any of the following change happens, the incremental partial rebalance falls back to
+  // recalculate all the resources, since the change may impact the placement of any replica.
+  private static final Set<HelixConstants.ChangeType> FULL_PARTIAL_REBALANCE_REQUIRED_CHANGE_TYPES =
+      ImmutableSet.of(HelixConstants.ChangeType.CLUSTER_CONFIG,
+          HelixConstants.ChangeType.INSTANCE_CONFIG, HelixConstants.ChangeType.LIVE_INSTANCE);
+  // The resource level changes that make the changed resources to be recalculated.
+  private static final Set<HelixConstants.ChangeType> RESOURCE_CHANGE_TYPES =
+      ImmutableSet.of(HelixConstants.ChangeType.IDEAL_STATE,
+          HelixConstants.ChangeType.RESOURCE_CONFIG);
+
   private final ExecutorService _bestPossibleCalculateExecutor;
   private final AssignmentManager _assignmentManager;
   private final AssignmentMetadataStore _assignmentMetadataStore;
@@ -66,6 +85,16 @@ class PartialRebalanceRunner implements AutoCloseable {
   private boolean _asyncPartialRebalanceEnabled;
   private Future<Boolean> _asyncPartialRebalanceResult;
 
+  // The following fields record the cluster changes and the inputs and output of the previous
+  // calculation, so the incremental partial rebalance can find the resources to be recalculated.
+  private volatile boolean _incrementalPartialRebalanceEnabled =
+      ClusterConfig.DEFAULT_PARTIAL_REBALANCE_INCREMENTAL_MODE_ENABLED;
+  private final Map<HelixConstants.ChangeType, Set<String>> _pendingClusterChanges = new HashMap<>();
+  private boolean _fullPartialRebalanceRequired = true;
+  private Set<String> _lastActiveNodes = Collections.emptySet();
+  private Map<String, ResourceAssignment> _lastBaseline = Collections.emptyMap();
+  private Map<String, ResourceAssignment> _lastBestPossibleAssignment = Collections.emptyMap();
+
   public PartialRebalanceRunner(AssignmentManager assignmentManager,
       AssignmentMetadataStore assignmentMetadataStore,
       MetricCollector metricCollector,
@@ -152,16 +181,51 @@ class PartialRebalanceRunner implements AutoCloseable {
     Map<String, ResourceAssignment> currentBestPossibleAssignment =
         _assignmentManager.getBestPossibleAssignment(_assignmentMetadataStore, currentStateOutput,
             resourceMap.keySet());
+
+    // The target assignment that the partial rebalance converges the Best Possible assignment to.
+    Map<String, ResourceAssignment> idealAssignment = currentBaseline;
+    boolean incremental = _incrementalPartialRebalanceEnabled;
+    if (incremental) {
+      Set<String> resourcesToRebalance =
+          findResourcesToRebalance(resourceMap.keySet(), activeNodes, currentBaseline,
+              currentBestPossibleAssignment);
+      if (resourcesToRebalance.isEmpty()) {
+        recordCalculation(activeNodes, currentBaseline, currentBestPossibleAssignment);
+        _partialRebalanceLatency.endMeasuringLatency();
+        LOG.info("No resource has been changed since the previous calculation. Skip the incremental "
+            + "partial rebalance.");
+        return;
+      }
+      if (resourcesToRebalance.size() < resourceMap.size()) {
+        LOG.info("Incremental partial rebalance for {} out of {} resources.",
+            resourcesToRebalance.size(), resourceMap.size());
+        // Use the current Best Possible assignment as the target of the unchanged resources, so
+        // their replicas are kept where they are and only the changed resources are calculated.
+        idealAssignment = new HashMap<>(currentBestPossibleAssignment);
+        for (String resourceName : resourcesToRebalance) {
+          ResourceAssignment baseline = currentBaseline.get(resourceName);
+          if (baseline != null) {
+            idealAssignment.put(resourceName, baseline);
+          } else {
+            idealAssignment.remove(resourceName);
+          }
+        }
+      }
+    }
+
     ClusterModel clusterModel;
     try {
       clusterModel = ClusterModelProvider
           .generateClusterModelForPartialRebalance(clusterData, resourceMap, activeNodes,
-              currentBaseline, currentBestPossibleAssignment);
+              idealAssignment, currentBestPossibleAssignment);
     } catch (Exception ex) {
       throw new HelixRebalanceException("Failed to generate cluster model for partial rebalance.",
           HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
     }
     Map<String, ResourceAssignment> newAssignment = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+    if (incremental) {
+      recordCalculation(activeNodes, currentBaseline, newAssignment);
+    }
 
     // Asynchronously report baseline divergence metric before persisting to metadata store,
     // just in case if persisting fails, we still have the metric.
@@ -194,6 +258,96 @@ class PartialRebalanceRunner implements AutoCloseable {
     }
   }
 
+  /**
+   * Record the cluster changes that are detected in the current pipeline. The changes are
+   * accumulated until the next incremental partial rebalance consumes them.
+   * @param clusterChanges the changed items categorized by the change types
+   */
+  public synchronized void recordClusterChanges(
+      Map<HelixConstants.ChangeType, Set<String>> clusterChanges) {
+    if (!_incrementalPartialRebalanceEnabled) {
+      return;
+    }
+    clusterChanges.forEach((changeType, items) -> _pendingClusterChanges
+        .computeIfAbsent(changeType, key -> new HashSet<>()).addAll(items));
+  }
+
+  /**
+   * Find the resources that need to be recalculated by the incremental partial rebalance.
+   * A resource needs to be recalculated if one of the following conditions is true:
+   * 1. The resource's IdealState or ResourceConfig has been changed.
+   * 2. The resource's Baseline assignment has been changed.
+   * 3. The resource's Best Possible assignment is not the one calculated in the previous round.
+   * Note that a new resource satisfies the conditions 2 and 3.
+   * If the active nodes, the cluster config, or any instance has been changed, all the resources
+   * need to be recalculated.
+   * @return the names of the resources to be recalculated, or an empty set if nothing changed
+   */
+  private Set<String> findResourcesToRebalance(Set<String> resources, Set<String> activeNodes,
+      Map<String, ResourceAssignment> currentBaseline,
+      Map<String, ResourceAssignment> currentBestPossibleAssignment) {
+    Map<HelixConstants.ChangeType, Set<String>> clusterChanges;
+    boolean fullPartialRebalanceRequired;
+    synchronized (this) {
+      clusterChanges = new HashMap<>(_pendingClusterChanges);
+      _pendingClusterChanges.clear();
+      fullPartialRebalanceRequired = _fullPartialRebalanceRequired;
+      // Reset to true until the calculation succeeds, so a failed calculation is retried in full.
+      _fullPartialRebalanceRequired = true;
+    }
+
+    if (fullPartialRebalanceRequired || !activeNodes.equals(_lastActiveNodes)
+        || clusterChanges.keySet().stream()
+        .anyMatch(FULL_PARTIAL_REBALANCE_REQUIRED_CHANGE_TYPES::contains)) {
+      return resources;
+    }
+
+    Set<String> resourcesToRebalance = new HashSet<>();
+    RESOURCE_CHANGE_TYPES.forEach(changeType -> resourcesToRebalance
+        .addAll(clusterChanges.getOrDefault(changeType, Collections.emptySet())));
+    for (String resourceName : resources) {
+      if (!Objects.equals(currentBaseline.get(resourceName), _lastBaseline.get(resourceName))
+          || !Objects.equals(currentBestPossibleAssignment.get(resourceName),
+          _lastBestPossibleAssignment.get(resourceName))) {
+        resourcesToRebalance.add(resourceName);
+      }
+    }
+    resourcesToRebalance.retainAll(resources);
+    return resourcesToRebalance;
+  }
+
+  private synchronized void recordCalculation(Set<String> activeNodes,
+      Map<String, ResourceAssignment> baseline, Map<String, ResourceAssignment> bestPossibleAssignment) {
+    _lastActiveNodes = new HashSet<>(activeNodes);
+    _lastBaseline = baseline;
+    _lastBestPossibleAssignment = bestPossibleAssignment;
+    _fullPartialRebalanceRequired = false;
+  }
+
+  /**
+   * Clean up the recorded state so the next incremental partial rebalance recalculates all the
+   * resources.
+   */
+  public synchronized void resetIncrementalState() {
+    _pendingClusterChanges.clear();
+    _fullPartialRebalanceRequired = true;
+    _lastActiveNodes = Collections.emptySet();
+    _lastBaseline = Collections.emptyMap();
+    _lastBestPossibleAssignment = Collections.emptyMap();
+  }
+
+  public void setPartialRebalanceIncrementalMode(boolean isIncrementalPartialRebalanceEnabled) {
+    if (_incrementalPartialRebalanceEnabled != isIncrementalPartialRebalanceEnabled) {
+      // The changes are not recorded while the incremental mode is disabled, start over.
+      resetIncrementalState();
+      _incrementalPartialRebalanceEnabled = isIncrementalPartialRebalanceEnabled;
+    }
+  }
+
+  public boolean isIncrementalPartialRebalanceEnabled() {
+    return _incrementalPartialRebalanceEnabled;
+  }
+
   public void setPartialRebalanceAsyncMode(boolean isAsyncPartialRebalanceEnabled) {
     _asyncPartialRebalanceEnabled = isAsyncPartialRebalanceEnabled;
   }
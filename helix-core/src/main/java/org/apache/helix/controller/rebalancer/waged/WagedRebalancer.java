@@ -205,6 +205,18 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
     _partialRebalanceRunner.setPartialRebalanceAsyncMode(isAsyncPartialRebalanceEnabled);
   }
 
+  // Update the partial rebalance mode to recalculate only the changed resources or all resources
+  public void setPartialRebalanceIncrementalMode(boolean isIncrementalPartialRebalanceEnabled) {
+    _partialRebalanceRunner.setPartialRebalanceIncrementalMode(isIncrementalPartialRebalanceEnabled);
+  }
+
+  // Update the assignment persistence mode to write the metadata store asynchronously or not
+  public void setAssignmentAsyncPersistenceMode(boolean isAsyncPersistenceEnabled) {
+    if (_assignmentMetadataStore != null) {
+      _assignmentMetadataStore.setAsyncPersistenceEnabled(isAsyncPersistenceEnabled);
+    }
+  }
+
   // Update the rebalancer preference if the new options are different from the current preference.
   public synchronized void updateRebalancePreference(
       Map<ClusterConfig.GlobalRebalancePreferenceKey, Integer> newPreference) {
@@ -222,6 +234,18 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
       _assignmentMetadataStore.reset();
     }
     _globalRebalanceRunner.resetChangeDetector();
+    _partialRebalanceRunner.resetIncrementalState();
+  }
+
+  /**
+   * Take the assignment metadata that a warm standby store has kept up to date, so the first
+   * rebalance after the controller becomes the leader does not read it again.
+   * @param refreshedStore the store of the warm standby
+   */
+  public void loadAssignmentMetadata(AssignmentMetadataStore refreshedStore) {
+    if (_assignmentMetadataStore != null) {
+      _assignmentMetadataStore.loadFrom(refreshedStore);
+    }
   }
 
   // TODO the rebalancer should reject any other computing request after being closed.
@@ -241,6 +265,10 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
       throws HelixRebalanceException {
     LOG.info("Start computing new ideal states for resources: {}", resourceMap.keySet().toString());
     validateInput(clusterData, resourceMap);
+    if (_assignmentMetadataStore != null) {
+      // Write again the assignments whose async write failed in the previous rebalance.
+      _assignmentMetadataStore.retryFailedWrites();
+    }
 
     Map<String, IdealState> newIdealStates;
     try {
@@ -335,6 +363,8 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
       throws HelixRebalanceException {
     // Perform global rebalance for a new baseline assignment
     _globalRebalanceRunner.globalRebalance(clusterData, resourceMap, currentStateOutput, algorithm);
+    // Share the detected cluster changes so the partial rebalance can narrow down its scope.
+    _partialRebalanceRunner.recordClusterChanges(getChangeDetector().getAllChanges());
     // Perform emergency rebalance for a new best possible assignment
     return emergencyRebalance(clusterData, resourceMap, activeNodes, currentStateOutput, algorithm);
   }
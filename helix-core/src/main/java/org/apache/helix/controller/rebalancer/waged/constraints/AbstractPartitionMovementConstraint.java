@@ -79,6 +79,11 @@ abstract class AbstractPartitionMovementConstraint extends SoftConstraint {
     return MIN_SCORE;
   }
 
+  @Override
+  boolean isScoredByPreviousAssignment() {
+    return true;
+  }
+
   @Override
   protected NormalizeFunction getNormalizeFunction() {
     return (score) -> score;
@@ -20,8 +20,12 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -38,6 +42,7 @@ import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
 import org.apache.helix.controller.rebalancer.waged.model.OptimalAssignment;
+import org.apache.helix.model.Partition;
 import org.apache.helix.model.ResourceAssignment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,17 +62,22 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintBasedAlgorithm.class);
   private final List<HardConstraint> _hardConstraints;
   private final Map<SoftConstraint, Float> _softConstraints;
+  // The highest score that a node can get if it does not hold the replica's partition in the best
+  // possible or the baseline assignment. Negative if the bound cannot be applied.
+  private final double _maxScoreWithoutPreviousAssignment;
 
   ConstraintBasedAlgorithm(List<HardConstraint> hardConstraints,
       Map<SoftConstraint, Float> softConstraints) {
     _hardConstraints = hardConstraints;
     _softConstraints = softConstraints;
+    _maxScoreWithoutPreviousAssignment = computeMaxScoreWithoutPreviousAssignment(softConstraints);
   }
 
   @Override
   public OptimalAssignment calculate(ClusterModel clusterModel) throws HelixRebalanceException {
     OptimalAssignment optimalAssignment = new OptimalAssignment();
     List<AssignableNode> nodes = new ArrayList<>(clusterModel.getAssignableNodes().values());
+    CandidateNodeIndex candidateNodeIndex = new CandidateNodeIndex(nodes);
     Set<String> busyInstances =
         getBusyInstances(clusterModel.getContext().getBestPossibleAssignment().values());
 
@@ -97,8 +107,8 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
     for (AssignableReplicaWithScore replicaWithScore : toBeAssignedReplicas) {
       AssignableReplica replica = replicaWithScore.getAssignableReplica();
       Optional<AssignableNode> maybeBestNode =
-          getNodeWithHighestPoints(replica, nodes, clusterModel.getContext(), busyInstances,
-              optimalAssignment);
+          getNodeWithHighestPoints(replica, nodes, candidateNodeIndex, clusterModel.getContext(),
+              busyInstances, optimalAssignment);
       // stop immediately if any replica cannot find best assignable node
       if (!maybeBestNode.isPresent() || optimalAssignment.hasAnyFailure()) {
         String errorMessage = String.format(
@@ -118,25 +128,45 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
   }
 
   private Optional<AssignableNode> getNodeWithHighestPoints(AssignableReplica replica,
-      List<AssignableNode> assignableNodes, ClusterContext clusterContext, Set<String> busyInstances,
+      List<AssignableNode> assignableNodes, CandidateNodeIndex candidateNodeIndex,
+      ClusterContext clusterContext, Set<String> busyInstances,
       OptimalAssignment optimalAssignment) {
-    Map<AssignableNode, List<HardConstraint>> hardConstraintFailures = new ConcurrentHashMap<>(assignableNodes.size());
-    List<AssignableNode> candidateNodes = assignableNodes.parallelStream().filter(candidateNode -> {
-      boolean isValid = true;
-      for (HardConstraint hardConstraint : _hardConstraints) {
-        if (!hardConstraint.isAssignmentValid(candidateNode, replica, clusterContext)) {
-          if (!hardConstraintFailures.containsKey(candidateNode)) {
-            hardConstraintFailures.put(candidateNode, new ArrayList<>());
-          }
-          hardConstraintFailures.get(candidateNode).add(hardConstraint);
-          isValid = false;
-          break;
-        }
+    Comparator<Map.Entry<AssignableNode, Double>> nodeComparator =
+        (nodeEntry1, nodeEntry2) -> compareNodeScores(nodeEntry1, nodeEntry2, busyInstances);
+
+    // 1. Evaluate the nodes that hold the replica's partition in the previous assignments first.
+    // Any other node cannot score higher than _maxScoreWithoutPreviousAssignment, so there is no
+    // need to evaluate them if one of these nodes does.
+    if (_maxScoreWithoutPreviousAssignment >= 0) {
+      Optional<HashMap.SimpleEntry<AssignableNode, Double>> bestPreviousNode =
+          candidateNodeIndex.getPreviouslyAssignedNodes(replica, clusterContext).stream()
+              .filter(node -> isAssignmentValid(node, replica, clusterContext))
+              .map(node -> new HashMap.SimpleEntry<>(node,
+                  getAssignmentNormalizedScore(node, replica, clusterContext)))
+              .max(nodeComparator);
+      if (bestPreviousNode.isPresent()
+          && bestPreviousNode.get().getValue() > _maxScoreWithoutPreviousAssignment) {
+        removeFullLoggingForCluster();
+        return Optional.of(bestPreviousNode.get().getKey());
       }
-      return isValid;
-    }).collect(Collectors.toList());
+    }
+
+    // 2. Evaluate all the nodes that may satisfy the replica's instance group tag.
+    List<AssignableNode> candidateNodes = candidateNodeIndex.getCandidateNodes(replica);
+    Map<AssignableNode, List<HardConstraint>> hardConstraintFailures = new ConcurrentHashMap<>(assignableNodes.size());
+    List<AssignableNode> validNodes = candidateNodes.parallelStream()
+        .filter(candidateNode -> isAssignmentValid(candidateNode, replica, clusterContext,
+            hardConstraintFailures)).collect(Collectors.toList());
 
-    if (candidateNodes.isEmpty()) {
+    if (validNodes.isEmpty()) {
+      // The nodes that are not candidates are denied by the instance group tag. Evaluate them
+      // too so the failure reasons cover all the nodes.
+      if (candidateNodes.size() != assignableNodes.size()) {
+        Set<AssignableNode> evaluatedNodes = new HashSet<>(candidateNodes);
+        assignableNodes.parallelStream().filter(node -> !evaluatedNodes.contains(node))
+            .forEach(node -> isAssignmentValid(node, replica, clusterContext,
+                hardConstraintFailures));
+      }
       LOG.info("Found no eligible candidate nodes. Enabling hard constraint level logging for cluster: {}", clusterContext.getClusterName());
       enableFullLoggingForCluster();
       optimalAssignment.recordAssignmentFailure(replica,
@@ -147,23 +177,70 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
     LOG.debug("Disabling hard constraint level logging for cluster: {}", clusterContext.getClusterName());
     removeFullLoggingForCluster();
 
-    return candidateNodes.parallelStream().map(node -> new HashMap.SimpleEntry<>(node,
+    return validNodes.parallelStream().map(node -> new HashMap.SimpleEntry<>(node,
         getAssignmentNormalizedScore(node, replica, clusterContext)))
-        .max((nodeEntry1, nodeEntry2) -> {
-          int scoreCompareResult = nodeEntry1.getValue().compareTo(nodeEntry2.getValue());
-          if (scoreCompareResult == 0) {
-            // If the evaluation scores of 2 nodes are the same, the algorithm assigns the replica
-            // to the idle node first.
-            String logicalId1 = nodeEntry1.getKey().getLogicalId();
-            String logicalId2 = nodeEntry2.getKey().getLogicalId();
-            int idleScore1 = busyInstances.contains(logicalId1) ? 0 : 1;
-            int idleScore2 = busyInstances.contains(logicalId2) ? 0 : 1;
-            return idleScore1 != idleScore2 ? (idleScore1 - idleScore2)
-                : -nodeEntry1.getKey().compareTo(nodeEntry2.getKey());
-          } else {
-            return scoreCompareResult;
-          }
-        }).map(Map.Entry::getKey);
+        .max(nodeComparator).map(Map.Entry::getKey);
+  }
+
+  private boolean isAssignmentValid(AssignableNode node, AssignableReplica replica,
+      ClusterContext clusterContext) {
+    for (HardConstraint hardConstraint : _hardConstraints) {
+      if (!hardConstraint.isAssignmentValid(node, replica, clusterContext)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isAssignmentValid(AssignableNode node, AssignableReplica replica,
+      ClusterContext clusterContext, Map<AssignableNode, List<HardConstraint>> failures) {
+    for (HardConstraint hardConstraint : _hardConstraints) {
+      if (!hardConstraint.isAssignmentValid(node, replica, clusterContext)) {
+        failures.computeIfAbsent(node, key -> new ArrayList<>()).add(hardConstraint);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int compareNodeScores(Map.Entry<AssignableNode, Double> nodeEntry1,
+      Map.Entry<AssignableNode, Double> nodeEntry2, Set<String> busyInstances) {
+    int scoreCompareResult = nodeEntry1.getValue().compareTo(nodeEntry2.getValue());
+    if (scoreCompareResult == 0) {
+      // If the evaluation scores of 2 nodes are the same, the algorithm assigns the replica
+      // to the idle node first.
+      String logicalId1 = nodeEntry1.getKey().getLogicalId();
+      String logicalId2 = nodeEntry2.getKey().getLogicalId();
+      int idleScore1 = busyInstances.contains(logicalId1) ? 0 : 1;
+      int idleScore2 = busyInstances.contains(logicalId2) ? 0 : 1;
+      return idleScore1 != idleScore2 ? (idleScore1 - idleScore2)
+          : -nodeEntry1.getKey().compareTo(nodeEntry2.getKey());
+    } else {
+      return scoreCompareResult;
+    }
+  }
+
+  /**
+   * Sum up the weights of the soft constraints that may score a node which does not hold the
+   * replica's partition in the previous assignments. Since the normalized scores are within
+   * [0, 1], the sum is the highest score of such a node.
+   * Note the constraints are iterated in the same order as getAssignmentNormalizedScore so the
+   * bound is not affected by the floating point rounding.
+   * @return The max score, or -1 if any weight is negative and the bound does not hold.
+   */
+  private static double computeMaxScoreWithoutPreviousAssignment(
+      Map<SoftConstraint, Float> softConstraints) {
+    double sum = 0;
+    for (Map.Entry<SoftConstraint, Float> softConstraintEntry : softConstraints.entrySet()) {
+      float weight = softConstraintEntry.getValue();
+      if (weight < 0) {
+        return -1;
+      }
+      if (weight != 0 && !softConstraintEntry.getKey().isScoredByPreviousAssignment()) {
+        sum += weight * 1d;
+      }
+    }
+    return sum;
   }
 
   private double getAssignmentNormalizedScore(AssignableNode node, AssignableReplica replica,
@@ -203,6 +280,62 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
     }
   }
 
+  /**
+   * Index of the assignable nodes that narrows down the nodes to be evaluated for a replica.
+   */
+  private static class CandidateNodeIndex {
+    private final List<AssignableNode> _allNodes;
+    private final Map<String, List<AssignableNode>> _nodesByInstanceTag = new HashMap<>();
+    private final Map<String, AssignableNode> _nodesByLogicalId = new HashMap<>();
+
+    CandidateNodeIndex(List<AssignableNode> nodes) {
+      _allNodes = nodes;
+      for (AssignableNode node : nodes) {
+        _nodesByLogicalId.put(node.getLogicalId(), node);
+        for (String tag : node.getInstanceTags()) {
+          _nodesByInstanceTag.computeIfAbsent(tag, key -> new ArrayList<>()).add(node);
+        }
+      }
+    }
+
+    /**
+     * @return The nodes that may satisfy the replica's instance group tag. The other nodes are
+     *         always denied by the ValidGroupTagConstraint.
+     */
+    List<AssignableNode> getCandidateNodes(AssignableReplica replica) {
+      if (!replica.hasResourceInstanceGroupTag()) {
+        return _allNodes;
+      }
+      return _nodesByInstanceTag.getOrDefault(replica.getResourceInstanceGroupTag(),
+          Collections.emptyList());
+    }
+
+    /**
+     * @return The nodes that hold the replica's partition in the best possible or the baseline
+     *         assignment.
+     */
+    Set<AssignableNode> getPreviouslyAssignedNodes(AssignableReplica replica,
+        ClusterContext clusterContext) {
+      Set<AssignableNode> nodes = new HashSet<>();
+      Partition partition = new Partition(replica.getPartitionName());
+      for (Map<String, ResourceAssignment> assignment : Arrays
+          .asList(clusterContext.getBestPossibleAssignment(),
+              clusterContext.getBaselineAssignment())) {
+        ResourceAssignment resourceAssignment = assignment.get(replica.getResourceName());
+        if (resourceAssignment == null) {
+          continue;
+        }
+        for (String logicalId : resourceAssignment.getReplicaMap(partition).keySet()) {
+          AssignableNode node = _nodesByLogicalId.get(logicalId);
+          if (node != null) {
+            nodes.add(node);
+          }
+        }
+      }
+      return nodes;
+    }
+  }
+
   private static class AssignableReplicaWithScore implements Comparable<AssignableReplicaWithScore> {
     private final AssignableReplica _replica;
     private float _score = 0;
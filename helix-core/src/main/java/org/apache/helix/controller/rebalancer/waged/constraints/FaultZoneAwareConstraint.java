@@ -19,7 +19,6 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
  * under the License.
  */
 
-import java.util.Set;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -38,10 +37,7 @@ class FaultZoneAwareConstraint extends HardConstraint {
       return true;
     }
 
-    Set<String> partitionsForResourceAndFaultZone =
-        clusterContext.getPartitionsForResourceAndFaultZone(replica.getResourceName(), node.getFaultZone());
-
-    if (partitionsForResourceAndFaultZone.contains(replica.getPartitionName())) {
+    if (hasPartitionInFaultZone(node, replica, clusterContext)) {
       if (enableLogging) {
         LOG.info("A fault zone cannot contain more than 1 replica of same partition. Found replica for partition: {}",
             replica.getPartitionName());
@@ -51,6 +47,20 @@ class FaultZoneAwareConstraint extends HardConstraint {
     return true;
   }
 
+  /**
+   * Check the fault zone assignment with the ids of the cluster model, or with the fault zone
+   * assignment map for the node, the replica or the context that is not compiled.
+   */
+  private boolean hasPartitionInFaultZone(AssignableNode node, AssignableReplica replica,
+      ClusterContext clusterContext) {
+    if (!node.isCompiled() || !replica.isCompiled() || !clusterContext.isCompiled()) {
+      return clusterContext
+          .getPartitionsForResourceAndFaultZone(replica.getResourceName(), node.getFaultZone())
+          .contains(replica.getPartitionName());
+    }
+    return clusterContext.hasPartitionInFaultZone(node.getFaultZoneId(), replica.getPartitionId());
+  }
+
   @Override
   String getDescription() {
     return "A fault zone cannot contain more than 1 replica of same partition";
@@ -36,8 +36,7 @@ class MaxCapacityUsageInstanceConstraint extends UsageSoftConstraint {
   protected double getAssignmentScore(AssignableNode node, AssignableReplica replica,
       ClusterContext clusterContext) {
     float estimatedMaxUtilization = clusterContext.getEstimatedMaxUtilization();
-    float projectedHighestUtilization =
-        node.getGeneralProjectedHighestUtilization(replica.getCapacity(), clusterContext.getPreferredScoringKeys());
+    float projectedHighestUtilization = node.getGeneralProjectedHighestUtilization(replica);
     return computeUtilizationScore(estimatedMaxUtilization, projectedHighestUtilization);
   }
 }
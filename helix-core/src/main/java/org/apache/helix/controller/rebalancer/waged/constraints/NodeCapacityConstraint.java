@@ -20,6 +20,7 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
  */
 
 import java.util.Map;
+
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -34,6 +35,30 @@ class NodeCapacityConstraint extends HardConstraint {
   @Override
   boolean isAssignmentValid(AssignableNode node, AssignableReplica replica,
       ClusterContext clusterContext) {
+    if (!node.isCompiled() || !replica.isCompiled()) {
+      return isAssignmentValidByCapacityMap(node, replica);
+    }
+    int[] nodeCapacity = node.getRemainingCapacityArray();
+    int[] replicaCapacity = replica.getCapacityArray();
+
+    for (int keyId : node.getCapacityKeyIds()) {
+      if (keyId < replicaCapacity.length && nodeCapacity[keyId] < replicaCapacity[keyId]) {
+        if (enableLogging) {
+          LOG.info("Node has insufficient capacity for: {}. Left available: {}, Required: {}",
+              node.getCapacityKey(keyId), nodeCapacity[keyId], replicaCapacity[keyId]);
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check the capacity with the capacity maps, for the node or the replica that is not compiled
+   * with a cluster model index.
+   */
+  private boolean isAssignmentValidByCapacityMap(AssignableNode node,
+      AssignableReplica replica) {
     Map<String, Integer> nodeCapacity = node.getRemainingCapacity();
     Map<String, Integer> replicaCapacity = replica.getCapacity();
 
@@ -43,7 +43,9 @@ class NodeMaxPartitionLimitConstraint extends HardConstraint {
     }
 
     int resourceMaxPartitionsPerInstance = replica.getResourceMaxPartitionsPerInstance();
-    int assignedPartitionsByResourceSize = node.getAssignedPartitionsByResource(replica.getResourceName()).size();
+    int assignedPartitionsByResourceSize = node.isCompiled() && replica.isCompiled()
+        ? node.getAssignedPartitionCountByResource(replica.getResourceId())
+        : node.getAssignedPartitionsByResource(replica.getResourceName()).size();
     boolean exceedResourceMaxPartitionLimit = resourceMaxPartitionsPerInstance < 0
         || assignedPartitionsByResourceSize < resourceMaxPartitionsPerInstance;
 
@@ -33,10 +33,17 @@ class ResourcePartitionAntiAffinityConstraint extends UsageSoftConstraint {
   @Override
   protected double getAssignmentScore(AssignableNode node, AssignableReplica replica,
       ClusterContext clusterContext) {
-    String resource = replica.getResourceName();
-    int curPartitionCountForResource = node.getAssignedPartitionsByResource(resource).size();
+    if (!node.isCompiled() || !replica.isCompiled() || !clusterContext.isCompiled()) {
+      // Fall back to the name based lookups for the node, the replica or the context that is not
+      // compiled with a cluster model index.
+      String resource = replica.getResourceName();
+      return computeUtilizationScore(clusterContext.getEstimatedMaxPartitionByResource(resource),
+          node.getAssignedPartitionsByResource(resource).size());
+    }
+    int resourceId = replica.getResourceId();
+    int curPartitionCountForResource = node.getAssignedPartitionCountByResource(resourceId);
     int estimatedMaxPartitionCountForResource =
-        clusterContext.getEstimatedMaxPartitionByResource(resource);
+        clusterContext.getEstimatedMaxPartitionByResource(resourceId);
     return computeUtilizationScore(estimatedMaxPartitionCountForResource,
         curPartitionCountForResource);
   }
@@ -79,6 +79,15 @@ abstract class SoftConstraint {
     return getNormalizeFunction().scale(getAssignmentScore(node, replica, clusterContext));
   }
 
+  /**
+   * @return True if the constraint only gives a score above the min score to the nodes that hold
+   *         the replica's partition in the best possible or the baseline assignment. The
+   *         algorithm uses this to skip evaluating the other nodes when possible.
+   */
+  boolean isScoredByPreviousAssignment() {
+    return false;
+  }
+
   /**
    * The default scaler function that squashes any score within (min_score, max_score) to (0, 1);
    * Child class could override the method and customize the method on its own
@@ -64,6 +64,24 @@ public class AssignableNode implements Comparable<AssignableNode> {
   // A map of <capacity key, capacity value> that tracks the current available node capacity
   private Map<String, Integer> _remainingCapacity;
   private Map<String, Integer> _remainingTopStateCapacity;
+  private int _assignedReplicaCount = 0;
+  private int _assignedTopStateReplicaCount = 0;
+
+  // Compiled Instance Properties, which are set when the node is added to a cluster model.
+  // The constraints read these instead of the maps above since they are evaluated against every
+  // node for every replica.
+  private ClusterModelIndex _index;
+  private int _faultZoneId = ClusterModelIndex.UNKNOWN_ID;
+  // The ids of the capacity keys that are configured on the node.
+  private int[] _capacityKeyIds = new int[0];
+  // The ids of the capacity keys that are used to compute the utilization.
+  private int[] _scoringCapacityKeyIds = new int[0];
+  // The capacities indexed by the capacity key ids.
+  private int[] _maxCapacityArray = new int[0];
+  private int[] _remainingCapacityArray = new int[0];
+  private int[] _remainingTopStateCapacityArray = new int[0];
+  // The assigned partition count indexed by the resource ids.
+  private int[] _assignedPartitionCountByResource = new int[0];
 
   /**
    * Update the node with a ClusterDataCache. This resets the current assignment and recalculates
@@ -96,6 +114,29 @@ public class AssignableNode implements Comparable<AssignableNode> {
     this(clusterConfig, null, instanceConfig, instanceName);
   }
 
+  /**
+   * Compile the node properties and the current assignment with the ids of the cluster model
+   * index. After compiling, the compiled properties are kept updated by the assign and release
+   * calls.
+   */
+  void compile(ClusterModelIndex index) {
+    _index = index;
+    _faultZoneId = index.getFaultZoneId(_faultZone);
+    _capacityKeyIds = index.toCapacityKeyIds(_maxAllowedCapacity.keySet());
+    _scoringCapacityKeyIds = index.getScoringCapacityKeyIds(_maxAllowedCapacity.keySet());
+    _maxCapacityArray = index.toCapacityArray(_maxAllowedCapacity);
+    _remainingCapacityArray = index.toCapacityArray(_remainingCapacity);
+    _remainingTopStateCapacityArray = index.toCapacityArray(_remainingTopStateCapacity);
+    _assignedPartitionCountByResource = new int[index.getResourceCount()];
+    for (Map.Entry<String, Map<String, AssignableReplica>> entry : _currentAssignedReplicaMap
+        .entrySet()) {
+      int resourceId = index.getResourceId(entry.getKey());
+      if (resourceId != ClusterModelIndex.UNKNOWN_ID) {
+        _assignedPartitionCountByResource[resourceId] = entry.getValue().size();
+      }
+    }
+  }
+
   /**
    * This function should only be used to assign a set of new partitions that are not allocated on
    * this node. It's because the any exception could occur at the middle of batch assignment and the
@@ -124,6 +165,10 @@ public class AssignableNode implements Comparable<AssignableNode> {
     // Update the global state after all single replications' calculation is done.
     updateRemainingCapacity(totalTopStatePartitionCapacity, _remainingTopStateCapacity, false);
     updateRemainingCapacity(totalPartitionCapacity, _remainingCapacity, false);
+    if (_index != null) {
+      // Refresh the compiled properties with the batch update.
+      compile(_index);
+    }
   }
 
   /**
@@ -133,8 +178,12 @@ public class AssignableNode implements Comparable<AssignableNode> {
   void assign(AssignableReplica assignableReplica) {
     addToAssignmentRecord(assignableReplica);
     updateRemainingCapacity(assignableReplica.getCapacity(), _remainingCapacity, false);
+    updateRemainingCapacityArray(assignableReplica.getCapacityArray(), _remainingCapacityArray,
+        false);
     if (assignableReplica.isReplicaTopState()) {
       updateRemainingCapacity(assignableReplica.getCapacity(), _remainingTopStateCapacity, false);
+      updateRemainingCapacityArray(assignableReplica.getCapacityArray(),
+          _remainingTopStateCapacityArray, false);
     }
   }
 
@@ -164,9 +213,15 @@ public class AssignableNode implements Comparable<AssignableNode> {
     }
 
     AssignableReplica removedReplica = partitionMap.remove(partitionName);
+    _assignedReplicaCount--;
+    updateAssignedPartitionCountByResource(removedReplica, -1);
     updateRemainingCapacity(removedReplica.getCapacity(), _remainingCapacity, true);
+    updateRemainingCapacityArray(removedReplica.getCapacityArray(), _remainingCapacityArray, true);
     if (removedReplica.isReplicaTopState()) {
+      _assignedTopStateReplicaCount--;
       updateRemainingCapacity(removedReplica.getCapacity(), _remainingTopStateCapacity, true);
+      updateRemainingCapacityArray(removedReplica.getCapacityArray(),
+          _remainingTopStateCapacityArray, true);
     }
   }
 
@@ -212,16 +267,25 @@ public class AssignableNode implements Comparable<AssignableNode> {
    * @return The total count of assigned top state partitions.
    */
   public int getAssignedTopStatePartitionsCount() {
-    return (int) _currentAssignedReplicaMap.values().stream()
-        .flatMap(replicaMap -> replicaMap.values().stream())
-        .filter(AssignableReplica::isReplicaTopState).count();
+    return _assignedTopStateReplicaCount;
   }
 
   /**
    * @return The total count of assigned replicas.
    */
   public int getAssignedReplicaCount() {
-    return _currentAssignedReplicaMap.values().stream().mapToInt(Map::size).sum();
+    return _assignedReplicaCount;
+  }
+
+  /**
+   * @param resourceId The resource id in the cluster model.
+   * @return The count of the current assigned partitions of the specified resource.
+   */
+  public int getAssignedPartitionCountByResource(int resourceId) {
+    if (resourceId < 0 || resourceId >= _assignedPartitionCountByResource.length) {
+      return 0;
+    }
+    return _assignedPartitionCountByResource[resourceId];
   }
 
   /**
@@ -231,6 +295,37 @@ public class AssignableNode implements Comparable<AssignableNode> {
     return _remainingCapacity;
   }
 
+  /**
+   * @return The current available capacity indexed by the capacity key ids of the cluster model.
+   *         Note that the returned array shall not be modified.
+   */
+  public int[] getRemainingCapacityArray() {
+    return _remainingCapacityArray;
+  }
+
+  /**
+   * @return The ids of the capacity keys that are configured on the node.
+   *         Note that the returned array shall not be modified.
+   */
+  public int[] getCapacityKeyIds() {
+    return _capacityKeyIds;
+  }
+
+  /**
+   * @return The name of the capacity key with the given id of the cluster model.
+   */
+  public String getCapacityKey(int keyId) {
+    return _index.getCapacityKey(keyId);
+  }
+
+  /**
+   * @return True if the node has been compiled with a cluster model index, so the compiled
+   *         properties are valid.
+   */
+  public boolean isCompiled() {
+    return _index != null;
+  }
+
   /**
    * @return A map of <capacity category, capacity number> that describes the max capacity of the
    *         node.
@@ -308,6 +403,38 @@ public class AssignableNode implements Comparable<AssignableNode> {
     return getProjectedHighestUtilization(newUsage, _remainingTopStateCapacity, preferredScoringKeys);
   }
 
+  /**
+   * Same as {@link #getGeneralProjectedHighestUtilization(Map, List)}, but calculated with the
+   * compiled capacity arrays and the preferred scoring keys of the cluster model.
+   * @param replica The replica whose capacity usage is proposed to be added to the node.
+   * @return The highest utilization number of the node among the scoring capacity category.
+   */
+  public float getGeneralProjectedHighestUtilization(AssignableReplica replica) {
+    return getProjectedHighestUtilization(replica.getCapacityArray(), _remainingCapacityArray);
+  }
+
+  /**
+   * Same as {@link #getTopStateProjectedHighestUtilization(Map, List)}, but calculated with the
+   * compiled capacity arrays and the preferred scoring keys of the cluster model.
+   * @param replica The replica whose capacity usage is proposed to be added to the node.
+   * @return The highest utilization number of the node among the scoring capacity category.
+   */
+  public float getTopStateProjectedHighestUtilization(AssignableReplica replica) {
+    return getProjectedHighestUtilization(replica.getCapacityArray(),
+        _remainingTopStateCapacityArray);
+  }
+
+  private float getProjectedHighestUtilization(int[] newUsage, int[] remainingCapacity) {
+    float highestCapacityUtilization = 0;
+    for (int keyId : _scoringCapacityKeyIds) {
+      float capacityValue = _maxCapacityArray[keyId];
+      float utilization =
+          (capacityValue - remainingCapacity[keyId] + newUsage[keyId]) / capacityValue;
+      highestCapacityUtilization = Math.max(highestCapacityUtilization, utilization);
+    }
+    return highestCapacityUtilization;
+  }
+
   private float getProjectedHighestUtilization(Map<String, Integer> newUsage,
       Map<String, Integer> remainingCapacity, List<String> preferredScoringKeys) {
     Set<String> capacityKeySet = _maxAllowedCapacity.keySet();
@@ -316,6 +443,10 @@ public class AssignableNode implements Comparable<AssignableNode> {
     }
     float highestCapacityUtilization = 0;
     for (String capacityKey : capacityKeySet) {
+      if (!_maxAllowedCapacity.containsKey(capacityKey)) {
+        // The preferred key is not configured on the node, so it has no utilization to compare.
+        continue;
+      }
       float capacityValue = _maxAllowedCapacity.get(capacityKey);
       float utilization = (capacityValue - remainingCapacity.get(capacityKey) + newUsage
           .getOrDefault(capacityKey, 0)) / capacityValue;
@@ -344,6 +475,13 @@ public class AssignableNode implements Comparable<AssignableNode> {
     return _faultZone != null;
   }
 
+  /**
+   * @return The id of the node's fault zone in the cluster model.
+   */
+  public int getFaultZoneId() {
+    return _faultZoneId;
+  }
+
   /**
    * @return A map of <resource name, set of partition names> contains all the partitions that are
    *         disabled on the node.
@@ -397,6 +535,29 @@ public class AssignableNode implements Comparable<AssignableNode> {
     } else {
       _currentAssignedReplicaMap.computeIfAbsent(resourceName, key -> new HashMap<>())
           .put(partitionName, replica);
+      _assignedReplicaCount++;
+      if (replica.isReplicaTopState()) {
+        _assignedTopStateReplicaCount++;
+      }
+      updateAssignedPartitionCountByResource(replica, 1);
+    }
+  }
+
+  private void updateAssignedPartitionCountByResource(AssignableReplica replica, int delta) {
+    int resourceId = replica.getResourceId();
+    if (resourceId >= 0 && resourceId < _assignedPartitionCountByResource.length) {
+      _assignedPartitionCountByResource[resourceId] += delta;
+    }
+  }
+
+  private void updateRemainingCapacityArray(int[] usedCapacity, int[] remainingCapacity,
+      boolean isRelease) {
+    int multiplier = isRelease ? -1 : 1;
+    // if the used capacity key does not exist in the node's capacity, ignore it
+    for (int keyId : _capacityKeyIds) {
+      if (keyId < usedCapacity.length) {
+        remainingCapacity[keyId] -= multiplier * usedCapacity[keyId];
+      }
     }
   }
 
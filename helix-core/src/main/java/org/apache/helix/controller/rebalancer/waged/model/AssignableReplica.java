@@ -51,6 +51,13 @@ public class AssignableReplica implements Comparable<AssignableReplica> {
   // The state of the replica
   private final String _replicaState;
 
+  // The compiled properties, which are set when the replica is added to a cluster model.
+  private int _resourceId = ClusterModelIndex.UNKNOWN_ID;
+  private int _partitionId = ClusterModelIndex.UNKNOWN_ID;
+  // The capacity usage indexed by the capacity key ids.
+  private int[] _capacityUsageArray = new int[0];
+  private boolean _compiled = false;
+
   /**
    * @param clusterConfig  The cluster config.
    * @param resourceConfig The resource config for the resource which contains the replication.
@@ -70,10 +77,51 @@ public class AssignableReplica implements Comparable<AssignableReplica> {
     _replicaKey = generateReplicaKey(_resourceName, _partitionName,_replicaState);
   }
 
+  /**
+   * Compile the replica properties with the ids of the cluster model index.
+   */
+  void compile(ClusterModelIndex index) {
+    _resourceId = index.getResourceId(_resourceName);
+    _partitionId = index.getPartitionId(_resourceName, _partitionName);
+    _capacityUsageArray = index.toCapacityArray(_capacityUsage);
+    _compiled = true;
+  }
+
+  /**
+   * @return True if the replica has been compiled with a cluster model index, so the compiled
+   *         properties are valid.
+   */
+  public boolean isCompiled() {
+    return _compiled;
+  }
+
   public Map<String, Integer> getCapacity() {
     return _capacityUsage;
   }
 
+  /**
+   * @return The capacity usage indexed by the capacity key ids of the cluster model.
+   *         Note that the returned array shall not be modified.
+   */
+  public int[] getCapacityArray() {
+    return _capacityUsageArray;
+  }
+
+  /**
+   * @return The id of the replica's resource in the cluster model.
+   */
+  public int getResourceId() {
+    return _resourceId;
+  }
+
+  /**
+   * @return The id of the replica's partition in the cluster model. The replicas of the same
+   *         partition share the same id.
+   */
+  public int getPartitionId() {
+    return _partitionId;
+  }
+
   public String getPartitionName() {
     return _partitionName;
   }
@@ -19,6 +19,7 @@ package org.apache.helix.controller.rebalancer.waged.model;
  * under the License.
  */
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -64,6 +65,13 @@ public class ClusterContext {
   private final Map<String, Integer> _clusterCapacityMap;
   private final List<String> _preferredScoringKeys;
   private final String _clusterName;
+
+  // Compiled context, which is set when the context is used to construct a cluster model.
+  private ClusterModelIndex _index;
+  // The estimated max partition count indexed by the resource ids.
+  private int[] _estimatedMaxPartitionByResourceId = new int[0];
+  // The partition ids that have been assigned to a fault zone, indexed by the fault zone ids.
+  private BitSet[] _faultZonePartitions = new BitSet[0];
   /**
    * Construct the cluster context based on the current instance status.
    * @param replicaSet All the partition replicas that are managed by the rebalancer
@@ -163,6 +171,17 @@ public class ClusterContext {
     return _estimatedMaxPartitionByResource.get(resourceName);
   }
 
+  /**
+   * @param resourceId The resource id in the cluster model.
+   * @return The estimated max partition count of the resource on one instance.
+   */
+  public int getEstimatedMaxPartitionByResource(int resourceId) {
+    if (resourceId < 0 || resourceId >= _estimatedMaxPartitionByResourceId.length) {
+      return 0;
+    }
+    return _estimatedMaxPartitionByResourceId[resourceId];
+  }
+
   public int getEstimatedMaxTopStateCount() {
     return _estimatedMaxTopStateCount;
   }
@@ -187,11 +206,33 @@ public class ClusterContext {
     return _clusterName;
   }
 
+  /**
+   * @return True if the context has been compiled with a cluster model index, so the id based
+   *         lookups are valid.
+   */
+  public boolean isCompiled() {
+    return _index != null;
+  }
+
   public Set<String> getPartitionsForResourceAndFaultZone(String resourceName, String faultZoneId) {
     return _assignmentForFaultZoneMap.getOrDefault(faultZoneId, Collections.emptyMap())
         .getOrDefault(resourceName, Collections.emptySet());
   }
 
+  /**
+   * Check if any replica of the partition has been assigned to the fault zone.
+   * This is the same check as {@link #getPartitionsForResourceAndFaultZone(String, String)}, but
+   * based on the ids of the cluster model.
+   * @param faultZoneId The fault zone id in the cluster model.
+   * @param partitionId The partition id in the cluster model.
+   */
+  public boolean hasPartitionInFaultZone(int faultZoneId, int partitionId) {
+    if (faultZoneId < 0 || faultZoneId >= _faultZonePartitions.length || partitionId < 0) {
+      return false;
+    }
+    return _faultZonePartitions[faultZoneId].get(partitionId);
+  }
+
   void addPartitionToFaultZone(String faultZoneId, String resourceName, String partition) {
     if (!_assignmentForFaultZoneMap.computeIfAbsent(faultZoneId, k -> new HashMap<>())
         .computeIfAbsent(resourceName, k -> new HashSet<>())
@@ -200,16 +241,58 @@ public class ClusterContext {
           String.format("Resource %s already has a replica from partition %s in fault zone %s", resourceName, partition,
               faultZoneId));
     }
+    updateFaultZonePartitions(faultZoneId, resourceName, partition, true);
   }
 
   boolean removePartitionFromFaultZone(String faultZoneId, String resourceName, String partition) {
-    return _assignmentForFaultZoneMap.getOrDefault(faultZoneId, Collections.emptyMap())
+    boolean removed = _assignmentForFaultZoneMap.getOrDefault(faultZoneId, Collections.emptyMap())
         .getOrDefault(resourceName, Collections.emptySet())
         .remove(partition);
+    if (removed) {
+      updateFaultZonePartitions(faultZoneId, resourceName, partition, false);
+    }
+    return removed;
   }
 
   void setAssignmentForFaultZoneMap(Map<String, Map<String, Set<String>>> assignmentForFaultZoneMap) {
     _assignmentForFaultZoneMap = assignmentForFaultZoneMap;
+    if (_index != null) {
+      compile(_index);
+    }
+  }
+
+  /**
+   * Compile the estimations and the fault zone assignment with the ids of the cluster model index.
+   * After compiling, the fault zone assignment is kept updated by the add and remove calls.
+   */
+  void compile(ClusterModelIndex index) {
+    _index = index;
+    _estimatedMaxPartitionByResourceId = new int[index.getResourceCount()];
+    _estimatedMaxPartitionByResource.forEach((resourceName, count) -> {
+      int resourceId = index.getResourceId(resourceName);
+      if (resourceId != ClusterModelIndex.UNKNOWN_ID) {
+        _estimatedMaxPartitionByResourceId[resourceId] = count;
+      }
+    });
+    _faultZonePartitions = new BitSet[index.getFaultZoneCount()];
+    for (int i = 0; i < _faultZonePartitions.length; i++) {
+      _faultZonePartitions[i] = new BitSet();
+    }
+    _assignmentForFaultZoneMap.forEach((faultZone, resourceMap) -> resourceMap.forEach(
+        (resourceName, partitions) -> partitions.forEach(
+            partition -> updateFaultZonePartitions(faultZone, resourceName, partition, true))));
+  }
+
+  private void updateFaultZonePartitions(String faultZone, String resourceName, String partition,
+      boolean assigned) {
+    if (_index == null) {
+      return;
+    }
+    int faultZoneId = _index.getFaultZoneId(faultZone);
+    int partitionId = _index.getPartitionId(resourceName, partition);
+    if (faultZoneId != ClusterModelIndex.UNKNOWN_ID && partitionId != ClusterModelIndex.UNKNOWN_ID) {
+      _faultZonePartitions[faultZoneId].set(partitionId, assigned);
+    }
   }
 
   private static int estimateAvgReplicaCount(int replicaCount, int instanceCount) {
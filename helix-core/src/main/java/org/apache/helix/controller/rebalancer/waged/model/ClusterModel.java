@@ -19,9 +19,11 @@ package org.apache.helix.controller.rebalancer.waged.model;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -76,6 +78,23 @@ public class ClusterModel {
             .add(node.getLogicalId());
       });
     });
+
+    compile(assignableReplicas, assignableNodes);
+  }
+
+  /**
+   * Compile the nodes, the replicas and the context with a dense id index, so the constraints
+   * can be evaluated with arrays and bitsets instead of the string keyed maps.
+   */
+  private void compile(Set<AssignableReplica> assignableReplicas,
+      Set<AssignableNode> assignableNodes) {
+    List<AssignableReplica> allReplicas = new ArrayList<>(assignableReplicas);
+    assignableNodes.forEach(node -> allReplicas.addAll(node.getAssignedReplicas()));
+    ClusterModelIndex index = new ClusterModelIndex(assignableNodes, allReplicas,
+        _clusterContext.getPreferredScoringKeys());
+    allReplicas.forEach(replica -> replica.compile(index));
+    assignableNodes.forEach(node -> node.compile(index));
+    _clusterContext.compile(index);
   }
 
   public ClusterContext getContext() {
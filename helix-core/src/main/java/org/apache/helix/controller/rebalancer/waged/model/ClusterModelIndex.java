@@ -0,0 +1,159 @@
+package org.apache.helix.controller.rebalancer.waged.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * This class interns the names used by the cluster model into dense int ids, so the assignable
+ * nodes, the assignable replicas and the cluster context can keep the data that is read by the
+ * rebalance constraints in arrays and bitsets instead of maps keyed by strings.
+ * The ids are only meaningful within the cluster model that builds the index.
+ */
+class ClusterModelIndex {
+  static final int UNKNOWN_ID = -1;
+
+  // The capacity keys ordered by their ids.
+  private final List<String> _capacityKeys;
+  private final Map<String, Integer> _capacityKeyIds = new HashMap<>();
+  private final Map<String, Integer> _faultZoneIds = new HashMap<>();
+  private final Map<String, Integer> _resourceIds = new HashMap<>();
+  // <resource name, <partition name, partition id>>
+  private final Map<String, Map<String, Integer>> _partitionIds = new HashMap<>();
+  private final List<String> _preferredScoringKeys;
+  private int _partitionCount = 0;
+
+  /**
+   * @param nodes                All the assignable nodes of the cluster model.
+   * @param replicas             All the replicas of the cluster model, including both the
+   *                             replicas that are allocated to the nodes and the ones to be
+   *                             assigned.
+   * @param preferredScoringKeys The preferred scoring keys of the cluster, or null if not set.
+   */
+  ClusterModelIndex(Collection<AssignableNode> nodes, Collection<AssignableReplica> replicas,
+      List<String> preferredScoringKeys) {
+    TreeSet<String> capacityKeys = new TreeSet<>();
+    for (AssignableNode node : nodes) {
+      capacityKeys.addAll(node.getMaxCapacity().keySet());
+      if (node.hasFaultZone()) {
+        _faultZoneIds.putIfAbsent(node.getFaultZone(), _faultZoneIds.size());
+      }
+    }
+    _capacityKeys = Collections.unmodifiableList(new ArrayList<>(capacityKeys));
+    for (String capacityKey : _capacityKeys) {
+      _capacityKeyIds.put(capacityKey, _capacityKeyIds.size());
+    }
+    for (AssignableReplica replica : replicas) {
+      _resourceIds.putIfAbsent(replica.getResourceName(), _resourceIds.size());
+      Map<String, Integer> partitionIds =
+          _partitionIds.computeIfAbsent(replica.getResourceName(), key -> new HashMap<>());
+      if (!partitionIds.containsKey(replica.getPartitionName())) {
+        partitionIds.put(replica.getPartitionName(), _partitionCount++);
+      }
+    }
+    _preferredScoringKeys = preferredScoringKeys;
+  }
+
+  int getCapacityKeyCount() {
+    return _capacityKeys.size();
+  }
+
+  String getCapacityKey(int capacityKeyId) {
+    return _capacityKeys.get(capacityKeyId);
+  }
+
+  int getCapacityKeyId(String capacityKey) {
+    return _capacityKeyIds.getOrDefault(capacityKey, UNKNOWN_ID);
+  }
+
+  int getFaultZoneCount() {
+    return _faultZoneIds.size();
+  }
+
+  int getFaultZoneId(String faultZone) {
+    return faultZone == null ? UNKNOWN_ID : _faultZoneIds.getOrDefault(faultZone, UNKNOWN_ID);
+  }
+
+  int getResourceCount() {
+    return _resourceIds.size();
+  }
+
+  int getResourceId(String resourceName) {
+    return _resourceIds.getOrDefault(resourceName, UNKNOWN_ID);
+  }
+
+  int getPartitionCount() {
+    return _partitionCount;
+  }
+
+  int getPartitionId(String resourceName, String partitionName) {
+    return _partitionIds.getOrDefault(resourceName, Collections.emptyMap())
+        .getOrDefault(partitionName, UNKNOWN_ID);
+  }
+
+  /**
+   * Convert the capacity map into an array that is indexed by the capacity key ids.
+   * The capacity keys that are not in the index are ignored, and the missing ones are set to 0.
+   */
+  int[] toCapacityArray(Map<String, Integer> capacity) {
+    int[] capacityArray = new int[_capacityKeys.size()];
+    for (Map.Entry<String, Integer> entry : capacity.entrySet()) {
+      int keyId = getCapacityKeyId(entry.getKey());
+      if (keyId != UNKNOWN_ID) {
+        capacityArray[keyId] = entry.getValue();
+      }
+    }
+    return capacityArray;
+  }
+
+  /**
+   * @return The ids of the given capacity keys in ascending order. The keys that are not in the
+   *         index are ignored.
+   */
+  int[] toCapacityKeyIds(Collection<String> capacityKeys) {
+    return capacityKeys.stream().mapToInt(this::getCapacityKeyId)
+        .filter(keyId -> keyId != UNKNOWN_ID).distinct().sorted().toArray();
+  }
+
+  /**
+   * Resolve the capacity keys that are used to compute the utilization of a node.
+   * Same as the map based calculation, the preferred scoring keys are only used if the node has
+   * the first preferred key. Otherwise, all the capacity keys of the node are used.
+   * The preferred keys that are not configured on the node are ignored.
+   * @param nodeCapacityKeys The capacity keys of the node.
+   * @return The ids of the capacity keys to be used for scoring.
+   */
+  int[] getScoringCapacityKeyIds(Collection<String> nodeCapacityKeys) {
+    if (_preferredScoringKeys != null && !_preferredScoringKeys.isEmpty() && nodeCapacityKeys
+        .contains(_preferredScoringKeys.get(0))) {
+      // The preferred keys that the node does not have cannot be used to compute the utilization.
+      return toCapacityKeyIds(_preferredScoringKeys.stream().filter(nodeCapacityKeys::contains)
+          .collect(Collectors.toList()));
+    }
+    return toCapacityKeyIds(nodeCapacityKeys);
+  }
+}
@@ -0,0 +1,280 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.helix.HelixProperty;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.model.StateModelDefinition;
+
+/**
+ * A cache of the best possible assignments of the resources that are not rebalanced by the WAGED
+ * rebalancer. The assignment of a resource is reused by the following pipeline runs while its
+ * fingerprint is unchanged: the znode versions of its IdealState, ResourceConfig, state model
+ * and CurrentStates, and the ids of its pending messages.
+ *
+ * All the assignments are dropped once the cluster config, the instance configs or the live
+ * instances are replaced, or the maintenance mode is switched, since these inputs are shared by
+ * all the resources.
+ */
+public class BestPossibleAssignmentCache {
+  private final Map<String, CachedAssignment> _assignments = new ConcurrentHashMap<>();
+
+  // The cluster level inputs of the cached assignments.
+  private ClusterConfig _clusterConfig;
+  private Map<String, InstanceConfig> _instanceConfigs = Collections.emptyMap();
+  private Map<String, LiveInstance> _liveInstances = Collections.emptyMap();
+  private boolean _maintenanceModeEnabled;
+
+  // resource -> instance -> the version of the current state, of the running pipeline
+  private volatile Map<String, Map<String, HelixProperty.Stat>> _currentStateStats =
+      Collections.emptyMap();
+
+  /**
+   * Fingerprint of the inputs of one resource.
+   */
+  static final class ResourceFingerprint {
+    private final HelixProperty.Stat _idealStateStat;
+    private final HelixProperty.Stat _resourceConfigStat;
+    private final HelixProperty.Stat _stateModelDefStat;
+    private final Map<String, HelixProperty.Stat> _currentStateStats;
+    private final Set<String> _pendingMessageIds;
+
+    private ResourceFingerprint(HelixProperty.Stat idealStateStat,
+        HelixProperty.Stat resourceConfigStat, HelixProperty.Stat stateModelDefStat,
+        Map<String, HelixProperty.Stat> currentStateStats, Set<String> pendingMessageIds) {
+      _idealStateStat = idealStateStat;
+      _resourceConfigStat = resourceConfigStat;
+      _stateModelDefStat = stateModelDefStat;
+      _currentStateStats = currentStateStats;
+      _pendingMessageIds = pendingMessageIds;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ResourceFingerprint)) {
+        return false;
+      }
+      ResourceFingerprint that = (ResourceFingerprint) obj;
+      return _idealStateStat.equals(that._idealStateStat) && Objects
+          .equals(_resourceConfigStat, that._resourceConfigStat) && _stateModelDefStat
+          .equals(that._stateModelDefStat) && _currentStateStats.equals(that._currentStateStats)
+          && _pendingMessageIds.equals(that._pendingMessageIds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_idealStateStat, _resourceConfigStat, _stateModelDefStat,
+          _currentStateStats, _pendingMessageIds);
+    }
+  }
+
+  private static class CachedAssignment {
+    private final ResourceFingerprint _fingerprint;
+    private final Map<String, List<String>> _preferenceLists;
+    private final ResourceAssignment _assignment;
+
+    private CachedAssignment(ResourceFingerprint fingerprint,
+        Map<String, List<String>> preferenceLists, ResourceAssignment assignment) {
+      _fingerprint = fingerprint;
+      _preferenceLists = preferenceLists;
+      _assignment = assignment;
+    }
+  }
+
+  /**
+   * Prepare the cache for a pipeline run. Drop all the assignments if the cluster level inputs
+   * changed since the last run, and the assignments of the removed resources.
+   * @param cache the refreshed cluster data
+   */
+  synchronized void refresh(ResourceControllerDataProvider cache) {
+    Map<String, InstanceConfig> instanceConfigs = cache.getInstanceConfigMap();
+    Map<String, LiveInstance> liveInstances = cache.getLiveInstances();
+    boolean maintenanceModeEnabled = cache.isMaintenanceModeEnabled();
+    if (_clusterConfig != cache.getClusterConfig()
+        || _maintenanceModeEnabled != maintenanceModeEnabled
+        || !isSameProperties(_instanceConfigs, instanceConfigs)
+        || !isSameProperties(_liveInstances, liveInstances)) {
+      _assignments.clear();
+      _clusterConfig = cache.getClusterConfig();
+      _maintenanceModeEnabled = maintenanceModeEnabled;
+      _instanceConfigs = new HashMap<>(instanceConfigs);
+      _liveInstances = new HashMap<>(liveInstances);
+    } else {
+      _assignments.keySet().retainAll(cache.getIdealStates().keySet());
+    }
+
+    Map<String, Map<String, HelixProperty.Stat>> currentStateStats = new HashMap<>();
+    for (LiveInstance liveInstance : liveInstances.values()) {
+      String instanceName = liveInstance.getInstanceName();
+      for (CurrentState currentState : cache
+          .getCurrentState(instanceName, liveInstance.getEphemeralOwner()).values()) {
+        // The version of a bucketized current state does not change with its buckets.
+        HelixProperty.Stat stat =
+            currentState.getBucketSize() > 0 ? new HelixProperty.Stat() : currentState.getStat();
+        currentStateStats.computeIfAbsent(currentState.getResourceName(), k -> new HashMap<>())
+            .put(instanceName, stat);
+      }
+    }
+    _currentStateStats = currentStateStats;
+  }
+
+  /**
+   * @return the fingerprint of the inputs of the resource, or null if some of the inputs are not
+   * versioned, so the assignment of the resource cannot be reused
+   */
+  ResourceFingerprint getFingerprint(Resource resource, IdealState idealState,
+      ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput) {
+    String resourceName = resource.getResourceName();
+    ResourceConfig resourceConfig = cache.getResourceConfig(resourceName);
+    StateModelDefinition stateModelDef = cache.getStateModelDef(idealState.getStateModelDefRef());
+    if (!isVersioned(idealState) || idealState.getBucketSize() > 0
+        || (resourceConfig != null && !isVersioned(resourceConfig)) || !isVersioned(
+        stateModelDef)) {
+      return null;
+    }
+    Map<String, HelixProperty.Stat> currentStateStats =
+        _currentStateStats.getOrDefault(resourceName, Collections.emptyMap());
+    for (HelixProperty.Stat stat : currentStateStats.values()) {
+      if (!isVersioned(stat)) {
+        return null;
+      }
+    }
+    Set<String> pendingMessageIds = new HashSet<>();
+    for (Map<String, Message> messages : currentStateOutput.getPendingMessageMap(resourceName)
+        .values()) {
+      for (Message message : messages.values()) {
+        pendingMessageIds.add(message.getMsgId());
+      }
+    }
+    return new ResourceFingerprint(idealState.getStat(),
+        resourceConfig == null ? null : resourceConfig.getStat(), stateModelDef.getStat(),
+        currentStateStats, pendingMessageIds);
+  }
+
+  /**
+   * Set the cached assignment of the resource to the output if its fingerprint is unchanged.
+   * @return true if the cached assignment is set
+   */
+  boolean restore(Resource resource, ResourceFingerprint fingerprint,
+      BestPossibleStateOutput output) {
+    String resourceName = resource.getResourceName();
+    CachedAssignment cachedAssignment = _assignments.get(resourceName);
+    if (cachedAssignment == null || !cachedAssignment._fingerprint.equals(fingerprint)) {
+      return false;
+    }
+    // The output is modified by the following stages, so the cached assignment is copied.
+    output.setPreferenceLists(resourceName, copyPreferenceLists(cachedAssignment._preferenceLists));
+    for (Partition partition : resource.getPartitions()) {
+      output.setState(resourceName, partition,
+          new HashMap<>(cachedAssignment._assignment.getReplicaMap(partition)));
+    }
+    return true;
+  }
+
+  /**
+   * Cache the assignment of the resource in the output.
+   */
+  void store(Resource resource, ResourceFingerprint fingerprint, BestPossibleStateOutput output) {
+    String resourceName = resource.getResourceName();
+    ResourceAssignment assignment = new ResourceAssignment(resourceName);
+    for (Partition partition : resource.getPartitions()) {
+      assignment
+          .addReplicaMap(partition, new HashMap<>(output.getInstanceStateMap(resourceName, partition)));
+    }
+    _assignments.put(resourceName, new CachedAssignment(fingerprint,
+        copyPreferenceLists(output.getPreferenceLists(resourceName)), assignment));
+  }
+
+  /**
+   * Drop the cached assignment of the resource, so it is computed again by the next run.
+   * @param resourceName
+   */
+  public void invalidate(String resourceName) {
+    _assignments.remove(resourceName);
+  }
+
+  public void clear() {
+    _assignments.clear();
+  }
+
+  public int size() {
+    return _assignments.size();
+  }
+
+  private static boolean isVersioned(HelixProperty property) {
+    return property != null && isVersioned(property.getStat());
+  }
+
+  /**
+   * @return true if the stat is read from the znode. A record that is built in memory has no
+   * creation time.
+   */
+  private static boolean isVersioned(HelixProperty.Stat stat) {
+    return stat != null && stat.getVersion() >= 0 && stat.getCreationTime() > 0;
+  }
+
+  private static boolean isSameProperties(Map<String, ?> oldProperties,
+      Map<String, ?> newProperties) {
+    if (oldProperties.size() != newProperties.size()) {
+      return false;
+    }
+    for (Map.Entry<String, ?> entry : newProperties.entrySet()) {
+      if (oldProperties.get(entry.getKey()) != entry.getValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Map<String, List<String>> copyPreferenceLists(
+      Map<String, List<String>> preferenceLists) {
+    if (preferenceLists == null) {
+      return null;
+    }
+    Map<String, List<String>> copy = new HashMap<>();
+    for (Map.Entry<String, List<String>> entry : preferenceLists.entrySet()) {
+      copy.put(entry.getKey(), entry.getValue() == null ? null : new ArrayList<>(entry.getValue()));
+    }
+    return copy;
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.helix.controller.stages;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -28,8 +29,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableSet;
 import org.apache.helix.HelixDefinedState;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
@@ -44,7 +47,14 @@ import org.apache.helix.controller.rebalancer.DelayedAutoRebalancer;
 import org.apache.helix.controller.rebalancer.MaintenanceRebalancer;
 import org.apache.helix.controller.rebalancer.Rebalancer;
 import org.apache.helix.controller.rebalancer.SemiAutoRebalancer;
+import org.apache.helix.controller.rebalancer.constraint.MonitoredAbnormalResolver;
 import org.apache.helix.controller.rebalancer.internal.MappingCalculator;
+import org.apache.helix.controller.rebalancer.strategy.AutoRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.CrushEdRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.CrushRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.MultiRoundCrushRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.RebalanceStrategy;
+import org.apache.helix.controller.rebalancer.util.DelayedRebalanceUtil;
 import org.apache.helix.controller.rebalancer.util.WagedValidationUtil;
 import org.apache.helix.controller.rebalancer.waged.ReadOnlyWagedRebalancer;
 import org.apache.helix.controller.rebalancer.waged.WagedRebalancer;
@@ -72,6 +82,11 @@ import org.slf4j.LoggerFactory;
 public class BestPossibleStateCalcStage extends AbstractBaseStage {
   private static final Logger logger =
       LoggerFactory.getLogger(BestPossibleStateCalcStage.class.getName());
+  // The built-in rebalance strategies that keep no state across the resources.
+  private static final Set<String> INDEPENDENT_REBALANCE_STRATEGIES = ImmutableSet
+      .of(AutoRebalanceStrategy.class.getName(), CrushRebalanceStrategy.class.getName(),
+          CrushEdRebalanceStrategy.class.getName(),
+          MultiRoundCrushRebalanceStrategy.class.getName());
 
   @Override
   public void process(ClusterEvent event) throws Exception {
@@ -295,23 +310,25 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     // Fallback to the original single resource rebalancer calculation.
     // This is required because we support mixed cluster that uses both WAGED rebalancer and the
     // older rebalancers.
-    Iterator<Resource> itr = remainingResourceMap.values().iterator();
-    while (itr.hasNext()) {
-      Resource resource = itr.next();
-      boolean result = false;
-      try {
-        result = computeSingleResourceBestPossibleState(event, cache, currentStateOutput, resource,
-            output);
-      } catch (HelixException ex) {
-        LogUtil.logError(logger, _eventId, String
-            .format("Exception when calculating best possible states for %s",
-                resource.getResourceName()), ex);
-
+    cache.getBestPossibleAssignmentCache().refresh(cache);
+    List<Resource> sequentialResources = new ArrayList<>(remainingResourceMap.values());
+    ForkJoinPool resourceComputePool = getBestPossibleComputePool(cache);
+    if (resourceComputePool != null) {
+      List<Resource> independentResources = new ArrayList<>();
+      Iterator<Resource> itr = sequentialResources.iterator();
+      while (itr.hasNext()) {
+        Resource resource = itr.next();
+        if (isIndependentResource(resource, cache)) {
+          independentResources.add(resource);
+          itr.remove();
+        }
       }
-      if (!result) {
+      computeIndependentResourcesBestPossibleState(event, cache, currentStateOutput,
+          independentResources, resourceComputePool, output, failureResources);
+    }
+    for (Resource resource : sequentialResources) {
+      if (!computeResourceBestPossibleState(event, cache, currentStateOutput, resource, output)) {
         failureResources.add(resource.getResourceName());
-        LogUtil.logWarn(logger, _eventId, String
-            .format("Failed to calculate best possible states for %s", resource.getResourceName()));
       }
     }
 
@@ -324,6 +341,129 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     return output;
   }
 
+  /**
+   * The best possible state of a resource computed on its own output, merged after all the
+   * resources are computed.
+   */
+  private static class ResourceBestPossibleState {
+    private final BestPossibleStateOutput _output = new BestPossibleStateOutput();
+    private boolean _succeeded;
+    private long _computeTimeNs;
+  }
+
+  /**
+   * Compute the independent resources concurrently on the resource compute pool. Each resource is
+   * computed into its own output, and the outputs and the failures are merged in the order of the
+   * resource names, so the result does not depend on the scheduling of the threads.
+   */
+  private void computeIndependentResourcesBestPossibleState(ClusterEvent event,
+      ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput,
+      List<Resource> resources, ForkJoinPool resourceComputePool, BestPossibleStateOutput output,
+      List<String> failureResources) {
+    if (resources.isEmpty()) {
+      return;
+    }
+    resources.sort(Comparator.comparing(Resource::getResourceName));
+    long startTime = System.nanoTime();
+    List<ResourceBestPossibleState> results =
+        ResourceComputeExecutor.compute(resourceComputePool, resources, resource -> {
+          long resourceStartTime = System.nanoTime();
+          ResourceBestPossibleState result = new ResourceBestPossibleState();
+          result._succeeded = computeResourceBestPossibleState(event, cache, currentStateOutput,
+              resource, result._output);
+          result._computeTimeNs = System.nanoTime() - resourceStartTime;
+          return result;
+        });
+    long elapsedTimeNs = System.nanoTime() - startTime;
+
+    long totalComputeTimeNs = 0;
+    for (int i = 0; i < resources.size(); i++) {
+      ResourceBestPossibleState result = results.get(i);
+      output.merge(result._output);
+      if (!result._succeeded) {
+        failureResources.add(resources.get(i).getResourceName());
+      }
+      totalComputeTimeNs += result._computeTimeNs;
+    }
+
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    if (clusterStatusMonitor != null && elapsedTimeNs > 0) {
+      // The busy time of the threads in percent of the time they were available to the stage.
+      int threadCount = Math.min(resourceComputePool.getParallelism(), resources.size());
+      clusterStatusMonitor.updatePipelineStageParallelEfficiency(
+          event.getAttribute(AttributeName.PipelineType.name()), getStageName(),
+          Math.min(100L, totalComputeTimeNs * 100 / (elapsedTimeNs * threadCount)));
+    }
+  }
+
+  private boolean computeResourceBestPossibleState(ClusterEvent event,
+      ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput,
+      Resource resource, BestPossibleStateOutput output) {
+    boolean result = false;
+    try {
+      result = computeSingleResourceBestPossibleState(event, cache, currentStateOutput, resource,
+          output);
+    } catch (HelixException ex) {
+      LogUtil.logError(logger, _eventId, String
+          .format("Exception when calculating best possible states for %s",
+              resource.getResourceName()), ex);
+
+    }
+    if (!result) {
+      LogUtil.logWarn(logger, _eventId, String
+          .format("Failed to calculate best possible states for %s", resource.getResourceName()));
+    }
+    return result;
+  }
+
+  /**
+   * @return the pool to compute the independent resources on, or null if the resources are
+   * computed sequentially
+   */
+  private ForkJoinPool getBestPossibleComputePool(ResourceControllerDataProvider cache) {
+    ClusterConfig clusterConfig = cache.getClusterConfig();
+    // The partitions are assigned across the resources with a global partition limit.
+    if (clusterConfig == null || !clusterConfig.isBestPossibleParallelComputeEnabled()
+        || clusterConfig.getGlobalMaxPartitionAllowedPerInstance() != -1) {
+      return null;
+    }
+    return cache.getResourceComputePool();
+  }
+
+  /**
+   * A resource is independent of the other resources if it is rebalanced by a built-in rebalancer
+   * and rebalance strategy, which only read the shared cluster data. The customized rebalancers,
+   * strategies and abnormal state resolvers may not be thread-safe, and the WAGED resources
+   * share the instance capacity.
+   */
+  private boolean isIndependentResource(Resource resource, ResourceControllerDataProvider cache) {
+    IdealState idealState = cache.getIdealState(resource.getResourceName());
+    if (idealState == null || WagedValidationUtil.isWagedEnabled(idealState)
+        || TaskConstants.STATE_MODEL_NAME.equals(idealState.getStateModelDefRef())
+        || cache.getAbnormalStateResolver(idealState.getStateModelDefRef())
+        != MonitoredAbnormalResolver.DUMMY_STATE_RESOLVER) {
+      return false;
+    }
+    switch (idealState.getRebalanceMode()) {
+    case SEMI_AUTO:
+    case CUSTOMIZED:
+      return true;
+    case FULL_AUTO:
+      if (cache.isMaintenanceModeEnabled()) {
+        return true;
+      }
+      String rebalancerClassName = idealState.getRebalancerClassName();
+      String rebalanceStrategy = idealState.getRebalanceStrategy();
+      return (rebalancerClassName == null || rebalancerClassName
+          .equals(DelayedAutoRebalancer.class.getName())) && (rebalanceStrategy == null
+          || rebalanceStrategy.equalsIgnoreCase(RebalanceStrategy.DEFAULT_REBALANCE_STRATEGY)
+          || INDEPENDENT_REBALANCE_STRATEGIES.contains(rebalanceStrategy));
+    default:
+      return false;
+    }
+  }
+
   private void updateRebalanceStatus(final boolean hasFailure, final List<String> failedResources,
       final HelixManager helixManager, final ResourceControllerDataProvider cache,
       final ClusterStatusMonitor clusterStatusMonitor, final String errorMessage) {
@@ -404,6 +544,10 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
       wagedRebalancer.updateRebalancePreference(clusterConfig.getGlobalRebalancePreference());
       wagedRebalancer
           .setGlobalRebalanceAsyncMode(clusterConfig.isGlobalRebalanceAsyncModeEnabled());
+      wagedRebalancer.setPartialRebalanceIncrementalMode(
+          clusterConfig.isPartialRebalanceIncrementalModeEnabled());
+      wagedRebalancer.setAssignmentAsyncPersistenceMode(
+          clusterConfig.isAssignmentAsyncPersistenceModeEnabled());
     }
   }
 
@@ -521,6 +665,14 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
           + ". no rebalancer found. rebalancer: " + rebalancer + " mappingCalculator: "
           + mappingCalculator);
     } else {
+      // Reuse the assignment of the last run if the inputs of the resource are unchanged.
+      BestPossibleAssignmentCache assignmentCache = cache.getBestPossibleAssignmentCache();
+      BestPossibleAssignmentCache.ResourceFingerprint fingerprint =
+          isAssignmentReusable(rebalancer, idealState, cache) ? assignmentCache
+              .getFingerprint(resource, idealState, cache, currentStateOutput) : null;
+      if (fingerprint != null && assignmentCache.restore(resource, fingerprint, output)) {
+        return true;
+      }
       try {
         HelixManager manager = event.getAttribute(AttributeName.helixmanager.name());
         rebalancer.init(manager);
@@ -551,6 +703,9 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
           Map<String, String> newStateMap = partitionStateAssignment.getReplicaMap(partition);
           output.setState(resourceName, partition, newStateMap);
         }
+        if (fingerprint != null) {
+          assignmentCache.store(resource, fingerprint, output);
+        }
 
         return true;
       } catch (HelixException e) {
@@ -565,6 +720,24 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     return false;
   }
 
+  /**
+   * The assignment of the built-in rebalancers only depends on the cluster data and the current
+   * states, unless the delayed rebalance is enabled, or the partitions are assigned across the
+   * resources with a global partition limit.
+   */
+  private boolean isAssignmentReusable(Rebalancer<ResourceControllerDataProvider> rebalancer,
+      IdealState idealState, ResourceControllerDataProvider cache) {
+    Class<?> rebalancerClass = rebalancer.getClass();
+    if (rebalancerClass != SemiAutoRebalancer.class && rebalancerClass != CustomRebalancer.class
+        && rebalancerClass != DelayedAutoRebalancer.class
+        && rebalancerClass != MaintenanceRebalancer.class) {
+      return false;
+    }
+    ClusterConfig clusterConfig = cache.getClusterConfig();
+    return clusterConfig != null && clusterConfig.getGlobalMaxPartitionAllowedPerInstance() == -1
+        && !DelayedRebalanceUtil.isDelayRebalanceEnabled(idealState, clusterConfig);
+  }
+
   private boolean checkBestPossibleStateCalculation(IdealState idealState) {
     // If replicas is 0, indicate the resource is not fully initialized or ready to be rebalanced
     if (idealState.getRebalanceMode() == IdealState.RebalanceMode.FULL_AUTO && !idealState
@@ -105,6 +105,23 @@ public class BestPossibleStateOutput extends ResourcesStateMap {
     _preferenceLists.put(resource, resourcePreferenceLists);
   }
 
+  /**
+   * Add the states and the preference lists of the resources in the other output. The resources
+   * of the other output replace the same resources in this output.
+   * @param other
+   */
+  public void merge(BestPossibleStateOutput other) {
+    for (Map.Entry<String, PartitionStateMap> entry : other._resourceStateMap.entrySet()) {
+      setState(entry.getKey(), entry.getValue());
+    }
+    if (other._preferenceLists != null) {
+      for (Map.Entry<String, Map<String, List<String>>> entry : other._preferenceLists
+          .entrySet()) {
+        setPreferenceLists(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
   protected boolean containsResource(String resource) {
     return _preferenceLists != null && _preferenceLists.containsKey(resource);
   }
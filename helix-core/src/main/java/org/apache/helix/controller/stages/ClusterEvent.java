@@ -33,6 +33,7 @@ public class ClusterEvent {
   private long _creationTime;
   private String _clusterName;
   private String _eventId;
+  private int _coalescedEventCount;
 
   @Deprecated
   public ClusterEvent(ClusterEventType eventType) {
@@ -74,6 +75,18 @@ public class ClusterEvent {
     _creationTime = creationTime;
   }
 
+  /**
+   * Get the number of the events of the same type this event replaced in the event queue
+   * @return
+   */
+  public int getCoalescedEventCount() {
+    return _coalescedEventCount;
+  }
+
+  public void setCoalescedEventCount(int coalescedEventCount) {
+    _coalescedEventCount = coalescedEventCount;
+  }
+
   public String getClusterName() {
     return _clusterName;
   }
@@ -119,6 +132,7 @@ public class ClusterEvent {
   public ClusterEvent clone(String eventId) {
     ClusterEvent newEvent = new ClusterEvent(_clusterName, _eventType, eventId);
     newEvent.setCreationTime(_creationTime);
+    newEvent.setCoalescedEventCount(_coalescedEventCount);
     for (String attributeName : _eventAttributeMap.keySet()) {
       newEvent.addAttribute(attributeName, _eventAttributeMap.get(attributeName));
     }
@@ -39,6 +39,7 @@ import org.apache.helix.controller.pipeline.AbstractAsyncBaseStage;
 import org.apache.helix.controller.pipeline.AsyncWorkerType;
 import org.apache.helix.controller.pipeline.StageException;
 import org.apache.helix.manager.zk.DefaultSchedulerMessageHandlerFactory;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.Message;
@@ -126,7 +127,7 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
 
     // add/update external-views
     if (newExtViews.size() > 0) {
-      dataAccessor.setChildren(keys, newExtViews);
+      writeExternalViews(dataAccessor, cache, keys, newExtViews);
       cache.updateExternalViews(newExtViews);
     }
 
@@ -138,9 +139,47 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
         externalViewsToRemove.add(resourceName);
       }
     }
+    for (String resourceName : externalViewsToRemove) {
+      cache.getExternalViewDeltaWriter().remove(resourceName);
+    }
     cache.removeExternalViews(externalViewsToRemove);
   }
 
+  /**
+   * Write the large external views as a delta log if it is enabled, and the others in full.
+   */
+  private void writeExternalViews(HelixDataAccessor dataAccessor,
+      ResourceControllerDataProvider cache, List<PropertyKey> keys,
+      List<ExternalView> newExtViews) {
+    ExternalViewDeltaWriter deltaWriter = cache.getExternalViewDeltaWriter();
+    ClusterConfig clusterConfig = cache.getClusterConfig();
+    if (clusterConfig == null || !clusterConfig.isExternalViewDeltaWriteEnabled()) {
+      dataAccessor.setChildren(keys, newExtViews);
+      // The snapshots of the views that were delta-encoded are not needed anymore.
+      for (ExternalView view : newExtViews) {
+        deltaWriter.removeSnapshot(dataAccessor, view.getResourceName());
+      }
+      return;
+    }
+
+    List<PropertyKey> fullWriteKeys = new ArrayList<>();
+    List<ExternalView> fullWriteViews = new ArrayList<>();
+    for (int i = 0; i < newExtViews.size(); i++) {
+      ExternalView view = newExtViews.get(i);
+      if (deltaWriter.isEligible(view) && deltaWriter.write(dataAccessor, view)) {
+        continue;
+      }
+      fullWriteKeys.add(keys.get(i));
+      fullWriteViews.add(view);
+    }
+    if (!fullWriteViews.isEmpty()) {
+      dataAccessor.setChildren(fullWriteKeys, fullWriteViews);
+      for (ExternalView view : fullWriteViews) {
+        deltaWriter.removeSnapshot(dataAccessor, view.getResourceName());
+      }
+    }
+  }
+
   private void computeExternalView(final Resource resource,
       final CurrentStateOutput currentStateOutput, final ResourceControllerDataProvider cache,
       final ClusterStatusMonitor clusterStatusMonitor, final Map<String, ExternalView> curExtViews,
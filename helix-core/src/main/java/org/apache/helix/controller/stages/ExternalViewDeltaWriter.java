@@ -0,0 +1,165 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.ZNRecordDeltaLog;
+import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the large ExternalViews as a {@link ZNRecordDeltaLog}, so an ExternalView update only
+ * writes the partitions that have changed since the last compaction. The log is compacted into a
+ * new snapshot once it grows over the compaction ratio of the snapshot size.
+ * <p>
+ * The writer remembers the snapshot and the znode version of every ExternalView it has written.
+ * If the ExternalView is changed by anyone else, the versioned write fails and the ExternalView
+ * is compacted again. This class is not thread safe.
+ */
+public class ExternalViewDeltaWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(ExternalViewDeltaWriter.class);
+
+  public static final int DEFAULT_MIN_PARTITIONS = 100;
+  public static final double DEFAULT_COMPACTION_RATIO = 0.25;
+
+  private final int _minPartitions;
+  private final double _compactionRatio;
+  // <resource name, the state of the ExternalView written by this writer>
+  private final Map<String, DeltaLogState> _deltaLogStates = new HashMap<>();
+
+  public ExternalViewDeltaWriter() {
+    this(DEFAULT_MIN_PARTITIONS, DEFAULT_COMPACTION_RATIO);
+  }
+
+  public ExternalViewDeltaWriter(int minPartitions, double compactionRatio) {
+    _minPartitions = minPartitions;
+    _compactionRatio = compactionRatio;
+  }
+
+  /**
+   * @param externalView
+   * @return true if the ExternalView is large enough to be delta-encoded
+   */
+  public boolean isEligible(ExternalView externalView) {
+    return externalView.getBucketSize() == 0
+        && externalView.getRecord().getMapFields().size() >= _minPartitions;
+  }
+
+  /**
+   * Write the ExternalView as a log against the last snapshot, or compact it into a new snapshot.
+   * @param accessor
+   * @param externalView
+   * @return true if the ExternalView is written
+   */
+  public boolean write(HelixDataAccessor accessor, ExternalView externalView) {
+    String resourceName = externalView.getResourceName();
+    String path = accessor.keyBuilder().externalView(resourceName).getPath();
+    BaseDataAccessor<ZNRecord> baseDataAccessor = accessor.getBaseDataAccessor();
+    ZNRecord record = externalView.getRecord();
+
+    DeltaLogState state = _deltaLogStates.get(resourceName);
+    if (state != null) {
+      ZNRecord log = ZNRecordDeltaLog.createLog(record, state._snapshot);
+      if (log != null && ZNRecordDeltaLog.getLogSize(log) <= _compactionRatio * Math
+          .max(state._snapshot.getMapFields().size(), _minPartitions)) {
+        try {
+          if (baseDataAccessor.set(path, log, state._version, AccessOption.PERSISTENT)) {
+            state._version++;
+            return true;
+          }
+        } catch (ZkBadVersionException e) {
+          LOG.warn("ExternalView {} was changed by another writer, compact it.", resourceName);
+        }
+      }
+      _deltaLogStates.remove(resourceName);
+    }
+    return compact(baseDataAccessor, path, resourceName, record);
+  }
+
+  /**
+   * Write a new snapshot and an empty log of the record. The snapshot is written first, so the
+   * readers of the previous log can detect the compaction by the snapshot id.
+   */
+  private boolean compact(BaseDataAccessor<ZNRecord> baseDataAccessor, String path,
+      String resourceName, ZNRecord record) {
+    ZNRecord snapshot = ZNRecordDeltaLog.createSnapshot(record, UUID.randomUUID().toString());
+    ZNRecord log = ZNRecordDeltaLog.createLog(record, snapshot);
+    if (log == null || !baseDataAccessor
+        .set(path + "/" + ZNRecordDeltaLog.SNAPSHOT_NODE, snapshot, AccessOption.PERSISTENT)
+        || !baseDataAccessor.set(path, log, AccessOption.PERSISTENT)) {
+      LOG.error("Failed to compact ExternalView {}.", resourceName);
+      return false;
+    }
+    Stat stat = baseDataAccessor.getStat(path, AccessOption.PERSISTENT);
+    if (stat != null) {
+      _deltaLogStates.put(resourceName, new DeltaLogState(snapshot, stat.getVersion()));
+    }
+    return true;
+  }
+
+  /**
+   * Forget the ExternalView, e.g. it is removed by the caller.
+   * @param resourceName
+   */
+  public void remove(String resourceName) {
+    _deltaLogStates.remove(resourceName);
+  }
+
+  /**
+   * Remove the snapshot of the ExternalView once it is written in full by the caller, so the
+   * snapshot is not left behind in ZK, and forget the ExternalView.
+   * @param accessor
+   * @param resourceName
+   */
+  public void removeSnapshot(HelixDataAccessor accessor, String resourceName) {
+    if (_deltaLogStates.remove(resourceName) != null) {
+      String path = accessor.keyBuilder().externalView(resourceName).getPath();
+      accessor.getBaseDataAccessor()
+          .remove(path + "/" + ZNRecordDeltaLog.SNAPSHOT_NODE, AccessOption.PERSISTENT);
+    }
+  }
+
+  /**
+   * Forget all the ExternalViews. They will be compacted on the next write.
+   */
+  public void reset() {
+    _deltaLogStates.clear();
+  }
+
+  private static class DeltaLogState {
+    private final ZNRecord _snapshot;
+    private int _version;
+
+    private DeltaLogState(ZNRecord snapshot, int version) {
+      _snapshot = snapshot;
+      _version = version;
+    }
+  }
+}
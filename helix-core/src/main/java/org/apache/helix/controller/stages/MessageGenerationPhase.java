@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixDefinedState;
@@ -71,6 +72,14 @@ public class MessageGenerationPhase extends AbstractBaseStage {
 
   private static Logger logger = LoggerFactory.getLogger(MessageGenerationPhase.class);
 
+  /**
+   * The messages generated for a resource when the resources are computed concurrently.
+   */
+  private static class ResourceMessages {
+    final MessageOutput _output = new MessageOutput();
+    final Map<String, Map<String, Message>> _messagesToCleanUp = new HashMap<>();
+  }
+
   @Override
   public void process(ClusterEvent event) throws Exception {
     BestPossibleStateOutput bestPossibleStateOutput =
@@ -98,13 +107,31 @@ public class MessageGenerationPhase extends AbstractBaseStage {
     }
     MessageOutput output = new MessageOutput();
 
-    for (Resource resource : resourceMap.values()) {
-      try {
-        generateMessage(resource, cache, bestPossibleStateOutput, currentStateOutput, manager,
-            sessionIdMap, event.getEventType(), output, messagesToCleanUp);
-      } catch (HelixException ex) {
-        LogUtil.logError(logger, _eventId,
-            "Failed to generate message for resource " + resource.getResourceName(), ex);
+    ForkJoinPool resourceComputePool = cache.getResourceComputePool();
+    if (resourceComputePool == null) {
+      for (Resource resource : resourceMap.values()) {
+        generateResourceMessage(resource, cache, bestPossibleStateOutput, currentStateOutput,
+            manager, sessionIdMap, event.getEventType(), output, messagesToCleanUp);
+      }
+    } else {
+      // Generate the messages of every resource separately, then merge them in the order of the
+      // resources.
+      List<ResourceMessages> resourceMessagesList =
+          ResourceComputeExecutor.compute(resourceComputePool,
+              new ArrayList<>(resourceMap.values()), resource -> {
+                ResourceMessages resourceMessages = new ResourceMessages();
+                generateResourceMessage(resource, cache, bestPossibleStateOutput,
+                    currentStateOutput, manager, sessionIdMap, event.getEventType(),
+                    resourceMessages._output, resourceMessages._messagesToCleanUp);
+                return resourceMessages;
+              });
+      for (ResourceMessages resourceMessages : resourceMessagesList) {
+        output.merge(resourceMessages._output);
+        for (Map.Entry<String, Map<String, Message>> entry : resourceMessages._messagesToCleanUp
+            .entrySet()) {
+          messagesToCleanUp.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+              .putAll(entry.getValue());
+        }
       }
     }
 
@@ -116,6 +143,19 @@ public class MessageGenerationPhase extends AbstractBaseStage {
     event.addAttribute(AttributeName.MESSAGES_ALL.name(), output);
   }
 
+  private void generateResourceMessage(Resource resource, BaseControllerDataProvider cache,
+      ResourcesStateMap resourcesStateMap, CurrentStateOutput currentStateOutput,
+      HelixManager manager, Map<String, String> sessionIdMap, ClusterEventType eventType,
+      MessageOutput output, Map<String, Map<String, Message>> messagesToCleanUp) {
+    try {
+      generateMessage(resource, cache, resourcesStateMap, currentStateOutput, manager,
+          sessionIdMap, eventType, output, messagesToCleanUp);
+    } catch (HelixException ex) {
+      LogUtil.logError(logger, _eventId,
+          "Failed to generate message for resource " + resource.getResourceName(), ex);
+    }
+  }
+
   private void generateMessage(final Resource resource, final BaseControllerDataProvider cache,
       final ResourcesStateMap resourcesStateMap, final CurrentStateOutput currentStateOutput,
       final HelixManager manager, final Map<String, String> sessionIdMap,
@@ -57,6 +57,24 @@ public class MessageOutput {
     _messagesMap.get(resourceName).put(partition, messages);
   }
 
+  /**
+   * Add all the messages of another output. The messages of the same partition are appended
+   * after the existing ones.
+   * @param other
+   */
+  public void merge(MessageOutput other) {
+    for (Map.Entry<String, Map<Partition, List<Message>>> resourceEntry : other._messagesMap
+        .entrySet()) {
+      for (Map.Entry<Partition, List<Message>> partitionEntry : resourceEntry.getValue()
+          .entrySet()) {
+        for (Message message : partitionEntry.getValue()) {
+          addMessage(resourceEntry.getKey(), partitionEntry.getKey(), message);
+        }
+      }
+    }
+    _statusChangeMessages.addAll(other._statusChangeMessages);
+  }
+
   public void addStatusChangeMessages(List<Message> messages) {
     _statusChangeMessages.addAll(messages);
   }
@@ -0,0 +1,72 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.helix.HelixException;
+
+/**
+ * Computes the resources of a pipeline stage independently of each other, either sequentially on
+ * the pipeline thread or concurrently on the resource compute pool of the controller. The
+ * results are returned in the order of the resources, so merging them is deterministic.
+ */
+final class ResourceComputeExecutor {
+  private ResourceComputeExecutor() {
+  }
+
+  /**
+   * Compute every resource with the given function
+   * @param pool the pool to compute the resources on, or null to compute them sequentially
+   * @param resources the resources
+   * @param function the computation of a resource, must be thread-safe if the pool is not null
+   * @return the results in the order of the resources
+   */
+  static <R, T> List<T> compute(ForkJoinPool pool, List<R> resources, Function<R, T> function) {
+    if (pool == null || resources.size() <= 1) {
+      List<T> results = new ArrayList<>(resources.size());
+      for (R resource : resources) {
+        results.add(function.apply(resource));
+      }
+      return results;
+    }
+    try {
+      return pool
+          .submit(() -> resources.parallelStream().map(function).collect(Collectors.toList()))
+          .get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HelixException("Interrupted while computing the resources", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new HelixException("Failed to compute the resources", e.getCause());
+    }
+  }
+}
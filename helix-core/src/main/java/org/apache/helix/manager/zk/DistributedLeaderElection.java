@@ -32,11 +32,13 @@ import org.apache.helix.NotificationContext;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.PropertyType;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.api.listeners.ControllerChangeListener;
 import org.apache.helix.controller.GenericHelixController;
 import org.apache.helix.model.ControllerHistory;
 import org.apache.helix.model.LiveInstance;
+import org.apache.helix.util.HelixUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,12 +51,15 @@ public class DistributedLeaderElection implements ControllerChangeListener {
   private final HelixManager _manager;
   private final GenericHelixController _controller;
   private final List<HelixTimerTask> _controllerTimerTasks;
+  private final long _warmStandbyIntervalMs;
 
   public DistributedLeaderElection(HelixManager manager, GenericHelixController controller,
       List<HelixTimerTask> controllerTimerTasks) {
     _manager = manager;
     _controller = controller;
     _controllerTimerTasks = controllerTimerTasks;
+    _warmStandbyIntervalMs = HelixUtil
+        .getSystemPropertyAsLong(SystemPropertyKeys.CONTROLLER_WARM_STANDBY_INTERVAL_MS, 0L);
 
     InstanceType type = _manager.getInstanceType();
     if (type != InstanceType.CONTROLLER && type != InstanceType.CONTROLLER_PARTICIPANT) {
@@ -91,6 +96,7 @@ public class DistributedLeaderElection implements ControllerChangeListener {
     long start = System.currentTimeMillis();
     LOG.info(manager.getInstanceName() + " tries to relinquish leadership for cluster: " + manager
         .getClusterName());
+    _controller.stopWarmStandby();
     controllerHelper.stopControllerTimerTasks();
     controllerHelper.removeListenersFromController(_controller);
     // clear write-through cache
@@ -109,11 +115,14 @@ public class DistributedLeaderElection implements ControllerChangeListener {
     // Try to acquire leader and init the manager in any case.
     // Even when a leader node already exists, the election process shall still try to init the manager
     // in case it is the current leader.
+    boolean isLeader;
     do {
       // Due to the possible carried over ZK events from the previous ZK session, the following
       // initialization might be triggered multiple times. So the operation must be idempotent.
       long start = System.currentTimeMillis();
-      if (tryCreateController(manager)) {
+      isLeader = tryCreateController(manager);
+      if (isLeader) {
+        _controller.stopWarmStandby();
         manager.getHelixDataAccessor().getBaseDataAccessor().reset();
         controllerHelper.addListenersToController(_controller);
         controllerHelper.startControllerTimerTasks();
@@ -122,6 +131,10 @@ public class DistributedLeaderElection implements ControllerChangeListener {
             System.currentTimeMillis() - start);
       }
     } while (accessor.getProperty(leaderNodePropertyKey) == null);
+
+    if (!isLeader && _warmStandbyIntervalMs > 0) {
+      _controller.startWarmStandby(manager, _warmStandbyIntervalMs);
+    }
   }
 
   /**
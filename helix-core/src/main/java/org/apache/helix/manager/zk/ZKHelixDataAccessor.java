@@ -22,8 +22,12 @@ package org.apache.helix.manager.zk;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
@@ -35,15 +39,18 @@ import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.PropertyType;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.MaintenanceSignal;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.PauseSignal;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.mbeans.GroupCommitMonitor;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.ZNRecordAssembler;
 import org.apache.helix.zookeeper.datamodel.ZNRecordBucketizer;
+import org.apache.helix.zookeeper.datamodel.ZNRecordDeltaLog;
 import org.apache.helix.zookeeper.datamodel.ZNRecordUpdater;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
@@ -54,10 +61,18 @@ import org.slf4j.LoggerFactory;
 
 public class ZKHelixDataAccessor implements HelixDataAccessor {
   private static Logger LOG = LoggerFactory.getLogger(ZKHelixDataAccessor.class);
+  private static final int DELTA_LOG_READ_RETRY_COUNT = 3;
   private final BaseDataAccessor<ZNRecord> _baseDataAccessor;
   protected final String _clusterName;
   private final Builder _propertyKeyBuilder;
   private final GroupCommit _groupCommit = new GroupCommit();
+  // Only the current state updates, which are written by the participants on state transitions,
+  // wait for the commit window.
+  private final GroupCommit _currentStateGroupCommit =
+      new GroupCommit(Long.getLong(SystemPropertyKeys.CURRENT_STATE_COMMIT_WINDOW_MS, 0L));
+  // The latest snapshots of the delta-encoded ExternalViews <path, snapshot>, so reading such
+  // an ExternalView only reads its log as long as the snapshot is not compacted.
+  private final Map<String, ZNRecord> _deltaLogSnapshots = new ConcurrentHashMap<>();
 
   public ZKHelixDataAccessor(String clusterName, BaseDataAccessor<ZNRecord> baseDataAccessor) {
     _clusterName = clusterName;
@@ -185,6 +200,9 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     boolean success = false;
     switch (type) {
       case CURRENTSTATES:
+        success = _currentStateGroupCommit
+            .commit(_baseDataAccessor, options, path, value.getRecord(), true);
+        break;
       case TASKCURRENTSTATES:
       case CUSTOMIZEDSTATES:
         success = _groupCommit.commit(_baseDataAccessor, options, path, value.getRecord(), true);
@@ -258,7 +276,7 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
             property.getRecord().getListFields().clear();
 
             List<ZNRecord> childRecords = _baseDataAccessor.getChildren(path, null, options, 1, 0);
-            ZNRecord assembledRecord = new ZNRecordAssembler().assemble(childRecords);
+            ZNRecord assembledRecord = assembleBuckets(childRecords);
 
             // merge with parent node value
             if (assembledRecord != null) {
@@ -266,6 +284,8 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
               record.getListFields().putAll(assembledRecord.getListFields());
               record.getMapFields().putAll(assembledRecord.getMapFields());
             }
+          } else if (type == PropertyType.EXTERNALVIEW && ZNRecordDeltaLog.isDeltaLog(record)) {
+            record = assembleDeltaLog(path, record, options);
           }
         }
         break;
@@ -317,7 +337,7 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
           property.getRecord().getListFields().clear();
 
           List<ZNRecord> childRecords = _baseDataAccessor.getChildren(path, null, options, 0, 0);
-          ZNRecord assembledRecord = new ZNRecordAssembler().assemble(childRecords);
+          ZNRecord assembledRecord = assembleBuckets(childRecords);
 
           // merge with parent node value
           if (assembledRecord != null) {
@@ -325,6 +345,8 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
             record.getListFields().putAll(assembledRecord.getListFields());
             record.getMapFields().putAll(assembledRecord.getMapFields());
           }
+        } else if (type == PropertyType.EXTERNALVIEW && ZNRecordDeltaLog.isDeltaLog(record)) {
+          record = assembleDeltaLog(path, record, options);
         }
       }
       break;
@@ -337,6 +359,65 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     return t;
   }
 
+  /**
+   * Assemble a record that is stored as a {@link ZNRecordDeltaLog}. The snapshot is only read if
+   * it is not the cached one. If the snapshot is compacted concurrently, the log is read again.
+   * @param path the path of the record
+   * @param log the log that is read from the path
+   * @param options
+   * @return the assembled record, or null if the record has been removed
+   */
+  private ZNRecord assembleDeltaLog(String path, ZNRecord log, int options) {
+    String snapshotPath = path + "/" + ZNRecordDeltaLog.SNAPSHOT_NODE;
+    for (int retry = 0; retry < DELTA_LOG_READ_RETRY_COUNT; retry++) {
+      String snapshotId = log.getSimpleField(ZNRecordDeltaLog.SNAPSHOT_ID_FIELD);
+      ZNRecord snapshot = _deltaLogSnapshots.get(path);
+      if (snapshot == null
+          || !snapshotId.equals(snapshot.getSimpleField(ZNRecordDeltaLog.SNAPSHOT_ID_FIELD))) {
+        snapshot = _baseDataAccessor.get(snapshotPath, null, options);
+        if (snapshot != null) {
+          _deltaLogSnapshots.put(path, snapshot);
+        }
+      }
+
+      ZNRecord record = ZNRecordDeltaLog.assemble(log, snapshot);
+      if (record != null) {
+        return record;
+      }
+
+      // The log may have been compacted after it is read.
+      Stat stat = new Stat();
+      log = _baseDataAccessor.get(path, stat, options);
+      if (log == null) {
+        _deltaLogSnapshots.remove(path);
+        return null;
+      }
+      log.setCreationTime(stat.getCtime());
+      log.setModifiedTime(stat.getMtime());
+      log.setVersion(stat.getVersion());
+      log.setEphemeralOwner(stat.getEphemeralOwner());
+      if (!ZNRecordDeltaLog.isDeltaLog(log)) {
+        // The record is not delta-encoded anymore.
+        _deltaLogSnapshots.remove(path);
+        return log;
+      }
+    }
+    throw new HelixMetaDataAccessException(
+        "Failed to read the snapshot of the delta-encoded record at " + path);
+  }
+
+  /**
+   * Assemble the buckets of a bucketized record. The snapshot that is left by an earlier
+   * delta-encoded write of the record is not a bucket, so it is ignored.
+   */
+  private static ZNRecord assembleBuckets(List<ZNRecord> childRecords) {
+    if (childRecords != null) {
+      childRecords = childRecords.stream().filter(record -> !ZNRecordDeltaLog.isDeltaLog(record))
+          .collect(Collectors.toList());
+    }
+    return new ZNRecordAssembler().assemble(childRecords);
+  }
+
   @Override
   public HelixProperty.Stat getPropertyStat(PropertyKey key) {
     PropertyType type = key.getType();
@@ -386,6 +467,9 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     String path = key.getPath();
     int options = constructOptions(type);
 
+    if (type == PropertyType.EXTERNALVIEW) {
+      _deltaLogSnapshots.remove(path);
+    }
     return _baseDataAccessor.remove(path, options);
   }
 
@@ -420,6 +504,7 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
       children = _baseDataAccessor.getChildren(parentPath, null, options);
     }
     if (children != null) {
+      Set<String> deltaLogPaths = new HashSet<>();
       for (ZNRecord record : children) {
         switch (type) {
         case CURRENTSTATES:
@@ -429,17 +514,17 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
           if (record != null) {
             HelixProperty property = new HelixProperty(record);
 
+            // TODO: fix this if record.id != pathName
+            String childPath = parentPath + "/" + record.getId();
             int bucketSize = property.getBucketSize();
             if (bucketSize > 0) {
-              // TODO: fix this if record.id != pathName
-              String childPath = parentPath + "/" + record.getId();
               List<ZNRecord> childRecords;
               if (throwException) {
                 childRecords = _baseDataAccessor.getChildren(childPath, null, options, 1, 0);
               } else {
                 childRecords = _baseDataAccessor.getChildren(childPath, null, options);
               }
-              ZNRecord assembledRecord = new ZNRecordAssembler().assemble(childRecords);
+              ZNRecord assembledRecord = assembleBuckets(childRecords);
 
               // merge with parent node value
               if (assembledRecord != null) {
@@ -447,6 +532,9 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
                 record.getListFields().putAll(assembledRecord.getListFields());
                 record.getMapFields().putAll(assembledRecord.getMapFields());
               }
+            } else if (type == PropertyType.EXTERNALVIEW && ZNRecordDeltaLog.isDeltaLog(record)) {
+              deltaLogPaths.add(childPath);
+              record = assembleDeltaLog(childPath, record, options);
             }
           }
 
@@ -461,6 +549,12 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
           childValues.add(t);
         }
       }
+      if (type == PropertyType.EXTERNALVIEW) {
+        // Drop the cached snapshots of the ExternalViews that are removed or not delta-encoded.
+        String childPathPrefix = parentPath + "/";
+        _deltaLogSnapshots.keySet().removeIf(
+            path -> path.startsWith(childPathPrefix) && !deltaLogPaths.contains(path));
+      }
     }
     return childValues;
   }
@@ -598,6 +692,14 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     return _baseDataAccessor;
   }
 
+  /**
+   * Set the monitor the group commit writes of the current states are reported to
+   * @param monitor the monitor, or null to stop reporting
+   */
+  public void setGroupCommitMonitor(GroupCommitMonitor monitor) {
+    _currentStateGroupCommit.setMonitor(monitor);
+  }
+
   @Override
   public <T extends HelixProperty> boolean[] updateChildren(List<String> paths,
       List<DataUpdater<ZNRecord>> updaters, int options) {
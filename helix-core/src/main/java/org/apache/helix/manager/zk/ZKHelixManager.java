@@ -85,7 +85,9 @@ import org.apache.helix.model.BuiltInStateModelDefinitions;
 import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.monitoring.ZKPathDataDumpTask;
+import org.apache.helix.monitoring.mbeans.GroupCommitMonitor;
 import org.apache.helix.monitoring.mbeans.HelixCallbackMonitor;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
 import org.apache.helix.monitoring.mbeans.MonitorLevel;
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
 import org.apache.helix.participant.HelixStateMachineEngine;
@@ -95,8 +97,11 @@ import org.apache.helix.store.zk.ZkHelixPropertyStore;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ChainedPathZkSerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordBinarySerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordFastSerializer;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.apache.helix.zookeeper.impl.factory.DedicatedZkClientFactory;
 import org.apache.helix.zookeeper.impl.factory.HelixZkClientFactory;
@@ -104,6 +109,7 @@ import org.apache.helix.zookeeper.impl.factory.SharedZkClientFactory;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.apache.helix.zookeeper.zkclient.serialize.PathBasedZkSerializer;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.apache.zookeeper.Watcher.Event.EventType;
 import org.apache.zookeeper.Watcher.Event.KeeperState;
 import org.slf4j.Logger;
@@ -140,6 +146,7 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
   private RealmAwareZkClient.RealmAwareZkConnectionConfig _realmAwareZkConnectionConfig;
   private final DefaultMessagingService _messagingService;
   private Map<ChangeType, HelixCallbackMonitor> _callbackMonitors;
+  private GroupCommitMonitor _groupCommitMonitor;
 
   private final MonitorLevel _monitorLevel;
 
@@ -277,6 +284,16 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
     } catch (JMException e) {
       LOG.error("Error in creating callback monitor.", e);
     }
+    if (instanceType == InstanceType.PARTICIPANT
+        || instanceType == InstanceType.CONTROLLER_PARTICIPANT) {
+      try {
+        _groupCommitMonitor =
+            new GroupCommitMonitor(MonitorDomainNames.CLMParticipantReport.name(), instanceName)
+                .register();
+      } catch (JMException e) {
+        LOG.error("Error in creating group commit monitor.", e);
+      }
+    }
 
     _stateListener = stateListener;
     // read cloud config from ZK and set cloudConfig in HelixManagerProperty
@@ -759,6 +776,7 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
       _baseDataAccessor = createBaseDataAccessor();
 
       _dataAccessor = new ZKHelixDataAccessor(_clusterName, _baseDataAccessor);
+      _dataAccessor.setGroupCommitMonitor(_groupCommitMonitor);
       _configAccessor = new ConfigAccessor(_zkclient);
 
       if (_instanceType == InstanceType.CONTROLLER
@@ -880,6 +898,9 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
       for (HelixCallbackMonitor callbackMonitor : _callbackMonitors.values()) {
         callbackMonitor.unregister();
       }
+      if (_groupCommitMonitor != null) {
+        _groupCommitMonitor.unregister();
+      }
 
       _helixPropertyStore = null;
 
@@ -1495,8 +1516,22 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
    */
   private RealmAwareZkClient createSingleRealmZkClient() {
     final String shardingKey = HelixUtil.clusterNameToShardingKey(_clusterName);
-    PathBasedZkSerializer zkSerializer =
-        ChainedPathZkSerializer.builder(new ZNRecordSerializer()).build();
+    ZkSerializer defaultSerializer = Boolean.getBoolean(
+        ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_FAST_SERIALIZER_ENABLED)
+        ? new ZNRecordFastSerializer() : new ZNRecordSerializer();
+    ChainedPathZkSerializer.Builder zkSerializerBuilder =
+        ChainedPathZkSerializer.builder(defaultSerializer);
+    String binaryPaths =
+        System.getProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_BINARY_PATHS, "");
+    for (String binaryPath : binaryPaths.split(",")) {
+      // the paths are relative to the cluster root
+      binaryPath = binaryPath.trim().replaceAll("^/+", "");
+      if (!binaryPath.isEmpty()) {
+        zkSerializerBuilder
+            .serialize(_clusterName + "/" + binaryPath, new ZNRecordBinarySerializer());
+      }
+    }
+    PathBasedZkSerializer zkSerializer = zkSerializerBuilder.build();
 
     // If the user supplied RealmAwareZkConnectionConfig, then use it. Only create the connection
     // config if nothing is given
@@ -26,8 +26,14 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.HelixException;
@@ -121,6 +127,13 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
   }
 
   private static Logger LOG = LoggerFactory.getLogger(ZkBaseDataAccessor.class);
+  // The smaller batched reads are always deserialized on the calling thread
+  private static final int PARALLEL_DESERIALIZE_MIN_BATCH_SIZE = 16;
+
+  // The thread pool shared by all the accessors to deserialize the records of the batched reads.
+  // It is null if the records are deserialized on the calling thread.
+  private static volatile ExecutorService _deserializerPool = createDeserializerPool(
+      Integer.getInteger(SystemPropertyKeys.ZK_BATCH_READ_DESERIALIZE_THREADS, 0));
 
   private final RealmAwareZkClient _zkClient;
 
@@ -603,7 +616,12 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
         _zkClient.asyncGetData(path, cbList[i]);
       }
 
-      // wait for completion
+      // wait for completion. For a large batch, the records are deserialized in parallel as soon
+      // as they are read.
+      ExecutorService deserializer =
+          paths.size() >= PARALLEL_DESERIALIZE_MIN_BATCH_SIZE ? _deserializerPool : null;
+      List<Future<Object>> deserializedRecords =
+          deserializer == null ? null : new ArrayList<>(Collections.nCopies(paths.size(), null));
       for (int i = 0; i < cbList.length; i++) {
         if (!needRead[i]) {
           continue;
@@ -611,6 +629,11 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
         ZkAsyncCallbacks.GetDataCallbackHandler cb = cbList[i];
         cb.waitForSuccess();
+        if (deserializer != null && Code.get(cb.getRc()) == Code.OK) {
+          String path = paths.get(i);
+          deserializedRecords
+              .set(i, deserializer.submit(() -> _zkClient.deserialize(cb._data, path)));
+        }
       }
 
       // construct return results
@@ -624,7 +647,8 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
         ZkAsyncCallbacks.GetDataCallbackHandler cb = cbList[i];
         if (Code.get(cb.getRc()) == Code.OK) {
           @SuppressWarnings("unchecked")
-          T record = (T) _zkClient.deserialize(cb._data, paths.get(i));
+          T record = (T) (deserializedRecords == null ? _zkClient.deserialize(cb._data, paths.get(i))
+              : deserializedRecords.get(i).get());
           records.set(i, record);
           if (stats != null) {
             stats.set(i, cb._stat);
@@ -654,6 +678,26 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
   }
 
+  private static ExecutorService createDeserializerPool(int poolSize) {
+    if (poolSize <= 0) {
+      return null;
+    }
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 1, TimeUnit.MINUTES,
+        new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true)
+        .setNameFormat("ZkBaseDataAccessor-deserializer-%d").build());
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  @VisibleForTesting
+  static synchronized void setDeserializerThreads(int poolSize) {
+    ExecutorService oldPool = _deserializerPool;
+    _deserializerPool = createDeserializerPool(poolSize);
+    if (oldPool != null) {
+      oldPool.shutdown();
+    }
+  }
+
   /**
    * asyn getChildren
    * The retryCount and retryInterval will be ignored.
@@ -19,17 +19,26 @@ package org.apache.helix.manager.zk;
  * under the License.
  */
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
@@ -41,15 +50,15 @@ import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.serializer.ByteArraySerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordBinarySerializer;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordJacksonSerializer;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.impl.client.FederatedZkClient;
 import org.apache.helix.zookeeper.impl.factory.DedicatedZkClientFactory;
-import org.apache.helix.zookeeper.util.GZipCompressionUtil;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
-import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +73,11 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private static final String LAST_SUCCESSFUL_WRITE_KEY = "LAST_SUCCESSFUL_WRITE";
   private static final String LAST_WRITE_KEY = "LAST_WRITE";
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  // The number of buckets written or read by one async ZK batch. The batches are in flight at the
+  // same time, while the record is still being compressed or decompressed.
+  private static final int BUCKETS_PER_BATCH = 16;
+  private static final int COMPRESSION_BUFFER_SIZE = 8 * 1024;
+  private static final int BUCKET_IO_THREAD_COUNT = 4;
   // Thread pool for deleting stale versions
   // Note that newScheduledThreadPool(1) may not work. newSingleThreadScheduledExecutor guarantees
   // sequential execution, which is what we want for implementing TTL & GC here
@@ -73,10 +87,20 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
         thread.setDaemon(true);
         return thread;
       });
+  // Thread pool for the async bucket batches. Each batch waits for its ZK callbacks, so a few
+  // threads keep several batches in flight.
+  private static final ExecutorService BUCKET_IO_THREADS =
+      Executors.newFixedThreadPool(BUCKET_IO_THREAD_COUNT, (runnable) -> {
+        Thread thread = new Thread(runnable, "ZkBucketDataAccessorIoThread");
+        thread.setDaemon(true);
+        return thread;
+      });
 
   private final int _bucketSize;
   private final long _versionTTLms;
-  private final ZkSerializer _zkSerializer;
+  private final ZNRecordJacksonSerializer _zkSerializer;
+  // Writes the records in the binary format if enabled. The reads detect the format.
+  private final ZNRecordBinarySerializer _binarySerializer;
   private final RealmAwareZkClient _zkClient;
   private final ZkBaseDataAccessor<byte[]> _zkBaseDataAccessor;
   private final Map<String, ScheduledFuture> _gcTaskFutureMap = new ConcurrentHashMap<>();
@@ -105,6 +129,9 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     _zkClient = zkClient;
     _zkBaseDataAccessor = new ZkBaseDataAccessor<>(_zkClient);
     _zkSerializer = new ZNRecordJacksonSerializer();
+    _binarySerializer =
+        Boolean.getBoolean(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_BINARY_BUCKET_ENABLED)
+            ? new ZNRecordBinarySerializer() : null;
     _bucketSize = bucketSize;
     _versionTTLms = versionTTLms;
     _usesExternalZkClient = usesExternalZkClient;
@@ -173,46 +200,45 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     // 2. Write to the incremented last write version
     String versionedDataPath = rootPath + "/" + versionStr;
 
-    // Take the ZNRecord and serialize it (get byte[])
-    byte[] serializedRecord = _zkSerializer.serialize(value.getRecord());
-    // Compress the byte[]
-    byte[] compressedRecord = GZipCompressionUtil.compress(serializedRecord);
-    // Compute N - number of buckets
-    int numBuckets = (compressedRecord.length + _bucketSize - 1) / _bucketSize;
-
-    List<String> paths = new ArrayList<>();
-    List<byte[]> buckets = new ArrayList<>();
-
-    int ptr = 0;
-    int counter = 0;
-    while (counter < numBuckets) {
-      paths.add(versionedDataPath + "/" + counter);
-      if (counter == numBuckets - 1) {
-        // Special treatment for the last bucket
-        buckets.add(
-            Arrays.copyOfRange(compressedRecord, ptr, ptr + compressedRecord.length % _bucketSize));
-      } else {
-        buckets.add(Arrays.copyOfRange(compressedRecord, ptr, ptr + _bucketSize));
+    // Serialize the ZNRecord and compress it straight into bucket-sized chunks. The buckets are
+    // written in async batches while the rest of the record is still being compressed.
+    BucketWriter bucketWriter = new BucketWriter(versionedDataPath);
+    boolean versionWritten = false;
+    try {
+      try (OutputStream outputStream = new GZIPOutputStream(bucketWriter,
+          COMPRESSION_BUFFER_SIZE)) {
+        if (_binarySerializer != null) {
+          _binarySerializer.serialize(value.getRecord(), outputStream);
+        } else {
+          _zkSerializer.serialize(value.getRecord(), outputStream);
+        }
+      } finally {
+        bucketWriter.close();
       }
-      ptr += _bucketSize;
-      counter++;
-    }
-
-    // 3. Include the metadata in the batch write
-    Map<String, String> metadata = ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize),
-        DATA_SIZE_KEY, Integer.toString(compressedRecord.length));
-    byte[] binaryMetadata = OBJECT_MAPPER.writeValueAsBytes(metadata);
-    paths.add(versionedDataPath + "/" + METADATA_KEY);
-    buckets.add(binaryMetadata);
-
-    // Do an async set to ZK
-    boolean[] success = _zkBaseDataAccessor.setChildren(paths, buckets, AccessOption.PERSISTENT);
-    // Exception and fail the write if any failed
-    for (boolean s : success) {
-      if (!s) {
+      // Exception and fail the write if any failed
+      if (!bucketWriter.awaitBatches()) {
         throw new HelixException(
             String.format("Failed to write the data buckets for path: %s", rootPath));
       }
+
+      // 3. Write the metadata once all the buckets are written, so a version with metadata is
+      // always complete
+      Map<String, String> metadata =
+          ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize), DATA_SIZE_KEY,
+              Integer.toString(bucketWriter.getDataSize()));
+      byte[] binaryMetadata = OBJECT_MAPPER.writeValueAsBytes(metadata);
+      if (!_zkBaseDataAccessor.set(versionedDataPath + "/" + METADATA_KEY, binaryMetadata,
+          AccessOption.PERSISTENT)) {
+        throw new HelixException(
+            String.format("Failed to write the metadata for path: %s", rootPath));
+      }
+      versionWritten = true;
+    } finally {
+      if (!versionWritten) {
+        // The GC only deletes the versions older than the last successful write, so the partial
+        // version would never be deleted.
+        bucketWriter.discard();
+      }
     }
 
     // 4. Update lastSuccessfulWriteVersion using Updater
@@ -266,9 +292,16 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     }
   }
 
+  @Override
+  public String getLastSuccessfulWriteVersion(String path) {
+    byte[] binaryVersion = _zkBaseDataAccessor.get(path + "/" + LAST_SUCCESSFUL_WRITE_KEY, null,
+        AccessOption.PERSISTENT);
+    return binaryVersion == null ? null : new String(binaryVersion);
+  }
+
   private HelixProperty compressedBucketRead(String path) {
     // 1. Get the version to read
-    String versionToRead = getLastSuccessfulWriteVersion(path);
+    String versionToRead = getVersionToRead(path);
 
     // 2. Get the metadata map
     byte[] binaryMetadata = _zkBaseDataAccessor.get(path + "/" + versionToRead + "/" + METADATA_KEY,
@@ -299,41 +332,31 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     int dataSize = Integer.parseInt((String) dataSizeObj);
 
     // Compute N - number of buckets
-    int numBuckets = (dataSize + _bucketSize - 1) / _bucketSize;
-    byte[] compressedRecord = new byte[dataSize];
+    int numBuckets = (dataSize + bucketSize - 1) / bucketSize;
     String dataPath = path + "/" + versionToRead;
 
-    List<String> paths = new ArrayList<>();
-    for (int i = 0; i < numBuckets; i++) {
-      paths.add(dataPath + "/" + i);
-    }
-
-    // Async get
-    List<byte[]> buckets = _zkBaseDataAccessor.get(paths, null, AccessOption.PERSISTENT, true);
-
-    // Combine buckets into one byte array
-    int copyPtr = 0;
-    for (int i = 0; i < numBuckets; i++) {
-      if (i == numBuckets - 1) {
-        // Special treatment for the last bucket
-        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, dataSize % bucketSize);
-      } else {
-        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, bucketSize);
-        copyPtr += bucketSize;
+    // Async get in batches, and decompress the buckets that are read while the later batches are
+    // still being read
+    List<Future<List<byte[]>>> batches = new ArrayList<>();
+    for (int start = 0; start < numBuckets; start += BUCKETS_PER_BATCH) {
+      List<String> paths = new ArrayList<>();
+      for (int i = start; i < Math.min(start + BUCKETS_PER_BATCH, numBuckets); i++) {
+        paths.add(dataPath + "/" + i);
       }
+      batches.add(BUCKET_IO_THREADS
+          .submit(() -> _zkBaseDataAccessor.get(paths, null, AccessOption.PERSISTENT, true)));
     }
 
-    // Decompress the byte array
-    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(compressedRecord);
-    byte[] serializedRecord;
-    try {
-      serializedRecord = GZipCompressionUtil.uncompress(byteArrayInputStream);
+    // Deserialize the record to retrieve the original
+    ZNRecord originalRecord;
+    try (InputStream inputStream = new GZIPInputStream(
+        new BucketReader(batches.iterator(), dataSize), COMPRESSION_BUFFER_SIZE)) {
+      originalRecord = _zkSerializer.deserialize(inputStream);
     } catch (IOException e) {
       throw new HelixException(String.format("Failed to decompress path: %s!", path), e);
+    } finally {
+      batches.forEach(batch -> batch.cancel(false));
     }
-
-    // Deserialize the record to retrieve the original
-    ZNRecord originalRecord = (ZNRecord) _zkSerializer.deserialize(serializedRecord);
     return new HelixProperty(originalRecord);
   }
 
@@ -370,7 +393,7 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
    */
   private void deleteStaleVersions(String rootPath) {
     // Get most recent write version
-    String currentVersionStr = getLastSuccessfulWriteVersion(rootPath);
+    String currentVersionStr = getVersionToRead(rootPath);
 
     // Get all children names under path
     List<String> children = _zkBaseDataAccessor.getChildNames(rootPath, AccessOption.PERSISTENT);
@@ -428,13 +451,206 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     return pathsToDelete;
   }
 
-  private String getLastSuccessfulWriteVersion(String path) {
-    byte[] binaryVersionToRead = _zkBaseDataAccessor.get(path + "/" + LAST_SUCCESSFUL_WRITE_KEY,
-        null, AccessOption.PERSISTENT);
-    if (binaryVersionToRead == null) {
+  private String getVersionToRead(String path) {
+    String versionToRead = getLastSuccessfulWriteVersion(path);
+    if (versionToRead == null) {
       throw new ZkNoNodeException(
           String.format("Last successful write ZNode does not exist for path: %s", path));
     }
-    return new String(binaryVersionToRead);
+    return versionToRead;
+  }
+
+  /**
+   * An output stream that cuts the written data into buckets and writes them to ZK in async
+   * batches. The last bucket may be smaller than the bucket size.
+   */
+  private class BucketWriter extends OutputStream {
+    private final String _dataPath;
+    private final List<Future<boolean[]>> _batches = new ArrayList<>();
+    private List<String> _batchPaths = new ArrayList<>();
+    private List<byte[]> _batchBuckets = new ArrayList<>();
+    private byte[] _bucket = new byte[_bucketSize];
+    private int _bucketLength = 0;
+    private int _bucketCount = 0;
+    private long _dataSize = 0;
+    private boolean _discarded = false;
+
+    private BucketWriter(String dataPath) {
+      _dataPath = dataPath;
+    }
+
+    @Override
+    public void write(int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      while (length > 0) {
+        int copyLength = Math.min(length, _bucketSize - _bucketLength);
+        System.arraycopy(bytes, offset, _bucket, _bucketLength, copyLength);
+        _bucketLength += copyLength;
+        offset += copyLength;
+        length -= copyLength;
+        if (_bucketLength == _bucketSize) {
+          addBucket();
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      addBucket();
+      submitBatch();
+    }
+
+    private void addBucket() {
+      if (_bucketLength == 0) {
+        return;
+      }
+      _batchPaths.add(_dataPath + "/" + _bucketCount++);
+      _batchBuckets
+          .add(_bucketLength == _bucketSize ? _bucket : Arrays.copyOf(_bucket, _bucketLength));
+      _dataSize += _bucketLength;
+      _bucket = new byte[_bucketSize];
+      _bucketLength = 0;
+      if (_batchPaths.size() >= BUCKETS_PER_BATCH) {
+        submitBatch();
+      }
+    }
+
+    private void submitBatch() {
+      if (_discarded || _batchPaths.isEmpty()) {
+        return;
+      }
+      List<String> paths = _batchPaths;
+      List<byte[]> buckets = _batchBuckets;
+      _batches.add(BUCKET_IO_THREADS
+          .submit(() -> _zkBaseDataAccessor.setChildren(paths, buckets, AccessOption.PERSISTENT)));
+      _batchPaths = new ArrayList<>();
+      _batchBuckets = new ArrayList<>();
+    }
+
+    /**
+     * @return true if all the buckets are written
+     */
+    private boolean awaitBatches() throws IOException {
+      boolean success = true;
+      for (Future<boolean[]> batch : _batches) {
+        try {
+          for (boolean s : batch.get()) {
+            success &= s;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while writing the data buckets.");
+        } catch (ExecutionException e) {
+          LOG.error("Failed to write the data buckets under {}.", _dataPath, e.getCause());
+          success = false;
+        }
+      }
+      return success;
+    }
+
+    /**
+     * Stop writing the buckets, and delete the ones that are written once the submitted batches
+     * are done.
+     */
+    private void discard() {
+      _discarded = true;
+      for (Future<boolean[]> batch : _batches) {
+        try {
+          batch.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          LOG.warn("Interrupted while discarding the data buckets under {}.", _dataPath);
+          return;
+        } catch (ExecutionException e) {
+          // The batch failed, so there is nothing more to wait for
+        }
+      }
+      if (!_zkBaseDataAccessor.remove(_dataPath, AccessOption.PERSISTENT)) {
+        LOG.warn("Failed to delete the partially written data under {}.", _dataPath);
+      }
+    }
+
+    private int getDataSize() throws IOException {
+      if (_dataSize > Integer.MAX_VALUE) {
+        throw new IOException(String.format("The data of %d bytes is too large.", _dataSize));
+      }
+      return (int) _dataSize;
+    }
+  }
+
+  /**
+   * An input stream over the buckets that are read by the async batches, in order. The buckets
+   * are trimmed to the data size.
+   */
+  private static class BucketReader extends InputStream {
+    private final Iterator<Future<List<byte[]>>> _batches;
+    private Iterator<byte[]> _buckets = Collections.emptyIterator();
+    private byte[] _bucket = new byte[0];
+    private int _bucketOffset = 0;
+    private int _bucketLength = 0;
+    private int _remaining;
+
+    private BucketReader(Iterator<Future<List<byte[]>>> batches, int dataSize) {
+      _batches = batches;
+      _remaining = dataSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] bytes = new byte[1];
+      return read(bytes, 0, 1) == -1 ? -1 : bytes[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      while (_bucketOffset == _bucketLength) {
+        if (!nextBucket()) {
+          return -1;
+        }
+      }
+      int readLength = Math.min(length, _bucketLength - _bucketOffset);
+      System.arraycopy(_bucket, _bucketOffset, bytes, offset, readLength);
+      _bucketOffset += readLength;
+      return readLength;
+    }
+
+    private boolean nextBucket() throws IOException {
+      if (_remaining == 0) {
+        return false;
+      }
+      while (!_buckets.hasNext()) {
+        if (!_batches.hasNext()) {
+          throw new IOException(
+              String.format("The data buckets end %d bytes before the data size.", _remaining));
+        }
+        try {
+          _buckets = _batches.next().get().iterator();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading the data buckets.");
+        } catch (ExecutionException e) {
+          // Keep the ZK exceptions, such as ZkNoNodeException, for the callers
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw new IOException("Failed to read the data buckets.", e.getCause());
+        }
+      }
+      _bucket = _buckets.next();
+      if (_bucket == null) {
+        throw new IOException("A data bucket is missing.");
+      }
+      _bucketOffset = 0;
+      _bucketLength = Math.min(_bucket.length, _remaining);
+      _remaining -= _bucketLength;
+      return true;
+    }
   }
 }
@@ -68,6 +68,8 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
   final String _chrootPath;
   final List<String> _wtCachePaths;
   final List<String> _zkCachePaths;
+  // Keep the zkCache up to date with persistent recursive watches on the zkCachePaths
+  final boolean _usePersistWatcher;
 
   final HelixGroupCommit<T> _groupCommit = new HelixGroupCommit<T>();
 
@@ -96,6 +98,7 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
 
     _wtCachePaths = wtCachePaths;
     _zkCachePaths = zkCachePaths;
+    _usePersistWatcher = false;
 
     start();
   }
@@ -132,18 +135,20 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
 
     _wtCachePaths = wtCachePaths;
     _zkCachePaths = zkCachePaths;
+    _usePersistWatcher = false;
 
     start();
   }
 
   private ZkCacheBaseDataAccessor(RealmAwareZkClient zkClient, String chrootPath,
-      List<String> wtCachePaths, List<String> zkCachePaths) {
+      List<String> wtCachePaths, List<String> zkCachePaths, boolean usePersistWatcher) {
     _zkClient = zkClient;
     _baseAccessor = new ZkBaseDataAccessor<>(_zkClient);
 
     _chrootPath = chrootPath;
     _wtCachePaths = wtCachePaths;
     _zkCachePaths = zkCachePaths;
+    _usePersistWatcher = usePersistWatcher;
 
     start();
   }
@@ -812,7 +817,12 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     LOG.debug("Start ZkCacheEventThread...done");
 
     _wtCache = new WriteThroughCache<T>(_baseAccessor, _wtCachePaths);
-    _zkCache = new ZkCallbackCache<T>(_baseAccessor, _chrootPath, _zkCachePaths, _eventThread);
+    if (_usePersistWatcher) {
+      _zkCache = new ZkPersistRecursiveCallbackCache<T>(_baseAccessor, (ZkClient) _zkClient,
+          _chrootPath, _zkCachePaths, _eventThread);
+    } else {
+      _zkCache = new ZkCallbackCache<T>(_baseAccessor, _chrootPath, _zkCachePaths, _eventThread);
+    }
 
     if (_wtCachePaths != null && !_wtCachePaths.isEmpty()) {
       for (String path : _wtCachePaths) {
@@ -832,6 +842,11 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     try {
       _eventLock.lockInterruptibly();
 
+      if (_zkCache instanceof ZkPersistRecursiveCallbackCache && _zkClient != null
+          && !_zkClient.isClosed()) {
+        ((ZkPersistRecursiveCallbackCache<T>) _zkCache).close();
+      }
+
       if (_zkClient != null) {
         _zkClient.close();
         _zkClient = null;
@@ -883,6 +898,7 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     private String _chrootPath;
     private List<String> _wtCachePaths;
     private List<String> _zkCachePaths;
+    private boolean _usePersistWatcher = false;
 
     public Builder() {
     }
@@ -902,11 +918,44 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
       return this;
     }
 
+    /**
+     * Keep the zkCache up to date with one persistent recursive watch on each zkCachePath,
+     * instead of a data and a child watch on every cached znode. The accessor then uses a
+     * dedicated ZkClient with the persist watcher enabled, which is only supported on
+     * single-realm mode.
+     * @param usePersistWatcher
+     * @return
+     */
+    public Builder<T> setUsePersistWatcher(boolean usePersistWatcher) {
+      _usePersistWatcher = usePersistWatcher;
+      return this;
+    }
+
     public ZkCacheBaseDataAccessor<T> build() {
       validate();
-      return new ZkCacheBaseDataAccessor<>(
-          createZkClient(_realmMode, _realmAwareZkConnectionConfig, _realmAwareZkClientConfig,
-              _zkAddress), _chrootPath, _wtCachePaths, _zkCachePaths);
+      RealmAwareZkClient zkClient = _usePersistWatcher ? createPersistWatcherZkClient()
+          : createZkClient(_realmMode, _realmAwareZkConnectionConfig, _realmAwareZkClientConfig,
+              _zkAddress);
+      return new ZkCacheBaseDataAccessor<>(zkClient, _chrootPath, _wtCachePaths, _zkCachePaths,
+          _usePersistWatcher);
+    }
+
+    private RealmAwareZkClient createPersistWatcherZkClient() {
+      if (_realmMode != RealmAwareZkClient.RealmMode.SINGLE_REALM) {
+        throw new HelixException(
+            "ZkCacheBaseDataAccessor: Persist watcher is only supported on single-realm mode!");
+      }
+      return new org.apache.helix.zookeeper.impl.client.ZkClient.Builder()
+          .setZkServer(_zkAddress)
+          .setSessionTimeout(_realmAwareZkConnectionConfig.getSessionTimeout())
+          .setZkSerializer(_realmAwareZkClientConfig.getZkSerializer())
+          .setOperationRetryTimeout(_realmAwareZkClientConfig.getOperationRetryTimeout())
+          .setMonitorType(_realmAwareZkClientConfig.getMonitorType())
+          .setMonitorKey(_realmAwareZkClientConfig.getMonitorKey())
+          .setMonitorInstanceName(_realmAwareZkClientConfig.getMonitorInstanceName())
+          .setMonitorRootPathOnly(_realmAwareZkClientConfig.isMonitorRootPathOnly())
+          .setUsePersistWatcher(true)
+          .build();
     }
   }
 }
@@ -261,7 +261,7 @@ public class ZkCallbackCache<T> extends Cache<T> implements IZkChildListener, IZ
     }
   }
 
-  private void fireEvents(final String path, EventType type) {
+  void fireEvents(final String path, EventType type) {
     String tmpPath = path;
     final String clientPath =
         (_chrootPath == null ? path : (_chrootPath.equals(path) ? "/" : path.substring(_chrootPath
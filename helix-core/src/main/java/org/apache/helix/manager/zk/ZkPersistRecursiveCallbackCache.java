@@ -0,0 +1,332 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.store.zk.ZNode;
+import org.apache.helix.util.HelixUtil;
+import org.apache.helix.zookeeper.zkclient.RecursivePersistListener;
+import org.apache.helix.zookeeper.zkclient.ZkClient;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ZkCallbackCache} that is kept up to date by one persistent recursive watch per cache
+ * path, instead of a data and a child watch on every cached znode that is registered again
+ * after each notification. It requires a {@link ZkClient} with the persist watcher enabled.
+ *
+ * The cached znodes are not guarded by the cache lock. Each znode is replaced as a whole, and
+ * only by a read of a newer version of it, so the reads never block and a late read never
+ * overwrites a newer one. A deleted znode leaves a tombstone for a while, so a read that was
+ * issued before the delete does not bring the znode back.
+ */
+public class ZkPersistRecursiveCallbackCache<T> extends ZkCallbackCache<T>
+    implements RecursivePersistListener {
+  private static final Logger LOG = LoggerFactory.getLogger(ZkPersistRecursiveCallbackCache.class);
+
+  private static final long TOMBSTONE_TTL_MS = TimeUnit.SECONDS.toMillis(30);
+  private static final int TOMBSTONE_PURGE_THRESHOLD = 1024;
+  // the creation zxid of a deleted znode that was not cached
+  private static final long UNKNOWN_CZXID = -1L;
+
+  private static class Tombstone {
+    private final long _czxid;
+    private final long _sequence;
+    private final long _deleteTime;
+
+    private Tombstone(long czxid, long sequence) {
+      _czxid = czxid;
+      _sequence = sequence;
+      _deleteTime = System.currentTimeMillis();
+    }
+  }
+
+  private final ZkClient _zkClient;
+  private final List<String> _paths;
+  private final Map<String, Tombstone> _tombstones = new ConcurrentHashMap<>();
+  private final AtomicLong _tombstoneSequence = new AtomicLong();
+
+  public ZkPersistRecursiveCallbackCache(BaseDataAccessor<T> accessor, ZkClient zkClient,
+      String chrootPath, List<String> paths, ZkCacheEventThread eventThread) {
+    super(accessor, chrootPath, null, eventThread);
+    _zkClient = zkClient;
+    _paths = paths == null ? Collections.emptyList() : new ArrayList<>(paths);
+
+    // subscribe changes before read
+    for (String path : _paths) {
+      _zkClient.subscribePersistRecursiveListener(path, this);
+    }
+    _zkClient.subscribeStateChanges(this);
+    for (String path : _paths) {
+      updateRecursive(path);
+    }
+  }
+
+  @Override
+  public ZNode get(String path) {
+    return _cache.get(path);
+  }
+
+  // The cached znodes are updated without the cache lock.
+  @Override
+  public void lockWrite() {
+  }
+
+  @Override
+  public void unlockWrite() {
+  }
+
+  @Override
+  public void lockRead() {
+  }
+
+  @Override
+  public void unlockRead() {
+  }
+
+  @Override
+  public void update(String path, T data, Stat stat) {
+    if (stat == null) {
+      return;
+    }
+    long sequence = _tombstoneSequence.get();
+    if (isDeleted(path, stat)) {
+      return;
+    }
+
+    ZNode[] oldZNode = new ZNode[1];
+    ZNode newZNode = _cache.compute(path, (p, znode) -> {
+      oldZNode[0] = znode;
+      if (znode == null) {
+        return new ZNode(path, data, stat, ConcurrentHashMap.newKeySet());
+      }
+      Stat oldStat = znode.getStat();
+      if (stat.getCzxid() > oldStat.getCzxid() || (stat.getCzxid() == oldStat.getCzxid()
+          && stat.getVersion() > oldStat.getVersion())) {
+        return new ZNode(path, data, stat, znode.getChildSet());
+      }
+      return znode;
+    });
+    if (newZNode == oldZNode[0]) {
+      return;
+    }
+
+    if (oldZNode[0] == null) {
+      // the znode may be deleted while it was added
+      Tombstone tombstone = _tombstones.get(path);
+      if (tombstone != null) {
+        if (tombstone._sequence > sequence && isDeleted(path, stat)) {
+          _cache.remove(path, newZNode);
+          return;
+        }
+        // a late read of the deleted znode cannot overwrite the new one
+        _tombstones.remove(path, tombstone);
+      }
+      addToParentChildSet(HelixUtil.getZkParentPath(path), HelixUtil.getZkName(path));
+      fireEvents(path, EventType.NodeCreated);
+    } else if (oldZNode[0].getStat().getCzxid() != stat.getCzxid()) {
+      fireEvents(path, EventType.NodeDeleted);
+      fireEvents(path, EventType.NodeCreated);
+    } else {
+      fireEvents(path, EventType.NodeDataChanged);
+    }
+  }
+
+  /**
+   * Read the znode and its subtree, and drop the cached children that no longer exist.
+   */
+  @Override
+  public void updateRecursive(String path) {
+    if (path == null) {
+      return;
+    }
+
+    try {
+      Stat stat = new Stat();
+      T data = _accessor.get(path, stat, AccessOption.THROW_EXCEPTION_IFNOTEXIST);
+      update(path, data, stat);
+    } catch (ZkNoNodeException e) {
+      // OK. znode not exists. It is only cached if the delete notification was lost.
+      if (_cache.containsKey(path)) {
+        purgeRecursive(path);
+      }
+      return;
+    }
+
+    updateChildren(path);
+  }
+
+  private void updateChildren(String path) {
+    List<String> childNames = _accessor.getChildNames(path, 0);
+    ZNode znode = _cache.get(path);
+    if (childNames == null || znode == null) {
+      return;
+    }
+    Set<String> removedChildNames = new HashSet<>(znode.getChildSet());
+    removedChildNames.removeAll(childNames);
+    for (String childName : removedChildNames) {
+      purgeRecursive(getChildPath(path, childName));
+    }
+    if (childNames.isEmpty()) {
+      return;
+    }
+
+    // read the children in one batch
+    List<String> childPaths = new ArrayList<>(childNames.size());
+    for (String childName : childNames) {
+      childPaths.add(getChildPath(path, childName));
+    }
+    List<Stat> stats = new ArrayList<>();
+    List<T> childData = _accessor.get(childPaths, stats, 0, false);
+    List<String> cachedChildNames = new ArrayList<>(childNames.size());
+    for (int i = 0; i < childPaths.size(); i++) {
+      if (stats.get(i) != null) {
+        update(childPaths.get(i), childData.get(i), stats.get(i));
+      }
+      if (_cache.containsKey(childPaths.get(i))) {
+        cachedChildNames.add(childNames.get(i));
+      }
+    }
+    // a child that was cached before this znode is not in its child set yet
+    addToParentChildSet(path, cachedChildNames);
+    for (int i = 0; i < childPaths.size(); i++) {
+      ZNode child = _cache.get(childPaths.get(i));
+      if (stats.get(i) != null && (stats.get(i).getNumChildren() > 0 || (child != null && !child
+          .getChildSet().isEmpty()))) {
+        updateChildren(childPaths.get(i));
+      }
+    }
+  }
+
+  @Override
+  public void purgeRecursive(String path) {
+    remove(path);
+  }
+
+  @Override
+  public void reset() {
+    _cache.clear();
+    _tombstones.clear();
+  }
+
+  @Override
+  public void handleZNodeChange(String dataPath, EventType eventType) throws Exception {
+    switch (eventType) {
+    case NodeCreated:
+      // the children may be created before this notification is handled
+      updateRecursive(dataPath);
+      break;
+    case NodeDataChanged:
+      try {
+        Stat stat = new Stat();
+        T data = _accessor.get(dataPath, stat, AccessOption.THROW_EXCEPTION_IFNOTEXIST);
+        update(dataPath, data, stat);
+      } catch (ZkNoNodeException e) {
+        // OK. the delete notification follows.
+      }
+      break;
+    case NodeDeleted:
+      remove(dataPath);
+      fireEvents(dataPath, EventType.NodeDeleted);
+      break;
+    default:
+      break;
+    }
+  }
+
+  /**
+   * The persistent recursive watches do not survive a session expiry, and the changes in between
+   * are lost. Add the watches again and read the cache paths.
+   */
+  @Override
+  public void handleNewSession(final String sessionId) throws Exception {
+    for (String path : _paths) {
+      _zkClient.unsubscribePersistRecursiveListener(path, this);
+      _zkClient.subscribePersistRecursiveListener(path, this);
+    }
+    for (String path : _paths) {
+      updateRecursive(path);
+    }
+    LOG.info("Reloaded the cache of {} in session {}.", _paths, sessionId);
+  }
+
+  /**
+   * Unsubscribe the watches of the cache.
+   */
+  public void close() {
+    _zkClient.unsubscribeStateChanges(this);
+    for (String path : _paths) {
+      _zkClient.unsubscribePersistRecursiveListener(path, this);
+    }
+  }
+
+  private void remove(String path) {
+    ZNode znode = _cache.remove(path);
+    addTombstone(path, znode == null ? UNKNOWN_CZXID : znode.getStat().getCzxid());
+    removeFromParentChildSet(HelixUtil.getZkParentPath(path), HelixUtil.getZkName(path));
+    if (znode != null) {
+      for (String childName : znode.getChildSet()) {
+        remove(getChildPath(path, childName));
+      }
+    }
+  }
+
+  private void addTombstone(String path, long czxid) {
+    if (_tombstones.size() >= TOMBSTONE_PURGE_THRESHOLD) {
+      long expireTime = System.currentTimeMillis() - TOMBSTONE_TTL_MS;
+      _tombstones.values().removeIf(tombstone -> tombstone._deleteTime < expireTime);
+    }
+    _tombstones.put(path, new Tombstone(czxid, _tombstoneSequence.incrementAndGet()));
+  }
+
+  /**
+   * @return true if the read of the znode was issued before the znode was deleted
+   */
+  private boolean isDeleted(String path, Stat stat) {
+    Tombstone tombstone = _tombstones.get(path);
+    if (tombstone == null) {
+      return false;
+    }
+    if (tombstone._czxid != UNKNOWN_CZXID) {
+      return stat.getCzxid() <= tombstone._czxid;
+    }
+    // the deleted znode was not cached, check if the znode that was read still exists
+    Stat currentStat = _accessor.getStat(path, 0);
+    return currentStat == null || currentStat.getCzxid() != stat.getCzxid();
+  }
+
+  private static String getChildPath(String path, String childName) {
+    return path.equals("/") ? "/" + childName : path + "/" + childName;
+  }
+}
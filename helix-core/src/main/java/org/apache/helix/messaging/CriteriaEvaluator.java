@@ -19,11 +19,13 @@ package org.apache.helix.messaging;
  * under the License.
  */
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Strings;
@@ -36,6 +38,7 @@ import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
+import org.apache.helix.messaging.CriteriaIndex.ResourceIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +46,10 @@ public class CriteriaEvaluator {
   private static Logger logger = LoggerFactory.getLogger(CriteriaEvaluator.class);
   public static final String MATCH_ALL_SYM = "%";
 
+  // The indexes of the ExternalViews and the IdealStates by their parent paths, so the indexes of
+  // different clusters are kept apart.
+  private final Map<String, CriteriaIndex> _indexes = new ConcurrentHashMap<>();
+
   /**
    * Examine persisted data to match wildcards in {@link Criteria}
    * @param recipientCriteria Criteria specifying the message destinations
@@ -72,13 +79,11 @@ public class CriteriaEvaluator {
 
     switch (dataSource) {
     case EXTERNALVIEW:
-      properties = getProperty(accessor, resourceName, keyBuilder.externalViews(),
-          keyBuilder.externalView(resourceName), DataSource.EXTERNALVIEW.name());
-      break;
+      return evaluateIndexedCriteria(recipientCriteria, accessor, keyBuilder.externalViews(),
+          keyBuilder.externalView(resourceName));
     case IDEALSTATES:
-      properties = getProperty(accessor, resourceName, keyBuilder.idealStates(),
-          keyBuilder.idealStates(resourceName), DataSource.IDEALSTATES.name());
-      break;
+      return evaluateIndexedCriteria(recipientCriteria, accessor, keyBuilder.idealStates(),
+          keyBuilder.idealStates(resourceName));
     case LIVEINSTANCES:
       properties = getProperty(accessor, instanceName, keyBuilder.liveInstances(),
           keyBuilder.liveInstance(instanceName), DataSource.LIVEINSTANCES.name());
@@ -94,11 +99,7 @@ public class CriteriaEvaluator {
     List<ZNRecordRow> allRows = ZNRecordRow.flatten(HelixProperty.convertToList(properties));
 
     // save the matches
-    // TODO: Apply strict check on the getChildValuesMap() call.
-    // TODO: For backward compatibility, allow partial read for now. This may reduce the
-    // TODO: match result eventually.
-    Set<String> liveParticipants =
-        accessor.getChildValuesMap(keyBuilder.liveInstances(), false).keySet();
+    Set<String> liveParticipants = getLiveParticipants(accessor);
     List<ZNRecordRow> result = Lists.newArrayList();
     for (ZNRecordRow row : allRows) {
       // The participant instance name is stored in the return value of either getRecordId() or
@@ -113,22 +114,116 @@ public class CriteriaEvaluator {
 
     // deduplicate and convert the matches into the required format
     for (ZNRecordRow row : result) {
-      Map<String, String> resultRow = new HashMap<String, String>();
-      resultRow.put("instanceName", !recipientCriteria.getInstanceName().equals("")
-          ? (!Strings.isNullOrEmpty(row.getMapSubKey()) ? row.getMapSubKey() : row.getRecordId())
-          : "");
-      resultRow.put("resourceName",
-          !recipientCriteria.getResource().equals("") ? row.getRecordId() : "");
-      resultRow.put("partitionName",
-          !recipientCriteria.getPartition().equals("") ? row.getMapKey() : "");
-      resultRow.put("partitionState",
-          !recipientCriteria.getPartitionState().equals("") ? row.getMapValue() : "");
-      selected.add(resultRow);
+      selected.add(toResultRow(recipientCriteria, row.getRecordId(), row.getMapKey(),
+          row.getMapSubKey(), row.getMapValue()));
+    }
+    logger.info("Query returned " + selected.size() + " rows");
+    return Lists.newArrayList(selected);
+  }
+
+  /**
+   * Match the criteria against the index of the ExternalViews or the IdealStates. The names are
+   * looked up directly, and only the wildcard patterns are matched against the indexed names.
+   * The result is the same as matching the map field rows of the flattened records.
+   */
+  private List<Map<String, String>> evaluateIndexedCriteria(Criteria criteria,
+      HelixDataAccessor accessor, PropertyKey propertyKeys, PropertyKey propertyKey) {
+    CriteriaIndex index = _indexes.computeIfAbsent(propertyKeys.getPath(),
+        path -> new CriteriaIndex(propertyKeys.getParams()[0], criteria.getDataSource()));
+    String resourceSpec = criteria.getResource();
+    Collection<ResourceIndex> resources;
+    if (Strings.isNullOrEmpty(resourceSpec) || resourceSpec.equals(MATCH_ALL_SYM)) {
+      resources = index.refresh(accessor);
+    } else {
+      ResourceIndex resource = index.refresh(accessor, propertyKey);
+      if (resource == null) {
+        throw new HelixException(String
+            .format("Specified %s %s is not found!", criteria.getDataSource().name(),
+                resourceSpec));
+      }
+      resources = Collections.singletonList(resource);
+    }
+
+    NamePattern instancePattern = new NamePattern(criteria.getInstanceName());
+    NamePattern resourcePattern = new NamePattern(criteria.getResource());
+    NamePattern partitionPattern = new NamePattern(criteria.getPartition());
+    NamePattern statePattern = new NamePattern(criteria.getPartitionState());
+    Set<String> liveParticipants = getLiveParticipants(accessor);
+
+    Set<Map<String, String>> selected = Sets.newHashSet();
+    for (ResourceIndex resource : resources) {
+      String resourceName = resource.getName();
+      if (!resourcePattern.matches(resourceName)) {
+        continue;
+      }
+      // Like the flattened rows, the instance name and the liveness can also be matched by the
+      // record id
+      boolean resourceMatchesInstance = instancePattern.matches(resourceName);
+      boolean resourceIsLive = liveParticipants.contains(resourceName);
+      if (partitionPattern.getLookupKey() != null) {
+        // Look up the partitions, and go through their instances.
+        for (String partition : resource.lookupPartitions(partitionPattern.getLookupKey())) {
+          if (!partitionPattern.matches(partition)) {
+            continue;
+          }
+          for (Map.Entry<String, String> instanceState : resource.getInstanceStates(partition)
+              .entrySet()) {
+            String instance = instanceState.getKey();
+            if ((resourceMatchesInstance || instancePattern.matches(instance))
+                && (resourceIsLive || liveParticipants.contains(instance))
+                && statePattern.matches(Strings.nullToEmpty(instanceState.getValue()))) {
+              selected.add(toResultRow(criteria, resourceName, partition, instance,
+                  instanceState.getValue()));
+            }
+          }
+        }
+        continue;
+      }
+      Collection<String> instances =
+          !resourceMatchesInstance && instancePattern.getLookupKey() != null ? resource
+              .lookupInstances(instancePattern.getLookupKey()) : resource.getInstances();
+      for (String instance : instances) {
+        if (!resourceMatchesInstance && !instancePattern.matches(instance)) {
+          continue;
+        }
+        if (!resourceIsLive && !liveParticipants.contains(instance)) {
+          continue;
+        }
+        for (String partition : resource.getPartitions(instance)) {
+          String state = resource.getState(partition, instance);
+          if (partitionPattern.matches(partition)
+              && statePattern.matches(Strings.nullToEmpty(state))) {
+            selected.add(toResultRow(criteria, resourceName, partition, instance, state));
+          }
+        }
+      }
     }
     logger.info("Query returned " + selected.size() + " rows");
     return Lists.newArrayList(selected);
   }
 
+  private Set<String> getLiveParticipants(HelixDataAccessor accessor) {
+    // TODO: Apply strict check on the getChildValuesMap() call.
+    // TODO: For backward compatibility, allow partial read for now. This may reduce the
+    // TODO: match result eventually.
+    return accessor.getChildValuesMap(accessor.keyBuilder().liveInstances(), false).keySet();
+  }
+
+  /**
+   * Convert a match into the required format. Only the fields that are specified in the criteria
+   * are kept.
+   */
+  private Map<String, String> toResultRow(Criteria criteria, String recordId, String mapKey,
+      String mapSubKey, String mapValue) {
+    Map<String, String> resultRow = new HashMap<String, String>();
+    resultRow.put("instanceName", !criteria.getInstanceName().equals("")
+        ? (!Strings.isNullOrEmpty(mapSubKey) ? mapSubKey : recordId) : "");
+    resultRow.put("resourceName", !criteria.getResource().equals("") ? recordId : "");
+    resultRow.put("partitionName", !criteria.getPartition().equals("") ? mapKey : "");
+    resultRow.put("partitionState", !criteria.getPartitionState().equals("") ? mapValue : "");
+    return resultRow;
+  }
+
   /**
    * Check if a given row matches the specified criteria
    * @param criteria the criteria
@@ -152,7 +247,7 @@ public class CriteriaEvaluator {
    * @param pattern SQL like match pattern (i.e. contains '%'s and '_'s)
    * @return Java matches expression (i.e. contains ".*?"s and '.'s)
    */
-  private String normalizePattern(String pattern) {
+  private static String normalizePattern(String pattern) {
     if (pattern == null || pattern.equals("") || pattern.equals("*")) {
       pattern = "%";
     }
@@ -199,4 +294,35 @@ public class CriteriaEvaluator {
     }
     return properties;
   }
+
+  /**
+   * A criteria field compiled once per evaluation. A pattern without '%' can be looked up in the
+   * index instead of being matched against every name. Its '_'s still match any one character.
+   */
+  private static class NamePattern {
+    private final boolean _matchAll;
+    private final String _lookupKey;
+    private final Pattern _pattern;
+
+    private NamePattern(String pattern) {
+      if (pattern == null || pattern.equals("") || pattern.equals("*")) {
+        pattern = MATCH_ALL_SYM;
+      }
+      _matchAll = pattern.chars().allMatch(ch -> ch == '%');
+      _lookupKey = pattern.indexOf('%') < 0 ? pattern.toLowerCase() : null;
+      _pattern =
+          Pattern.compile(normalizePattern(pattern), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
+
+    /**
+     * @return the lower case pattern if it has no '%', null otherwise
+     */
+    private String getLookupKey() {
+      return _lookupKey;
+    }
+
+    private boolean matches(String value) {
+      return _matchAll || _pattern.matcher(value).matches();
+    }
+  }
 }
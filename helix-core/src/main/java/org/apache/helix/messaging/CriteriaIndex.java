@@ -0,0 +1,255 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.helix.Criteria.DataSource;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.common.caches.ExternalViewCache;
+import org.apache.helix.common.caches.IdealStateCache;
+
+/**
+ * An index of the ExternalViews or the IdealStates of a cluster for evaluating the message
+ * criteria: resource -> partition -> instance -> state, and the partitions of each instance.
+ * The records are kept up to date by the same caches the spectators use, and a record is only
+ * indexed again when it changes, so a criteria send does not flatten the whole cluster view.
+ */
+class CriteriaIndex {
+  private final DataSource _dataSource;
+  private final ExternalViewCache _externalViewCache;
+  private final IdealStateCache _idealStateCache;
+  private volatile Map<String, ResourceIndex> _resources = Collections.emptyMap();
+
+  CriteriaIndex(String clusterName, DataSource dataSource) {
+    _dataSource = dataSource;
+    if (dataSource == DataSource.EXTERNALVIEW) {
+      _externalViewCache = new ExternalViewCache(clusterName);
+      _idealStateCache = null;
+    } else if (dataSource == DataSource.IDEALSTATES) {
+      _externalViewCache = null;
+      _idealStateCache = new IdealStateCache(clusterName);
+    } else {
+      throw new IllegalArgumentException("Data source " + dataSource + " cannot be indexed.");
+    }
+  }
+
+  /**
+   * Refresh the index with all the records of the data source. Only the records whose stat
+   * changed are read again.
+   * @param accessor connection to the persisted data
+   * @return the index of all the resources
+   */
+  synchronized Collection<ResourceIndex> refresh(HelixDataAccessor accessor) {
+    Map<String, ? extends HelixProperty> records;
+    if (_dataSource == DataSource.EXTERNALVIEW) {
+      _externalViewCache.refresh(accessor);
+      records = _externalViewCache.getExternalViewMap();
+    } else {
+      _idealStateCache.refresh(accessor);
+      records = _idealStateCache.getIdealStateMap();
+    }
+    Map<String, ResourceIndex> resources = new HashMap<>();
+    for (HelixProperty record : records.values()) {
+      ResourceIndex resource = _resources.get(record.getId());
+      if (resource == null || resource._source != record) {
+        resource = new ResourceIndex(record);
+      }
+      resources.put(record.getId(), resource);
+    }
+    _resources = resources;
+    return resources.values();
+  }
+
+  /**
+   * Refresh the index of one resource. The record is only read again if its stat changed.
+   * @param accessor connection to the persisted data
+   * @param key the property key of the record
+   * @return the index of the resource, or null if the record does not exist
+   */
+  synchronized ResourceIndex refresh(HelixDataAccessor accessor, PropertyKey key) {
+    HelixProperty.Stat stat = accessor.getPropertyStat(key);
+    if (stat == null) {
+      return null;
+    }
+    String resourceName = key.getParams()[key.getParams().length - 1];
+    ResourceIndex resource = _resources.get(resourceName);
+    if (resource != null && resource._source.getBucketSize() == 0 && stat
+        .equals(resource._source.getStat())) {
+      return resource;
+    }
+    HelixProperty record = accessor.getProperty(key);
+    if (record == null) {
+      return null;
+    }
+    resource = new ResourceIndex(record);
+    Map<String, ResourceIndex> resources = new HashMap<>(_resources);
+    resources.put(resourceName, resource);
+    _resources = resources;
+    return resource;
+  }
+
+  /**
+   * The partition states of one resource, indexed by the instances and by the names.
+   */
+  static class ResourceIndex {
+    private final HelixProperty _source;
+    // partition -> instance -> state
+    private final Map<String, Map<String, String>> _partitionStates;
+    // instance -> partitions
+    private final Map<String, List<String>> _instancePartitions = new HashMap<>();
+    private final NameIndex _instanceNames = new NameIndex();
+    private final NameIndex _partitionNames = new NameIndex();
+
+    private ResourceIndex(HelixProperty source) {
+      _source = source;
+      _partitionStates = source.getRecord().getMapFields();
+      for (Map.Entry<String, Map<String, String>> partitionState : _partitionStates.entrySet()) {
+        _partitionNames.add(partitionState.getKey());
+        for (String instance : partitionState.getValue().keySet()) {
+          _instancePartitions.computeIfAbsent(instance, k -> {
+            _instanceNames.add(k);
+            return new ArrayList<>();
+          }).add(partitionState.getKey());
+        }
+      }
+    }
+
+    String getName() {
+      return _source.getId();
+    }
+
+    Collection<String> getInstances() {
+      return _instancePartitions.keySet();
+    }
+
+    /**
+     * @param lowerCasePattern a lower case criteria pattern without '%'
+     * @return the instances that may match the pattern
+     */
+    Collection<String> lookupInstances(String lowerCasePattern) {
+      return _instanceNames.lookup(lowerCasePattern);
+    }
+
+    /**
+     * @param lowerCasePattern a lower case criteria pattern without '%'
+     * @return the partitions that may match the pattern
+     */
+    Collection<String> lookupPartitions(String lowerCasePattern) {
+      return _partitionNames.lookup(lowerCasePattern);
+    }
+
+    /**
+     * @return instance -> state of the partition
+     */
+    Map<String, String> getInstanceStates(String partition) {
+      return _partitionStates.getOrDefault(partition, Collections.emptyMap());
+    }
+
+    List<String> getPartitions(String instance) {
+      return _instancePartitions.getOrDefault(instance, Collections.emptyList());
+    }
+
+    String getState(String partition, String instance) {
+      return _partitionStates.get(partition).get(instance);
+    }
+  }
+
+  /**
+   * Names indexed for the criteria patterns without '%'. A pattern without '_' is looked up by its
+   * lower case name. A '_' matches any one character, so the names are also indexed by the '_'
+   * positions of the patterns, with the characters at these positions masked. These indexes are
+   * built on the first lookup of each pattern shape.
+   */
+  static class NameIndex {
+    private static final int MAX_MASKED_INDEXES = 16;
+    private static final char MASK = '_';
+
+    // lower case name -> names
+    private final Map<String, List<String>> _namesByLowerCaseName = new HashMap<>();
+    // pattern shape -> lower case name masked by the shape -> names
+    private final Map<String, Map<String, List<String>>> _namesByMaskedName =
+        new ConcurrentHashMap<>();
+
+    void add(String name) {
+      _namesByLowerCaseName.computeIfAbsent(name.toLowerCase(), k -> new ArrayList<>()).add(name);
+    }
+
+    /**
+     * @param lowerCasePattern a lower case criteria pattern without '%'
+     * @return the names that may match the pattern
+     */
+    Collection<String> lookup(String lowerCasePattern) {
+      if (lowerCasePattern.indexOf(MASK) < 0) {
+        return _namesByLowerCaseName.getOrDefault(lowerCasePattern, Collections.emptyList());
+      }
+      String shape = getShape(lowerCasePattern);
+      Map<String, List<String>> namesByMaskedName = _namesByMaskedName.get(shape);
+      if (namesByMaskedName == null) {
+        if (_namesByMaskedName.size() >= MAX_MASKED_INDEXES) {
+          // Too many shapes to keep, the caller matches all the names instead.
+          List<String> names = new ArrayList<>();
+          _namesByLowerCaseName.values().forEach(names::addAll);
+          return names;
+        }
+        namesByMaskedName =
+            _namesByMaskedName.computeIfAbsent(shape, this::buildMaskedIndex);
+      }
+      return namesByMaskedName.getOrDefault(lowerCasePattern, Collections.emptyList());
+    }
+
+    private Map<String, List<String>> buildMaskedIndex(String shape) {
+      Map<String, List<String>> namesByMaskedName = new HashMap<>();
+      _namesByLowerCaseName.forEach((lowerCaseName, names) -> {
+        if (lowerCaseName.length() != shape.length()) {
+          return;
+        }
+        char[] maskedName = lowerCaseName.toCharArray();
+        for (int i = 0; i < maskedName.length; i++) {
+          if (shape.charAt(i) == MASK) {
+            maskedName[i] = MASK;
+          }
+        }
+        namesByMaskedName.computeIfAbsent(new String(maskedName), k -> new ArrayList<>())
+            .addAll(names);
+      });
+      return namesByMaskedName;
+    }
+
+    /**
+     * @return the length and the '_' positions of the pattern, e.g. ".._." for "db_0"
+     */
+    private static String getShape(String pattern) {
+      char[] shape = new char[pattern.length()];
+      for (int i = 0; i < shape.length; i++) {
+        shape[i] = pattern.charAt(i) == MASK ? MASK : '.';
+      }
+      return new String(shape);
+    }
+  }
+}
@@ -81,6 +81,10 @@ public class ClusterConfig extends HelixProperty {
     NUM_OFFLINE_INSTANCES_FOR_AUTO_EXIT, // For auto-exiting maintenance mode
 
     TARGET_EXTERNALVIEW_ENABLED,
+    EXTERNALVIEW_DELTA_WRITE_ENABLED, // Write large ExternalViews as a log of changes
+    RESOURCE_COMPUTE_PARALLELISM, // The number of threads the pipeline computes resources on
+    BEST_POSSIBLE_PARALLEL_COMPUTE_ENABLED, // Compute the best possible states of the resources
+    // on the resource compute pool. Default to be false.
     @Deprecated // ERROR_OR_RECOVERY_PARTITION_THRESHOLD_FOR_LOAD_BALANCE will take
     // precedence if it is set
     ERROR_PARTITION_THRESHOLD_FOR_LOAD_BALANCE, // Controller won't execute load balance state
@@ -129,6 +133,23 @@ public class ClusterConfig extends HelixProperty {
     //
     // Default to be true.
     GLOBAL_REBALANCE_ASYNC_MODE,
+    // Specify if the WAGED rebalancer should only recalculate the resources that have been changed
+    // since the previous partial rebalance. The assignment of the other resources is kept as it is.
+    // Note that the incremental mode reduces the partial rebalance latency. But it may leave some
+    // replicas that are not on the Baseline allocation until the next Baseline change, because the
+    // unchanged resources are not re-evaluated when other resources release capacity.
+    //
+    // Default to be false.
+    PARTIAL_REBALANCE_INCREMENTAL_MODE,
+    // Specify if the WAGED rebalancer should write the Baseline and the Best Possible assignment to
+    // the metadata store asynchronously. The rebalance pipeline then does not wait for the writes.
+    // Only the latest assignment is written if a newer one is calculated before the previous write
+    // starts, and a failed write is retried by the next rebalance.
+    // Note that a new leader may read an older assignment if the previous leader stops before the
+    // last write completes, which may cause extra partition movements.
+    //
+    // Default to be false.
+    ASSIGNMENT_ASYNC_PERSISTENCE_MODE,
 
     /**
      * Configure the abnormal partition states resolver classes for the corresponding state model.
@@ -201,6 +222,8 @@ public class ClusterConfig extends HelixProperty {
   private final static int MIN_REBALANCE_PREFERENCE = 0;
   public final static boolean DEFAULT_GLOBAL_REBALANCE_ASYNC_MODE_ENABLED = true;
   public final static boolean DEFAULT_PARTIAL_REBALANCE_ASYNC_MODE_ENABLED = true;
+  public final static boolean DEFAULT_PARTIAL_REBALANCE_INCREMENTAL_MODE_ENABLED = false;
+  public final static boolean DEFAULT_ASSIGNMENT_ASYNC_PERSISTENCE_MODE_ENABLED = false;
   private static final int GLOBAL_TARGET_TASK_THREAD_POOL_SIZE_NOT_SET = -1;
   private static final int OFFLINE_NODE_TIME_OUT_FOR_MAINTENANCE_MODE_NOT_SET = -1;
   private final static int DEFAULT_VIEW_CLUSTER_REFRESH_PERIOD = 30;
@@ -734,6 +757,65 @@ public class ClusterConfig extends HelixProperty {
     return _record.getBooleanField(ClusterConfigProperty.TARGET_EXTERNALVIEW_ENABLED.name(), false);
   }
 
+  /**
+   * Enable/disable writing the large ExternalViews as a snapshot plus a log of the changed
+   * partitions. All the readers of the ExternalViews must support the format before it is enabled.
+   * @param enabled
+   */
+  public void enableExternalViewDeltaWrite(boolean enabled) {
+    _record.setBooleanField(ClusterConfigProperty.EXTERNALVIEW_DELTA_WRITE_ENABLED.name(), enabled);
+  }
+
+  /**
+   * Determine whether the ExternalViews are written as a snapshot plus a log of changes
+   * @return
+   */
+  public boolean isExternalViewDeltaWriteEnabled() {
+    return _record
+        .getBooleanField(ClusterConfigProperty.EXTERNALVIEW_DELTA_WRITE_ENABLED.name(), false);
+  }
+
+  /**
+   * Set the number of threads the controller pipeline stages compute the resources on
+   * concurrently. The resources are computed sequentially on the pipeline thread if it is 1.
+   * @param parallelism
+   */
+  public void setResourceComputeParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Resource compute parallelism must be positive");
+    }
+    _record.setIntField(ClusterConfigProperty.RESOURCE_COMPUTE_PARALLELISM.name(), parallelism);
+  }
+
+  /**
+   * Get the number of threads the controller pipeline stages compute the resources on
+   * @return the parallelism, 1 by default
+   */
+  public int getResourceComputeParallelism() {
+    return Math.max(1,
+        _record.getIntField(ClusterConfigProperty.RESOURCE_COMPUTE_PARALLELISM.name(), 1));
+  }
+
+  /**
+   * Enable/disable computing the best possible states of the independent non-WAGED resources
+   * concurrently on the resource compute pool. It takes effect only if the resource compute
+   * parallelism is greater than 1.
+   * @param enabled
+   */
+  public void enableBestPossibleParallelCompute(boolean enabled) {
+    _record.setBooleanField(ClusterConfigProperty.BEST_POSSIBLE_PARALLEL_COMPUTE_ENABLED.name(),
+        enabled);
+  }
+
+  /**
+   * Determine whether the best possible states of the resources are computed concurrently
+   * @return true if it is enabled, false by default
+   */
+  public boolean isBestPossibleParallelComputeEnabled() {
+    return _record.getBooleanField(
+        ClusterConfigProperty.BEST_POSSIBLE_PARALLEL_COMPUTE_ENABLED.name(), false);
+  }
+
   /**
    * Get maximum allowed running task count on all instances in this cluster.
    * @return the maximum task count
@@ -1066,6 +1148,35 @@ public class ClusterConfig extends HelixProperty {
         DEFAULT_GLOBAL_REBALANCE_ASYNC_MODE_ENABLED);
   }
 
+  /**
+   * Set the incremental partial rebalance mode.
+   * @param isIncremental true if the partial rebalance should only recalculate the changed resources
+   */
+  public void setPartialRebalanceIncrementalMode(boolean isIncremental) {
+    _record.setBooleanField(ClusterConfigProperty.PARTIAL_REBALANCE_INCREMENTAL_MODE.name(),
+        isIncremental);
+  }
+
+  public boolean isPartialRebalanceIncrementalModeEnabled() {
+    return _record.getBooleanField(ClusterConfigProperty.PARTIAL_REBALANCE_INCREMENTAL_MODE.name(),
+        DEFAULT_PARTIAL_REBALANCE_INCREMENTAL_MODE_ENABLED);
+  }
+
+  /**
+   * Set the asynchronous persistence mode of the WAGED assignments.
+   * @param isAsync true if the Baseline and the Best Possible assignment should be written to the
+   *                metadata store asynchronously
+   */
+  public void setAssignmentAsyncPersistenceMode(boolean isAsync) {
+    _record.setBooleanField(ClusterConfigProperty.ASSIGNMENT_ASYNC_PERSISTENCE_MODE.name(),
+        isAsync);
+  }
+
+  public boolean isAssignmentAsyncPersistenceModeEnabled() {
+    return _record.getBooleanField(ClusterConfigProperty.ASSIGNMENT_ASYNC_PERSISTENCE_MODE.name(),
+        DEFAULT_ASSIGNMENT_ASYNC_PERSISTENCE_MODE_ENABLED);
+  }
+
   /**
    * Set the time out window for offline nodes during maintenance mode. If an offline node has been
    * offline for more than this specified time period, it's treated as offline for the rest of
@@ -85,6 +85,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   private AtomicLong _totalPastDueMsgSize = new AtomicLong(0L);
   private boolean _rebalanceFailure = false;
   private AtomicLong _rebalanceFailureCount = new AtomicLong(0L);
+  private AtomicLong _coalescedClusterEventCount = new AtomicLong(0L);
   private AtomicLong _continuousResourceRebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousTaskRebalanceFailureCount = new AtomicLong(0L);
 
@@ -96,6 +97,9 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   // phaseName -> eventMonitor
   protected final ConcurrentHashMap<String, ClusterEventMonitor> _clusterEventMonitorMap =
       new ConcurrentHashMap<>();
+  // <pipeline type::stage name, monitor>
+  protected final ConcurrentHashMap<String, PipelineStageMonitor> _pipelineStageMonitorMap =
+      new ConcurrentHashMap<>();
 
   private CustomizedViewMonitor _customizedViewMonitor;
 
@@ -335,6 +339,51 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
   }
 
+  /**
+   * Update the metrics of a run of a pipeline stage.
+   * @param pipelineType
+   * @param stageName
+   * @param duration the latency in ms
+   * @param allocatedBytes the bytes allocated by the stage thread, negative if not supported
+   * @param zkReads the number of ZooKeeper reads issued
+   * @param processedItems the number of items processed
+   */
+  public void updatePipelineStageStats(String pipelineType, String stageName, long duration,
+      long allocatedBytes, long zkReads, long processedItems) {
+    PipelineStageMonitor monitor = getOrCreatePipelineStageMonitor(pipelineType, stageName);
+    if (monitor != null) {
+      monitor.reportExecution(duration, allocatedBytes, zkReads, processedItems);
+    }
+  }
+
+  /**
+   * Update the time an asynchronous pipeline stage waited for its worker.
+   * @param pipelineType
+   * @param stageName
+   * @param queueTime the queue time in ms
+   */
+  public void updatePipelineStageQueueTime(String pipelineType, String stageName,
+      long queueTime) {
+    PipelineStageMonitor monitor = getOrCreatePipelineStageMonitor(pipelineType, stageName);
+    if (monitor != null) {
+      monitor.reportQueueTime(queueTime);
+    }
+  }
+
+  /**
+   * Update the parallel efficiency of a pipeline stage that computed the resources concurrently.
+   * @param pipelineType
+   * @param stageName
+   * @param efficiency the busy time of the threads in percent of their elapsed time
+   */
+  public void updatePipelineStageParallelEfficiency(String pipelineType, String stageName,
+      long efficiency) {
+    PipelineStageMonitor monitor = getOrCreatePipelineStageMonitor(pipelineType, stageName);
+    if (monitor != null) {
+      monitor.reportParallelEfficiency(efficiency);
+    }
+  }
+
   /**
    * Lazy initialization of customized view monitor
    * @param clusterName the cluster name of the cluster to be monitored
@@ -352,6 +401,30 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _customizedViewMonitor;
   }
 
+  private PipelineStageMonitor getOrCreatePipelineStageMonitor(String pipelineType,
+      String stageName) {
+    if (pipelineType == null || pipelineType.isEmpty()) {
+      pipelineType = DEFAULT_TAG;
+    }
+    String key = pipelineType + "::" + stageName;
+    try {
+      if (!_pipelineStageMonitorMap.containsKey(key)) {
+        synchronized (_pipelineStageMonitorMap) {
+          if (!_pipelineStageMonitorMap.containsKey(key)) {
+            PipelineStageMonitor monitor = new PipelineStageMonitor(this, pipelineType, stageName);
+            monitor.register();
+            _pipelineStageMonitorMap.put(key, monitor);
+          }
+        }
+      }
+    } catch (JMException e) {
+      LOG.error("Failed to register PipelineStageMonitor for cluster " + _clusterName
+          + ", pipeline " + pipelineType + " and stage " + stageName, e);
+    }
+
+    return _pipelineStageMonitorMap.get(key);
+  }
+
   private ClusterEventMonitor getOrCreateClusterEventMonitor(String phase) {
     try {
       if (!_clusterEventMonitorMap.containsKey(phase)) {
@@ -645,6 +718,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       unregisterAllPerInstanceResources();
       unregister(getObjectName(clusterBeanName()));
       unregisterAllEventMonitors();
+      unregisterAllPipelineStageMonitors();
       unregisterAllWorkflowsMonitor();
       unregisterAllJobs();
 
@@ -658,6 +732,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       _totalPastDueMsgSize.set(0L);
       _totalMsgQueueSize.set(0L);
       _rebalanceFailureCount.set(0L);
+      _coalescedClusterEventCount.set(0L);
       _continuousResourceRebalanceFailureCount.set(0L);
       _continuousTaskRebalanceFailureCount.set(0L);
     } catch (Exception e) {
@@ -889,6 +964,15 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
   }
 
+  private void unregisterAllPipelineStageMonitors() {
+    synchronized (_pipelineStageMonitorMap) {
+      for (PipelineStageMonitor monitor : _pipelineStageMonitorMap.values()) {
+        monitor.unregister();
+      }
+      _pipelineStageMonitorMap.clear();
+    }
+  }
+
   private void registerPerInstanceResources(Collection<PerInstanceResourceMonitor> monitors)
       throws JMException {
     synchronized (_perInstanceResourceMonitorMap) {
@@ -1029,6 +1113,10 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     _rebalanceFailureCount.incrementAndGet();
   }
 
+  public void reportCoalescedClusterEvents(long count) {
+    _coalescedClusterEventCount.addAndGet(count);
+  }
+
   public void reportContinuousResourceRebalanceFailureCount(long newValue) {
     _continuousResourceRebalanceFailureCount.set(newValue);
   }
@@ -1042,6 +1130,11 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _rebalanceFailureCount.get();
   }
 
+  @Override
+  public long getCoalescedClusterEventCounter() {
+    return _coalescedClusterEventCount.get();
+  }
+
   @Override
   public long getContinuousResourceRebalanceFailureCount() {
     return _continuousResourceRebalanceFailureCount.get();
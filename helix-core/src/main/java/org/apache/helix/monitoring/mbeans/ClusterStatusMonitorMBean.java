@@ -87,6 +87,11 @@ public interface ClusterStatusMonitorMBean extends SensorNameProvider {
    */
   long getRebalanceFailureCounter();
 
+  /**
+   * @return The number of cluster events coalesced into other events in the event queue.
+   */
+  long getCoalescedClusterEventCounter();
+
   /**
    * @return The number of continuous resource rebalance failure count
    */
@@ -0,0 +1,93 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * The metrics of the group commit of the current state updates of a participant: the number of
+ * ZK writes, the number of updates merged into every write and the latency from the first
+ * update of a write being submitted until the write is done.
+ */
+public class GroupCommitMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Group Commit Monitor";
+  private final String _sensorName;
+  private final String _domainName;
+  private final String _participantName;
+
+  private final SimpleDynamicMetric<Long> _commitCounter;
+  private final SimpleDynamicMetric<Long> _committedUpdateCounter;
+  private final HistogramDynamicMetric _batchSizeGauge;
+  private final HistogramDynamicMetric _commitLatencyGauge;
+
+  public GroupCommitMonitor(String domainName, String participantName) {
+    _domainName = domainName;
+    _participantName = participantName;
+    _sensorName = String.format("%s.%s", ParticipantMessageMonitor.PARTICIPANT_STATUS_KEY,
+        "GroupCommit");
+
+    _commitCounter = new SimpleDynamicMetric<>("CommitCounter", 0L);
+    _committedUpdateCounter = new SimpleDynamicMetric<>("CommittedUpdateCounter", 0L);
+    _batchSizeGauge = new HistogramDynamicMetric("BatchSizeGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+    _commitLatencyGauge = new HistogramDynamicMetric("CommitLatencyGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  /**
+   * Report a ZK write of the group commit.
+   * @param batchSize the number of updates merged into the write
+   * @param latency the time in ms from the first update being submitted until the write is done
+   */
+  public void reportCommit(int batchSize, long latency) {
+    incrementSimpleDynamicMetric(_commitCounter);
+    incrementSimpleDynamicMetric(_committedUpdateCounter, batchSize);
+    _batchSizeGauge.updateValue((long) batchSize);
+    _commitLatencyGauge.updateValue(latency);
+  }
+
+  @Override
+  public GroupCommitMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_commitCounter);
+    attributeList.add(_committedUpdateCounter);
+    attributeList.add(_batchSizeGauge);
+    attributeList.add(_commitLatencyGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, _domainName,
+        ParticipantStatusMonitor.PARTICIPANT_KEY, _participantName, "MonitorType",
+        GroupCommitMonitor.class.getSimpleName());
+    return this;
+  }
+}
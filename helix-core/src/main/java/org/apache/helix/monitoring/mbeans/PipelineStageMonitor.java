@@ -0,0 +1,150 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * The metrics of a stage of a controller pipeline: the latency, the bytes allocated by the stage
+ * thread, the ZooKeeper reads issued and the number of items (resources) processed in every run.
+ * For the asynchronous stages, the time the stage waits for the async worker is also recorded.
+ */
+public class PipelineStageMonitor extends DynamicMBeanProvider {
+  private static final String PIPELINE_STAGE_DN_KEY = "PipelineStageStatus";
+  private static final String PIPELINE_DN_KEY = "pipeline";
+  private static final String STAGE_DN_KEY = "stage";
+
+  private final ClusterStatusMonitor _clusterStatusMonitor;
+  private final String _pipelineType;
+  private final String _stageName;
+
+  private final SimpleDynamicMetric<Long> _executionCounter;
+  private final SimpleDynamicMetric<Long> _totalLatencyCounter;
+  private final SimpleDynamicMetric<Long> _totalAllocatedBytesCounter;
+  private final SimpleDynamicMetric<Long> _totalZkReadCounter;
+  private final HistogramDynamicMetric _latencyGauge;
+  private final HistogramDynamicMetric _allocatedBytesGauge;
+  private final HistogramDynamicMetric _zkReadGauge;
+  private final HistogramDynamicMetric _processedItemGauge;
+  private final HistogramDynamicMetric _queueTimeGauge;
+  private final HistogramDynamicMetric _parallelEfficiencyGauge;
+
+  public PipelineStageMonitor(ClusterStatusMonitor clusterStatusMonitor, String pipelineType,
+      String stageName) {
+    _clusterStatusMonitor = clusterStatusMonitor;
+    _pipelineType = pipelineType;
+    _stageName = stageName;
+
+    _executionCounter = new SimpleDynamicMetric<>("ExecutionCounter", 0L);
+    _totalLatencyCounter = new SimpleDynamicMetric<>("TotalLatencyCounter", 0L);
+    _totalAllocatedBytesCounter = new SimpleDynamicMetric<>("TotalAllocatedBytesCounter", 0L);
+    _totalZkReadCounter = new SimpleDynamicMetric<>("TotalZkReadCounter", 0L);
+    _latencyGauge = new HistogramDynamicMetric("LatencyGauge", createHistogram());
+    _allocatedBytesGauge = new HistogramDynamicMetric("AllocatedBytesGauge", createHistogram());
+    _zkReadGauge = new HistogramDynamicMetric("ZkReadGauge", createHistogram());
+    _processedItemGauge = new HistogramDynamicMetric("ProcessedItemGauge", createHistogram());
+    _queueTimeGauge = new HistogramDynamicMetric("QueueTimeGauge", createHistogram());
+    _parallelEfficiencyGauge =
+        new HistogramDynamicMetric("ParallelEfficiencyGauge", createHistogram());
+  }
+
+  private Histogram createHistogram() {
+    return new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Report a run of the stage.
+   * @param latency the latency in ms
+   * @param allocatedBytes the bytes allocated by the stage thread, or a negative value if the JVM
+   *          does not support measuring it
+   * @param zkReads the number of ZooKeeper reads issued
+   * @param processedItems the number of items processed
+   */
+  public void reportExecution(long latency, long allocatedBytes, long zkReads,
+      long processedItems) {
+    incrementSimpleDynamicMetric(_executionCounter);
+    incrementSimpleDynamicMetric(_totalLatencyCounter, latency);
+    _latencyGauge.updateValue(latency);
+    if (allocatedBytes >= 0) {
+      incrementSimpleDynamicMetric(_totalAllocatedBytesCounter, allocatedBytes);
+      _allocatedBytesGauge.updateValue(allocatedBytes);
+    }
+    incrementSimpleDynamicMetric(_totalZkReadCounter, zkReads);
+    _zkReadGauge.updateValue(zkReads);
+    _processedItemGauge.updateValue(processedItems);
+  }
+
+  /**
+   * Report the time an asynchronous stage waited before it was executed.
+   * @param queueTime the queue time in ms
+   */
+  public void reportQueueTime(long queueTime) {
+    _queueTimeGauge.updateValue(queueTime);
+  }
+
+  /**
+   * Report how well a stage used the threads it computed the resources on concurrently.
+   * @param efficiency the busy time of the threads in percent of the elapsed time of all the
+   *          threads, 100 if every thread was busy all the time
+   */
+  public void reportParallelEfficiency(long efficiency) {
+    _parallelEfficiencyGauge.updateValue(efficiency);
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s.%s.%s.%s", PIPELINE_STAGE_DN_KEY,
+        _clusterStatusMonitor.getClusterName(), ClusterStatusMonitor.DEFAULT_TAG, _pipelineType,
+        _stageName);
+  }
+
+  private String getBeanName() {
+    return String.format("%s,%s=%s,%s=%s", _clusterStatusMonitor.clusterBeanName(),
+        PIPELINE_DN_KEY, _pipelineType, STAGE_DN_KEY, _stageName);
+  }
+
+  @Override
+  public PipelineStageMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_executionCounter);
+    attributeList.add(_totalLatencyCounter);
+    attributeList.add(_totalAllocatedBytesCounter);
+    attributeList.add(_totalZkReadCounter);
+    attributeList.add(_latencyGauge);
+    attributeList.add(_allocatedBytesGauge);
+    attributeList.add(_zkReadGauge);
+    attributeList.add(_processedItemGauge);
+    attributeList.add(_queueTimeGauge);
+    attributeList.add(_parallelEfficiencyGauge);
+    doRegister(attributeList, _clusterStatusMonitor.getObjectName(getBeanName()));
+    return this;
+  }
+}
@@ -0,0 +1,134 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.model.InstanceConfig;
+
+/**
+ * An immutable view of the routing information of one resource, which is meant for the request
+ * path of the routers.
+ * The partitions of the resource are indexed by ints. The index of a partition can be resolved
+ * once by {@link #getPartitionIndex(String)}, and then the instances of the partition in a state
+ * are looked up by the index. The returned lists are precomputed read-only views that are shared
+ * by all the callers, so a lookup does not allocate.
+ * The partition indexes are only valid for the view that assigns them. A view of the same
+ * resource from another RoutingTableSnapshot may index the partitions differently.
+ */
+public class ResourceRoutingView {
+  private final String _resourceName;
+  // The partition names ordered by the partition indexes.
+  private final String[] _partitionNames;
+  private final Map<String, Integer> _partitionIndexes;
+  // <state, the instances in the state indexed by the partition indexes>
+  private final Map<String, List<List<InstanceConfig>>> _instancesByState;
+  private final Set<String> _states;
+
+  ResourceRoutingView(String resourceName, RoutingTable.ResourceInfo resourceInfo) {
+    _resourceName = resourceName;
+    _partitionNames = resourceInfo.partitionInfoMap.keySet().toArray(new String[0]);
+    Arrays.sort(_partitionNames);
+    _partitionIndexes = new HashMap<>();
+    _instancesByState = new HashMap<>();
+    for (int i = 0; i < _partitionNames.length; i++) {
+      _partitionIndexes.put(_partitionNames[i], i);
+      RoutingTable.PartitionInfo partitionInfo = resourceInfo.get(_partitionNames[i]);
+      for (Map.Entry<String, List<InstanceConfig>> entry : partitionInfo.stateInfoMap
+          .entrySet()) {
+        List<List<InstanceConfig>> instances = _instancesByState.computeIfAbsent(entry.getKey(),
+            state -> new ArrayList<>(
+                Collections.nCopies(_partitionNames.length, Collections.emptyList())));
+        instances.set(i, Collections.unmodifiableList(entry.getValue()));
+      }
+    }
+    _states = Collections.unmodifiableSet(_instancesByState.keySet());
+  }
+
+  /**
+   * @return the name of the resource
+   */
+  public String getResourceName() {
+    return _resourceName;
+  }
+
+  /**
+   * @return the number of partitions of the resource in this view
+   */
+  public int getPartitionCount() {
+    return _partitionNames.length;
+  }
+
+  /**
+   * @param partitionName
+   * @return the index of the partition, or -1 if the partition is not in this view
+   */
+  public int getPartitionIndex(String partitionName) {
+    Integer partitionIndex = _partitionIndexes.get(partitionName);
+    return partitionIndex == null ? -1 : partitionIndex;
+  }
+
+  /**
+   * @param partitionIndex
+   * @return the name of the partition with the given index
+   * @throws IndexOutOfBoundsException if the index is not in this view
+   */
+  public String getPartitionName(int partitionIndex) {
+    return _partitionNames[partitionIndex];
+  }
+
+  /**
+   * @return all the states of the partitions in this view
+   */
+  public Set<String> getStates() {
+    return _states;
+  }
+
+  /**
+   * returns the instances for the partition that are in a specific {state}
+   * @param partitionIndex the index that is returned by {@link #getPartitionIndex(String)}
+   * @param state
+   * @return a read-only list, empty if there is no instance in a given state or the partition
+   *         index is not in this view
+   */
+  public List<InstanceConfig> getInstances(int partitionIndex, String state) {
+    List<List<InstanceConfig>> instances = _instancesByState.get(state);
+    if (instances == null || partitionIndex < 0 || partitionIndex >= _partitionNames.length) {
+      return Collections.emptyList();
+    }
+    return instances.get(partitionIndex);
+  }
+
+  /**
+   * returns the instances for the partition that are in a specific {state}
+   * @param partitionName
+   * @param state
+   * @return a read-only list, empty if there is no instance in a given state
+   */
+  public List<InstanceConfig> getInstances(String partitionName, String state) {
+    return getInstances(getPartitionIndex(partitionName), state);
+  }
+}
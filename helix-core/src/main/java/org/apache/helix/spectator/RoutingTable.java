@@ -99,33 +99,189 @@ class RoutingTable {
     refresh(_externalViews);
   }
 
+  /**
+   * Initialize the RoutingTable based on a previous RoutingTable of the same property type.
+   * Only the resources whose ExternalViews have changed are rebuilt, the routing information of
+   * the other resources is shared with the previous RoutingTable.
+   * @param previousTable the RoutingTable that is built from the previous ExternalViews
+   * @param externalViews the current ExternalViews
+   * @param instanceConfigs the current InstanceConfigs
+   * @param liveInstances the current LiveInstances
+   */
+  protected RoutingTable(RoutingTable previousTable, Collection<ExternalView> externalViews,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
+    _propertyType = previousTable.getPropertyType();
+    _resourceInfoMap = new HashMap<>();
+    _resourceGroupInfoMap = new HashMap<>();
+    _liveInstances = new HashSet<>(liveInstances);
+    _instanceConfigs = new HashSet<>(instanceConfigs);
+    _externalViews = new HashSet<>(externalViews);
+    if (canRefreshIncrementally(previousTable)) {
+      refresh(previousTable);
+    } else {
+      refresh(_externalViews);
+    }
+  }
+
+  /**
+   * The routing information of a resource can be shared only if it is built from the same
+   * ExternalView and InstanceConfigs. Note the live instances are not used by the ExternalView
+   * based routing.
+   */
+  private boolean canRefreshIncrementally(RoutingTable previousTable) {
+    return (_propertyType == PropertyType.EXTERNALVIEW
+        || _propertyType == PropertyType.TARGETEXTERNALVIEW)
+        && previousTable.getClass() == RoutingTable.class
+        && hasSameInstanceConfigs(previousTable)
+        && hasUniqueResourceNames(_externalViews)
+        && hasUniqueResourceNames(previousTable._externalViews);
+  }
+
+  /**
+   * Note that InstanceConfig.equals() only compares the instance names, so the records are
+   * compared here.
+   */
+  private boolean hasSameInstanceConfigs(RoutingTable previousTable) {
+    if (_instanceConfigs.size() != previousTable._instanceConfigs.size()) {
+      return false;
+    }
+    Map<String, InstanceConfig> previousInstanceConfigMap = previousTable.getInstanceConfigMap();
+    for (InstanceConfig config : _instanceConfigs) {
+      InstanceConfig previousConfig = previousInstanceConfigMap.get(config.getId());
+      if (previousConfig == null || (previousConfig != config && !previousConfig.getRecord()
+          .equals(config.getRecord()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasUniqueResourceNames(Collection<ExternalView> externalViews) {
+    return externalViews.stream().map(ExternalView::getId).distinct().count()
+        == externalViews.size();
+  }
+
+  /**
+   * @return true if the ExternalView has not been changed since the previous one was read.
+   */
+  private static boolean isSameExternalView(ExternalView previous, ExternalView current) {
+    if (previous == current) {
+      return true;
+    }
+    // The ExternalViews read from ZooKeeper carry the stat of the ZNode, which changes on every
+    // write. The ones that are constructed in memory have no creation time and are always
+    // considered as changed.
+    return current.getStat().getCreationTime() > 0 && current.getStat()
+        .equals(previous.getStat());
+  }
+
   private void refresh(Collection<ExternalView> externalViewList) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
     if (externalViewList != null && !externalViewList.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
-      }
+      Map<String, InstanceConfig> instanceConfigMap = getInstanceConfigMap();
       for (ExternalView extView : externalViewList) {
-        String resourceName = extView.getId();
-        for (String partitionName : extView.getPartitionSet()) {
-          Map<String, String> stateMap = extView.getStateMap(partitionName);
-          for (String instanceName : stateMap.keySet()) {
-            String currentState = stateMap.get(instanceName);
-            if (instanceConfigMap.containsKey(instanceName)) {
-              InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
-              if (extView.isGroupRoutingEnabled()) {
-                addEntry(resourceName, extView.getResourceGroupName(),
-                    extView.getInstanceGroupTag(), partitionName, currentState, instanceConfig);
-              } else {
-                addEntry(resourceName, partitionName, currentState, instanceConfig);
-              }
-            } else {
-              logger.warn(
-                  "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
-                      + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
-                  instanceName, partitionName, instanceName, stateMap.get(instanceName));
-            }
+        addEntries(extView, instanceConfigMap, true, extView.isGroupRoutingEnabled());
+      }
+    }
+  }
+
+  /**
+   * Refresh the routing information based on the previous RoutingTable. The resources and the
+   * resource groups that are not touched by any ExternalView change are shared with the previous
+   * RoutingTable. Since the ResourceInfo and ResourceGroupInfo are never modified once the table
+   * is built, the sharing is safe for the readers of both tables.
+   */
+  private void refresh(RoutingTable previousTable) {
+    Map<String, ExternalView> previousExternalViews = new HashMap<>();
+    for (ExternalView extView : previousTable._externalViews) {
+      previousExternalViews.put(extView.getId(), extView);
+    }
+
+    List<ExternalView> changedExternalViews = new ArrayList<>();
+    Set<String> changedResourceGroups = new HashSet<>();
+    for (ExternalView extView : _externalViews) {
+      ExternalView previousExtView = previousExternalViews.remove(extView.getId());
+      if (previousExtView != null && isSameExternalView(previousExtView, extView)) {
+        ResourceInfo resourceInfo = previousTable._resourceInfoMap.get(extView.getId());
+        if (resourceInfo != null) {
+          _resourceInfoMap.put(extView.getId(), resourceInfo);
+        }
+        continue;
+      }
+      changedExternalViews.add(extView);
+      if (previousExtView != null && previousExtView.isGroupRoutingEnabled()) {
+        changedResourceGroups.add(previousExtView.getResourceGroupName());
+      }
+      if (extView.isGroupRoutingEnabled()) {
+        changedResourceGroups.add(extView.getResourceGroupName());
+      }
+    }
+    // The remaining previous ExternalViews belong to the removed resources.
+    for (ExternalView removedExtView : previousExternalViews.values()) {
+      if (removedExtView.isGroupRoutingEnabled()) {
+        changedResourceGroups.add(removedExtView.getResourceGroupName());
+      }
+    }
+
+    for (Map.Entry<String, ResourceGroupInfo> entry : previousTable._resourceGroupInfoMap
+        .entrySet()) {
+      if (!changedResourceGroups.contains(entry.getKey())) {
+        _resourceGroupInfoMap.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    Map<String, InstanceConfig> instanceConfigMap = getInstanceConfigMap();
+    for (ExternalView extView : changedExternalViews) {
+      addEntries(extView, instanceConfigMap, true, false);
+    }
+    if (!changedResourceGroups.isEmpty()) {
+      // A resource group aggregates all of its resources, so it is rebuilt from all of them.
+      for (ExternalView extView : _externalViews) {
+        if (extView.isGroupRoutingEnabled() && changedResourceGroups
+            .contains(extView.getResourceGroupName())) {
+          addEntries(extView, instanceConfigMap, false, true);
+        }
+      }
+    }
+    logger.debug("Incrementally refreshed the routing table, {} of {} resources are changed.",
+        changedExternalViews.size(), _externalViews.size());
+  }
+
+  private Map<String, InstanceConfig> getInstanceConfigMap() {
+    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
+    for (InstanceConfig config : _instanceConfigs) {
+      instanceConfigMap.put(config.getId(), config);
+    }
+    return instanceConfigMap;
+  }
+
+  /**
+   * Add the entries of all the partitions in the ExternalView.
+   * @param extView the ExternalView of a resource
+   * @param instanceConfigMap the InstanceConfigs keyed by the instance name
+   * @param addToResource add the entries to the ResourceInfo of the resource
+   * @param addToResourceGroup add the entries to the ResourceGroupInfo of the resource's group
+   */
+  private void addEntries(ExternalView extView, Map<String, InstanceConfig> instanceConfigMap,
+      boolean addToResource, boolean addToResourceGroup) {
+    String resourceName = extView.getId();
+    for (String partitionName : extView.getPartitionSet()) {
+      Map<String, String> stateMap = extView.getStateMap(partitionName);
+      for (String instanceName : stateMap.keySet()) {
+        String currentState = stateMap.get(instanceName);
+        if (instanceConfigMap.containsKey(instanceName)) {
+          InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
+          if (addToResource) {
+            addEntry(resourceName, partitionName, currentState, instanceConfig);
+          }
+          if (addToResourceGroup) {
+            addResourceGroupEntry(extView.getResourceGroupName(), extView.getInstanceGroupTag(),
+                partitionName, currentState, instanceConfig);
           }
+        } else if (addToResource) {
+          logger.warn(
+              "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
+                  + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
+              instanceName, partitionName, instanceName, stateMap.get(instanceName));
         }
       }
     }
@@ -178,12 +334,10 @@ class RoutingTable {
   }
 
   /**
-   * add an entry with a resource with resourceGrouping enabled.
+   * add an entry to a resource group.
    */
-  private void addEntry(String resourceName, String resourceGroupName, String resourceTag,
+  private void addResourceGroupEntry(String resourceGroupName, String resourceTag,
       String partitionName, String state, InstanceConfig config) {
-    addEntry(resourceName, partitionName, state, config);
-
     if (!_resourceGroupInfoMap.containsKey(resourceGroupName)) {
       _resourceGroupInfoMap.put(resourceGroupName, new ResourceGroupInfo());
     }
@@ -196,6 +350,14 @@ class RoutingTable {
     return _resourceInfoMap.get(resourceName);
   }
 
+  /**
+   * @return the routing view of the resource, or null if the resource is not in the table
+   */
+  ResourceRoutingView getResourceRoutingView(String resourceName) {
+    ResourceInfo resourceInfo = get(resourceName);
+    return resourceInfo == null ? null : resourceInfo.getRoutingView(resourceName);
+  }
+
   ResourceGroupInfo getResourceGroup(String resourceGroupName) {
     return _resourceGroupInfoMap.get(resourceGroupName);
   }
@@ -394,11 +556,13 @@ class RoutingTable {
   /**
    * Class to store instances, partitions and their states for each resource.
    */
-  class ResourceInfo {
+  static class ResourceInfo {
     // store PartitionInfo for each partition
     Map<String, PartitionInfo> partitionInfoMap;
     // stores the Set of Instances in a given state
     Map<String, Set<InstanceConfig>> stateInfoMap;
+    // built on the first lookup, the ResourceInfo is not modified once the table is built
+    private volatile ResourceRoutingView routingView;
 
     public ResourceInfo() {
       partitionInfoMap = new HashMap<>();
@@ -426,12 +590,22 @@ class RoutingTable {
     PartitionInfo get(String stateUnitKey) {
       return partitionInfoMap.get(stateUnitKey);
     }
+
+    ResourceRoutingView getRoutingView(String resourceName) {
+      ResourceRoutingView view = routingView;
+      if (view == null) {
+        // Concurrent lookups may build the view more than once, which is harmless.
+        view = new ResourceRoutingView(resourceName, this);
+        routingView = view;
+      }
+      return view;
+    }
   }
 
   /**
    * Class to store instances, partitions and their states for each resource group.
    */
-  class ResourceGroupInfo {
+  static class ResourceGroupInfo {
     // aggregated partitions and instances info for all resources in the resource group.
     ResourceInfo aggregatedResourceInfo;
 
@@ -485,7 +659,7 @@ class RoutingTable {
     }
   }
 
-  class PartitionInfo {
+  static class PartitionInfo {
     Map<String, List<InstanceConfig>> stateInfoMap;
 
     public PartitionInfo() {
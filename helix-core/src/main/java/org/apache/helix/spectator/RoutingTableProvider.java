@@ -819,9 +819,10 @@ public class RoutingTableProvider
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
       String referenceKey) {
     long startTime = System.currentTimeMillis();
-    PropertyType propertyType = _routingTableRefMap.get(referenceKey).get().getPropertyType();
+    // Only rebuild the routing information of the resources whose ExternalViews have changed.
     RoutingTable newRoutingTable =
-        new RoutingTable(externalViews, instanceConfigs, liveInstances, propertyType);
+        new RoutingTable(_routingTableRefMap.get(referenceKey).get(), externalViews,
+            instanceConfigs, liveInstances);
     resetRoutingTableAndNotify(startTime, newRoutingTable, referenceKey);
   }
 
@@ -67,6 +67,17 @@ public class RoutingTableSnapshot {
     return _routingTable.getInstancesForResource(resourceName, partitionName, state);
   }
 
+  /**
+   * returns the precomputed routing view of {resource}. The view is meant for the request path:
+   * the instances of a partition are looked up by an int partition index and returned as shared
+   * read-only lists, so no lookup allocates.
+   * @param resourceName
+   * @return the routing view, or null if the resource is not in this snapshot
+   */
+  public ResourceRoutingView getResourceRoutingView(String resourceName) {
+    return _routingTable.getResourceRoutingView(resourceName);
+  }
+
   /**
    * returns all instances for resources contains any given tags in {resource group} that are in a
    * specific {state}
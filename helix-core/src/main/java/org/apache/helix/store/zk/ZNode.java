@@ -43,6 +43,13 @@ public class ZNode {
     _stat = stat;
   }
 
+  public ZNode(String zkPath, Object data, Stat stat, Set<String> childSet) {
+    _zkPath = zkPath;
+    _childSet = childSet;
+    _data = data;
+    _stat = stat;
+  }
+
   public void removeChild(String child) {
     if (_childSet != Collections.<String> emptySet()) {
       _childSet.remove(child);
@@ -19,11 +19,25 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.helix.mock.MockBaseDataAccessor;
+import org.apache.helix.monitoring.mbeans.GroupCommitMonitor;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
 
 
 public class TestGroupCommit {
@@ -40,6 +54,95 @@ public class TestGroupCommit {
     System.out.println(accessor.get("test", null, 0));
     System.out.println(accessor.get("test", null, 0).getSimpleFields().size());
   }
+
+  @Test
+  public void testCommitWindow() throws Exception {
+    final int updateCount = 20;
+    final String key = "/test/commitWindow";
+    final AtomicInteger writeCount = new AtomicInteger();
+    final BaseDataAccessor<ZNRecord> accessor = new MockBaseDataAccessor() {
+      @Override
+      public boolean set(String path, ZNRecord record, int options) {
+        writeCount.incrementAndGet();
+        return super.set(path, record, options);
+      }
+    };
+    String participantName = "TestGroupCommit_participant";
+    GroupCommitMonitor monitor =
+        new GroupCommitMonitor(MonitorDomainNames.CLMParticipantReport.name(), participantName)
+            .register();
+    final GroupCommit commit = new GroupCommit(500);
+    commit.setMonitor(monitor);
+
+    ExecutorService executor = Executors.newFixedThreadPool(updateCount);
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < updateCount; i++) {
+      final String partition = "partition_" + i;
+      results.add(executor.submit(() -> {
+        startLatch.await();
+        ZNRecord update = new ZNRecord("commitWindow");
+        update.setMapField(partition, new HashMap<>());
+        update.getMapField(partition).put("CURRENT_STATE", "ONLINE");
+        return commit.commit(accessor, 0, key, update);
+      }));
+    }
+    startLatch.countDown();
+    for (Future<Boolean> result : results) {
+      Assert.assertTrue(result.get());
+    }
+    executor.shutdown();
+
+    // The concurrent updates are merged into fewer writes, and no update is lost.
+    Assert.assertTrue(writeCount.get() < updateCount, "Writes: " + writeCount.get());
+    Assert.assertEquals(accessor.get(key, null, 0).getMapFields().size(), updateCount);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(String.format("%s:%s=%s,MonitorType=%s",
+        MonitorDomainNames.CLMParticipantReport.name(), ParticipantStatusMonitor.PARTICIPANT_KEY,
+        participantName, GroupCommitMonitor.class.getSimpleName()));
+    Assert.assertEquals(server.getAttribute(name, "CommitCounter"), (long) writeCount.get());
+    Assert.assertEquals(server.getAttribute(name, "CommittedUpdateCounter"), (long) updateCount);
+    Assert.assertTrue((Long) server.getAttribute(name, "BatchSizeGauge.Max") > 1L);
+    monitor.unregister();
+  }
+
+  @Test
+  public void testConcurrentWritersMergedInWindow() throws Exception {
+    final int updateCount = 10;
+    final String key = "/test/concurrentWriters";
+    final AtomicInteger writeCount = new AtomicInteger();
+    final BaseDataAccessor<ZNRecord> accessor = new MockBaseDataAccessor() {
+      @Override
+      public boolean set(String path, ZNRecord record, int options) {
+        writeCount.incrementAndGet();
+        return super.set(path, record, options);
+      }
+    };
+    final GroupCommit commit = new GroupCommit(2000);
+
+    // The writers arrive one after another within the window of the first one, so they all join
+    // the pending write instead of waiting for a running one.
+    ExecutorService executor = Executors.newFixedThreadPool(updateCount);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < updateCount; i++) {
+      final String partition = "partition_" + i;
+      results.add(executor.submit(() -> {
+        ZNRecord update = new ZNRecord("concurrentWriters");
+        update.setMapField(partition, new HashMap<>());
+        update.getMapField(partition).put("CURRENT_STATE", "ONLINE");
+        return commit.commit(accessor, 0, key, update);
+      }));
+      Thread.sleep(50);
+    }
+    for (Future<Boolean> result : results) {
+      Assert.assertTrue(result.get());
+    }
+    executor.shutdown();
+
+    Assert.assertEquals(writeCount.get(), 1);
+    Assert.assertEquals(accessor.get(key, null, 0).getMapFields().size(), updateCount);
+  }
 }
 
 class MyClass implements Runnable {
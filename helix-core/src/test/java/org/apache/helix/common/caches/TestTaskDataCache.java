@@ -0,0 +1,94 @@
+package org.apache.helix.common.caches;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyType;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.task.TaskConstants;
+import org.apache.helix.task.TaskState;
+import org.apache.helix.task.TaskUtil;
+import org.apache.helix.task.WorkflowContext;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestTaskDataCache extends ZkUnitTestBase {
+  @Test
+  public void testIncrementalContextRefresh() {
+    String clusterName = "CLUSTER_" + TestHelper.getTestMethodName();
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, _baseAccessor);
+    writeContext(clusterName, "workflow1", TaskState.IN_PROGRESS);
+    writeContext(clusterName, "workflow2", TaskState.IN_PROGRESS);
+
+    TaskDataCache cache = new TaskDataCache(clusterName);
+    cache.refresh(accessor, Collections.emptyMap());
+    ZNRecord context1 = cache.getContexts().get("workflow1");
+    ZNRecord context2 = cache.getContexts().get("workflow2");
+    Assert.assertEquals(cache.getContexts().size(), 2);
+
+    // Unchanged contexts are not read again.
+    cache.refresh(accessor, Collections.emptyMap());
+    Assert.assertSame(cache.getContexts().get("workflow1"), context1);
+    Assert.assertSame(cache.getContexts().get("workflow2"), context2);
+
+    // A context changed in ZK is read again.
+    writeContext(clusterName, "workflow2", TaskState.COMPLETED);
+    cache.refresh(accessor, Collections.emptyMap());
+    Assert.assertSame(cache.getContexts().get("workflow1"), context1);
+    Assert.assertEquals(cache.getWorkflowContext("workflow2").getWorkflowState(),
+        TaskState.COMPLETED);
+
+    // A context written by the cache is read again.
+    WorkflowContext workflowContext = cache.getWorkflowContext("workflow1");
+    workflowContext.setWorkflowState(TaskState.FAILED);
+    cache.updateWorkflowContext("workflow1", workflowContext);
+    cache.persistDataChanges(accessor);
+    cache.refresh(accessor, Collections.emptyMap());
+    Assert.assertNotSame(cache.getContexts().get("workflow1"), workflowContext.getRecord());
+    Assert.assertEquals(cache.getWorkflowContext("workflow1").getWorkflowState(),
+        TaskState.FAILED);
+
+    // A removed context is removed from the cache.
+    _baseAccessor.remove(getContextPath(clusterName, "workflow2"), AccessOption.PERSISTENT);
+    cache.refresh(accessor, Collections.emptyMap());
+    Assert.assertEquals(cache.getContexts().keySet(), Collections.singleton("workflow1"));
+
+    deleteCluster(clusterName);
+  }
+
+  private static void writeContext(String clusterName, String workflowName, TaskState state) {
+    WorkflowContext context = new WorkflowContext(new ZNRecord(TaskUtil.WORKFLOW_CONTEXT_KW));
+    context.setName(workflowName);
+    context.setWorkflowState(state);
+    _baseAccessor.set(getContextPath(clusterName, workflowName) + "/" + TaskConstants.CONTEXT_NODE,
+        context.getRecord(), AccessOption.PERSISTENT);
+  }
+
+  private static String getContextPath(String clusterName, String workflowName) {
+    return String.format("/%s/%s%s/%s", clusterName, PropertyType.PROPERTYSTORE.name(),
+        TaskConstants.REBALANCER_CONTEXT_ROOT, workflowName);
+  }
+}
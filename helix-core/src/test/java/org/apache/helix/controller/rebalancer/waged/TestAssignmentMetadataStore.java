@@ -19,14 +19,22 @@ package org.apache.helix.controller.rebalancer.waged;
  * under the License.
  */
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.helix.AccessOption;
+import org.apache.helix.BucketDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixManagerFactory;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.InstanceType;
 import org.apache.helix.common.ZkTestBase;
 import org.apache.helix.manager.zk.ZkBucketDataAccessor;
@@ -37,6 +45,15 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
 public class TestAssignmentMetadataStore extends ZkTestBase {
   private static final int DEFAULT_BUCKET_SIZE = 50 * 1024; // 50KB
   private static final String BASELINE_KEY = "BASELINE";
@@ -162,6 +179,166 @@ public class TestAssignmentMetadataStore extends ZkTestBase {
     Assert.assertEquals(getExistingVersionNumbers(BEST_POSSIBLE_KEY).size(), bestPossibleVersionCount + 1);
   }
 
+  @Test
+  public void testAsyncPersistence() throws Exception {
+    BucketDataAccessor accessor = mock(BucketDataAccessor.class);
+    List<Set<String>> writes = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch writeStarted = new CountDownLatch(1);
+    CountDownLatch writeReleased = new CountDownLatch(1);
+    AtomicBoolean failWrites = new AtomicBoolean(false);
+    doAnswer(invocation -> {
+      HelixProperty property = invocation.getArgument(1);
+      writes.add(property.getRecord().getSimpleFields().keySet());
+      writeStarted.countDown();
+      writeReleased.await(10, TimeUnit.SECONDS);
+      if (failWrites.get()) {
+        throw new IOException("Test write failure");
+      }
+      return true;
+    }).when(accessor).compressedBucketWrite(anyString(), any(HelixProperty.class));
+
+    AssignmentMetadataStore store = new AssignmentMetadataStore(accessor, "TestAsyncCluster");
+    store.setAsyncPersistenceEnabled(true);
+    store._globalBaseline = new HashMap<>();
+    try {
+      store.persistBaseline(getAssignment("Resource0"));
+      Assert.assertTrue(writeStarted.await(10, TimeUnit.SECONDS));
+      // The newer assignments replace each other while the first write is in progress.
+      store.persistBaseline(getAssignment("Resource1"));
+      store.persistBaseline(getAssignment("Resource2"));
+      // The in-memory assignment is updated without waiting for the write.
+      Assert.assertEquals(store.getBaseline().keySet(), Collections.singleton("Resource2"));
+
+      // The failed write of the latest assignment is kept for the next rebalance.
+      failWrites.set(true);
+      writeReleased.countDown();
+      store.awaitPendingWrites();
+      Assert.assertEquals(writes.size(), 2);
+      Assert.assertEquals(writes.get(0), Collections.singleton("Resource0"));
+      Assert.assertEquals(writes.get(1), Collections.singleton("Resource2"));
+      Assert.assertFalse(store.hasNoPendingWrites());
+
+      failWrites.set(false);
+      store.retryFailedWrites();
+      store.awaitPendingWrites();
+      Assert.assertEquals(writes.size(), 3);
+      Assert.assertEquals(writes.get(2), Collections.singleton("Resource2"));
+      Assert.assertTrue(store.hasNoPendingWrites());
+
+      // Switching back to the sync mode writes right away.
+      store.setAsyncPersistenceEnabled(false);
+      store.persistBaseline(getAssignment("Resource3"));
+      Assert.assertEquals(writes.size(), 4);
+      Assert.assertEquals(writes.get(3), Collections.singleton("Resource3"));
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test(dependsOnMethods = "testAsyncPersistence")
+  public void testFailedWriteDoesNotOverwriteNewerAssignment() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      BucketDataAccessor accessor = mock(BucketDataAccessor.class);
+      List<Set<String>> writes = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch writeStarted = new CountDownLatch(1);
+      CountDownLatch writeReleased = new CountDownLatch(1);
+      doAnswer(invocation -> {
+        HelixProperty property = invocation.getArgument(1);
+        Set<String> resources = property.getRecord().getSimpleFields().keySet();
+        writes.add(resources);
+        if (resources.contains("Resource0")) {
+          // The first write fails while the next assignment is being persisted.
+          writeStarted.countDown();
+          writeReleased.await(10, TimeUnit.SECONDS);
+          throw new IOException("Test write failure");
+        }
+        return true;
+      }).when(accessor).compressedBucketWrite(anyString(), any(HelixProperty.class));
+
+      AssignmentMetadataStore store = new AssignmentMetadataStore(accessor, "TestAsyncCluster");
+      store.setAsyncPersistenceEnabled(true);
+      store._globalBaseline = new HashMap<>();
+      try {
+        store.persistBaseline(getAssignment("Resource0"));
+        Assert.assertTrue(writeStarted.await(10, TimeUnit.SECONDS));
+        Thread persistThread =
+            new Thread(() -> store.persistBaseline(getAssignment("Resource1")));
+        persistThread.start();
+        writeReleased.countDown();
+        persistThread.join();
+        store.awaitPendingWrites();
+
+        // The failed write is older than the newer assignment, so it is never retried.
+        store.retryFailedWrites();
+        store.awaitPendingWrites();
+        Assert.assertTrue(store.hasNoPendingWrites());
+        Assert.assertEquals(writes.get(writes.size() - 1), Collections.singleton("Resource1"));
+        Assert.assertEquals(writes.stream()
+            .filter(resources -> resources.contains("Resource0")).count(), 1);
+      } finally {
+        store.close();
+      }
+    }
+  }
+
+  @Test
+  public void testWarmStandbyRefreshAndLoad() {
+    String clusterName = CLUSTER_NAME + "_warmStandby";
+    AssignmentMetadataStore leaderStore = new AssignmentMetadataStore(
+        new ZkBucketDataAccessor(ZK_ADDR, DEFAULT_BUCKET_SIZE, Integer.MAX_VALUE), clusterName);
+    BucketDataAccessor standbyAccessor =
+        spy(new ZkBucketDataAccessor(ZK_ADDR, DEFAULT_BUCKET_SIZE, Integer.MAX_VALUE));
+    AssignmentMetadataStore standbyStore =
+        new AssignmentMetadataStore(standbyAccessor, clusterName);
+    BucketDataAccessor takeoverAccessor = mock(BucketDataAccessor.class);
+    AssignmentMetadataStore takeoverStore =
+        new AssignmentMetadataStore(takeoverAccessor, clusterName);
+    try {
+      leaderStore.persistBaseline(getAssignment("Resource0"));
+      leaderStore.persistBestPossibleAssignment(getAssignment("Resource0"));
+      standbyStore.refresh();
+      Assert.assertEquals(standbyStore.getBaseline().keySet(), Collections.singleton("Resource0"));
+      Assert.assertEquals(standbyStore.getBestPossibleAssignment().keySet(),
+          Collections.singleton("Resource0"));
+      verify(standbyAccessor, times(2)).compressedBucketRead(anyString(), any());
+
+      // The assignments are only read again once their version changes.
+      standbyStore.refresh();
+      verify(standbyAccessor, times(2)).compressedBucketRead(anyString(), any());
+      leaderStore.persistBestPossibleAssignment(getAssignment("Resource1"));
+      standbyStore.refresh();
+      verify(standbyAccessor, times(3)).compressedBucketRead(anyString(), any());
+      Assert.assertEquals(standbyStore.getBaseline().keySet(), Collections.singleton("Resource0"));
+      Assert.assertEquals(standbyStore.getBestPossibleAssignment().keySet(),
+          Collections.singleton("Resource1"));
+
+      // On takeover, the latest assignments are taken from the standby store without reading
+      // them with the rebalancer's own accessor.
+      leaderStore.persistBaseline(getAssignment("Resource2"));
+      takeoverStore.loadFrom(standbyStore);
+      Assert.assertEquals(takeoverStore.getBaseline().keySet(), Collections.singleton("Resource2"));
+      Assert.assertEquals(takeoverStore.getBestPossibleAssignment().keySet(),
+          Collections.singleton("Resource1"));
+      verify(takeoverAccessor, never()).compressedBucketRead(anyString(), any());
+
+      // The new leader's changes do not leak into the standby store.
+      takeoverStore.getBaseline().clear();
+      Assert.assertEquals(standbyStore.getBaseline().keySet(), Collections.singleton("Resource2"));
+    } finally {
+      takeoverStore.close();
+      standbyStore.close();
+      leaderStore.clearAssignmentMetadata();
+      leaderStore.close();
+      _baseAccessor.remove("/" + clusterName, AccessOption.PERSISTENT);
+    }
+  }
+
+  private Map<String, ResourceAssignment> getAssignment(String resourceName) {
+    Map<String, ResourceAssignment> assignment = new HashMap<>();
+    assignment.put(resourceName, new ResourceAssignment(resourceName));
+    return assignment;
+  }
+
   private Map<String, ResourceAssignment> getDummyAssignment() {
     // Generate a dummy assignment
     Map<String, ResourceAssignment> dummyAssignment = new HashMap<>();
@@ -196,6 +196,55 @@ public class TestWagedRebalancer extends AbstractTestClusterModel {
     validateRebalanceResult(resourceMap, newIdealStates, algorithmResult);
   }
 
+  @Test(dependsOnMethods = "testRebalance")
+  public void testIncrementalPartialRebalance() throws IOException, HelixRebalanceException {
+    _metadataStore.reset();
+    MockRebalanceAlgorithm algorithm = Mockito.spy(new MockRebalanceAlgorithm());
+    WagedRebalancer rebalancer = new WagedRebalancer(_metadataStore, algorithm, Optional.empty());
+    rebalancer.setPartialRebalanceIncrementalMode(true);
+
+    // Generate the input for the rebalancer.
+    ResourceControllerDataProvider clusterData = setupClusterDataCache();
+    Map<String, Resource> resourceMap = clusterData.getIdealStates().entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+          Resource resource = new Resource(entry.getKey());
+          entry.getValue().getPartitionSet().forEach(resource::addPartition);
+          return resource;
+        }));
+    // Mocking the change types for triggering a baseline rebalance.
+    when(clusterData.getRefreshedChangeTypes())
+        .thenReturn(Collections.singleton(HelixConstants.ChangeType.CLUSTER_CONFIG));
+    when(clusterData.checkAndReduceCapacity(Mockito.any(), Mockito.any(),
+        Mockito.any())).thenReturn(true);
+
+    // The first partial rebalance always covers the whole cluster.
+    rebalancer.computeNewIdealStates(clusterData, resourceMap, new CurrentStateOutput());
+    verify(algorithm, times(2)).calculate(any());
+    Map<String, ResourceAssignment> bestPossibleAssignment =
+        new HashMap<>(_metadataStore.getBestPossibleAssignment());
+    Assert.assertEquals(bestPossibleAssignment.keySet(), resourceMap.keySet());
+
+    // Nothing has changed, so neither the global nor the partial rebalance shall be calculated.
+    Mockito.clearInvocations(algorithm);
+    when(clusterData.getRefreshedChangeTypes()).thenReturn(Collections.emptySet());
+    rebalancer.computeNewIdealStates(clusterData, resourceMap, new CurrentStateOutput());
+    verify(algorithm, times(0)).calculate(any());
+    Assert.assertEquals(_metadataStore.getBestPossibleAssignment(), bestPossibleAssignment);
+
+    // Modify the best possible assignment of one resource. Only that resource shall be
+    // recalculated, the others are kept as they are.
+    String changedResource = _resourceNames.get(0);
+    Map<String, ResourceAssignment> modifiedAssignment = new HashMap<>(bestPossibleAssignment);
+    modifiedAssignment.remove(changedResource);
+    _metadataStore.persistBestPossibleAssignment(modifiedAssignment);
+    Mockito.clearInvocations(algorithm);
+    rebalancer.computeNewIdealStates(clusterData, resourceMap, new CurrentStateOutput());
+    ArgumentCaptor<ClusterModel> argumentCaptor = ArgumentCaptor.forClass(ClusterModel.class);
+    verify(algorithm, times(1)).calculate(argumentCaptor.capture());
+    Assert.assertEquals(argumentCaptor.getValue().getAssignableReplicaMap().keySet(),
+        Collections.singleton(changedResource));
+  }
+
   @Test(dependsOnMethods = "testRebalance")
   public void testRebalanceWithCurrentState() throws IOException, HelixRebalanceException {
     _metadataStore.reset();
@@ -20,6 +20,7 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
  */
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -27,10 +28,13 @@ import java.util.Set;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.helix.HelixRebalanceException;
+import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelTestHelper;
 import org.apache.helix.controller.rebalancer.waged.model.OptimalAssignment;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.ResourceAssignment;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -183,4 +187,46 @@ public class TestConstraintBasedAlgorithm {
       Assert.assertEquals(ex.getFailureType(), HelixRebalanceException.Type.FAILED_TO_CALCULATE);
     }
   }
+
+  @Test
+  public void testCalculateWithPreviouslyAssignedNode() throws IOException, HelixRebalanceException {
+    // Put all the partitions on TestInstanceId2 in the best possible assignment.
+    Map<String, ResourceAssignment> bestPossibleAssignment = new HashMap<>();
+    for (Set<AssignableReplica> replicas : new ClusterModelTestHelper().getMultiNodeClusterModel()
+        .getAssignableReplicaMap().values()) {
+      for (AssignableReplica replica : replicas) {
+        ResourceAssignment resourceAssignment = bestPossibleAssignment.computeIfAbsent(
+            replica.getResourceName(), ResourceAssignment::new);
+        resourceAssignment.addReplicaMap(new Partition(replica.getPartitionName()),
+            Collections.singletonMap(ClusterModelTestHelper.TEST_INSTANCE_ID_2,
+                replica.getReplicaState()));
+      }
+    }
+
+    HardConstraint mockHardConstraint = mock(HardConstraint.class);
+    SoftConstraint mockSoftConstraint = mock(SoftConstraint.class);
+    SoftConstraint mockMovementConstraint = mock(SoftConstraint.class);
+    when(mockHardConstraint.isAssignmentValid(any(), any(), any())).thenReturn(true);
+    when(mockSoftConstraint.getAssignmentNormalizedScore(any(), any(), any())).thenReturn(1.0);
+    when(mockMovementConstraint.isScoredByPreviousAssignment()).thenReturn(true);
+    when(mockMovementConstraint.getAssignmentNormalizedScore(any(), any(), any())).thenReturn(1.0);
+    ConstraintBasedAlgorithm algorithm =
+        new ConstraintBasedAlgorithm(ImmutableList.of(mockHardConstraint),
+            ImmutableMap.of(mockSoftConstraint, 1f, mockMovementConstraint, 1f));
+    ClusterModel clusterModel =
+        new ClusterModelTestHelper().getMultiNodeClusterModel(bestPossibleAssignment);
+    OptimalAssignment optimalAssignment = algorithm.calculate(clusterModel);
+
+    optimalAssignment.getOptimalResourceAssignment().values().forEach(
+        resourceAssignment -> resourceAssignment.getMappedPartitions().forEach(partition -> {
+          Assert.assertEquals(resourceAssignment.getReplicaMap(partition).keySet(),
+              Collections.singleton(ClusterModelTestHelper.TEST_INSTANCE_ID_2));
+        }));
+    // The previously assigned node scores higher than any other node could, so the other node
+    // is never evaluated.
+    AssignableNode otherNode =
+        clusterModel.getAssignableNodes().get(ClusterModelTestHelper.TEST_INSTANCE_ID_1);
+    verify(mockHardConstraint, never()).isAssignmentValid(eq(otherNode), any(), any());
+    verify(mockSoftConstraint, never()).getAssignmentNormalizedScore(eq(otherNode), any(), any());
+  }
 }
@@ -20,8 +20,6 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
  */
 
 import com.google.common.collect.ImmutableSet;
-import java.util.Collections;
-
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -36,6 +34,8 @@ public class TestFaultZoneAwareConstraint {
   private static final String TEST_PARTITION = "testPartition";
   private static final String TEST_ZONE = "testZone";
   private static final String TEST_RESOURCE = "testResource";
+  private static final int TEST_PARTITION_ID = 0;
+  private static final int TEST_ZONE_ID = 0;
   private final AssignableReplica _testReplica = Mockito.mock(AssignableReplica.class);
   private final AssignableNode _testNode = Mockito.mock(AssignableNode.class);
   private final ClusterContext _clusterContext = Mockito.mock(ClusterContext.class);
@@ -47,13 +47,17 @@ public class TestFaultZoneAwareConstraint {
     when(_testReplica.getResourceName()).thenReturn(TEST_RESOURCE);
     when(_testReplica.getPartitionName()).thenReturn(TEST_PARTITION);
     when(_testNode.getFaultZone()).thenReturn(TEST_ZONE);
+    when(_testReplica.getPartitionId()).thenReturn(TEST_PARTITION_ID);
+    when(_testNode.getFaultZoneId()).thenReturn(TEST_ZONE_ID);
+    when(_testNode.isCompiled()).thenReturn(true);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_clusterContext.isCompiled()).thenReturn(true);
   }
 
   @Test
   public void inValidWhenFaultZoneAlreadyAssigned() {
     when(_testNode.hasFaultZone()).thenReturn(true);
-    when(_clusterContext.getPartitionsForResourceAndFaultZone(TEST_RESOURCE, TEST_ZONE)).thenReturn(
-            ImmutableSet.of(TEST_PARTITION));
+    when(_clusterContext.hasPartitionInFaultZone(TEST_ZONE_ID, TEST_PARTITION_ID)).thenReturn(true);
 
     Assert.assertFalse(
         _faultZoneAwareConstraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
@@ -62,12 +66,24 @@ public class TestFaultZoneAwareConstraint {
   @Test
   public void validWhenEmptyAssignment() {
     when(_testNode.hasFaultZone()).thenReturn(true);
-    when(_clusterContext.getPartitionsForResourceAndFaultZone(TEST_RESOURCE, TEST_ZONE)).thenReturn(Collections.emptySet());
+    when(_clusterContext.hasPartitionInFaultZone(TEST_ZONE_ID, TEST_PARTITION_ID)).thenReturn(false);
 
     Assert.assertTrue(
         _faultZoneAwareConstraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
   }
 
+  @Test
+  public void inValidWhenFaultZoneAlreadyAssignedToUncompiledReplica() {
+    when(_testNode.hasFaultZone()).thenReturn(true);
+    when(_testReplica.isCompiled()).thenReturn(false);
+    when(_testReplica.getPartitionId()).thenReturn(-1);
+    when(_clusterContext.getPartitionsForResourceAndFaultZone(TEST_RESOURCE, TEST_ZONE))
+        .thenReturn(ImmutableSet.of(TEST_PARTITION));
+
+    Assert.assertFalse(
+        _faultZoneAwareConstraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
+  }
+
   @Test
   public void validWhenNoFaultZone() {
     when(_testNode.hasFaultZone()).thenReturn(false);
@@ -19,9 +19,6 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
  * under the License.
  */
 
-import java.util.Collections;
-import java.util.List;
-
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -29,11 +26,8 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import static org.mockito.Matchers.anyMap;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.ArgumentMatchers.any;
 
 public class TestMaxCapacityUsageInstanceConstraint {
   private AssignableReplica _testReplica;
@@ -50,7 +44,7 @@ public class TestMaxCapacityUsageInstanceConstraint {
 
   @Test
   public void testGetNormalizedScore() {
-    when(_testNode.getGeneralProjectedHighestUtilization(anyMap(), any())).thenReturn(0.8f);
+    when(_testNode.getGeneralProjectedHighestUtilization(_testReplica)).thenReturn(0.8f);
     when(_clusterContext.getEstimatedMaxUtilization()).thenReturn(1f);
     double score = _constraint.getAssignmentScore(_testNode, _testReplica, _clusterContext);
     // Convert to float so as to compare with equal.
@@ -59,19 +53,4 @@ public class TestMaxCapacityUsageInstanceConstraint {
         _constraint.getAssignmentNormalizedScore(_testNode, _testReplica, _clusterContext);
     Assert.assertTrue(normalizedScore > 0.99);
   }
-
-  @Test
-  public void testGetNormalizedScoreWithPreferredScoringKey() {
-    List<String> preferredScoringKeys = Collections.singletonList("CU");
-    when(_testNode.getGeneralProjectedHighestUtilization(anyMap(),
-        eq(preferredScoringKeys))).thenReturn(0.5f);
-    when(_clusterContext.getPreferredScoringKeys()).thenReturn(preferredScoringKeys);
-    when(_clusterContext.getEstimatedMaxUtilization()).thenReturn(1f);
-    double score = _constraint.getAssignmentScore(_testNode, _testReplica, _clusterContext);
-    // Convert to float so as to compare with equal.
-    Assert.assertEquals((float) score,0.5f);
-    double normalizedScore =
-            _constraint.getAssignmentNormalizedScore(_testNode, _testReplica, _clusterContext);
-    Assert.assertTrue(normalizedScore > 0.99);
-  }
 }
@@ -21,6 +21,7 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
 
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableMap;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -28,8 +29,6 @@ import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
-import com.google.common.collect.ImmutableMap;
-
 public class TestNodeCapacityConstraint {
   private final AssignableReplica _testReplica = Mockito.mock(AssignableReplica.class);
   private final AssignableNode _testNode = Mockito.mock(AssignableNode.class);
@@ -38,17 +37,35 @@ public class TestNodeCapacityConstraint {
 
   @Test
   public void testConstraintValidWhenNodeHasEnoughSpace() {
-    String key = "testKey";
-    when(_testNode.getRemainingCapacity()).thenReturn(ImmutableMap.of(key,  10));
-    when(_testReplica.getCapacity()).thenReturn(ImmutableMap.of(key, 5));
+    when(_testNode.isCompiled()).thenReturn(true);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_testNode.getCapacityKeyIds()).thenReturn(new int[]{0});
+    when(_testNode.getRemainingCapacityArray()).thenReturn(new int[]{10});
+    when(_testReplica.getCapacityArray()).thenReturn(new int[]{5});
     Assert.assertTrue(_constraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
   }
 
   @Test
   public void testConstraintInValidWhenNodeHasInsufficientSpace() {
-    String key = "testKey";
-    when(_testNode.getRemainingCapacity()).thenReturn(ImmutableMap.of(key,  1));
-    when(_testReplica.getCapacity()).thenReturn(ImmutableMap.of(key, 5));
+    when(_testNode.isCompiled()).thenReturn(true);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_testNode.getCapacityKeyIds()).thenReturn(new int[]{0});
+    when(_testNode.getRemainingCapacityArray()).thenReturn(new int[]{1});
+    when(_testReplica.getCapacityArray()).thenReturn(new int[]{5});
     Assert.assertFalse(_constraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
   }
+
+  @Test
+  public void testConstraintWhenNodeIsNotCompiled() {
+    // The uncompiled node has no capacity key ids, so the capacity maps shall be checked.
+    when(_testNode.isCompiled()).thenReturn(false);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_testNode.getCapacityKeyIds()).thenReturn(new int[0]);
+    when(_testNode.getRemainingCapacity()).thenReturn(ImmutableMap.of("testKey", 1));
+    when(_testReplica.getCapacity()).thenReturn(ImmutableMap.of("testKey", 5));
+    Assert.assertFalse(_constraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
+
+    when(_testNode.getRemainingCapacity()).thenReturn(ImmutableMap.of("testKey", 10));
+    Assert.assertTrue(_constraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
+  }
 }
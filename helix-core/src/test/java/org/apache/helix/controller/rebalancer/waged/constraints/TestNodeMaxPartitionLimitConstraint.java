@@ -23,6 +23,7 @@ import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 
+import com.google.common.collect.ImmutableSet;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -47,6 +48,19 @@ public class TestNodeMaxPartitionLimitConstraint {
     Assert.assertTrue(_constraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
   }
 
+  @Test
+  public void testResourceLimitOfUncompiledNode() {
+    when(_testNode.isCompiled()).thenReturn(false);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_testReplica.getResourceName()).thenReturn(TEST_RESOURCE);
+    when(_testNode.getAssignedReplicaCount()).thenReturn(2);
+    when(_testNode.getMaxPartition()).thenReturn(10);
+    when(_testNode.getAssignedPartitionsByResource(TEST_RESOURCE))
+        .thenReturn(ImmutableSet.of("TestPartition_0", "TestPartition_1"));
+    when(_testReplica.getResourceMaxPartitionsPerInstance()).thenReturn(2);
+    Assert.assertFalse(_constraint.isAssignmentValid(_testNode, _testReplica, _clusterContext));
+  }
+
   @Test
   public void testConstraintInvalid() {
     when(_testNode.getAssignedReplicaCount()).thenReturn(10);
@@ -21,8 +21,7 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
 
 import static org.mockito.Mockito.when;
 
-import java.util.Collections;
-
+import com.google.common.collect.ImmutableSet;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -30,11 +29,10 @@ import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
-import com.google.common.collect.ImmutableSet;
-
 public class TestResourcePartitionAntiAffinityConstraint {
   private static final String TEST_PARTITION = "TestPartition";
   private static final String TEST_RESOURCE = "TestResource";
+  private static final int TEST_RESOURCE_ID = 0;
   private final AssignableReplica _testReplica = Mockito.mock(AssignableReplica.class);
   private final AssignableNode _testNode = Mockito.mock(AssignableNode.class);
   private final ClusterContext _clusterContext = Mockito.mock(ClusterContext.class);
@@ -43,9 +41,12 @@ public class TestResourcePartitionAntiAffinityConstraint {
   @Test
   public void testGetAssignmentScore() {
     when(_testReplica.getResourceName()).thenReturn(TEST_RESOURCE);
-    when(_testNode.getAssignedPartitionsByResource(TEST_RESOURCE)).thenReturn(
-        ImmutableSet.of(TEST_PARTITION + "1", TEST_PARTITION + "2", TEST_PARTITION + "3"));
-    when(_clusterContext.getEstimatedMaxPartitionByResource(TEST_RESOURCE)).thenReturn(10);
+    when(_testNode.isCompiled()).thenReturn(true);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_clusterContext.isCompiled()).thenReturn(true);
+    when(_testReplica.getResourceId()).thenReturn(TEST_RESOURCE_ID);
+    when(_testNode.getAssignedPartitionCountByResource(TEST_RESOURCE_ID)).thenReturn(3);
+    when(_clusterContext.getEstimatedMaxPartitionByResource(TEST_RESOURCE_ID)).thenReturn(10);
 
     double score = _constraint.getAssignmentScore(_testNode, _testReplica, _clusterContext);
     double normalizedScore = _constraint.getAssignmentNormalizedScore(_testNode, _testReplica, _clusterContext);
@@ -56,12 +57,30 @@ public class TestResourcePartitionAntiAffinityConstraint {
   @Test
   public void testGetAssignmentScoreMaxScore() {
     when(_testReplica.getResourceName()).thenReturn(TEST_RESOURCE);
-    when(_testNode.getAssignedPartitionsByResource(TEST_RESOURCE)).thenReturn(Collections.emptySet());
-    when(_clusterContext.getEstimatedMaxPartitionByResource(TEST_RESOURCE)).thenReturn(10);
+    when(_testNode.isCompiled()).thenReturn(true);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_clusterContext.isCompiled()).thenReturn(true);
+    when(_testReplica.getResourceId()).thenReturn(TEST_RESOURCE_ID);
+    when(_testNode.getAssignedPartitionCountByResource(TEST_RESOURCE_ID)).thenReturn(0);
+    when(_clusterContext.getEstimatedMaxPartitionByResource(TEST_RESOURCE_ID)).thenReturn(10);
 
     double score = _constraint.getAssignmentScore(_testNode, _testReplica, _clusterContext);
     double normalizedScore = _constraint.getAssignmentNormalizedScore(_testNode, _testReplica, _clusterContext);
     Assert.assertEquals(score, 0.0);
     Assert.assertEquals(normalizedScore, 1.0);
   }
+
+  @Test
+  public void testGetAssignmentScoreOfUncompiledNode() {
+    when(_testNode.isCompiled()).thenReturn(false);
+    when(_testReplica.isCompiled()).thenReturn(true);
+    when(_clusterContext.isCompiled()).thenReturn(true);
+    when(_testReplica.getResourceName()).thenReturn(TEST_RESOURCE);
+    when(_testNode.getAssignedPartitionsByResource(TEST_RESOURCE)).thenReturn(
+        ImmutableSet.of(TEST_PARTITION + "1", TEST_PARTITION + "2", TEST_PARTITION + "3"));
+    when(_clusterContext.getEstimatedMaxPartitionByResource(TEST_RESOURCE)).thenReturn(10);
+
+    double score = _constraint.getAssignmentScore(_testNode, _testReplica, _clusterContext);
+    Assert.assertEquals(score, 0.3);
+  }
 }
@@ -19,9 +19,6 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
  * under the License.
  */
 
-import java.util.Collections;
-import java.util.List;
-
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterContext;
@@ -29,9 +26,6 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Matchers.anyMap;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -52,7 +46,7 @@ public class TestTopStateMaxCapacityUsageInstanceConstraint {
   @Test
   public void testGetNormalizedScore() {
     when(_testReplica.isReplicaTopState()).thenReturn(true);
-    when(_testNode.getTopStateProjectedHighestUtilization(anyMap(), any())).thenReturn(0.8f);
+    when(_testNode.getTopStateProjectedHighestUtilization(_testReplica)).thenReturn(0.8f);
     when(_clusterContext.getEstimatedTopStateMaxUtilization()).thenReturn(1f);
     double score = _constraint.getAssignmentScore(_testNode, _testReplica, _clusterContext);
     // Convert to float so as to compare with equal.
@@ -61,21 +55,4 @@ public class TestTopStateMaxCapacityUsageInstanceConstraint {
         _constraint.getAssignmentNormalizedScore(_testNode, _testReplica, _clusterContext);
     Assert.assertTrue(normalizedScore > 0.99);
   }
-
-
-  @Test
-  public void testGetNormalizedScoreWithPreferredScoringKey() {
-    List<String> preferredScoringKeys = Collections.singletonList("CU");
-    when(_testReplica.isReplicaTopState()).thenReturn(true);
-    when(_testNode.getTopStateProjectedHighestUtilization(anyMap(),
-        eq(preferredScoringKeys))).thenReturn(0.5f);
-    when(_clusterContext.getPreferredScoringKeys()).thenReturn(preferredScoringKeys);
-    when(_clusterContext.getEstimatedTopStateMaxUtilization()).thenReturn(1f);
-    double score = _constraint.getAssignmentScore(_testNode, _testReplica, _clusterContext);
-    // Convert to float so as to compare with equal.
-    Assert.assertEquals((float) score,0.5f);
-    double normalizedScore =
-            _constraint.getAssignmentNormalizedScore(_testNode, _testReplica, _clusterContext);
-    Assert.assertTrue(normalizedScore > 0.99);
-  }
 }
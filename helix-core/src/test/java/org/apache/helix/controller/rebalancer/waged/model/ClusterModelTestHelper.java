@@ -27,6 +27,7 @@ import java.util.Set;
 
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.ResourceAssignment;
 
 import static org.mockito.Mockito.when;
 
@@ -51,6 +52,12 @@ public class ClusterModelTestHelper extends AbstractTestClusterModel {
     return getClusterHelper(setupClusterDataCacheForNearFullUtil());
   }
 
+  public ClusterModel getMultiNodeClusterModel(
+      Map<String, ResourceAssignment> bestPossibleAssignment) throws IOException {
+    initialize();
+    return getClusterHelper(setupClusterDataCacheForNearFullUtil(), bestPossibleAssignment);
+  }
+
   public ClusterModel getMultiNodeClusterModelNegativeSetup() throws IOException {
     initialize();
     return getClusterHelper(setupClusterDataCacheForNoFitUtil());
@@ -58,6 +65,11 @@ public class ClusterModelTestHelper extends AbstractTestClusterModel {
 
   private ClusterModel getClusterHelper(ResourceControllerDataProvider testCache)
       throws IOException {
+    return getClusterHelper(testCache, Collections.emptyMap());
+  }
+
+  private ClusterModel getClusterHelper(ResourceControllerDataProvider testCache,
+      Map<String, ResourceAssignment> bestPossibleAssignment) throws IOException {
     InstanceConfig testInstanceConfig1 = createMockInstanceConfig(TEST_INSTANCE_ID_1);
     InstanceConfig testInstanceConfig2 = createMockInstanceConfig(TEST_INSTANCE_ID_2);
     Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
@@ -69,7 +81,7 @@ public class ClusterModelTestHelper extends AbstractTestClusterModel {
 
     ClusterContext context =
         new ClusterContext(assignableReplicas, assignableNodes, Collections.emptyMap(),
-            Collections.emptyMap());
+            bestPossibleAssignment);
     return new ClusterModel(context, assignableReplicas, assignableNodes);
   }
 }
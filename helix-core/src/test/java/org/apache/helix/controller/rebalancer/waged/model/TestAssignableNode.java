@@ -29,10 +29,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.apache.helix.HelixException;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.InstanceConfig;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -287,6 +290,35 @@ public class TestAssignableNode extends AbstractTestClusterModel {
     Assert.assertEquals(assignableNode.getMaxCapacity(), _capacityDataMap);
   }
 
+  @Test
+  public void testPreferredScoringKeyMissingFromNode() {
+    ClusterConfig testClusterConfig = new ClusterConfig("testClusterConfigId");
+    testClusterConfig.setInstanceCapacityKeys(ImmutableList.of("item1", "item3"));
+    InstanceConfig testInstanceConfig = new InstanceConfig(_testInstanceId);
+    testInstanceConfig.setInstanceCapacityMap(_capacityDataMap);
+    AssignableNode assignableNode =
+        new AssignableNode(testClusterConfig, testInstanceConfig, _testInstanceId);
+
+    // The second preferred key is not a capacity key of the node.
+    List<String> preferredScoringKeys = ImmutableList.of("item1", "item2");
+    ClusterModelIndex index = new ClusterModelIndex(ImmutableList.of(assignableNode),
+        Collections.emptyList(), preferredScoringKeys);
+    assignableNode.compile(index);
+
+    Map<String, Integer> usage = ImmutableMap.of("item1", 10, "item2", 10);
+    AssignableReplica replica = Mockito.mock(AssignableReplica.class);
+    when(replica.getCapacityArray()).thenReturn(index.toCapacityArray(usage));
+
+    // Only item1 (20) is used to compute the utilization of the node.
+    Assert.assertEquals(
+        assignableNode.getGeneralProjectedHighestUtilization(usage, preferredScoringKeys), 0.5f,
+        0.00001);
+    Assert.assertEquals(assignableNode.getGeneralProjectedHighestUtilization(replica), 0.5f,
+        0.00001);
+    Assert.assertEquals(assignableNode.getTopStateProjectedHighestUtilization(replica), 0.5f,
+        0.00001);
+  }
+
   @Test(expectedExceptions = HelixException.class, expectedExceptionsMessageRegExp = "The required capacity keys: \\[item2, item1, item3, AdditionalCapacityKey\\] are not fully configured in the instance: testInstanceId, capacity map: \\{item2=40, item1=20, item3=30\\}.")
   public void testIncompleteInstanceCapacity() {
     ClusterConfig testClusterConfig = new ClusterConfig("testClusterConfigId");
@@ -20,7 +20,9 @@ package org.apache.helix.controller.rebalancer.waged.model;
  */
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.helix.HelixException;
@@ -98,4 +100,58 @@ public class TestClusterModel extends AbstractTestClusterModel {
     Assert.assertFalse(clusterModel.getAssignableNodes().values().stream()
         .anyMatch(node -> node.getAssignedReplicaCount() != 0));
   }
+
+  @Test
+  public void testCompiledModel() throws IOException {
+    ResourceControllerDataProvider testCache = setupClusterDataCache();
+    List<String> preferredScoringKeys = Collections.singletonList("item2");
+    testCache.getClusterConfig().setPreferredScoringKeys(preferredScoringKeys);
+    Set<AssignableReplica> assignableReplicas = generateReplicas(testCache);
+    Set<AssignableNode> assignableNodes = generateNodes(testCache);
+
+    ClusterContext context =
+        new ClusterContext(assignableReplicas, assignableNodes, Collections.emptyMap(),
+            Collections.emptyMap(), testCache.getClusterConfig());
+    ClusterModel clusterModel = new ClusterModel(context, assignableReplicas, assignableNodes);
+
+    AssignableReplica replica = assignableReplicas.iterator().next();
+    AssignableNode assignableNode = assignableNodes.iterator().next();
+    clusterModel
+        .assign(replica.getResourceName(), replica.getPartitionName(), replica.getReplicaState(),
+            assignableNode.getInstanceName());
+
+    // The compiled properties shall match the map based ones.
+    Assert.assertTrue(clusterModel.getContext()
+        .hasPartitionInFaultZone(assignableNode.getFaultZoneId(), replica.getPartitionId()));
+    Assert.assertEquals(assignableNode.getAssignedPartitionCountByResource(replica.getResourceId()),
+        assignableNode.getAssignedPartitionsByResource(replica.getResourceName()).size());
+    Assert.assertEquals(assignableNode.getAssignedReplicaCount(), 1);
+    Assert.assertEquals(assignableNode.getAssignedTopStatePartitionsCount(),
+        replica.isReplicaTopState() ? 1 : 0);
+    for (AssignableReplica proposedReplica : assignableReplicas) {
+      Assert.assertEquals(assignableNode.getGeneralProjectedHighestUtilization(proposedReplica),
+          assignableNode.getGeneralProjectedHighestUtilization(proposedReplica.getCapacity(),
+              preferredScoringKeys));
+      Assert.assertEquals(assignableNode.getTopStateProjectedHighestUtilization(proposedReplica),
+          assignableNode.getTopStateProjectedHighestUtilization(proposedReplica.getCapacity(),
+              preferredScoringKeys));
+    }
+    int[] remainingCapacity = assignableNode.getRemainingCapacityArray();
+    Assert.assertEquals(
+        Arrays.stream(assignableNode.getCapacityKeyIds()).map(keyId -> remainingCapacity[keyId])
+            .sorted().toArray(),
+        assignableNode.getRemainingCapacity().values().stream().mapToInt(Integer::intValue)
+            .sorted().toArray());
+
+    clusterModel
+        .release(replica.getResourceName(), replica.getPartitionName(), replica.getReplicaState(),
+            assignableNode.getInstanceName());
+
+    Assert.assertFalse(clusterModel.getContext()
+        .hasPartitionInFaultZone(assignableNode.getFaultZoneId(), replica.getPartitionId()));
+    Assert.assertEquals(assignableNode.getAssignedPartitionCountByResource(replica.getResourceId()),
+        0);
+    Assert.assertEquals(assignableNode.getAssignedReplicaCount(), 0);
+    Assert.assertEquals(assignableNode.getAssignedTopStatePartitionsCount(), 0);
+  }
 }
@@ -19,13 +19,21 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.helix.HelixConstants;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.DelayedAutoRebalancer;
+import org.apache.helix.controller.rebalancer.strategy.CrushEdRebalanceStrategy;
 import org.apache.helix.model.BuiltInStateModelDefinitions;
 import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.IdealState;
 import org.apache.helix.model.IdealState.RebalanceMode;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
@@ -146,4 +154,160 @@ public class TestBestPossibleStateCalcStage extends BaseStageTest {
         output.getInstanceStateMap("testResourceName", new Partition("testResourceName_1"))
             .get("localhost_2"));
   }
+
+  @Test
+  public void testReuseUnchangedAssignment() {
+    String[] resources = new String[]{"resource_0", "resource_1"};
+    int numPartitions = 5;
+    String stateModel = BuiltInStateModelDefinitions.MasterSlave.name();
+
+    setupIdealState(5, resources, numPartitions, 1, RebalanceMode.SEMI_AUTO, stateModel);
+    setupLiveInstances(5);
+    setupStateModel();
+    setupInstances(5);
+    // The records of the mock accessor are not read from the znodes, stamp them as if they were.
+    for (String resource : resources) {
+      stampVersion(accessor.keyBuilder().idealStates(resource), 0);
+    }
+    stampVersion(accessor.keyBuilder().stateModelDef(stateModel), 0);
+
+    Map<String, Resource> resourceMap = getResourceMap(resources, numPartitions, stateModel);
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider();
+    event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+    event.addAttribute(AttributeName.CURRENT_STATE_EXCLUDING_UNKNOWN.name(), currentStateOutput);
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
+
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new BestPossibleStateCalcStage());
+    Assert.assertEquals(cache.getBestPossibleAssignmentCache().size(), 2);
+    assertMaster("resource_0_0", "localhost_1");
+    assertMaster("resource_1_0", "localhost_1");
+
+    // resource_0 is changed with a new version. resource_1 is changed without, so its cached
+    // assignment is reused.
+    updateMaster("resource_0", "resource_0_0", "localhost_2", 1);
+    updateMaster("resource_1", "resource_1_0", "localhost_2", 0);
+    cache.notifyDataChange(HelixConstants.ChangeType.IDEAL_STATE);
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new BestPossibleStateCalcStage());
+    assertMaster("resource_0_0", "localhost_2");
+    assertMaster("resource_1_0", "localhost_1");
+
+    // A pending message of resource_1 is a new input.
+    currentStateOutput.setPendingMessage("resource_1", new Partition("resource_1_1"),
+        "localhost_2", generateMessage("OFFLINE", "SLAVE", "localhost_2"));
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new BestPossibleStateCalcStage());
+    assertMaster("resource_1_0", "localhost_2");
+
+    // The cluster level changes drop all the cached assignments.
+    updateMaster("resource_1", "resource_1_0", "localhost_3", 0);
+    setupLiveInstances(6);
+    cache.notifyDataChange(HelixConstants.ChangeType.IDEAL_STATE);
+    cache.notifyDataChange(HelixConstants.ChangeType.LIVE_INSTANCE);
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new BestPossibleStateCalcStage());
+    assertMaster("resource_1_0", "localhost_3");
+  }
+
+  @Test
+  public void testParallelCompute() {
+    int numInstances = 5;
+    int numPartitions = 8;
+    String stateModel = BuiltInStateModelDefinitions.MasterSlave.name();
+    String[] semiAutoResources = new String[]{"semi_0", "semi_1", "semi_2"};
+    String[] fullAutoResources = new String[]{"auto_0", "auto_1", "auto_2"};
+    String[] crushedResources = new String[]{"crushed_0", "crushed_1"};
+    String[] customizedResources = new String[]{"custom_0"};
+    setupIdealState(numInstances, semiAutoResources, numPartitions, 2, RebalanceMode.SEMI_AUTO,
+        stateModel);
+    setupIdealState(numInstances, fullAutoResources, numPartitions, 2, RebalanceMode.FULL_AUTO,
+        stateModel);
+    setupIdealState(numInstances, crushedResources, numPartitions, 2, RebalanceMode.FULL_AUTO,
+        stateModel, DelayedAutoRebalancer.class.getName(),
+        CrushEdRebalanceStrategy.class.getName(), -1);
+    setupIdealState(numInstances, customizedResources, numPartitions, 2,
+        RebalanceMode.CUSTOMIZED, stateModel);
+    setupLiveInstances(numInstances);
+    setupStateModel();
+    setupInstances(numInstances);
+
+    List<String> resources = new ArrayList<>();
+    for (String[] group : Arrays
+        .asList(semiAutoResources, fullAutoResources, crushedResources, customizedResources)) {
+      resources.addAll(Arrays.asList(group));
+    }
+    Map<String, Resource> resourceMap =
+        getResourceMap(resources.toArray(new String[0]), numPartitions, stateModel);
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    for (String resource : resources) {
+      currentStateOutput.setCurrentState(resource, new Partition(resource + "_0"), "localhost_0",
+          "MASTER");
+    }
+    event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+    event.addAttribute(AttributeName.CURRENT_STATE_EXCLUDING_UNKNOWN.name(), currentStateOutput);
+
+    event.addAttribute(AttributeName.ControllerDataProvider.name(),
+        new ResourceControllerDataProvider());
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new BestPossibleStateCalcStage());
+    BestPossibleStateOutput sequentialOutput =
+        event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+    Assert.assertEquals(
+        sequentialOutput.getInstanceStateMap("crushed_0", new Partition("crushed_0_1")).size(), 2);
+
+    ClusterConfig clusterConfig = accessor.getProperty(accessor.keyBuilder().clusterConfig());
+    clusterConfig.setResourceComputeParallelism(4);
+    clusterConfig.enableBestPossibleParallelCompute(true);
+    setClusterConfig(clusterConfig);
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider();
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
+    try {
+      runStage(event, new ReadClusterDataStage());
+      runStage(event, new BestPossibleStateCalcStage());
+      Assert.assertNotNull(cache.getResourceComputePool());
+      BestPossibleStateOutput parallelOutput =
+          event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+
+      Assert.assertEquals(parallelOutput.resourceSet(), sequentialOutput.resourceSet());
+      for (String resource : resources) {
+        Assert.assertEquals(parallelOutput.getPreferenceLists(resource),
+            sequentialOutput.getPreferenceLists(resource), resource);
+        for (int p = 0; p < numPartitions; p++) {
+          Partition partition = new Partition(resource + "_" + p);
+          Assert.assertEquals(parallelOutput.getInstanceStateMap(resource, partition),
+              sequentialOutput.getInstanceStateMap(resource, partition), partition.toString());
+        }
+      }
+    } finally {
+      cache.shutdownResourceComputePool();
+    }
+  }
+
+  private void stampVersion(PropertyKey key, int version) {
+    HelixProperty property = accessor.getProperty(key);
+    property.getRecord().setVersion(version);
+    property.getRecord().setCreationTime(System.currentTimeMillis());
+    accessor.setProperty(key, property);
+  }
+
+  private void updateMaster(String resource, String partition, String instance, int version) {
+    PropertyKey key = accessor.keyBuilder().idealStates(resource);
+    IdealState idealState = accessor.getProperty(key);
+    idealState.getRecord().setListField(partition, Arrays.asList(instance));
+    idealState.getRecord().setVersion(version);
+    accessor.setProperty(key, idealState);
+  }
+
+  private void assertMaster(String partition, String instance) {
+    BestPossibleStateOutput output = event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+    String resource = partition.substring(0, partition.lastIndexOf('_'));
+    Assert.assertEquals(output.getInstanceStateMap(resource, new Partition(partition)).get(instance),
+        "MASTER");
+  }
 }
@@ -37,6 +37,15 @@ public class TestClusterEvent {
     AssertJUnit.assertEquals(event.getAttribute("attr1"), "value");
   }
 
+  @Test
+  public void testCloneCoalescedEventCount() {
+    ClusterEvent event = new ClusterEvent("TestCluster", ClusterEventType.Unknown, "testId");
+    event.setCoalescedEventCount(3);
+    ClusterEvent clonedEvent = event.clone("cloneId");
+    Assert.assertEquals(clonedEvent.getCoalescedEventCount(), 3);
+    Assert.assertEquals(clonedEvent.getCreationTime(), event.getCreationTime());
+  }
+
   @Test
   public void testThreadSafeClone() throws InterruptedException {
     String clusterName = "TestCluster";
@@ -78,6 +78,61 @@ public class TestClusterEventBlockingQueue {
     Assert.assertEquals(queue.size(), 0);
   }
 
+  @Test
+  public void testCoalescingWindow() throws Exception {
+    ClusterEventBlockingQueue queue = new ClusterEventBlockingQueue(200, 1000, false);
+    ListeningExecutorService service =
+        MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+
+    long startTime = System.currentTimeMillis();
+    queue.put(new ClusterEvent(ClusterEventType.CurrentStateChange));
+    ClusterEvent lastEvent = new ClusterEvent(ClusterEventType.CurrentStateChange);
+    queue.put(lastEvent);
+
+    // The event is held for the window, and the last event of the burst is taken.
+    ClusterEvent takenEvent = safeTake(queue, service);
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 200);
+    Assert.assertSame(takenEvent, lastEvent);
+    Assert.assertEquals(takenEvent.getCoalescedEventCount(), 1);
+    Assert.assertTrue(queue.isEmpty());
+
+    // The window is extended by every new event, up to the max delay.
+    startTime = System.currentTimeMillis();
+    ListenableFuture<ClusterEvent> future = service.submit(queue::take);
+    int coalescedCount = 0;
+    while (!future.isDone()) {
+      queue.put(new ClusterEvent(ClusterEventType.CurrentStateChange));
+      coalescedCount++;
+      Thread.sleep(50);
+    }
+    long delay = System.currentTimeMillis() - startTime;
+    Assert.assertTrue(delay >= 1000 && delay < 5000, "Delay: " + delay);
+    Assert.assertTrue(future.get().getCoalescedEventCount() > 1);
+    Assert.assertTrue(future.get().getCoalescedEventCount() < coalescedCount);
+    service.shutdownNow();
+  }
+
+  @Test
+  public void testPriority() throws Exception {
+    ClusterEventBlockingQueue queue = new ClusterEventBlockingQueue(60000, 60000, true);
+    ListeningExecutorService service =
+        MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+
+    queue.put(new ClusterEvent(ClusterEventType.PeriodicalRebalance));
+    queue.put(new ClusterEvent(ClusterEventType.IdealStateChange));
+    queue.put(new ClusterEvent(ClusterEventType.LiveInstanceChange));
+    Assert.assertEquals(queue.peek().getEventType(), ClusterEventType.LiveInstanceChange);
+
+    // The high priority event is taken first and without waiting for the window.
+    long startTime = System.currentTimeMillis();
+    Assert.assertEquals(safeTake(queue, service).getEventType(),
+        ClusterEventType.LiveInstanceChange);
+    Assert.assertTrue(System.currentTimeMillis() - startTime < 30000);
+    Assert.assertEquals(queue.peek().getEventType(), ClusterEventType.IdealStateChange);
+    Assert.assertEquals(queue.size(), 2);
+    service.shutdownNow();
+  }
+
   private ClusterEvent safeTake(final ClusterEventBlockingQueue queue,
       final ListeningExecutorService service) throws InterruptedException, ExecutionException,
       TimeoutException {
@@ -0,0 +1,208 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.pipeline.Pipeline;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.ZNRecordDeltaLog;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestExternalViewDeltaWriter extends ZkUnitTestBase {
+  private static final String RESOURCE = "TestDB";
+
+  @Test
+  public void testDeltaWriteAndRead() {
+    String clusterName = "CLUSTER_" + TestHelper.getTestMethodName();
+    HelixDataAccessor writerAccessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<>(_gZkClient));
+    HelixDataAccessor readerAccessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<>(_gZkClient));
+    PropertyKey key = writerAccessor.keyBuilder().externalView(RESOURCE);
+    ExternalViewDeltaWriter writer = new ExternalViewDeltaWriter(10, 0.25);
+
+    ExternalView view = createExternalView(40, "SLAVE");
+    Assert.assertTrue(writer.isEligible(view));
+    Assert.assertFalse(writer.isEligible(createExternalView(9, "SLAVE")));
+    Assert.assertTrue(writer.write(writerAccessor, view));
+    assertExternalView(readerAccessor, key, view);
+    Assert.assertEquals(readLog(key).getMapFields().size(), 0);
+    String snapshotId = readLog(key).getSimpleField(ZNRecordDeltaLog.SNAPSHOT_ID_FIELD);
+
+    // A few changed partitions are written as a log against the same snapshot.
+    view = createExternalView(40, "SLAVE");
+    view.setState(RESOURCE + "_0", "localhost_1", "OFFLINE");
+    view.getRecord().getMapFields().remove(RESOURCE + "_1");
+    Assert.assertTrue(writer.write(writerAccessor, view));
+    ZNRecord log = readLog(key);
+    Assert.assertEquals(log.getSimpleField(ZNRecordDeltaLog.SNAPSHOT_ID_FIELD), snapshotId);
+    Assert.assertEquals(ZNRecordDeltaLog.getLogSize(log), 2);
+    assertExternalView(readerAccessor, key, view);
+
+    // Too many changes compact the log into a new snapshot. The reader that has cached the old
+    // snapshot reads the new one.
+    view = createExternalView(40, "OFFLINE");
+    Assert.assertTrue(writer.write(writerAccessor, view));
+    log = readLog(key);
+    Assert.assertFalse(snapshotId.equals(log.getSimpleField(ZNRecordDeltaLog.SNAPSHOT_ID_FIELD)));
+    Assert.assertEquals(ZNRecordDeltaLog.getLogSize(log), 0);
+    assertExternalView(readerAccessor, key, view);
+
+    // A full write by someone else is detected by the version, and the view is compacted again.
+    writerAccessor.setProperty(key, createExternalView(40, "SLAVE"));
+    assertExternalView(readerAccessor, key, createExternalView(40, "SLAVE"));
+    view = createExternalView(40, "MASTER");
+    Assert.assertTrue(writer.write(writerAccessor, view));
+    Assert.assertTrue(ZNRecordDeltaLog.isDeltaLog(readLog(key)));
+    assertExternalView(readerAccessor, key, view);
+
+    // A snapshot that is left behind is not read as a bucket of a bucketized view.
+    view = createExternalView(40, "SLAVE");
+    view.setBucketSize(10);
+    writerAccessor.setProperty(key, view);
+    Assert.assertTrue(_baseAccessor.exists(key.getPath() + "/" + ZNRecordDeltaLog.SNAPSHOT_NODE,
+        AccessOption.PERSISTENT));
+    assertExternalView(readerAccessor, key, view);
+    Assert.assertEquals(readerAccessor.getChildValues(readerAccessor.keyBuilder().externalViews(),
+        true), Collections.singletonList(view));
+
+    // The removed view is not read from the cached snapshot.
+    Assert.assertTrue(writer.write(writerAccessor, createExternalView(40, "MASTER")));
+    assertExternalView(readerAccessor, key, createExternalView(40, "MASTER"));
+    Assert.assertTrue(readerAccessor.removeProperty(key));
+    Assert.assertNull(readerAccessor.getProperty(key));
+
+    deleteCluster(clusterName);
+  }
+
+  @Test
+  public void testExternalViewStageDeltaWrite() throws Exception {
+    String clusterName = "CLUSTER_" + TestHelper.getTestMethodName();
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<>(_gZkClient));
+    setupIdealState(clusterName, new int[] {
+        0, 1
+    }, new String[] {
+        RESOURCE
+    }, ExternalViewDeltaWriter.DEFAULT_MIN_PARTITIONS, 2);
+    List<LiveInstance> liveInstances = setupLiveInstances(clusterName, new int[] {
+        0, 1
+    });
+    setupStateModel(clusterName);
+    for (LiveInstance liveInstance : liveInstances) {
+      CurrentState currentState = new CurrentState(RESOURCE);
+      currentState.setSessionId(liveInstance.getEphemeralOwner());
+      currentState.setStateModelDefRef("MasterSlave");
+      for (int i = 0; i < ExternalViewDeltaWriter.DEFAULT_MIN_PARTITIONS; i++) {
+        currentState.setState(RESOURCE + "_" + i, "SLAVE");
+      }
+      accessor.setProperty(accessor.keyBuilder()
+          .currentState(liveInstance.getInstanceName(), liveInstance.getEphemeralOwner(),
+              RESOURCE), currentState);
+    }
+    ClusterConfig clusterConfig = new ClusterConfig(clusterName);
+    clusterConfig.enableExternalViewDeltaWrite(true);
+    accessor.setProperty(accessor.keyBuilder().clusterConfig(), clusterConfig);
+
+    ClusterEvent event = new ClusterEvent(ClusterEventType.Unknown);
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider(clusterName);
+    event.addAttribute(AttributeName.helixmanager.name(),
+        new DummyClusterManager(clusterName, accessor));
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
+    Pipeline dataRefresh = new Pipeline();
+    dataRefresh.addStage(new ReadClusterDataStage());
+    runPipeline(event, dataRefresh, false);
+    runStage(event, new ResourceComputationStage());
+    runStage(event, new CurrentStateComputationStage());
+    runStage(event, new ExternalViewComputeStage());
+
+    PropertyKey key = accessor.keyBuilder().externalView(RESOURCE);
+    Assert.assertTrue(ZNRecordDeltaLog.isDeltaLog(readLog(key)));
+    List<ExternalView> externalViews =
+        accessor.getChildValues(accessor.keyBuilder().externalViews(), true);
+    Assert.assertEquals(externalViews,
+        Collections.singletonList(cache.getExternalViews().get(RESOURCE)));
+    Assert.assertEquals(externalViews.get(0).getPartitionSet().size(),
+        ExternalViewDeltaWriter.DEFAULT_MIN_PARTITIONS);
+    String snapshotPath = key.getPath() + "/" + ZNRecordDeltaLog.SNAPSHOT_NODE;
+    Assert.assertTrue(_baseAccessor.exists(snapshotPath, AccessOption.PERSISTENT));
+
+    // Once the delta write is disabled, the changed view is written in full and its snapshot is
+    // removed.
+    clusterConfig.enableExternalViewDeltaWrite(false);
+    accessor.setProperty(accessor.keyBuilder().clusterConfig(), clusterConfig);
+    LiveInstance liveInstance = liveInstances.get(0);
+    CurrentState currentState = accessor.getProperty(accessor.keyBuilder()
+        .currentState(liveInstance.getInstanceName(), liveInstance.getEphemeralOwner(),
+            RESOURCE));
+    currentState.setState(RESOURCE + "_0", "MASTER");
+    accessor.setProperty(accessor.keyBuilder()
+        .currentState(liveInstance.getInstanceName(), liveInstance.getEphemeralOwner(),
+            RESOURCE), currentState);
+    cache.requireFullRefresh();
+    runPipeline(event, dataRefresh, false);
+    runStage(event, new ResourceComputationStage());
+    runStage(event, new CurrentStateComputationStage());
+    runStage(event, new ExternalViewComputeStage());
+
+    Assert.assertFalse(ZNRecordDeltaLog.isDeltaLog(readLog(key)));
+    Assert.assertFalse(_baseAccessor.exists(snapshotPath, AccessOption.PERSISTENT));
+    Assert.assertEquals(accessor.getProperty(key), cache.getExternalViews().get(RESOURCE));
+
+    deleteLiveInstances(clusterName);
+    deleteCluster(clusterName);
+  }
+
+  private static void assertExternalView(HelixDataAccessor accessor, PropertyKey key,
+      ExternalView expected) {
+    ExternalView externalView = accessor.getProperty(key);
+    Assert.assertEquals(externalView.getRecord(), expected.getRecord());
+    Assert.assertEquals(accessor.getProperty(Collections.singletonList(key), true),
+        Collections.singletonList(externalView));
+  }
+
+  private static ZNRecord readLog(PropertyKey key) {
+    return _baseAccessor.get(key.getPath(), null, AccessOption.PERSISTENT);
+  }
+
+  private static ExternalView createExternalView(int numPartitions, String state) {
+    ExternalView externalView = new ExternalView(RESOURCE);
+    for (int i = 0; i < numPartitions; i++) {
+      externalView.setState(RESOURCE + "_" + i, "localhost_0", "MASTER");
+      externalView.setState(RESOURCE + "_" + i, "localhost_1", state);
+    }
+    return externalView;
+  }
+}
@@ -0,0 +1,138 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.helix.HelixManager;
+import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.tools.StateModelConfigGenerator;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestParallelMessageGeneration {
+  private static final String TEST_CLUSTER = "testCluster";
+  private static final String STATE_MODEL = "MasterSlave";
+  private static final int RESOURCE_COUNT = 50;
+  private static final int PARTITION_COUNT = 10;
+  private static final int INSTANCE_COUNT = 3;
+
+  @Test
+  public void testParallelMessageGeneration() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      MessageOutput sequentialOutput = generateMessages(null);
+      MessageOutput parallelOutput = generateMessages(pool);
+
+      for (int r = 0; r < RESOURCE_COUNT; r++) {
+        String resourceName = "resource" + r;
+        Assert.assertEquals(parallelOutput.getResourceMessageMap(resourceName).size(),
+            PARTITION_COUNT);
+        for (int p = 0; p < PARTITION_COUNT; p++) {
+          Partition partition = new Partition(resourceName + "_" + p);
+          List<String> sequentialMessages =
+              describe(sequentialOutput.getMessages(resourceName, partition));
+          Assert.assertEquals(sequentialMessages.size(), INSTANCE_COUNT);
+          Assert.assertEquals(describe(parallelOutput.getMessages(resourceName, partition)),
+              sequentialMessages);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private MessageOutput generateMessages(ForkJoinPool pool) throws Exception {
+    ClusterEvent event = new ClusterEvent(TEST_CLUSTER, ClusterEventType.Unknown);
+
+    HelixManager manager = mock(HelixManager.class);
+    when(manager.getInstanceName()).thenReturn("controller");
+    when(manager.getSessionId()).thenReturn("controllerSession");
+    event.addAttribute(AttributeName.helixmanager.name(), manager);
+
+    BaseControllerDataProvider cache = mock(BaseControllerDataProvider.class);
+    when(cache.getStateModelDef(STATE_MODEL)).thenReturn(
+        new StateModelDefinition(StateModelConfigGenerator.generateConfigForMasterSlave()));
+    Map<String, LiveInstance> liveInstances = new HashMap<>();
+    for (int i = 0; i < INSTANCE_COUNT; i++) {
+      LiveInstance liveInstance = new LiveInstance("instance" + i);
+      liveInstance.setSessionId("session" + i);
+      liveInstances.put(liveInstance.getInstanceName(), liveInstance);
+    }
+    when(cache.getLiveInstances()).thenReturn(liveInstances);
+    when(cache.getClusterConfig()).thenReturn(new ClusterConfig(TEST_CLUSTER));
+    when(cache.getStaleMessagesByInstance(anyString()))
+        .thenReturn(Collections.emptySet());
+    when(cache.getResourceComputePool()).thenReturn(pool);
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
+
+    Map<String, Resource> resourceMap = new LinkedHashMap<>();
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    BestPossibleStateOutput bestPossibleStateOutput = new BestPossibleStateOutput();
+    for (int r = 0; r < RESOURCE_COUNT; r++) {
+      String resourceName = "resource" + r;
+      Resource resource = new Resource(resourceName);
+      resource.setStateModelDefRef(STATE_MODEL);
+      for (int p = 0; p < PARTITION_COUNT; p++) {
+        Partition partition = new Partition(resourceName + "_" + p);
+        resource.addPartition(partition.getPartitionName());
+        Map<String, String> bestPossibleMap = new HashMap<>();
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+          String instanceName = "instance" + i;
+          currentStateOutput.setCurrentState(resourceName, partition, instanceName, "OFFLINE");
+          bestPossibleMap.put(instanceName, i == p % INSTANCE_COUNT ? "MASTER" : "SLAVE");
+        }
+        bestPossibleStateOutput.setState(resourceName, partition, bestPossibleMap);
+      }
+      resourceMap.put(resourceName, resource);
+    }
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+    event.addAttribute(AttributeName.BEST_POSSIBLE_STATE.name(), bestPossibleStateOutput);
+
+    new MessageGenerationPhase().process(event);
+    return event.getAttribute(AttributeName.MESSAGES_ALL.name());
+  }
+
+  private static List<String> describe(List<Message> messages) {
+    List<String> descriptions = new ArrayList<>();
+    for (Message message : messages) {
+      descriptions.add(String.format("%s:%s->%s@%s", message.getTgtName(), message.getFromState(),
+          message.getToState(), message.getTgtSessionId()));
+    }
+    return descriptions;
+  }
+}
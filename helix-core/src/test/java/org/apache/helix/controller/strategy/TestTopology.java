@@ -6,8 +6,10 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.helix.controller.rebalancer.TestAutoRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.crushMapping.CRUSHPlacementAlgorithm;
 import org.apache.helix.controller.rebalancer.topology.Node;
 import org.apache.helix.controller.rebalancer.topology.Topology;
+import org.apache.helix.controller.rebalancer.topology.TopologyCache;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.InstanceConfig;
 import org.slf4j.Logger;
@@ -170,4 +172,71 @@ public class TestTopology {
       Assert.assertEquals(rack.getWeight(), (long) nodeToWeightMap.get(rack.getName()));
     }
   }
+
+  @Test
+  public void testTopologyCache() {
+    ClusterConfig clusterConfig = new ClusterConfig("Test_Cluster");
+    clusterConfig.setTopologyAwareEnabled(true);
+
+    List<String> allNodes = new ArrayList<String>();
+    Map<String, InstanceConfig> instanceConfigMap = new HashMap<String, InstanceConfig>();
+    for (int i = 0; i < 20; i++) {
+      String instance = "localhost_" + i;
+      InstanceConfig config = new InstanceConfig(instance);
+      config.setZoneId("rack_" + i / 5);
+      config.setHostName(instance);
+      config.setPort("9000");
+      allNodes.add(instance);
+      instanceConfigMap.put(instance, config);
+    }
+    List<String> liveNodes = new ArrayList<String>(allNodes.subList(1, allNodes.size()));
+
+    TopologyCache topologyCache = new TopologyCache();
+    Topology topo =
+        topologyCache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true);
+    Assert.assertSame(
+        topologyCache.getTopology(new ArrayList<>(allNodes), new ArrayList<>(liveNodes),
+            instanceConfigMap, clusterConfig, true), topo);
+
+    // The shared topology places the partitions the same as a new one.
+    CRUSHPlacementAlgorithm algorithm = new CRUSHPlacementAlgorithm();
+    Topology newTopo = new Topology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true);
+    for (int i = 0; i < 100; i++) {
+      String partition = "partition_" + i;
+      Assert.assertEquals(algorithm.select(topo.getRootNode(), partition.hashCode(), 3,
+          topo.getFaultZoneType()), algorithm.select(newTopo.getRootNode(),
+          partition.hashCode(), 3, newTopo.getFaultZoneType()));
+    }
+    Assert.assertSame(
+        topologyCache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true),
+        topo);
+
+    // Other live nodes
+    Topology allLiveTopo =
+        topologyCache.getTopology(allNodes, allNodes, instanceConfigMap, clusterConfig, true);
+    Assert.assertNotSame(allLiveTopo, topo);
+    Assert.assertEquals(topologyCache.size(), 2);
+
+    // Changed weight
+    instanceConfigMap.get("localhost_5").setWeight(500);
+    Topology weightedTopo =
+        topologyCache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true);
+    Assert.assertNotSame(weightedTopo, topo);
+    Assert.assertEquals(weightedTopo.getRootNode().getChild("rack_1").getWeight(),
+        500L + 4 * 1000L);
+
+    // Changed instance config and cluster config
+    instanceConfigMap.put("localhost_5", new InstanceConfig(instanceConfigMap.get("localhost_5")
+        .getRecord()));
+    Assert.assertNotSame(
+        topologyCache.getTopology(allNodes, liveNodes, instanceConfigMap, clusterConfig, true),
+        weightedTopo);
+    ClusterConfig newClusterConfig = new ClusterConfig(clusterConfig.getRecord());
+    Assert.assertNotSame(
+        topologyCache.getTopology(allNodes, allNodes, instanceConfigMap, newClusterConfig, true),
+        allLiveTopo);
+
+    topologyCache.clear();
+    Assert.assertEquals(topologyCache.size(), 0);
+  }
 }
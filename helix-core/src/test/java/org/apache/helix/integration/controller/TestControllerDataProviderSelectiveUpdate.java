@@ -19,7 +19,14 @@ package org.apache.helix.integration.controller;
  * under the License.
  */
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
 import org.apache.helix.HelixConstants;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyType;
 import org.apache.helix.TestHelper;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -28,6 +35,9 @@ import org.apache.helix.integration.common.ZkStandAloneCMTestBase;
 import org.apache.helix.integration.task.WorkflowGenerator;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor;
 import org.apache.helix.mock.MockZkHelixDataAccessor;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.ParticipantHistory;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.TaskDriver;
 import org.apache.helix.task.Workflow;
@@ -37,6 +47,62 @@ import org.testng.annotations.Test;
 public class TestControllerDataProviderSelectiveUpdate extends ZkStandAloneCMTestBase {
 
   @Test()
+  public void testCacheSnapshot() throws Exception {
+    File snapshotDir = Files.createTempDirectory(TestHelper.getTestMethodName()).toFile();
+    File snapshotFile = new File(snapshotDir, CLUSTER_NAME + ".cache");
+    MockZkHelixDataAccessor accessor =
+        new MockZkHelixDataAccessor(CLUSTER_NAME, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider(CLUSTER_NAME);
+    cache.enableCacheSnapshot(snapshotFile, 0);
+    cache.refresh(accessor);
+    Assert.assertTrue(snapshotFile.isFile());
+    int idealStateCount = cache.getIdealStates().size();
+    Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), idealStateCount);
+
+    accessor.clearReadCounters();
+
+    // A new provider loads the snapshot and only validates the versions of the cached znodes.
+    ResourceControllerDataProvider newCache = new ResourceControllerDataProvider(CLUSTER_NAME);
+    newCache.enableCacheSnapshot(snapshotFile, 0);
+    newCache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), 0);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CURRENTSTATES), 0);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 2);
+    Assert.assertEquals(newCache.getIdealStates(), cache.getIdealStates());
+    Assert.assertEquals(newCache.getInstanceConfigMap(), cache.getInstanceConfigMap());
+    for (LiveInstance liveInstance : cache.getLiveInstances().values()) {
+      String instanceName = liveInstance.getInstanceName();
+      String sessionId = liveInstance.getEphemeralOwner();
+      Assert.assertEquals(newCache.getCurrentState(instanceName, sessionId),
+          cache.getCurrentState(instanceName, sessionId));
+    }
+
+    // A snapshot of another cluster is ignored.
+    accessor.clearReadCounters();
+    ResourceControllerDataProvider otherCache =
+        new ResourceControllerDataProvider(CLUSTER_NAME + "_other");
+    otherCache.enableCacheSnapshot(snapshotFile, Long.MAX_VALUE);
+    otherCache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), idealStateCount);
+
+    // A corrupted snapshot, whose first record has a wrong number of names, is ignored and the
+    // caches are fully read.
+    byte[] snapshotBytes = Files.readAllBytes(snapshotFile.toPath());
+    int nameCountOffset = 3 * 4 + CLUSTER_NAME.getBytes(StandardCharsets.UTF_8).length + 4 + 1;
+    snapshotBytes[nameCountOffset] = 5;
+    Files.write(snapshotFile.toPath(), snapshotBytes);
+    accessor.clearReadCounters();
+    ResourceControllerDataProvider corruptedCache = new ResourceControllerDataProvider(CLUSTER_NAME);
+    corruptedCache.enableCacheSnapshot(snapshotFile, Long.MAX_VALUE);
+    corruptedCache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), idealStateCount);
+    Assert.assertEquals(corruptedCache.getIdealStates(), cache.getIdealStates());
+
+    FileUtils.deleteDirectory(snapshotDir);
+  }
+
+  @Test(dependsOnMethods = {"testCacheSnapshot"})
   public void testUpdateOnNotification() throws Exception {
     MockZkHelixDataAccessor accessor =
         new MockZkHelixDataAccessor(CLUSTER_NAME, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
@@ -150,4 +216,47 @@ public class TestControllerDataProviderSelectiveUpdate extends ZkStandAloneCMTes
     // 2 Resource Config Changes
     Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 2);
   }
+
+  @Test(dependsOnMethods = {"testSelectiveUpdates"})
+  public void testReadOnlyRefresh() throws Exception {
+    // A cluster without a controller, so only the refreshes below write to it.
+    String clusterName = CLUSTER_PREFIX + "_" + TestHelper.getTestMethodName();
+    String instanceName = "localhost_12000";
+    _gSetupTool.addCluster(clusterName, true);
+    _gSetupTool.addInstanceToCluster(clusterName, instanceName);
+    MockZkHelixDataAccessor accessor =
+        new MockZkHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    // The offline instance is recorded online, and the cluster config has the old format of the
+    // batch disabled instances. A refresh writes both back.
+    ParticipantHistory history = new ParticipantHistory(instanceName);
+    history.reportOnline("session_0", "version_0");
+    accessor.setProperty(keyBuilder.participantHistory(instanceName), history);
+    ClusterConfig clusterConfig = accessor.getProperty(keyBuilder.clusterConfig());
+    clusterConfig.getRecord().setMapField(
+        ClusterConfig.ClusterConfigProperty.DISABLED_INSTANCES.name(), Collections.emptyMap());
+    accessor.setProperty(keyBuilder.clusterConfig(), clusterConfig);
+    accessor.clearWriteCounters();
+
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider(clusterName);
+    cache.refreshReadOnly(accessor);
+    for (PropertyType type : PropertyType.values()) {
+      Assert.assertEquals(accessor.getWriteCount(type), 0, type.name());
+    }
+    Assert.assertTrue(cache.getInstanceConfigMap().containsKey(instanceName));
+    history = accessor.getProperty(keyBuilder.participantHistory(instanceName));
+    Assert.assertEquals(history.getLastOfflineTime(), ParticipantHistory.ONLINE);
+
+    // The next refresh that is not read-only does the writes.
+    cache.requireFullRefresh();
+    cache.refresh(accessor);
+    history = accessor.getProperty(keyBuilder.participantHistory(instanceName));
+    Assert.assertTrue(history.getLastOfflineTime() != ParticipantHistory.ONLINE);
+    clusterConfig = accessor.getProperty(keyBuilder.clusterConfig());
+    Assert.assertFalse(clusterConfig.getRecord().getMapFields()
+        .containsKey(ClusterConfig.ClusterConfigProperty.DISABLED_INSTANCES.name()));
+
+    TestHelper.dropCluster(clusterName, _gZkClient);
+  }
 }
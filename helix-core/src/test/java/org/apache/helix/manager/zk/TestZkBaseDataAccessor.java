@@ -21,9 +21,12 @@ package org.apache.helix.manager.zk;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableList;
@@ -35,6 +38,7 @@ import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.ZNRecordUpdater;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.apache.helix.ZkUnitTestBase;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.AccessResult;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.RetCode;
@@ -721,6 +725,58 @@ public class TestZkBaseDataAccessor extends ZkUnitTestBase {
 
   }
 
+  @Test
+  public void testParallelDeserialization() {
+    String root = _rootPath;
+    Set<String> deserializerThreads = ConcurrentHashMap.newKeySet();
+    ZkSerializer serializer = new ZNRecordSerializer() {
+      @Override
+      public Object deserialize(byte[] bytes) {
+        deserializerThreads.add(Thread.currentThread().getName());
+        return super.deserialize(bytes);
+      }
+    };
+    ZkBaseDataAccessor<ZNRecord> accessor = new ZkBaseDataAccessor<>(ZK_ADDR, serializer);
+    ZkBaseDataAccessor.setDeserializerThreads(4);
+    try {
+      List<String> paths = new ArrayList<>();
+      List<ZNRecord> records = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String msgId = "msg_" + i;
+        paths.add(PropertyPathBuilder.instanceMessage(root, "host_1", msgId));
+        ZNRecord record = new ZNRecord(msgId);
+        record.setSimpleField("index", String.valueOf(i));
+        records.add(record);
+      }
+      boolean[] success = accessor.createChildren(paths.subList(0, 90),
+          records.subList(0, 90), AccessOption.PERSISTENT);
+      for (boolean created : success) {
+        Assert.assertTrue(created);
+      }
+
+      List<Stat> stats = new ArrayList<>();
+      List<ZNRecord> results = accessor.get(paths, stats, 0, false);
+      Assert.assertEquals(results.subList(0, 90), records.subList(0, 90));
+      for (int i = 0; i < 100; i++) {
+        Assert.assertEquals(results.get(i) == null, i >= 90);
+        Assert.assertEquals(stats.get(i) == null, i >= 90);
+      }
+      Assert.assertTrue(deserializerThreads.stream()
+          .allMatch(name -> name.startsWith("ZkBaseDataAccessor-deserializer")),
+          deserializerThreads.toString());
+
+      // Small batches are deserialized on the calling thread.
+      deserializerThreads.clear();
+      Assert.assertEquals(accessor.get(paths.subList(0, 2), null, 0, false),
+          records.subList(0, 2));
+      Assert.assertEquals(deserializerThreads,
+          Collections.singleton(Thread.currentThread().getName()));
+    } finally {
+      ZkBaseDataAccessor.setDeserializerThreads(0);
+      accessor.close();
+    }
+  }
+
   @Test
   public void testAsyncZkBaseDataAccessor() {
     System.out.println(
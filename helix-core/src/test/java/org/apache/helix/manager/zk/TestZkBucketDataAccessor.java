@@ -19,13 +19,20 @@ package org.apache.helix.manager.zk;
  * under the License.
  */
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -37,7 +44,9 @@ import org.apache.helix.HelixProperty;
 import org.apache.helix.TestHelper;
 import org.apache.helix.common.ZkTestBase;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordBinarySerializer;
 import org.apache.helix.zookeeper.impl.factory.DedicatedZkClientFactory;
 import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
@@ -193,9 +202,119 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
   }
 
   /**
-   * Test to ensure bucket GC still occurs in high frequency write scenarios.
+   * Write a HelixProperty into many small buckets, so the buckets are written and read in several
+   * batches, and read it back.
    */
   @Test(dependsOnMethods = "testLargeWriteAndRead")
+  public void testWriteAndReadInBatches() throws IOException {
+    String path = PATH + "_" + TestHelper.getTestMethodName();
+    int bucketSize = 1024;
+    ZkBucketDataAccessor smallBucketDataAccessor =
+        new ZkBucketDataAccessor(_zkClient, bucketSize, VERSION_TTL_MS);
+    HelixProperty property = createLargeHelixProperty("batchedResourceAssignment", 5000);
+
+    smallBucketDataAccessor.compressedBucketWrite(path, property);
+    String version = smallBucketDataAccessor.getLastSuccessfulWriteVersion(path);
+    byte[] binaryMetadata = _zkBaseDataAccessor.get(path + "/" + version + "/METADATA", null,
+        AccessOption.PERSISTENT);
+    Map<String, String> metadata = new ObjectMapper().readValue(binaryMetadata, Map.class);
+    int dataSize = Integer.parseInt(metadata.get("DATA_SIZE"));
+    // All the buckets but the metadata node are full, except the last one
+    List<String> children =
+        _zkBaseDataAccessor.getChildNames(path + "/" + version, AccessOption.PERSISTENT);
+    Assert.assertEquals(children.size() - 1, (dataSize + bucketSize - 1) / bucketSize);
+    Assert.assertTrue(children.size() - 1 > 16);
+
+    HelixProperty readRecord =
+        smallBucketDataAccessor.compressedBucketRead(path, HelixProperty.class);
+    Assert.assertEquals(readRecord, property);
+    smallBucketDataAccessor.compressedBucketDelete(path);
+  }
+
+  /**
+   * A write that fails after some of the buckets are written leaves no version behind, since the
+   * GC only deletes the versions older than the last successful write.
+   */
+  @Test(dependsOnMethods = "testWriteAndReadInBatches")
+  public void testFailedWriteDeletesPartialVersion() throws IOException {
+    String path = PATH + "_" + TestHelper.getTestMethodName();
+    ZkBucketDataAccessor smallBucketDataAccessor =
+        new ZkBucketDataAccessor(_zkClient, 1024, VERSION_TTL_MS);
+    HelixProperty property = createLargeHelixProperty("partialResourceAssignment", 5000);
+    smallBucketDataAccessor.compressedBucketWrite(path, property);
+    String version = smallBucketDataAccessor.getLastSuccessfulWriteVersion(path);
+
+    // The serialization fails at the last map field, after many batches are submitted.
+    Map<String, Map<String, String>> mapFields =
+        new LinkedHashMap<>(property.getRecord().getMapFields());
+    Map<String, String> failingMapField = new HashMap<String, String>() {
+      @Override
+      public Set<Map.Entry<String, String>> entrySet() {
+        throw new IllegalStateException("Failed to serialize the map field");
+      }
+    };
+    failingMapField.put("key", "value");
+    mapFields.put("failingMapField", failingMapField);
+    HelixProperty failingProperty = new HelixProperty("partialResourceAssignment");
+    failingProperty.getRecord().setMapFields(mapFields);
+    try {
+      smallBucketDataAccessor.compressedBucketWrite(path, failingProperty);
+      Assert.fail("The write should fail");
+    } catch (Exception e) {
+      // Expected
+    }
+
+    Assert.assertEquals(_zkBaseDataAccessor.getChildNames(path, AccessOption.PERSISTENT).stream()
+            .filter(child -> !child.equals(LAST_SUCCESSFUL_WRITE_KEY)
+                && !child.equals(LAST_WRITE_KEY)).collect(Collectors.toList()),
+        ImmutableList.of(version));
+    Assert.assertEquals(smallBucketDataAccessor.getLastSuccessfulWriteVersion(path), version);
+    Assert.assertEquals(smallBucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+        property);
+    smallBucketDataAccessor.compressedBucketDelete(path);
+  }
+
+  /**
+   * Write HelixProperties in the binary format, and read them back with an accessor that writes
+   * JSON, so the readers detect the format.
+   */
+  @Test(dependsOnMethods = "testWriteAndReadInBatches")
+  public void testBinaryWriteAndRead() throws IOException {
+    String path = PATH + "_" + TestHelper.getTestMethodName();
+    ZkBucketDataAccessor binaryBucketDataAccessor;
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_BINARY_BUCKET_ENABLED, "true");
+    try {
+      binaryBucketDataAccessor = new ZkBucketDataAccessor(_zkClient, 1024, VERSION_TTL_MS);
+    } finally {
+      System.clearProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_BINARY_BUCKET_ENABLED);
+    }
+
+    HelixProperty property = new HelixProperty(record);
+    binaryBucketDataAccessor.compressedBucketWrite(path, property);
+    // The single bucket holds the whole compressed record, which is binary encoded
+    String version = binaryBucketDataAccessor.getLastSuccessfulWriteVersion(path);
+    byte[] bucket = _zkBaseDataAccessor.get(path + "/" + version + "/0", null,
+        AccessOption.PERSISTENT);
+    try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bucket))) {
+      byte[] header = new byte[ZNRecordBinarySerializer.MAGIC_HEADER.length];
+      Assert.assertEquals(inputStream.read(header), header.length);
+      Assert.assertTrue(ZNRecordBinarySerializer.isBinaryEncoded(header));
+    }
+    Assert.assertEquals(_bucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+        property);
+
+    // A large record that spans many buckets
+    property = createLargeHelixProperty("binaryResourceAssignment", 5000);
+    binaryBucketDataAccessor.compressedBucketWrite(path, property);
+    Assert.assertEquals(_bucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+        property);
+    binaryBucketDataAccessor.compressedBucketDelete(path);
+  }
+
+  /**
+   * Test to ensure bucket GC still occurs in high frequency write scenarios.
+   */
+  @Test(dependsOnMethods = "testBinaryWriteAndRead")
   public void testGCCompletesUnderHighFrequency() throws Exception {
     String path = PATH + "_" + TestHelper.getTestMethodName();
     long gcTTL = 1000; // GC schedule for 1 second after write
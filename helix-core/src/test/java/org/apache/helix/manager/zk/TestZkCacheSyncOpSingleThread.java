@@ -187,4 +187,115 @@ public class TestZkCacheSyncOpSingleThread extends ZkUnitTestBase {
     deleteCluster(clusterName);
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
   }
+
+  @Test
+  public void testZkCacheCallbackPersistWatcher() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    // init external base data accessor
+    ZkBaseDataAccessor<ZNRecord> extBaseAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+
+    // init zkCacheDataAccessor on persistent recursive watches
+    String curStatePath = PropertyPathBuilder.instanceCurrentState(clusterName, "localhost_8901");
+    extBaseAccessor.create(curStatePath + "/session_0/TestDB0", new ZNRecord("TestDB0"),
+        AccessOption.PERSISTENT);
+    List<String> cachePaths = Collections.singletonList(curStatePath);
+    ZkCacheBaseDataAccessor<ZNRecord> accessor =
+        new ZkCacheBaseDataAccessor.Builder<ZNRecord>().setZkAddress(ZK_ADDR)
+            .setZkCachePaths(cachePaths).setUsePersistWatcher(true).build();
+    Assert.assertTrue(accessor._zkCache instanceof ZkPersistRecursiveCallbackCache);
+    Assert.assertTrue(
+        TestHelper.verifyZkCache(cachePaths, accessor._zkCache._cache, _gZkClient, true),
+        "zkCache doesn't match data on Zk");
+
+    TestListener listener = new TestListener();
+    accessor.subscribe(curStatePath, listener);
+
+    // create 9 more current states
+    for (int i = 1; i < 10; i++) {
+      String path = curStatePath + "/session_0/TestDB" + i;
+      boolean success =
+          extBaseAccessor.create(path, new ZNRecord("TestDB" + i), AccessOption.PERSISTENT);
+      Assert.assertTrue(success, "Should succeed in create: " + path);
+    }
+    Assert.assertTrue(TestHelper.verify(() -> listener._createPathQueue.size() == 9
+            && TestHelper.verifyZkCache(cachePaths, accessor._zkCache._cache, _gZkClient, true),
+        TestHelper.WAIT_DURATION), "zkCache doesn't match data on Zk");
+
+    // update the current states through the accessor and externally
+    for (int i = 0; i < 10; i++) {
+      String path = curStatePath + "/session_0/TestDB" + i;
+      ZNRecord newRecord = new ZNRecord("TestDB" + i);
+      newRecord.setSimpleField("accessor", "" + i);
+      Assert.assertTrue(
+          accessor.update(path, new ZNRecordUpdater(newRecord), AccessOption.PERSISTENT));
+      newRecord.setSimpleField("external", "" + i);
+      Assert.assertTrue(extBaseAccessor.set(path, newRecord, AccessOption.PERSISTENT));
+    }
+    Assert.assertTrue(TestHelper.verify(() -> listener._changePathQueue.size() == 20
+            && TestHelper.verifyZkCache(cachePaths, accessor._zkCache._cache, _gZkClient, true),
+        TestHelper.WAIT_DURATION), "zkCache doesn't match data on Zk");
+
+    // remove the current states through the accessor and externally
+    for (int i = 0; i < 10; i++) {
+      String path = curStatePath + "/session_0/TestDB" + i;
+      boolean success = i % 2 == 0 ? accessor.remove(path, AccessOption.PERSISTENT)
+          : extBaseAccessor.remove(path, AccessOption.PERSISTENT);
+      Assert.assertTrue(success, "Should succeed in remove: " + path);
+    }
+    Assert.assertTrue(TestHelper.verify(() -> listener._deletePathQueue.size() == 10
+            && TestHelper.verifyZkCache(cachePaths, accessor._zkCache._cache, _gZkClient, true),
+        TestHelper.WAIT_DURATION), "zkCache doesn't match data on Zk");
+
+    // a removed znode is cached again once it is created again
+    String path = curStatePath + "/session_0/TestDB0";
+    Assert.assertTrue(
+        extBaseAccessor.create(path, new ZNRecord("TestDB0"), AccessOption.PERSISTENT));
+    Assert.assertTrue(TestHelper.verify(() -> accessor._zkCache.get(path) != null,
+        TestHelper.WAIT_DURATION));
+    Assert.assertTrue(
+        TestHelper.verifyZkCache(cachePaths, accessor._zkCache._cache, _gZkClient, true),
+        "zkCache doesn't match data on Zk");
+
+    accessor.stop();
+    deleteCluster(clusterName);
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  @Test
+  public void testPersistWatcherCachesChildBeforeParent() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    ZkBaseDataAccessor<ZNRecord> extBaseAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+    String curStatePath = PropertyPathBuilder.instanceCurrentState(clusterName, "localhost_8901");
+    List<String> cachePaths = Collections.singletonList(curStatePath);
+    ZkCacheBaseDataAccessor<ZNRecord> accessor =
+        new ZkCacheBaseDataAccessor.Builder<ZNRecord>().setZkAddress(ZK_ADDR)
+            .setZkCachePaths(cachePaths).setUsePersistWatcher(true).build();
+    ZkCallbackCache<ZNRecord> cache = accessor._zkCache;
+
+    // The znodes are outside of the watched path, so only the reads below cache them.
+    String parentPath = PropertyPathBuilder.instanceMessage(clusterName, "localhost_8901");
+    String childPath = parentPath + "/msg_0";
+    Assert.assertTrue(
+        extBaseAccessor.create(childPath, new ZNRecord("msg_0"), AccessOption.PERSISTENT));
+
+    // The child is cached first, as when its notification is handled before the parent's.
+    cache.updateRecursive(childPath);
+    Assert.assertNotNull(cache.get(childPath));
+    cache.updateRecursive(parentPath);
+    Assert.assertEquals(cache.get(parentPath).getChildSet(), Collections.singleton("msg_0"));
+
+    cache.purgeRecursive(parentPath);
+    Assert.assertNull(cache.get(parentPath));
+    Assert.assertNull(cache.get(childPath));
+
+    accessor.stop();
+    deleteCluster(clusterName);
+  }
 }
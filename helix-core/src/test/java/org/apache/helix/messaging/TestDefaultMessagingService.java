@@ -20,9 +20,13 @@ package org.apache.helix.messaging;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.ImmutableList;
 import org.apache.helix.Criteria;
@@ -59,7 +63,14 @@ public class TestDefaultMessagingService {
 
         PropertyType type = key.getType();
         if (type == PropertyType.EXTERNALVIEW || type == PropertyType.IDEALSTATES) {
-          return (T) new ExternalView(_externalView);
+          _externalViewReadCount.incrementAndGet();
+          ExternalView externalView = new ExternalView(_externalView);
+          // Like a record read from ZK, the record carries the stat of its znode
+          HelixProperty.Stat stat = getPropertyStat(key);
+          if (stat != null) {
+            externalView.setStat(stat);
+          }
+          return (T) externalView;
         }
         return null;
       }
@@ -83,6 +94,7 @@ public class TestDefaultMessagingService {
     }
 
     HelixDataAccessor _accessor = new MockDataAccessor();
+    AtomicInteger _externalViewReadCount = new AtomicInteger();
     ZNRecord _externalView;
     List<String> _instances;
     List<ZNRecord> _liveInstances;
@@ -104,7 +116,9 @@ public class TestDefaultMessagingService {
       _externalView =
           DefaultIdealStateCalculator.calculateIdealState(_instances, _partitions, _replicas, _db,
               "MASTER", "SLAVE");
-
+      // The criteria evaluator lists the ExternalViews and checks their stats
+      _accessor.setProperty(_accessor.keyBuilder().externalView(_db),
+          new ExternalView(_externalView));
     }
 
     @Override
@@ -280,6 +294,87 @@ public class TestDefaultMessagingService {
     AssertJUnit.assertEquals(1, svc.send(recipientCriteria, template));
   }
 
+  @Test
+  public void testCriteriaIndex() {
+    MockHelixManager manager = new MockHelixManager();
+    DefaultMessagingService svc = new DefaultMessagingService(manager);
+    TestMessageHandlerFactory factory = new TestMessageHandlerFactory();
+    svc.registerMessageHandlerFactory(factory.getMessageType(), factory);
+    Message template = new Message(factory.getMessageType(), UUID.randomUUID().toString());
+
+    Criteria recipientCriteria = new Criteria();
+    recipientCriteria.setRecipientInstanceType(InstanceType.PARTICIPANT);
+    recipientCriteria.setSelfExcluded(true);
+    recipientCriteria.setInstanceName("LOCALHOST_12920");
+    recipientCriteria.setResource("%");
+    recipientCriteria.setPartition("%");
+    AssertJUnit.assertEquals(39, svc.send(recipientCriteria, template));
+    AssertJUnit.assertEquals(1, manager._externalViewReadCount.get());
+
+    // The unchanged ExternalView is not read again
+    recipientCriteria.setPartitionState("MASTER");
+    AssertJUnit.assertEquals(10, svc.send(recipientCriteria, template));
+    recipientCriteria.setInstanceName("%");
+    recipientCriteria.setPartition("DB_1%");
+    int expectedCount = 0;
+    for (Map.Entry<String, Map<String, String>> partitionState : manager._externalView
+        .getMapFields().entrySet()) {
+      for (Map.Entry<String, String> instanceState : partitionState.getValue().entrySet()) {
+        if (partitionState.getKey().startsWith("DB_1") && instanceState.getValue().equals("MASTER")
+            && !instanceState.getKey().equals(manager.getInstanceName())) {
+          expectedCount++;
+        }
+      }
+    }
+    AssertJUnit.assertEquals(expectedCount, svc.send(recipientCriteria, template));
+    AssertJUnit.assertEquals(1, manager._externalViewReadCount.get());
+
+    // The changed ExternalView is read again
+    manager._accessor.setProperty(manager._accessor.keyBuilder().externalView(manager._db),
+        new ExternalView(manager._externalView));
+    AssertJUnit.assertEquals(expectedCount, svc.send(recipientCriteria, template));
+    AssertJUnit.assertEquals(2, manager._externalViewReadCount.get());
+  }
+
+  @Test
+  public void testCriteriaIndexLookup() {
+    CriteriaIndex.NameIndex names = new CriteriaIndex.NameIndex();
+    for (String name : Arrays.asList("localhost_12918", "localhost_12919", "localhostX12918",
+        "LOCALHOST_12920", "localhost_129180", "node0")) {
+      names.add(name);
+    }
+    // The '_' still matches any one character, and only the names that can match are returned.
+    AssertJUnit.assertEquals(new HashSet<>(Arrays.asList("localhost_12918", "localhostX12918")),
+        new HashSet<>(names.lookup("localhost_12918")));
+    AssertJUnit.assertEquals(Collections.singletonList("LOCALHOST_12920"),
+        names.lookup("localhost_12920"));
+    AssertJUnit.assertEquals(Collections.singletonList("node0"), names.lookup("node0"));
+    AssertJUnit.assertTrue(names.lookup("localhost_12921").isEmpty());
+    AssertJUnit.assertTrue(names.lookup("node1").isEmpty());
+
+    // Names with '_' are looked up, and give the same result as matching every row.
+    MockHelixManager manager = new MockHelixManager();
+    DefaultMessagingService svc = new DefaultMessagingService(manager);
+    TestMessageHandlerFactory factory = new TestMessageHandlerFactory();
+    svc.registerMessageHandlerFactory(factory.getMessageType(), factory);
+    Message template = new Message(factory.getMessageType(), UUID.randomUUID().toString());
+    String partition = manager._externalView.getMapFields().keySet().iterator().next();
+    Map<String, String> instanceStates = manager._externalView.getMapField(partition);
+    String instance = instanceStates.keySet().stream()
+        .filter(name -> !name.equals(manager.getInstanceName())).findFirst().get();
+    Criteria recipientCriteria = new Criteria();
+    recipientCriteria.setRecipientInstanceType(InstanceType.PARTICIPANT);
+    recipientCriteria.setSelfExcluded(true);
+    recipientCriteria.setInstanceName(instance.toUpperCase());
+    recipientCriteria.setResource("%");
+    recipientCriteria.setPartition(partition.toLowerCase());
+    AssertJUnit.assertEquals(1, svc.send(recipientCriteria, template));
+    recipientCriteria.setInstanceName("%");
+    AssertJUnit.assertEquals(instanceStates.size()
+        - (instanceStates.containsKey(manager.getInstanceName()) ? 1 : 0),
+        svc.send(recipientCriteria, template));
+  }
+
   @Test public void testMultipleMessageTypeRegisteration() {
     HelixManager manager = new MockManager();
     MockDefaultMessagingService svc = new MockDefaultMessagingService(manager);
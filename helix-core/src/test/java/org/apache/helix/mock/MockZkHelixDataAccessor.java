@@ -28,10 +28,12 @@ import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyType;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 
 public class MockZkHelixDataAccessor extends ZKHelixDataAccessor {
   Map<PropertyType, Integer> _readPathCounters = new HashMap<>();
+  Map<PropertyType, Integer> _writePathCounters = new HashMap<>();
 
   public MockZkHelixDataAccessor(String clusterName, BaseDataAccessor<ZNRecord> baseDataAccessor) {
     super(clusterName, baseDataAccessor);
@@ -70,6 +72,29 @@ public class MockZkHelixDataAccessor extends ZKHelixDataAccessor {
     return map;
   }
 
+  @Override
+  public <T extends HelixProperty> boolean setProperty(PropertyKey key, T value) {
+    addWriteCount(key);
+    return super.setProperty(key, value);
+  }
+
+  @Override
+  public <T extends HelixProperty> boolean updateProperty(PropertyKey key,
+      DataUpdater<ZNRecord> updater, T value) {
+    addWriteCount(key);
+    return super.updateProperty(key, updater, value);
+  }
+
+  @Override
+  public boolean removeProperty(PropertyKey key) {
+    addWriteCount(key);
+    return super.removeProperty(key);
+  }
+
+  private void addWriteCount(PropertyKey key) {
+    _writePathCounters.merge(key.getType(), 1, Integer::sum);
+  }
+
   private void addCount(PropertyKey key) {
     addCount(key, 1);
   }
@@ -93,4 +118,12 @@ public class MockZkHelixDataAccessor extends ZKHelixDataAccessor {
   public void clearReadCounters() {
     _readPathCounters.clear();
   }
+
+  public int getWriteCount(PropertyType type) {
+    return _writePathCounters.getOrDefault(type, 0);
+  }
+
+  public void clearWriteCounters() {
+    _writePathCounters.clear();
+  }
 }
@@ -0,0 +1,103 @@
+package org.apache.helix.monitoring;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+
+import org.apache.helix.controller.pipeline.AbstractBaseStage;
+import org.apache.helix.controller.pipeline.Pipeline;
+import org.apache.helix.controller.stages.AttributeName;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventType;
+import org.apache.helix.model.Resource;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPipelineStageMonitor {
+  private static final String CLUSTER_NAME = "TestPipelineStageCluster";
+  private static final int ALLOCATION_SIZE = 4 * 1024 * 1024;
+
+  private static class AllocatingStage extends AbstractBaseStage {
+    private byte[] _allocated;
+
+    @Override
+    public void process(ClusterEvent event) {
+      _allocated = new byte[ALLOCATION_SIZE];
+    }
+  }
+
+  private static class IdleStage extends AbstractBaseStage {
+  }
+
+  @Test
+  public void testStageMetrics() throws Exception {
+    ClusterStatusMonitor monitor = new ClusterStatusMonitor(CLUSTER_NAME);
+    monitor.active();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName query =
+        new ObjectName("ClusterStatus:cluster=" + CLUSTER_NAME + ",pipeline=TestPipeline,*");
+
+    Pipeline pipeline = new Pipeline("TestPipeline");
+    pipeline.addStage(new AllocatingStage());
+    pipeline.addStage(new IdleStage());
+
+    Map<String, Resource> resources = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      resources.put("Resource" + i, new Resource("Resource" + i));
+    }
+    int runs = 2;
+    for (int i = 0; i < runs; i++) {
+      ClusterEvent event = new ClusterEvent(CLUSTER_NAME, ClusterEventType.Unknown);
+      event.addAttribute(AttributeName.clusterStatusMonitor.name(), monitor);
+      event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resources);
+      pipeline.handle(event);
+    }
+
+    Set<ObjectInstance> mbeans = server.queryMBeans(query, null);
+    Assert.assertEquals(mbeans.size(), 2);
+    for (ObjectInstance mbean : mbeans) {
+      ObjectName name = mbean.getObjectName();
+      Assert.assertEquals(server.getAttribute(name, "ExecutionCounter"), (long) runs);
+      Assert.assertEquals(server.getAttribute(name, "TotalZkReadCounter"), 0L);
+      Assert.assertEquals(server.getAttribute(name, "ProcessedItemGauge.Max"), 3L);
+      Assert.assertNotNull(server.getAttribute(name, "LatencyGauge.Pct99th"));
+    }
+    ObjectName allocatingStage = new ObjectName(
+        "ClusterStatus:cluster=" + CLUSTER_NAME + ",pipeline=TestPipeline,stage="
+            + AllocatingStage.class.getSimpleName());
+    Assert.assertTrue((Long) server.getAttribute(allocatingStage, "TotalAllocatedBytesCounter")
+        >= (long) runs * ALLOCATION_SIZE);
+
+    // The stages that compute the resources concurrently report their parallel efficiency.
+    monitor.updatePipelineStageParallelEfficiency("TestPipeline",
+        AllocatingStage.class.getSimpleName(), 75L);
+    Assert.assertEquals(server.getAttribute(allocatingStage, "ParallelEfficiencyGauge.Max"), 75L);
+
+    monitor.reset();
+    Assert.assertEquals(server.queryMBeans(query, null).size(), 0);
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.helix.InstanceType;
 import org.apache.helix.NotificationContext;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZkUnitTestBase;
 import org.apache.helix.controller.GenericHelixController;
@@ -180,6 +181,70 @@ public class TestDistControllerElection extends ZkUnitTestBase {
     LOG.info("END " + getShortClassName() + " at " + new Date(System.currentTimeMillis()));
   }
 
+  @Test(dependsOnMethods = "testController")
+  public void testWarmStandby() throws Exception {
+    String className = getShortClassName();
+    final String clusterName = CLUSTER_PREFIX + "_" + className + "_" + "testWarmStandby";
+
+    ZKHelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor(_gZkClient));
+    Builder keyBuilder = accessor.keyBuilder();
+
+    _gSetupTool.addCluster(clusterName, true);
+    _gSetupTool.addResourceToCluster(clusterName, "TestDB0", 4, "MasterSlave");
+
+    List<HelixTimerTask> timerTasks = Collections.emptyList();
+    HelixManager leaderManager =
+        new MockZKHelixManager(clusterName, "controller_0", InstanceType.CONTROLLER, _gZkClient);
+    GenericHelixController leader = new GenericHelixController(clusterName);
+    NotificationContext context = new NotificationContext(leaderManager);
+    context.setType(NotificationContext.Type.INIT);
+    new DistributedLeaderElection(leaderManager, leader, timerTasks).onControllerChange(context);
+
+    HelixManager standbyManager =
+        new MockZKHelixManager(clusterName, "controller_1", InstanceType.CONTROLLER, _gZkClient);
+    GenericHelixController standby = new GenericHelixController(clusterName);
+    System.setProperty(SystemPropertyKeys.CONTROLLER_WARM_STANDBY_INTERVAL_MS, "100");
+    DistributedLeaderElection election;
+    try {
+      election = new DistributedLeaderElection(standbyManager, standby, timerTasks);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.CONTROLLER_WARM_STANDBY_INTERVAL_MS);
+    }
+    context = new NotificationContext(standbyManager);
+    context.setType(NotificationContext.Type.INIT);
+    try {
+      election.onControllerChange(context);
+      LiveInstance liveInstance = accessor.getProperty(keyBuilder.controllerLeader());
+      Assert.assertEquals(liveInstance.getInstanceName(), "controller_0");
+
+      // The standby controller loads the cluster data and follows the changes.
+      Assert.assertTrue(TestHelper.verify(
+          () -> standby.getResourceControllerDataProvider().getIdealStates().containsKey("TestDB0"),
+          TestHelper.WAIT_DURATION));
+      _gSetupTool.addResourceToCluster(clusterName, "TestDB1", 4, "MasterSlave");
+      Assert.assertTrue(TestHelper.verify(
+          () -> standby.getResourceControllerDataProvider().getIdealStates().containsKey("TestDB1"),
+          TestHelper.WAIT_DURATION));
+
+      // The standby stops once the controller leaves the election.
+      context = new NotificationContext(standbyManager);
+      context.setType(NotificationContext.Type.FINALIZE);
+      election.onControllerChange(context);
+      _gSetupTool.addResourceToCluster(clusterName, "TestDB2", 4, "MasterSlave");
+      Thread.sleep(500);
+      Assert.assertFalse(
+          standby.getResourceControllerDataProvider().getIdealStates().containsKey("TestDB2"));
+    } finally {
+      standbyManager.disconnect();
+      standby.shutdown();
+      leaderManager.disconnect();
+      leader.shutdown();
+    }
+    accessor.removeProperty(keyBuilder.controllerLeader());
+    TestHelper.dropCluster(clusterName, _gZkClient);
+  }
+
   @Test(dependsOnMethods = "testController")
   public void testParticipant() throws Exception {
     String className = getShortClassName();
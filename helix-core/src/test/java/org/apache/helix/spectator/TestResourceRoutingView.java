@@ -0,0 +1,84 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestResourceRoutingView {
+
+  @Test
+  public void testLookupByPartitionIndex() {
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (String instanceName : Arrays.asList("localhost_1", "localhost_2", "localhost_3")) {
+      instanceConfigs.add(new InstanceConfig(instanceName));
+    }
+    ExternalView externalView = new ExternalView("db");
+    externalView.setState("db_0", "localhost_1", "MASTER");
+    externalView.setState("db_0", "localhost_2", "SLAVE");
+    externalView.setState("db_0", "localhost_3", "SLAVE");
+    externalView.setState("db_1", "localhost_2", "MASTER");
+    RoutingTableSnapshot snapshot = new RoutingTableSnapshot(
+        new RoutingTable(Collections.singletonList(externalView), instanceConfigs,
+            Collections.<LiveInstance> emptyList()));
+
+    Assert.assertNull(snapshot.getResourceRoutingView("unknown"));
+    ResourceRoutingView view = snapshot.getResourceRoutingView("db");
+    Assert.assertEquals(view.getResourceName(), "db");
+    Assert.assertEquals(view.getPartitionCount(), 2);
+    Assert.assertEquals(view.getStates(), new HashSet<>(Arrays.asList("MASTER", "SLAVE")));
+
+    int partition0 = view.getPartitionIndex("db_0");
+    int partition1 = view.getPartitionIndex("db_1");
+    Assert.assertEquals(view.getPartitionName(partition0), "db_0");
+    Assert.assertEquals(view.getPartitionName(partition1), "db_1");
+    Assert.assertEquals(view.getPartitionIndex("db_2"), -1);
+
+    // Same result as the name based lookup.
+    for (String partition : Arrays.asList("db_0", "db_1")) {
+      for (String state : Arrays.asList("MASTER", "SLAVE", "OFFLINE")) {
+        Assert.assertEquals(view.getInstances(view.getPartitionIndex(partition), state),
+            snapshot.getInstancesForResource("db", partition, state));
+      }
+    }
+    Assert.assertTrue(view.getInstances(partition1, "SLAVE").isEmpty());
+    Assert.assertTrue(view.getInstances(-1, "MASTER").isEmpty());
+    Assert.assertTrue(view.getInstances(2, "MASTER").isEmpty());
+
+    // The lookups share the precomputed read-only lists.
+    Assert.assertSame(view.getInstances(partition0, "SLAVE"), view.getInstances("db_0", "SLAVE"));
+    Assert.assertSame(snapshot.getResourceRoutingView("db"), view);
+    try {
+      view.getInstances(partition0, "SLAVE").clear();
+      Assert.fail("The routing view should be read-only.");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.helix.HelixProperty;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableIncrementalRefresh {
+  private static final List<String> INSTANCES = Arrays.asList("localhost_1", "localhost_2");
+
+  @Test
+  public void testOnlyChangedResourcesAreRebuilt() {
+    List<InstanceConfig> instanceConfigs = createInstanceConfigs();
+    ExternalView db0 = createExternalView("db0", 0, "localhost_1", "localhost_2");
+    ExternalView db1 = createExternalView("db1", 0, "localhost_1", "localhost_2");
+    RoutingTable routingTable = new RoutingTable(Arrays.asList(db0, db1), instanceConfigs,
+        Collections.<LiveInstance> emptyList());
+
+    // The same ExternalView of db0 and a new version of db1.
+    ExternalView newDb1 = createExternalView("db1", 1, "localhost_2", "localhost_1");
+    RoutingTable newRoutingTable = new RoutingTable(routingTable, Arrays.asList(db0, newDb1),
+        instanceConfigs, Collections.<LiveInstance> emptyList());
+
+    Assert.assertSame(newRoutingTable.get("db0"), routingTable.get("db0"));
+    Assert.assertNotSame(newRoutingTable.get("db1"), routingTable.get("db1"));
+    Assert.assertEquals(getInstanceName(newRoutingTable, "db1", "MASTER"), "localhost_2");
+    // The previous table is not affected.
+    Assert.assertEquals(getInstanceName(routingTable, "db1", "MASTER"), "localhost_1");
+
+    // An ExternalView that is read again with the same stat is considered unchanged.
+    ExternalView reloadedDb1 = createExternalView("db1", 1, "localhost_2", "localhost_1");
+    RoutingTable reloadedRoutingTable = new RoutingTable(newRoutingTable,
+        Arrays.asList(db0, reloadedDb1), instanceConfigs, Collections.<LiveInstance> emptyList());
+    Assert.assertSame(reloadedRoutingTable.get("db1"), newRoutingTable.get("db1"));
+
+    // Removed resources are dropped.
+    RoutingTable removedRoutingTable = new RoutingTable(reloadedRoutingTable,
+        Collections.singletonList(db0), instanceConfigs, Collections.<LiveInstance> emptyList());
+    Assert.assertNull(removedRoutingTable.get("db1"));
+    Assert.assertEquals(removedRoutingTable.getResources(), Collections.singleton("db0"));
+  }
+
+  @Test
+  public void testInstanceConfigChangeRebuildsAllResources() {
+    ExternalView db0 = createExternalView("db0", 0, "localhost_1", "localhost_2");
+    RoutingTable routingTable = new RoutingTable(Collections.singletonList(db0),
+        createInstanceConfigs(), Collections.<LiveInstance> emptyList());
+
+    List<InstanceConfig> newInstanceConfigs = createInstanceConfigs();
+    newInstanceConfigs.get(0).setPort("12345");
+    RoutingTable newRoutingTable = new RoutingTable(routingTable, Collections.singletonList(db0),
+        newInstanceConfigs, Collections.<LiveInstance> emptyList());
+
+    Assert.assertNotSame(newRoutingTable.get("db0"), routingTable.get("db0"));
+    Assert.assertEquals(
+        newRoutingTable.getInstancesForResource("db0", "db0_0", "MASTER").get(0).getPort(),
+        "12345");
+  }
+
+  @Test
+  public void testResourceGroupRebuiltWithChangedResource() {
+    List<InstanceConfig> instanceConfigs = createInstanceConfigs();
+    ExternalView db0 = createExternalView("db0", 0, "localhost_1", "localhost_2");
+    ExternalView db1 = createExternalView("db1", 0, "localhost_1", "localhost_2");
+    ExternalView db2 = createExternalView("db2", 0, "localhost_1", "localhost_2");
+    setResourceGroup(db0, "group0", "tag0");
+    setResourceGroup(db1, "group0", "tag1");
+    setResourceGroup(db2, "group1", "tag0");
+    RoutingTable routingTable = new RoutingTable(Arrays.asList(db0, db1, db2), instanceConfigs,
+        Collections.<LiveInstance> emptyList());
+
+    ExternalView newDb1 = createExternalView("db1", 1, "localhost_2", "localhost_1");
+    setResourceGroup(newDb1, "group0", "tag1");
+    RoutingTable newRoutingTable = new RoutingTable(routingTable,
+        Arrays.asList(db0, newDb1, db2), instanceConfigs, Collections.<LiveInstance> emptyList());
+
+    Assert.assertSame(newRoutingTable.getResourceGroup("group1"),
+        routingTable.getResourceGroup("group1"));
+    Assert.assertNotSame(newRoutingTable.getResourceGroup("group0"),
+        routingTable.getResourceGroup("group0"));
+    // The rebuilt group still aggregates the unchanged resource.
+    Assert.assertEquals(newRoutingTable
+        .getInstancesForResourceGroup("group0", "MASTER", Collections.singletonList("tag0"))
+        .size(), 1);
+    Assert.assertEquals(
+        newRoutingTable.getInstancesForResourceGroup("group0", "MASTER").size(), 2);
+  }
+
+  private static List<InstanceConfig> createInstanceConfigs() {
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (String instanceName : INSTANCES) {
+      InstanceConfig config = new InstanceConfig(instanceName);
+      config.setHostName("localhost");
+      config.setPort(instanceName.split("_")[1]);
+      instanceConfigs.add(config);
+    }
+    return instanceConfigs;
+  }
+
+  private static ExternalView createExternalView(String resourceName, int version, String master,
+      String slave) {
+    ExternalView externalView = new ExternalView(resourceName);
+    externalView.setState(resourceName + "_0", master, "MASTER");
+    externalView.setState(resourceName + "_0", slave, "SLAVE");
+    // Simulate an ExternalView that is read from ZooKeeper.
+    externalView.setStat(new HelixProperty.Stat(version, 1000L, 1000L + version, 0L));
+    return externalView;
+  }
+
+  private static void setResourceGroup(ExternalView externalView, String resourceGroupName,
+      String instanceGroupTag) {
+    ZNRecord record = externalView.getRecord();
+    record.setSimpleField(ExternalView.ExternalViewProperty.RESOURCE_GROUP_NAME.name(),
+        resourceGroupName);
+    record.setSimpleField(ExternalView.ExternalViewProperty.INSTANCE_GROUP_TAG.name(),
+        instanceGroupTag);
+    record.setBooleanField(ExternalView.ExternalViewProperty.GROUP_ROUTING_ENABLED.name(), true);
+  }
+
+  private static String getInstanceName(RoutingTable routingTable, String resourceName,
+      String state) {
+    return routingTable.getInstancesForResource(resourceName, resourceName + "_0", state).get(0)
+        .getInstanceName();
+  }
+}
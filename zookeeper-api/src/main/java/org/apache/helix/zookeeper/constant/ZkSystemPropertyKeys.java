@@ -60,6 +60,39 @@ public class ZkSystemPropertyKeys {
   public static final String ZK_SERIALIZER_ZNRECORD_WRITE_SIZE_LIMIT_BYTES =
       "zk.serializer.znrecord.write.size.limit.bytes";
 
+  /**
+   * Setting this property to true in system properties makes the Helix manager read and write
+   * ZNRecords with {@link org.apache.helix.zookeeper.datamodel.serializer.ZNRecordFastSerializer}
+   * instead of {@link org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer}.
+   * The data format is compatible, so the switch can be rolled out gradually.
+   * <p>
+   * The default value is "false" (disabled).
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_FAST_SERIALIZER_ENABLED =
+      "zk.serializer.znrecord.fast-serializer.enabled";
+
+  /**
+   * A comma separated list of the paths, relative to the cluster root, whose ZNRecords are
+   * written by the Helix manager in the binary format of
+   * {@link org.apache.helix.zookeeper.datamodel.serializer.ZNRecordBinarySerializer}, e.g.
+   * "EXTERNALVIEW,IDEALSTATES,PROPERTYSTORE/TaskRebalancer". A path applies to all its children.
+   * <p>
+   * All the readers of the paths must be able to read the binary format before it is enabled.
+   * The default value is empty (no path uses the binary format).
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_BINARY_PATHS =
+      "zk.serializer.znrecord.binary.paths";
+
+  /**
+   * Whether ZkBucketDataAccessor writes the ZNRecords into the buckets in the binary format of
+   * {@link org.apache.helix.zookeeper.datamodel.serializer.ZNRecordBinarySerializer}.
+   * <p>
+   * All the readers of the buckets must be able to read the binary format before it is enabled.
+   * The default value is false.
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_BINARY_BUCKET_ENABLED =
+      "zk.serializer.znrecord.binary.bucket.enabled";
+
   /**
    * This property determines the behavior of ZkClient issuing an sync() to server upon new session
    * established.
@@ -70,6 +103,18 @@ public class ZkSystemPropertyKeys {
   public static final String ZK_AUTOSYNC_ENABLED =
       "zk.zkclient.autosync.enabled";
 
+  /**
+   * The number of the worker threads that deliver the data and child change events of a ZkClient.
+   * The events of a path are always delivered by the same worker, in order, so a slow listener
+   * only delays the events of the paths on its worker. The session and state events wait for all
+   * the events before them.
+   *
+   * <p>
+   *   The default value is "0" (all the events are delivered by the single event thread)
+   */
+  public static final String ZK_EVENT_THREAD_WORKER_COUNT =
+      "zk.zkclient.eventThread.workerCount";
+
   /** System property key for jute.maxbuffer */
   public static final String JUTE_MAXBUFFER = "jute.maxbuffer";
 
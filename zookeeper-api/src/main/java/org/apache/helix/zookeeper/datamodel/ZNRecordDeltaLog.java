@@ -0,0 +1,168 @@
+package org.apache.helix.zookeeper.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Operations to store a ZNRecord as a snapshot plus a log of the changed map fields.
+ * <p>
+ * The snapshot holds all the map fields and list fields of the record, and it is stored in the
+ * {@link #SNAPSHOT_NODE} child of the record node. The record node itself holds the simple
+ * fields, the map fields that have changed since the snapshot was taken, and the keys of the
+ * removed map fields. So an update of the record only rewrites the changes, until the log is
+ * compacted into a new snapshot.
+ * <p>
+ * Every snapshot has a unique id, which is also recorded in the log. A log is only applied to the
+ * snapshot with the same id, so a reader that races with a compaction can detect it and read the
+ * log again.
+ */
+public class ZNRecordDeltaLog {
+  /**
+   * The name of the child node that holds the snapshot
+   */
+  public static final String SNAPSHOT_NODE = "DELTA_LOG_SNAPSHOT";
+  /**
+   * The simple field of both the log and the snapshot that holds the snapshot id
+   */
+  public static final String SNAPSHOT_ID_FIELD = "DELTA_LOG_SNAPSHOT_ID";
+  /**
+   * The list field of the log that holds the keys of the map fields removed since the snapshot
+   */
+  public static final String REMOVED_MAP_FIELDS = "DELTA_LOG_REMOVED_MAP_FIELDS";
+
+  /**
+   * @param record
+   * @return true if the record is the log of a delta-encoded record
+   */
+  public static boolean isDeltaLog(ZNRecord record) {
+    return record != null && record.getSimpleField(SNAPSHOT_ID_FIELD) != null;
+  }
+
+  /**
+   * Create the snapshot of a record. The snapshot shares the map and list field values with the
+   * record.
+   * @param record
+   * @param snapshotId a unique id of the snapshot
+   * @return the snapshot record
+   */
+  public static ZNRecord createSnapshot(ZNRecord record, String snapshotId) {
+    ZNRecord snapshot = new ZNRecord(record.getId());
+    snapshot.setSimpleField(SNAPSHOT_ID_FIELD, snapshotId);
+    snapshot.getMapFields().putAll(record.getMapFields());
+    snapshot.getListFields().putAll(record.getListFields());
+    return snapshot;
+  }
+
+  /**
+   * Create the log that turns the snapshot into the given record.
+   * @param record
+   * @param snapshot
+   * @return the log record, or null if the record cannot be delta-encoded against the snapshot,
+   *         i.e. the list fields or the raw payload differ
+   */
+  public static ZNRecord createLog(ZNRecord record, ZNRecord snapshot) {
+    if (record.getRawPayload() != null
+        || !record.getListFields().equals(snapshot.getListFields())) {
+      return null;
+    }
+    ZNRecord log = new ZNRecord(record.getId());
+    log.getSimpleFields().putAll(record.getSimpleFields());
+    log.setSimpleField(SNAPSHOT_ID_FIELD, snapshot.getSimpleField(SNAPSHOT_ID_FIELD));
+
+    Map<String, Map<String, String>> snapshotMapFields = snapshot.getMapFields();
+    for (Map.Entry<String, Map<String, String>> entry : record.getMapFields().entrySet()) {
+      if (!snapshotMapFields.containsKey(entry.getKey())
+          || !Objects.equals(entry.getValue(), snapshotMapFields.get(entry.getKey()))) {
+        log.setMapField(entry.getKey(), entry.getValue());
+      }
+    }
+    List<String> removedKeys = new ArrayList<>();
+    for (String key : snapshotMapFields.keySet()) {
+      if (!record.getMapFields().containsKey(key)) {
+        removedKeys.add(key);
+      }
+    }
+    if (!removedKeys.isEmpty()) {
+      log.setListField(REMOVED_MAP_FIELDS, removedKeys);
+    }
+    return log;
+  }
+
+  /**
+   * @param log
+   * @return the number of changed and removed map fields in the log
+   */
+  public static int getLogSize(ZNRecord log) {
+    List<String> removedKeys = log.getListField(REMOVED_MAP_FIELDS);
+    return log.getMapFields().size() + (removedKeys == null ? 0 : removedKeys.size());
+  }
+
+  /**
+   * Apply the log to the snapshot. The snapshot is not modified.
+   * @param log
+   * @param snapshot
+   * @return the assembled record with the stat of the log, or null if the snapshot is missing or
+   *         it is not the snapshot of the log
+   */
+  public static ZNRecord assemble(ZNRecord log, ZNRecord snapshot) {
+    String snapshotId = log.getSimpleField(SNAPSHOT_ID_FIELD);
+    if (snapshot == null || snapshotId == null
+        || !snapshotId.equals(snapshot.getSimpleField(SNAPSHOT_ID_FIELD))) {
+      return null;
+    }
+
+    ZNRecord record = new ZNRecord(log.getId());
+    record.getSimpleFields().putAll(log.getSimpleFields());
+    record.getSimpleFields().remove(SNAPSHOT_ID_FIELD);
+    for (Map.Entry<String, List<String>> entry : snapshot.getListFields().entrySet()) {
+      record.setListField(entry.getKey(),
+          entry.getValue() == null ? null : new ArrayList<>(entry.getValue()));
+    }
+    for (Map.Entry<String, Map<String, String>> entry : snapshot.getMapFields().entrySet()) {
+      record.setMapField(entry.getKey(),
+          entry.getValue() == null ? null : new LinkedHashMap<>(entry.getValue()));
+    }
+
+    // The changed map fields replace the ones of the snapshot, and the removed ones are
+    // subtracted.
+    ZNRecord updates = new ZNRecord(log.getId());
+    updates.setMapFields(log.getMapFields());
+    record.merge(new ZNRecordDelta(updates, ZNRecordDelta.MergeOperation.UPDATE));
+    List<String> removedKeys = log.getListField(REMOVED_MAP_FIELDS);
+    if (removedKeys != null) {
+      ZNRecord removals = new ZNRecord(log.getId());
+      for (String key : removedKeys) {
+        removals.setMapField(key, null);
+      }
+      record.merge(new ZNRecordDelta(removals, ZNRecordDelta.MergeOperation.SUBTRACT));
+    }
+
+    record.setVersion(log.getVersion());
+    record.setCreationTime(log.getCreationTime());
+    record.setModifiedTime(log.getModifiedTime());
+    record.setEphemeralOwner(log.getEphemeralOwner());
+    return record;
+  }
+}
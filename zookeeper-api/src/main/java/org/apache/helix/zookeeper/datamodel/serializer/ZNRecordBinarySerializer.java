@@ -0,0 +1,456 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.util.ZNRecordUtil;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ZNRecordBinarySerializer writes ZNRecords in a compact binary format, which is meant for the
+ * large records such as the IdealStates, ExternalViews and JobContexts. The instance names,
+ * partition names and states are repeated all over such records, so every distinct string is
+ * written only once into a string table, and the fields refer to the strings by their varint
+ * encoded indexes.
+ * <p>
+ * The format is:
+ * <pre>
+ *   magic header (4 bytes) | string table | id | simpleFields | mapFields | listFields | rawPayload
+ * </pre>
+ * The binary data starts with {@link #MAGIC_HEADER}, so the data can be told apart from the JSON
+ * and the GZip compressed data by {@link #isBinaryEncoded(byte[])}. This serializer reads the
+ * JSON records as well, and the JSON serializers ({@link ZNRecordSerializer},
+ * {@link ZNRecordFastSerializer} and {@link ZNRecordStreamingSerializer}) read the binary records.
+ * Note that the older Helix versions cannot read the binary records, so all the readers of the
+ * paths must be upgraded before this serializer is used to write them.
+ * <p>
+ * The same compression and write size limit rules as {@link ZNRecordSerializer} are applied to
+ * the binary data. The serializer is usually configured for some paths only with a
+ * {@link ChainedPathZkSerializer}.
+ */
+public class ZNRecordBinarySerializer implements ZkSerializer {
+  private static final Logger LOG = LoggerFactory.getLogger(ZNRecordBinarySerializer.class);
+
+  /**
+   * The first bytes of a binary encoded ZNRecord. The leading 0 byte is never the start of a JSON
+   * document or a GZip stream. The last byte is the format version.
+   */
+  public static final byte[] MAGIC_HEADER = {0, 'Z', 'N', 1};
+
+  // The string references are shifted by one, so 0 encodes null.
+  private static final int NULL_REFERENCE = 0;
+
+  private final ZkSerializer _jsonSerializer = new ZNRecordFastSerializer();
+
+  /**
+   * Determines if a byte array is a binary encoded ZNRecord.
+   * @param bytes an array of bytes, not compressed
+   * @return true if the array starts with the magic header of the binary format
+   */
+  public static boolean isBinaryEncoded(byte[] bytes) {
+    if (bytes == null || bytes.length < MAGIC_HEADER.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC_HEADER.length; i++) {
+      if (bytes[i] != MAGIC_HEADER[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public byte[] serialize(Object data) throws ZkMarshallingError {
+    if (!(data instanceof ZNRecord)) {
+      // null is NOT an instance of any class
+      LOG.error("Input object must be of type ZNRecord but it is " + data
+          + ". Will not write to zk");
+      throw new ZkMarshallingError("Input object is not of type ZNRecord (was " + data + ")");
+    }
+    ZNRecord record = (ZNRecord) data;
+
+    byte[] serializedBytes;
+    boolean isCompressed = false;
+    try {
+      serializedBytes = encode(record);
+      // apply compression if needed
+      if (ZNRecordUtil.shouldCompress(record, serializedBytes.length)) {
+        serializedBytes = GZipCompressionUtil.compress(serializedBytes);
+        isCompressed = true;
+      }
+    } catch (Exception e) {
+      LOG.error(
+          "Exception during data serialization. ZNRecord ID: {} will not be written to zk.",
+          record.getId(), e);
+      throw new ZkMarshallingError(e);
+    }
+
+    int writeSizeLimit = ZNRecordUtil.getSerializerWriteSizeLimit();
+    if (serializedBytes.length > writeSizeLimit) {
+      LOG.error("Data size: {} is greater than {} bytes, is compressed: {}, ZNRecord.id: {}."
+              + " Data will not be written to Zookeeper.", serializedBytes.length, writeSizeLimit,
+          isCompressed, record.getId());
+      throw new ZkMarshallingError(
+          "Data size: " + serializedBytes.length + " is greater than " + writeSizeLimit
+              + " bytes, is compressed: " + isCompressed + ", ZNRecord.id: " + record.getId());
+    }
+    return serializedBytes;
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws ZkMarshallingError {
+    if (bytes == null || bytes.length == 0) {
+      // reading a parent/null node
+      return null;
+    }
+
+    try {
+      byte[] uncompressedBytes = bytes;
+      if (GZipCompressionUtil.isCompressed(bytes)) {
+        uncompressedBytes = GZipCompressionUtil.uncompress(new ByteArrayInputStream(bytes));
+      }
+      if (!isBinaryEncoded(uncompressedBytes)) {
+        // The data was written by a JSON serializer.
+        return _jsonSerializer.deserialize(uncompressedBytes);
+      }
+      return decode(uncompressedBytes);
+    } catch (Exception e) {
+      LOG.error("Exception during deserialization of a binary ZNRecord of {} bytes.",
+          bytes.length, e);
+      return null;
+    }
+  }
+
+  /**
+   * Serialize the ZNRecord into the output stream in the binary format. Unlike
+   * {@link #serialize(Object)}, neither compression nor the write size limit is applied, so the
+   * owner of the stream, e.g. a bucketed writer, can apply its own. The stream is not closed.
+   */
+  public void serialize(ZNRecord record, OutputStream outputStream) throws ZkMarshallingError {
+    try {
+      outputStream.write(encode(record));
+    } catch (IOException e) {
+      throw new ZkMarshallingError(
+          String.format("Exception during serialization. ZNRecord id: %s", record.getId()), e);
+    }
+  }
+
+  /**
+   * Encode the record in the binary format without compression.
+   */
+  static byte[] encode(ZNRecord record) {
+    StringTable stringTable = new StringTable();
+    BinaryOutput body = new BinaryOutput(1024);
+
+    body.writeVarint(stringTable.reference(record.getId()));
+
+    Map<String, String> simpleFields = record.getSimpleFields();
+    body.writeVarint(simpleFields.size());
+    writeStringMap(body, stringTable, simpleFields);
+
+    Map<String, Map<String, String>> mapFields = record.getMapFields();
+    body.writeVarint(mapFields.size());
+    for (Map.Entry<String, Map<String, String>> entry : mapFields.entrySet()) {
+      body.writeVarint(stringTable.reference(entry.getKey()));
+      Map<String, String> map = entry.getValue();
+      // The sizes are shifted by one, so 0 encodes null.
+      body.writeVarint(map == null ? 0 : map.size() + 1);
+      if (map != null) {
+        writeStringMap(body, stringTable, map);
+      }
+    }
+
+    // apply retention policy on list field
+    int listFieldBound = getListFieldBound(record);
+    Map<String, List<String>> listFields = record.getListFields();
+    body.writeVarint(listFields.size());
+    for (Map.Entry<String, List<String>> entry : listFields.entrySet()) {
+      body.writeVarint(stringTable.reference(entry.getKey()));
+      List<String> list = entry.getValue();
+      if (list == null) {
+        body.writeVarint(0);
+        continue;
+      }
+      int size = Math.min(list.size(), listFieldBound);
+      body.writeVarint(size + 1);
+      for (int i = 0; i < size; i++) {
+        body.writeVarint(stringTable.reference(list.get(i)));
+      }
+    }
+
+    byte[] rawPayload = record.getRawPayload();
+    body.writeVarint(rawPayload == null ? 0 : rawPayload.length + 1);
+    if (rawPayload != null) {
+      body.write(rawPayload, 0, rawPayload.length);
+    }
+
+    BinaryOutput output = new BinaryOutput(stringTable._encodedSize + body.size() + 16);
+    output.write(MAGIC_HEADER, 0, MAGIC_HEADER.length);
+    output.writeVarint(stringTable._strings.size());
+    for (byte[] string : stringTable._strings) {
+      output.writeVarint(string.length);
+      output.write(string, 0, string.length);
+    }
+    output.append(body);
+    return output.toByteArray();
+  }
+
+  /**
+   * Decode a binary encoded record that is not compressed.
+   */
+  static ZNRecord decode(byte[] bytes) throws IOException {
+    BinaryInput input = new BinaryInput(bytes, MAGIC_HEADER.length);
+
+    int tableSize = input.readCount();
+    String[] strings = new String[tableSize];
+    for (int i = 0; i < tableSize; i++) {
+      int length = input.readCount();
+      strings[i] = input.readString(length);
+    }
+
+    String id = input.readString(strings);
+    if (id == null) {
+      throw new IOException("ZNRecord id field is required!");
+    }
+    ZNRecord record = new ZNRecord(id);
+
+    int simpleFieldCount = input.readCount();
+    record.setSimpleFields(readStringMap(input, strings, simpleFieldCount));
+
+    int mapFieldCount = input.readCount();
+    Map<String, Map<String, String>> mapFields = newMap(mapFieldCount);
+    for (int i = 0; i < mapFieldCount; i++) {
+      String key = input.readString(strings);
+      int size = input.readCount();
+      mapFields.put(key, size == 0 ? null : readStringMap(input, strings, size - 1));
+    }
+    record.setMapFields(mapFields);
+
+    int listFieldCount = input.readCount();
+    Map<String, List<String>> listFields = newMap(listFieldCount);
+    for (int i = 0; i < listFieldCount; i++) {
+      String key = input.readString(strings);
+      int size = input.readCount();
+      List<String> list = null;
+      if (size > 0) {
+        list = new ArrayList<>(size - 1);
+        for (int j = 1; j < size; j++) {
+          list.add(input.readString(strings));
+        }
+      }
+      listFields.put(key, list);
+    }
+    record.setListFields(listFields);
+
+    int rawPayloadSize = input.readCount();
+    if (rawPayloadSize > 0) {
+      record.setRawPayload(input.readBytes(rawPayloadSize - 1));
+    }
+    if (input._position != bytes.length) {
+      throw new IOException("Unexpected trailing bytes in the binary ZNRecord " + id);
+    }
+    return record;
+  }
+
+  private static void writeStringMap(BinaryOutput output, StringTable stringTable,
+      Map<String, String> map) {
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      output.writeVarint(stringTable.reference(entry.getKey()));
+      output.writeVarint(stringTable.reference(entry.getValue()));
+    }
+  }
+
+  private static Map<String, String> readStringMap(BinaryInput input, String[] strings, int size)
+      throws IOException {
+    Map<String, String> map = newMap(size);
+    for (int i = 0; i < size; i++) {
+      String key = input.readString(strings);
+      map.put(key, input.readString(strings));
+    }
+    return map;
+  }
+
+  private static <V> Map<String, V> newMap(int size) {
+    return new LinkedHashMap<>((int) (size / 0.75f) + 1);
+  }
+
+  private static int getListFieldBound(ZNRecord record) {
+    int max = Integer.MAX_VALUE;
+    String maxStr = record.getSimpleField(ZNRecord.LIST_FIELD_BOUND);
+    if (maxStr != null) {
+      try {
+        max = Integer.parseInt(maxStr);
+      } catch (Exception e) {
+        LOG.error("IllegalNumberFormat for list field bound: " + maxStr);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * The distinct strings of a record in the order of their first appearance.
+   */
+  private static class StringTable {
+    private final Map<String, Integer> _references = new HashMap<>();
+    private final List<byte[]> _strings = new ArrayList<>();
+    private int _encodedSize = 0;
+
+    int reference(String string) {
+      if (string == null) {
+        return NULL_REFERENCE;
+      }
+      Integer reference = _references.get(string);
+      if (reference == null) {
+        byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+        _strings.add(encoded);
+        _encodedSize += encoded.length + 5;
+        reference = _strings.size();
+        _references.put(string, reference);
+      }
+      return reference;
+    }
+  }
+
+  /**
+   * A growable byte buffer. Unlike ByteArrayOutputStream, the writes are not synchronized.
+   */
+  private static class BinaryOutput {
+    private byte[] _buffer;
+    private int _size = 0;
+
+    BinaryOutput(int capacity) {
+      _buffer = new byte[capacity];
+    }
+
+    int size() {
+      return _size;
+    }
+
+    void writeVarint(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        _buffer[_size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      _buffer[_size++] = (byte) value;
+    }
+
+    void write(byte[] bytes, int offset, int length) {
+      ensureCapacity(length);
+      System.arraycopy(bytes, offset, _buffer, _size, length);
+      _size += length;
+    }
+
+    void append(BinaryOutput other) {
+      write(other._buffer, 0, other._size);
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(_buffer, _size);
+    }
+
+    private void ensureCapacity(int length) {
+      if (_size + length > _buffer.length) {
+        _buffer = Arrays.copyOf(_buffer, Math.max(_buffer.length * 2, _size + length));
+      }
+    }
+  }
+
+  private static class BinaryInput {
+    private final byte[] _bytes;
+    private int _position;
+
+    BinaryInput(byte[] bytes, int position) {
+      _bytes = bytes;
+      _position = position;
+    }
+
+    int readVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        if (_position >= _bytes.length) {
+          throw new IOException("Unexpected end of the binary ZNRecord");
+        }
+        byte b = _bytes[_position++];
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint in the binary ZNRecord");
+    }
+
+    /**
+     * Read a count or a length, which can never be larger than the remaining bytes.
+     */
+    int readCount() throws IOException {
+      int count = readVarint();
+      if (count < 0 || count > _bytes.length - _position + 1) {
+        throw new IOException("Invalid length " + count + " in the binary ZNRecord");
+      }
+      return count;
+    }
+
+    String readString(int length) throws IOException {
+      if (length > _bytes.length - _position) {
+        throw new IOException("Unexpected end of the binary ZNRecord");
+      }
+      String string = new String(_bytes, _position, length, StandardCharsets.UTF_8);
+      _position += length;
+      return string;
+    }
+
+    String readString(String[] strings) throws IOException {
+      int reference = readVarint();
+      if (reference == NULL_REFERENCE) {
+        return null;
+      }
+      if (reference < 0 || reference > strings.length) {
+        throw new IOException("Invalid string reference " + reference + " in the binary ZNRecord");
+      }
+      return strings[reference - 1];
+    }
+
+    byte[] readBytes(int length) throws IOException {
+      if (length > _bytes.length - _position) {
+        throw new IOException("Unexpected end of the binary ZNRecord");
+      }
+      byte[] result = new byte[length];
+      System.arraycopy(_bytes, _position, result, 0, length);
+      _position += length;
+      return result;
+    }
+  }
+}
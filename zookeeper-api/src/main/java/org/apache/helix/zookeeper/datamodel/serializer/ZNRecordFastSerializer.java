@@ -0,0 +1,348 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.util.ZNRecordUtil;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A high-throughput ZNRecord serializer that is a drop-in replacement of
+ * {@link ZNRecordSerializer}.
+ * <p>
+ * The ZNRecord is written as compact JSON by a Jackson generator, and read by a streaming parser
+ * that fills the field maps directly, so no data binding or mapper configuration is involved
+ * per call. The serialization buffers are reused per thread.
+ * <p>
+ * The output is plain JSON with the same fields as {@link ZNRecordSerializer}, and the same
+ * compression and write size limit rules are applied. So the data written by this serializer can
+ * be read by the other JSON serializers and vice versa, and it can be enabled for some paths only
+ * with a {@link ChainedPathZkSerializer}.
+ */
+public class ZNRecordFastSerializer implements ZkSerializer {
+  private static final Logger LOG = LoggerFactory.getLogger(ZNRecordFastSerializer.class);
+
+  private static final String ID_FIELD = "id";
+  private static final String SIMPLE_FIELDS = "simpleFields";
+  private static final String LIST_FIELDS = "listFields";
+  private static final String MAP_FIELDS = "mapFields";
+  private static final String RAW_PAYLOAD_FIELD = "rawPayload";
+
+  // The buffers that grow larger than this are not kept for reuse.
+  private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+  // JsonFactory is thread safe, and it recycles the internal parser/generator buffers.
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final ThreadLocal<PooledBuffers> BUFFERS =
+      ThreadLocal.withInitial(PooledBuffers::new);
+
+  @Override
+  public byte[] serialize(Object data) throws ZkMarshallingError {
+    if (!(data instanceof ZNRecord)) {
+      // null is NOT an instance of any class
+      LOG.error("Input object must be of type ZNRecord but it is " + data
+          + ". Will not write to zk");
+      throw new ZkMarshallingError("Input object is not of type ZNRecord (was " + data + ")");
+    }
+    ZNRecord record = (ZNRecord) data;
+
+    PooledBuffers buffers = BUFFERS.get();
+    byte[] serializedBytes;
+    boolean isCompressed = false;
+    try {
+      PooledOutputStream jsonBuffer = buffers.getJsonBuffer();
+      try (JsonGenerator generator = JSON_FACTORY.createGenerator(jsonBuffer)) {
+        writeRecord(generator, record);
+      }
+      // apply compression if needed
+      if (ZNRecordUtil.shouldCompress(record, jsonBuffer.size())) {
+        PooledOutputStream compressBuffer = buffers.getCompressBuffer();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressBuffer)) {
+          jsonBuffer.writeTo(gzipOutputStream);
+        }
+        serializedBytes = compressBuffer.toByteArray();
+        isCompressed = true;
+      } else {
+        serializedBytes = jsonBuffer.toByteArray();
+      }
+    } catch (Exception e) {
+      LOG.error(
+          "Exception during data serialization. ZNRecord ID: {} will not be written to zk.",
+          record.getId(), e);
+      throw new ZkMarshallingError(e);
+    } finally {
+      buffers.release();
+    }
+
+    int writeSizeLimit = ZNRecordUtil.getSerializerWriteSizeLimit();
+    if (serializedBytes.length > writeSizeLimit) {
+      LOG.error("Data size: {} is greater than {} bytes, is compressed: {}, ZNRecord.id: {}."
+              + " Data will not be written to Zookeeper.", serializedBytes.length, writeSizeLimit,
+          isCompressed, record.getId());
+      throw new ZkMarshallingError(
+          "Data size: " + serializedBytes.length + " is greater than " + writeSizeLimit
+              + " bytes, is compressed: " + isCompressed + ", ZNRecord.id: " + record.getId());
+    }
+    return serializedBytes;
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws ZkMarshallingError {
+    if (bytes == null || bytes.length == 0) {
+      // reading a parent/null node
+      return null;
+    }
+
+    try {
+      byte[] uncompressedBytes = bytes;
+      if (GZipCompressionUtil.isCompressed(bytes)) {
+        uncompressedBytes = GZipCompressionUtil.uncompress(new ByteArrayInputStream(bytes));
+      }
+      // the data may be written by ZNRecordBinarySerializer
+      if (ZNRecordBinarySerializer.isBinaryEncoded(uncompressedBytes)) {
+        return ZNRecordBinarySerializer.decode(uncompressedBytes);
+      }
+      try (JsonParser parser = JSON_FACTORY.createParser(uncompressedBytes)) {
+        return readRecord(parser);
+      }
+    } catch (Exception e) {
+      LOG.error("Exception during deserialization of bytes: {}", new String(bytes), e);
+      return null;
+    }
+  }
+
+  private static void writeRecord(JsonGenerator generator, ZNRecord record) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField(ID_FIELD, record.getId());
+
+    generator.writeObjectFieldStart(SIMPLE_FIELDS);
+    writeStringMap(generator, record.getSimpleFields());
+    generator.writeEndObject();
+
+    generator.writeObjectFieldStart(MAP_FIELDS);
+    for (Map.Entry<String, Map<String, String>> entry : record.getMapFields().entrySet()) {
+      if (entry.getValue() == null) {
+        generator.writeNullField(entry.getKey());
+        continue;
+      }
+      generator.writeObjectFieldStart(entry.getKey());
+      writeStringMap(generator, entry.getValue());
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+
+    // apply retention policy on list field
+    int listFieldBound = getListFieldBound(record);
+    generator.writeObjectFieldStart(LIST_FIELDS);
+    for (Map.Entry<String, List<String>> entry : record.getListFields().entrySet()) {
+      if (entry.getValue() == null) {
+        generator.writeNullField(entry.getKey());
+        continue;
+      }
+      generator.writeArrayFieldStart(entry.getKey());
+      int count = 0;
+      for (String value : entry.getValue()) {
+        if (count++ >= listFieldBound) {
+          break;
+        }
+        generator.writeString(value);
+      }
+      generator.writeEndArray();
+    }
+    generator.writeEndObject();
+
+    byte[] rawPayload = record.getRawPayload();
+    if (rawPayload != null) {
+      generator.writeFieldName(RAW_PAYLOAD_FIELD);
+      generator.writeBinary(rawPayload);
+    }
+    generator.writeEndObject();
+  }
+
+  private static void writeStringMap(JsonGenerator generator, Map<String, String> map)
+      throws IOException {
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      generator.writeStringField(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private static ZNRecord readRecord(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "ZNRecord must be a JSON object");
+    }
+    String id = null;
+    Map<String, String> simpleFields = null;
+    Map<String, List<String>> listFields = null;
+    Map<String, Map<String, String>> mapFields = null;
+    byte[] rawPayload = null;
+
+    String fieldName;
+    while ((fieldName = parser.nextFieldName()) != null) {
+      if (parser.nextToken() == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      switch (fieldName) {
+      case ID_FIELD:
+        id = parser.getValueAsString();
+        break;
+      case SIMPLE_FIELDS:
+        simpleFields = readStringMap(parser);
+        break;
+      case LIST_FIELDS:
+        listFields = new LinkedHashMap<>();
+        while ((fieldName = parser.nextFieldName()) != null) {
+          listFields.put(fieldName, readStringList(parser));
+        }
+        break;
+      case MAP_FIELDS:
+        mapFields = new LinkedHashMap<>();
+        while ((fieldName = parser.nextFieldName()) != null) {
+          mapFields.put(fieldName,
+              parser.nextToken() == JsonToken.VALUE_NULL ? null : readStringMap(parser));
+        }
+        break;
+      case RAW_PAYLOAD_FIELD:
+        rawPayload = parser.getBinaryValue();
+        break;
+      default:
+        // Same as the JSON mapper, the unknown properties are ignored.
+        parser.skipChildren();
+      }
+    }
+
+    if (id == null) {
+      throw new JsonParseException(parser, "ZNRecord id field is required!");
+    }
+    ZNRecord record = new ZNRecord(id);
+    if (simpleFields != null) {
+      record.setSimpleFields(simpleFields);
+    }
+    if (listFields != null) {
+      record.setListFields(listFields);
+    }
+    if (mapFields != null) {
+      record.setMapFields(mapFields);
+    }
+    record.setRawPayload(rawPayload);
+    return record;
+  }
+
+  /**
+   * Read a JSON object of strings. The parser must be at the START_OBJECT token.
+   */
+  private static Map<String, String> readStringMap(JsonParser parser) throws IOException {
+    if (!parser.isExpectedStartObjectToken()) {
+      throw new JsonParseException(parser, "Expect a JSON object of strings");
+    }
+    Map<String, String> map = new LinkedHashMap<>();
+    String key;
+    while ((key = parser.nextFieldName()) != null) {
+      parser.nextToken();
+      map.put(key, parser.getValueAsString());
+    }
+    return map;
+  }
+
+  /**
+   * Read a JSON array of strings.
+   */
+  private static List<String> readStringList(JsonParser parser) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token != JsonToken.START_ARRAY) {
+      throw new JsonParseException(parser, "Expect a JSON array of strings");
+    }
+    List<String> list = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      list.add(parser.getValueAsString());
+    }
+    return list;
+  }
+
+  private static int getListFieldBound(ZNRecord record) {
+    int max = Integer.MAX_VALUE;
+    String maxStr = record.getSimpleField(ZNRecord.LIST_FIELD_BOUND);
+    if (maxStr != null) {
+      try {
+        max = Integer.parseInt(maxStr);
+      } catch (Exception e) {
+        LOG.error("IllegalNumberFormat for list field bound: " + maxStr);
+      }
+    }
+    return max;
+  }
+
+  private static class PooledOutputStream extends ByteArrayOutputStream {
+    boolean isOversized() {
+      return buf.length > MAX_POOLED_BUFFER_SIZE;
+    }
+  }
+
+  /**
+   * The serialization buffers of a thread.
+   */
+  private static class PooledBuffers {
+    private PooledOutputStream _jsonBuffer = new PooledOutputStream();
+    private PooledOutputStream _compressBuffer = new PooledOutputStream();
+
+    PooledOutputStream getJsonBuffer() {
+      _jsonBuffer.reset();
+      return _jsonBuffer;
+    }
+
+    PooledOutputStream getCompressBuffer() {
+      _compressBuffer.reset();
+      return _compressBuffer;
+    }
+
+    /**
+     * Drop the buffers that have grown too large, so an occasional large record does not pin
+     * the memory of the thread.
+     */
+    void release() {
+      if (_jsonBuffer.isOversized()) {
+        _jsonBuffer = new PooledOutputStream();
+      }
+      if (_compressBuffer.isOversized()) {
+        _compressBuffer = new PooledOutputStream();
+      }
+    }
+  }
+}
@@ -19,8 +19,14 @@ package org.apache.helix.zookeeper.datamodel.serializer;
  * under the License.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.introspect.CodehausJacksonIntrospector;
@@ -31,11 +37,15 @@ import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 /**
  * ZNRecordJacksonSerializer serializes ZNRecord objects into a byte array using Jackson. Note that
  * this serializer doesn't check for the size of the resulting binary.
+ * The records that are written by {@link ZNRecordBinarySerializer} are detected and read as well.
  */
 public class ZNRecordJacksonSerializer implements ZkSerializer {
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
       // TODO: remove it after upgrading ZNRecord's annotations to Jackson 2
-      .setAnnotationIntrospector(new CodehausJacksonIntrospector());
+      .setAnnotationIntrospector(new CodehausJacksonIntrospector())
+      // The streams are owned by the callers of the streaming methods.
+      .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+      .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
 
   @Override
   public byte[] serialize(Object record) throws ZkMarshallingError {
@@ -62,10 +72,62 @@ public class ZNRecordJacksonSerializer implements ZkSerializer {
 
     ZNRecord record;
     try {
+      // the data may be written by ZNRecordBinarySerializer
+      if (ZNRecordBinarySerializer.isBinaryEncoded(bytes)) {
+        return ZNRecordBinarySerializer.decode(bytes);
+      }
       record = OBJECT_MAPPER.readValue(bytes, ZNRecord.class);
     } catch (IOException e) {
       throw new ZkMarshallingError("Exception during deserialization!", e);
     }
     return record;
   }
+
+  /**
+   * Serialize the ZNRecord into the output stream, so a large record does not need to be held as
+   * one byte array. The stream is not closed.
+   */
+  public void serialize(ZNRecord record, OutputStream outputStream) throws ZkMarshallingError {
+    try {
+      OBJECT_MAPPER.writeValue(outputStream, record);
+    } catch (IOException e) {
+      throw new ZkMarshallingError(
+          String.format("Exception during serialization. ZNRecord id: %s", record.getId()), e);
+    }
+  }
+
+  /**
+   * Deserialize a ZNRecord from the input stream. The stream is not closed.
+   */
+  public ZNRecord deserialize(InputStream inputStream) throws ZkMarshallingError {
+    try {
+      // Peek at the first bytes, since the data may be written by ZNRecordBinarySerializer
+      int headerLength = ZNRecordBinarySerializer.MAGIC_HEADER.length;
+      PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, headerLength);
+      byte[] header = new byte[headerLength];
+      int headerRead = 0;
+      int read;
+      while (headerRead < headerLength
+          && (read = pushbackStream.read(header, headerRead, headerLength - headerRead)) != -1) {
+        headerRead += read;
+      }
+      pushbackStream.unread(header, 0, headerRead);
+      if (headerRead == headerLength && ZNRecordBinarySerializer.isBinaryEncoded(header)) {
+        return ZNRecordBinarySerializer.decode(readFully(pushbackStream));
+      }
+      return OBJECT_MAPPER.readValue(pushbackStream, ZNRecord.class);
+    } catch (IOException e) {
+      throw new ZkMarshallingError("Exception during deserialization!", e);
+    }
+  }
+
+  private static byte[] readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      outputStream.write(buffer, 0, read);
+    }
+    return outputStream.toByteArray();
+  }
 }
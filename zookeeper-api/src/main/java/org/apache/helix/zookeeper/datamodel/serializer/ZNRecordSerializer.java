@@ -44,6 +44,16 @@ public class ZNRecordSerializer implements ZkSerializer {
       // TODO: remove it after upgrading ZNRecord's annotations to Jackson 2
       .setAnnotationIntrospector(new CodehausJacksonIntrospector());
 
+  static {
+    // Configure the shared mapper once. Reconfiguring it on every call is not thread safe and
+    // invalidates the cached (de)serializers of the mapper.
+    mapper.enable(SerializationFeature.INDENT_OUTPUT);
+    mapper.enable(MapperFeature.AUTO_DETECT_FIELDS);
+    mapper.enable(MapperFeature.AUTO_DETECT_SETTERS);
+    mapper.enable(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS);
+    mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  }
+
   private static int getListFieldBound(ZNRecord record) {
     int max = Integer.MAX_VALUE;
     if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
@@ -81,10 +91,6 @@ public class ZNRecordSerializer implements ZkSerializer {
     }
 
     // do serialization
-    mapper.enable(SerializationFeature.INDENT_OUTPUT);
-    mapper.enable(MapperFeature.AUTO_DETECT_FIELDS);
-    mapper.enable(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS);
-
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     byte[] serializedBytes;
     boolean isCompressed = false;
@@ -126,15 +132,17 @@ public class ZNRecordSerializer implements ZkSerializer {
 
     ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
 
-    mapper.enable(MapperFeature.AUTO_DETECT_FIELDS);
-    mapper.enable(MapperFeature.AUTO_DETECT_SETTERS);
-    mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     try {
       //decompress the data if its already compressed
+      byte[] uncompressedBytes = bytes;
       if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
+        uncompressedBytes = GZipCompressionUtil.uncompress(bais);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
+      // the data may be written by ZNRecordBinarySerializer
+      if (ZNRecordBinarySerializer.isBinaryEncoded(uncompressedBytes)) {
+        return ZNRecordBinarySerializer.decode(uncompressedBytes);
+      }
 
       return mapper.readValue(bais, ZNRecord.class);
     } catch (Exception e) {
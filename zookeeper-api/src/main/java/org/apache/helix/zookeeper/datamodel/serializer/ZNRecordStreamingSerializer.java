@@ -198,10 +198,15 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
 
     try {
       // decompress the data if its already compressed
+      byte[] uncompressedBytes = bytes;
       if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
+        uncompressedBytes = GZipCompressionUtil.uncompress(bais);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
+      // the data may be written by ZNRecordBinarySerializer
+      if (ZNRecordBinarySerializer.isBinaryEncoded(uncompressedBytes)) {
+        return ZNRecordBinarySerializer.decode(uncompressedBytes);
+      }
       JsonFactory f = new JsonFactory();
       JsonParser jp = f.createJsonParser(bais);
 
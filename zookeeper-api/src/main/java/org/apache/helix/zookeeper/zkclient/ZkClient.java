@@ -109,6 +109,8 @@ public class ZkClient implements Watcher {
   private static final boolean SYNC_ON_SESSION = Boolean.parseBoolean(
       System.getProperty(ZkSystemPropertyKeys.ZK_AUTOSYNC_ENABLED, "true"));
   private static final String SYNC_PATH = "/";
+  private static final int EVENT_THREAD_WORKER_COUNT =
+      Integer.getInteger(ZkSystemPropertyKeys.ZK_EVENT_THREAD_WORKER_COUNT, 0);
 
   private static AtomicLong UID = new AtomicLong(0);
   public final long _uid;
@@ -118,6 +120,10 @@ public class ZkClient implements Watcher {
   private static final int WRITE_SIZE_LIMIT =
       Integer.getInteger(ZkSystemPropertyKeys.JUTE_MAXBUFFER, ZNRecord.SIZE_LIMIT);
 
+  // The number of the reads issued by each thread, so the reads can be attributed to the caller
+  private static final ThreadLocal<long[]> THREAD_READ_COUNT =
+      ThreadLocal.withInitial(() -> new long[1]);
+
   private final IZkConnection _connection;
   private final long _operationRetryTimeoutInMillis;
   private final Map<String, Set<IZkChildListener>> _childListener = new ConcurrentHashMap<>();
@@ -1935,7 +1941,8 @@ public class ZkClient implements Watcher {
         if (!recListeners.isEmpty()) {
           for (final RecursivePersistListener listener : recListeners) {
             _eventThread.send(
-                new ZkEventThread.ZkEvent("Data of " + path + " changed sent to " + listener) {
+                new ZkEventThread.ZkEvent("Data of " + path + " changed sent to " + listener, null,
+                    path) {
                   @Override
                   public void run() throws Exception {
                     listener.handleZNodeChange(path, event.getType());
@@ -1955,7 +1962,7 @@ public class ZkClient implements Watcher {
       for (final IZkDataListenerEntry listener : listeners) {
         _eventThread.send(new ZkEventThread.ZkEvent(
             "Data of " + path + " changed sent to " + listener.getDataListener()
-                + " prefetch data: " + listener.isPrefetchData()) {
+                + " prefetch data: " + listener.isPrefetchData(), null, path) {
           @Override
           public void run() throws Exception {
             if (!pathStatRecord.pathChecked()) {
@@ -2005,7 +2012,8 @@ public class ZkClient implements Watcher {
     try {
       final ZkPathStatRecord pathStatRecord = new ZkPathStatRecord(path);
       for (final IZkChildListener listener : childListeners) {
-        _eventThread.send(new ZkEventThread.ZkEvent("Children of " + path + " changed sent to " + listener) {
+        _eventThread.send(new ZkEventThread.ZkEvent(
+            "Children of " + path + " changed sent to " + listener, null, path) {
           @Override
           public void run() throws Exception {
             if (!pathStatRecord.pathChecked()) {
@@ -2525,6 +2533,7 @@ public class ZkClient implements Watcher {
 
   public void asyncGetData(final String path, final ZkAsyncCallbacks.GetDataCallbackHandler cb) {
     final long startT = System.currentTimeMillis();
+    countThreadRead();
     try {
       retryUntilConnected(() -> {
         ((ZkConnection) getConnection()).getZookeeper().getData(path, null, cb,
@@ -2546,6 +2555,7 @@ public class ZkClient implements Watcher {
 
   public void asyncExists(final String path, final ZkAsyncCallbacks.ExistsCallbackHandler cb) {
     final long startT = System.currentTimeMillis();
+    countThreadRead();
     try {
       retryUntilConnected(() -> {
         ((ZkConnection) getConnection()).getZookeeper().exists(path, null, cb,
@@ -2748,7 +2758,7 @@ public class ZkClient implements Watcher {
       setShutdownTrigger(false);
 
       IZkConnection zkConnection = getConnection();
-      _eventThread = new ZkEventThread(zkConnection.getServers());
+      _eventThread = new ZkEventThread(zkConnection.getServers(), EVENT_THREAD_WORKER_COUNT);
 
       if (_monitor != null) {
         boolean result = _monitor.setAndInitZkEventThreadMonitor(_eventThread);
@@ -3000,9 +3010,25 @@ public class ZkClient implements Watcher {
     return ((SessionAwareZNRecord) data).getExpectedSessionId();
   }
 
+  /**
+   * @return the number of the ZooKeeper reads that have been issued by the current thread through
+   *         any ZkClient. The reads of an operation can be measured by the difference of the
+   *         counts before and after it.
+   */
+  public static long getThreadReadCount() {
+    return THREAD_READ_COUNT.get()[0];
+  }
+
+  private static void countThreadRead() {
+    THREAD_READ_COUNT.get()[0]++;
+  }
+
   // operations to update monitor's counters
   private void record(String path, byte[] data, long startTimeMilliSec,
       ZkClientMonitor.AccessType accessType) {
+    if (accessType == ZkClientMonitor.AccessType.READ) {
+      countThreadRead();
+    }
     if (_monitor != null) {
       int dataSize = (data != null) ? data.length : 0;
       _monitor.record(path, dataSize, startTimeMilliSec, accessType);
@@ -3014,6 +3040,9 @@ public class ZkClient implements Watcher {
   }
 
   private void recordFailure(String path, ZkClientMonitor.AccessType accessType) {
+    if (accessType == ZkClientMonitor.AccessType.READ) {
+      countThreadRead();
+    }
     if (_monitor != null) {
       _monitor.recordFailure(path, accessType);
     }
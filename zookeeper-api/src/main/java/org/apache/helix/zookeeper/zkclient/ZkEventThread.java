@@ -22,6 +22,7 @@ package org.apache.helix.zookeeper.zkclient;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
@@ -35,14 +36,23 @@ import org.slf4j.LoggerFactory;
  * would stop the ZkClient from receiving events from {@link ZooKeeper} as soon as one of the listeners blocks (because
  * it is waiting for something). {@link ZkClient} would then for instance not be able to maintain it's connection state
  * anymore.
+ * <p>
+ * If worker threads are configured, the events of a path are handed to the worker chosen by the hash of the path, so
+ * a slow listener only delays the events of the paths on its worker. The events of the same path are still handled in
+ * order. The events without a path, such as the session events, are barriers: they are handled by this thread once
+ * all the events before them are handled, and the events after them wait until they are handled.
  */
 public class ZkEventThread extends Thread {
   private static Logger LOG = LoggerFactory.getLogger(ZkClient.class);
 
   private BlockingQueue<ZkEvent> _events = new LinkedBlockingQueue<>();
+  private final EventWorker[] _workers;
+  // The number of the events handed to the workers and not handled yet
+  private final Object _workerEventLock = new Object();
+  private long _workerEventCount = 0L;
 
-  private long _totalEventCount = 0L;
-  private long _totalEventCountHandled = 0L;
+  private final AtomicLong _totalEventCount = new AtomicLong(0L);
+  private final AtomicLong _totalEventCountHandled = new AtomicLong(0L);
 
   private static AtomicInteger _eventId = new AtomicInteger(0);
 
@@ -50,18 +60,31 @@ public class ZkEventThread extends Thread {
 
     private final String _description;
     private final String _sessionId;
+    private final String _path;
 
     public ZkEvent(String description) {
       this(description, null);
     }
 
     ZkEvent(String description, String sessionId) {
+      this(description, sessionId, null);
+    }
+
+    ZkEvent(String description, String sessionId, String path) {
       _description = description;
       _sessionId = sessionId;
+      _path = path;
     }
 
     public abstract void run() throws Exception;
 
+    /**
+     * @return the path of the event, or null if the event is not about a path
+     */
+    String getPath() {
+      return _path;
+    }
+
     /**
      * Returns a string representation of the zk event.
      * Ex. ZkEvent[description: new session event sent to listener; session: 1001754ac3b0007]
@@ -82,49 +105,145 @@ public class ZkEventThread extends Thread {
   }
 
   ZkEventThread(String name) {
+    this(name, 0);
+  }
+
+  /**
+   * @param name the name of the ZK servers
+   * @param workerCount the number of the worker threads that handle the path events. 0 handles all
+   *                    the events on this thread.
+   */
+  ZkEventThread(String name, int workerCount) {
     setDaemon(true);
     setName("ZkClient-EventThread-" + getId() + "-" + name);
+    _workers = new EventWorker[Math.max(workerCount, 0)];
+    for (int i = 0; i < _workers.length; i++) {
+      _workers[i] = new EventWorker(getName() + "-Worker-" + i);
+    }
   }
 
   @Override public void run() {
     LOG.info("Starting ZkClient event thread.");
+    for (EventWorker worker : _workers) {
+      worker.start();
+    }
     try {
       while (!isInterrupted()) {
         ZkEvent zkEvent = _events.take();
-        int eventId = _eventId.incrementAndGet();
-        LOG.debug("Delivering event id:{} event: {}", eventId, zkEvent);
-        try {
-          zkEvent.run();
-          _totalEventCountHandled ++;
-        } catch (InterruptedException e) {
-          interrupt();
-        } catch (ZkInterruptedException e) {
-          interrupt();
-        } catch (Throwable e) {
-          LOG.error("Error handling event " + zkEvent, e);
+        if (_workers.length > 0) {
+          if (zkEvent.getPath() != null) {
+            dispatch(zkEvent);
+            continue;
+          }
+          awaitWorkers();
         }
-        LOG.debug("Delivering event id: {} done", eventId);
+        handle(zkEvent);
       }
     } catch (InterruptedException e) {
       LOG.info("Terminate ZkClient event thread.");
+    } finally {
+      for (EventWorker worker : _workers) {
+        worker.interrupt();
+      }
     }
 
     LOG.info("Terminate ZkClient event thread.");
   }
 
+  private void handle(ZkEvent zkEvent) {
+    int eventId = _eventId.incrementAndGet();
+    LOG.debug("Delivering event id:{} event: {}", eventId, zkEvent);
+    try {
+      zkEvent.run();
+      _totalEventCountHandled.incrementAndGet();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ZkInterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      LOG.error("Error handling event " + zkEvent, e);
+    }
+    LOG.debug("Delivering event id: {} done", eventId);
+  }
+
+  private void dispatch(ZkEvent zkEvent) {
+    synchronized (_workerEventLock) {
+      _workerEventCount++;
+    }
+    _workers[Math.floorMod(zkEvent.getPath().hashCode(), _workers.length)]._events.add(zkEvent);
+  }
+
+  private void awaitWorkers() throws InterruptedException {
+    synchronized (_workerEventLock) {
+      while (_workerEventCount > 0) {
+        _workerEventLock.wait();
+      }
+    }
+  }
+
+  private class EventWorker extends Thread {
+    private final BlockingQueue<ZkEvent> _events = new LinkedBlockingQueue<>();
+
+    private EventWorker(String name) {
+      setDaemon(true);
+      setName(name);
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!isInterrupted()) {
+          ZkEvent zkEvent = _events.take();
+          try {
+            handle(zkEvent);
+          } finally {
+            synchronized (_workerEventLock) {
+              if (--_workerEventCount == 0) {
+                _workerEventLock.notifyAll();
+              }
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        LOG.debug("Terminate ZkClient event worker thread {}.", getName());
+      }
+      // Like the single event thread, stop delivering the events once a listener is interrupted.
+      ZkEventThread.this.interrupt();
+    }
+  }
+
   public void send(ZkEvent event) {
     if (!isInterrupted()) {
       LOG.debug("New event: " + event);
       _events.add(event);
-      _totalEventCount ++;
+      _totalEventCount.incrementAndGet();
     }
   }
 
   public long getPendingEventsCount() {
-    return _events.size();
+    long pendingEventsCount = _events.size();
+    for (EventWorker worker : _workers) {
+      pendingEventsCount += worker._events.size();
+    }
+    return pendingEventsCount;
+  }
+
+  /**
+   * @return the number of the worker threads, 0 if all the events are handled by this thread
+   */
+  public int getWorkerCount() {
+    return _workers.length;
+  }
+
+  /**
+   * @param workerIndex the index of the worker thread
+   * @return the number of the events queued for the worker thread
+   */
+  public long getWorkerPendingEventsCount(int workerIndex) {
+    return _workers[workerIndex]._events.size();
   }
 
-  public long getTotalEventCount() { return _totalEventCount; }
+  public long getTotalEventCount() { return _totalEventCount.get(); }
 
-  public long getTotalHandledEventCount() { return _totalEventCountHandled; }
+  public long getTotalHandledEventCount() { return _totalEventCountHandled.get(); }
 }
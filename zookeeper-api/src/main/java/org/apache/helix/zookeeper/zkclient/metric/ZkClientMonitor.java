@@ -266,6 +266,10 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
   }
 
   class ZkThreadMetric extends DynamicMetric<ZkEventThread, ZkEventThread> {
+    // The pending callbacks of each worker thread, e.g. PendingCallbackGauge.Worker0
+    private static final String WORKER_PENDING_CALLBACK_GAUGE_PREFIX =
+        "PendingCallbackGauge.Worker";
+
     public ZkThreadMetric(ZkEventThread eventThread) {
       super("ZkEventThead", eventThread);
     }
@@ -281,6 +285,11 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
       attributeInfoSet.add(
           new MBeanAttributeInfo("TotalCallbackHandledCounter", Long.TYPE.getName(),
               DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      for (int i = 0; i < eventThread.getWorkerCount(); i++) {
+        attributeInfoSet.add(
+            new MBeanAttributeInfo(WORKER_PENDING_CALLBACK_GAUGE_PREFIX + i, Long.TYPE.getName(),
+                DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      }
       return attributeInfoSet;
     }
 
@@ -294,6 +303,13 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
       case "TotalCallbackHandledCounter":
         return getMetricObject().getTotalHandledEventCount();
       default:
+        if (attributeName.startsWith(WORKER_PENDING_CALLBACK_GAUGE_PREFIX)) {
+          int workerIndex = Integer.parseInt(
+              attributeName.substring(WORKER_PENDING_CALLBACK_GAUGE_PREFIX.length()));
+          if (workerIndex < getMetricObject().getWorkerCount()) {
+            return getMetricObject().getWorkerPendingEventsCount(workerIndex);
+          }
+        }
         throw new MetricException("Unknown attribute name: " + attributeName);
       }
     }
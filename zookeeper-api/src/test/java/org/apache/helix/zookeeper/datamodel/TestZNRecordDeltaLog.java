@@ -0,0 +1,104 @@
+package org.apache.helix.zookeeper.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZNRecordDeltaLog {
+  @Test
+  public void testLogAndAssemble() {
+    ZNRecord record = createRecord(10);
+    ZNRecord snapshot = ZNRecordDeltaLog.createSnapshot(record, "snapshot0");
+    Assert.assertFalse(ZNRecordDeltaLog.isDeltaLog(record));
+    Assert.assertTrue(snapshot.getSimpleFields().containsKey(ZNRecordDeltaLog.SNAPSHOT_ID_FIELD));
+
+    ZNRecord updated = createRecord(10);
+    updated.setSimpleField("simple", "changed");
+    updated.setMapField("p_1", Collections.singletonMap("host_0", "OFFLINE"));
+    updated.setMapField("p_new", Collections.singletonMap("host_1", "ONLINE"));
+    updated.getMapFields().remove("p_2");
+    updated.getMapFields().remove("p_3");
+
+    ZNRecord log = ZNRecordDeltaLog.createLog(updated, snapshot);
+    Assert.assertTrue(ZNRecordDeltaLog.isDeltaLog(log));
+    Assert.assertEquals(log.getMapFields().keySet(),
+        new HashSet<>(Arrays.asList("p_1", "p_new")));
+    Assert.assertEquals(ZNRecordDeltaLog.getLogSize(log), 4);
+
+    log.setVersion(5);
+    log.setCreationTime(100L);
+    log.setModifiedTime(200L);
+    ZNRecord assembled = ZNRecordDeltaLog.assemble(log, snapshot);
+    Assert.assertEquals(assembled, updated);
+    Assert.assertFalse(ZNRecordDeltaLog.isDeltaLog(assembled));
+    Assert.assertEquals(assembled.getVersion(), 5);
+    Assert.assertEquals(assembled.getCreationTime(), 100L);
+    Assert.assertEquals(assembled.getModifiedTime(), 200L);
+
+    // The snapshot is not modified by assembling, and the assembled record does not share it.
+    Assert.assertEquals(snapshot.getMapField("p_1").get("host_0"), "MASTER");
+    Assert.assertTrue(snapshot.getMapFields().containsKey("p_2"));
+    assembled.getMapField("p_0").put("host_0", "ERROR");
+    Assert.assertEquals(snapshot.getMapField("p_0").get("host_0"), "MASTER");
+
+    // An unchanged record has an empty log.
+    Assert.assertEquals(ZNRecordDeltaLog.getLogSize(ZNRecordDeltaLog.createLog(record, snapshot)),
+        0);
+  }
+
+  @Test
+  public void testMismatchedSnapshot() {
+    ZNRecord record = createRecord(10);
+    ZNRecord snapshot = ZNRecordDeltaLog.createSnapshot(record, "snapshot0");
+    ZNRecord log = ZNRecordDeltaLog.createLog(record, snapshot);
+
+    Assert.assertNull(ZNRecordDeltaLog.assemble(log, null));
+    Assert.assertNull(
+        ZNRecordDeltaLog.assemble(log, ZNRecordDeltaLog.createSnapshot(record, "snapshot1")));
+    Assert.assertNull(ZNRecordDeltaLog.assemble(record, snapshot));
+
+    // The records that cannot be delta-encoded
+    ZNRecord listChanged = createRecord(10);
+    listChanged.setListField("list", Collections.singletonList("value"));
+    Assert.assertNull(ZNRecordDeltaLog.createLog(listChanged, snapshot));
+    ZNRecord rawPayload = createRecord(10);
+    rawPayload.setRawPayload(new byte[] {1});
+    Assert.assertNull(ZNRecordDeltaLog.createLog(rawPayload, snapshot));
+  }
+
+  private static ZNRecord createRecord(int numPartitions) {
+    ZNRecord record = new ZNRecord("resource");
+    record.setSimpleField("simple", "value");
+    for (int i = 0; i < numPartitions; i++) {
+      Map<String, String> stateMap = new HashMap<>();
+      stateMap.put("host_0", "MASTER");
+      stateMap.put("host_1", "SLAVE");
+      record.setMapField("p_" + i, stateMap);
+    }
+    return record;
+  }
+}
@@ -0,0 +1,161 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.zkclient.serialize.PathBasedZkSerializer;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZNRecordBinarySerializer {
+  private final ZkSerializer _binarySerializer = new ZNRecordBinarySerializer();
+
+  @Test
+  public void testRoundTrip() {
+    ZNRecord record = createExternalView("db", 100);
+    record.setSimpleField("nullValue", null);
+    record.setMapField("nullValueMap", Collections.singletonMap("key", null));
+    record.setMapField("nullMap", null);
+    record.setListField("nullValueList", Collections.singletonList(null));
+    record.setListField("emptyList", Collections.emptyList());
+    record.setSimpleField("unicode", "é中😀");
+    record.setRawPayload(new byte[] {0, 1, 2, (byte) 0xFF});
+
+    byte[] bytes = _binarySerializer.serialize(record);
+    Assert.assertTrue(ZNRecordBinarySerializer.isBinaryEncoded(bytes));
+    ZNRecord result = (ZNRecord) _binarySerializer.deserialize(bytes);
+    Assert.assertEquals(result, record);
+    Assert.assertEquals(result.getRawPayload(), record.getRawPayload());
+
+    ZNRecord emptyRecord = new ZNRecord("empty");
+    result = (ZNRecord) _binarySerializer.deserialize(_binarySerializer.serialize(emptyRecord));
+    Assert.assertEquals(result, emptyRecord);
+    Assert.assertNull(result.getRawPayload());
+  }
+
+  @Test
+  public void testSmallerThanJson() {
+    ZNRecord record = createExternalView("db", 1000);
+    byte[] binaryBytes = _binarySerializer.serialize(record);
+    byte[] jsonBytes = new ZNRecordSerializer().serialize(record);
+    Assert.assertTrue(binaryBytes.length * 4 < jsonBytes.length,
+        "binary: " + binaryBytes.length + ", json: " + jsonBytes.length);
+  }
+
+  @Test
+  public void testAutoDetection() {
+    ZNRecord record = createExternalView("db", 10);
+    ZNRecord compressedRecord = createExternalView("compressed", 10);
+    compressedRecord.setBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, true);
+    byte[] compressedBytes = _binarySerializer.serialize(compressedRecord);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(compressedBytes));
+
+    for (ZkSerializer jsonSerializer : Arrays.asList(new ZNRecordSerializer(),
+        new ZNRecordFastSerializer(), new ZNRecordStreamingSerializer())) {
+      // The JSON serializers read the binary records.
+      Assert.assertEquals(jsonSerializer.deserialize(_binarySerializer.serialize(record)), record);
+      Assert.assertEquals(jsonSerializer.deserialize(compressedBytes), compressedRecord);
+      // The binary serializer reads the JSON records.
+      byte[] jsonBytes = jsonSerializer.serialize(record);
+      Assert.assertFalse(ZNRecordBinarySerializer.isBinaryEncoded(jsonBytes));
+      Assert.assertEquals(_binarySerializer.deserialize(jsonBytes), record);
+    }
+
+    // The Jackson serializer, which does not compress, reads the uncompressed binary records.
+    ZNRecordJacksonSerializer jacksonSerializer = new ZNRecordJacksonSerializer();
+    byte[] binaryBytes = _binarySerializer.serialize(record);
+    Assert.assertEquals(jacksonSerializer.deserialize(binaryBytes), record);
+    Assert.assertEquals(jacksonSerializer.deserialize(new ByteArrayInputStream(binaryBytes)),
+        record);
+    byte[] jsonBytes = jacksonSerializer.serialize(record);
+    Assert.assertEquals(jacksonSerializer.deserialize(new ByteArrayInputStream(jsonBytes)), record);
+  }
+
+  @Test
+  public void testPerPathSerializer() {
+    PathBasedZkSerializer serializer = ChainedPathZkSerializer.builder(new ZNRecordSerializer())
+        .serialize("/cluster/EXTERNALVIEW", _binarySerializer).build();
+    ZNRecord record = createExternalView("db", 10);
+
+    byte[] bytes = serializer.serialize(record, "/cluster/EXTERNALVIEW/db");
+    Assert.assertTrue(ZNRecordBinarySerializer.isBinaryEncoded(bytes));
+    Assert.assertEquals(serializer.deserialize(bytes, "/cluster/EXTERNALVIEW/db"), record);
+    // A path that is not configured still reads the binary record.
+    Assert.assertEquals(serializer.deserialize(bytes, "/cluster/IDEALSTATES/db"), record);
+
+    bytes = serializer.serialize(record, "/cluster/IDEALSTATES/db");
+    Assert.assertFalse(ZNRecordBinarySerializer.isBinaryEncoded(bytes));
+    Assert.assertEquals(serializer.deserialize(bytes, "/cluster/EXTERNALVIEW/db"), record);
+  }
+
+  @Test
+  public void testListFieldBound() {
+    ZNRecord record = new ZNRecord("boundedRecord");
+    record.setListField("list", Arrays.asList("1", "2", "3", "4"));
+    record.setSimpleField(ZNRecord.LIST_FIELD_BOUND, "2");
+
+    ZNRecord result =
+        (ZNRecord) _binarySerializer.deserialize(_binarySerializer.serialize(record));
+    Assert.assertEquals(result.getListField("list"), Arrays.asList("1", "2"));
+    Assert.assertEquals(record.getListField("list").size(), 4);
+  }
+
+  @Test
+  public void testCorruptedData() {
+    byte[] bytes = _binarySerializer.serialize(createExternalView("db", 10));
+    // Truncated data
+    Assert.assertNull(_binarySerializer.deserialize(Arrays.copyOf(bytes, bytes.length - 1)));
+    Assert.assertNull(new ZNRecordSerializer().deserialize(Arrays.copyOf(bytes, 10)));
+    // Trailing data
+    Assert.assertNull(_binarySerializer.deserialize(Arrays.copyOf(bytes, bytes.length + 1)));
+    // A huge string table size
+    byte[] header = Arrays.copyOf(ZNRecordBinarySerializer.MAGIC_HEADER,
+        ZNRecordBinarySerializer.MAGIC_HEADER.length + 5);
+    Arrays.fill(header, ZNRecordBinarySerializer.MAGIC_HEADER.length, header.length - 1,
+        (byte) 0xFF);
+    header[header.length - 1] = 0x07;
+    Assert.assertNull(_binarySerializer.deserialize(header));
+    Assert.assertNull(
+        _binarySerializer.deserialize("not a record".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static ZNRecord createExternalView(String resourceName, int numPartitions) {
+    ZNRecord record = new ZNRecord(resourceName);
+    record.setSimpleField("BUCKET_SIZE", "0");
+    record.setSimpleField("STATE_MODEL_DEF_REF", "MasterSlave");
+    for (int i = 0; i < numPartitions; i++) {
+      Map<String, String> stateMap = new HashMap<>();
+      for (int j = 0; j < 3; j++) {
+        stateMap.put("localhost_" + (12918 + (i + j) % 10), j == 0 ? "MASTER" : "SLAVE");
+      }
+      record.setMapField(resourceName + "_" + i, stateMap);
+    }
+    return record;
+  }
+}
@@ -0,0 +1,148 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZNRecordFastSerializer {
+  private final ZkSerializer _fastSerializer = new ZNRecordFastSerializer();
+
+  @Test
+  public void testCompatibleWithJsonSerializers() {
+    ZNRecord record = createRecord("testRecord", 10);
+    record.setRawPayload("raw payload".getBytes(StandardCharsets.UTF_8));
+
+    for (ZkSerializer serializer : Arrays.asList(new ZNRecordSerializer(),
+        new ZNRecordStreamingSerializer())) {
+      // Written by the fast serializer, read by the other one.
+      ZNRecord result = (ZNRecord) serializer.deserialize(_fastSerializer.serialize(record));
+      Assert.assertEquals(result, record);
+      Assert.assertEquals(result.getRawPayload(), record.getRawPayload());
+
+      // Written by the other serializer, read by the fast one.
+      result = (ZNRecord) _fastSerializer.deserialize(serializer.serialize(record));
+      Assert.assertEquals(result, record);
+      Assert.assertEquals(result.getRawPayload(), record.getRawPayload());
+    }
+  }
+
+  @Test
+  public void testEmptyAndNullValues() {
+    ZNRecord record = new ZNRecord("emptyRecord");
+    ZNRecord result = (ZNRecord) _fastSerializer.deserialize(_fastSerializer.serialize(record));
+    Assert.assertEquals(result, record);
+    Assert.assertNull(result.getRawPayload());
+
+    record.setSimpleField("nullValue", null);
+    record.setMapField("nullValueMap", Collections.singletonMap("key", null));
+    record.setListField("nullValueList", Collections.singletonList(null));
+    result = (ZNRecord) _fastSerializer.deserialize(_fastSerializer.serialize(record));
+    Assert.assertEquals(result, record);
+
+    Assert.assertNull(_fastSerializer.deserialize(null));
+    Assert.assertNull(_fastSerializer.deserialize(new byte[0]));
+    Assert.assertNull(
+        _fastSerializer.deserialize("not a record".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testUnknownFieldsIgnored() {
+    String json = "{\"id\":\"record\",\"unknown\":{\"a\":[1,2]},\"simpleFields\":{\"k\":\"v\","
+        + "\"number\":1},\"mapFields\":{},\"listFields\":{},\"version\":3}";
+    ZNRecord result =
+        (ZNRecord) _fastSerializer.deserialize(json.getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(result.getId(), "record");
+    Assert.assertEquals(result.getSimpleField("k"), "v");
+    Assert.assertEquals(result.getSimpleField("number"), "1");
+  }
+
+  @Test
+  public void testCompression() {
+    ZNRecord record = createRecord("compressedRecord", 100);
+    record.setBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, true);
+
+    byte[] bytes = _fastSerializer.serialize(record);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(bytes));
+    Assert.assertEquals(_fastSerializer.deserialize(bytes), record);
+    Assert.assertEquals(new ZNRecordSerializer().deserialize(bytes), record);
+
+    bytes = new ZNRecordSerializer().serialize(record);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(bytes));
+    Assert.assertEquals(_fastSerializer.deserialize(bytes), record);
+  }
+
+  @Test
+  public void testListFieldBound() {
+    ZNRecord record = new ZNRecord("boundedRecord");
+    List<String> list = new ArrayList<>(Arrays.asList("1", "2", "3", "4"));
+    record.setListField("list", list);
+    record.setSimpleField(ZNRecord.LIST_FIELD_BOUND, "2");
+
+    ZNRecord result = (ZNRecord) _fastSerializer.deserialize(_fastSerializer.serialize(record));
+    Assert.assertEquals(result.getListField("list"), Arrays.asList("1", "2"));
+    // The record itself is not truncated.
+    Assert.assertEquals(record.getListField("list").size(), 4);
+  }
+
+  @Test(expectedExceptions = ZkMarshallingError.class)
+  public void testSerializeNonZNRecord() {
+    _fastSerializer.serialize("not a record");
+  }
+
+  @Test
+  public void testReusedBuffers() {
+    // A large record followed by a small one must not leak any bytes of the previous output.
+    ZNRecord largeRecord = createRecord("largeRecord", 5000);
+    ZNRecord smallRecord = createRecord("smallRecord", 1);
+    Assert.assertEquals(_fastSerializer.deserialize(_fastSerializer.serialize(largeRecord)),
+        largeRecord);
+    byte[] bytes = _fastSerializer.serialize(smallRecord);
+    Assert.assertEquals(_fastSerializer.deserialize(bytes), smallRecord);
+    Assert.assertEquals(bytes, _fastSerializer.serialize(smallRecord));
+  }
+
+  private static ZNRecord createRecord(String id, int numPartitions) {
+    ZNRecord record = new ZNRecord(id);
+    record.setSimpleField("REBALANCE_MODE", "FULL_AUTO");
+    record.setSimpleField("special", "\"quoted\"\né");
+    for (int i = 0; i < numPartitions; i++) {
+      String partition = id + "_" + i;
+      Map<String, String> stateMap = new HashMap<>();
+      stateMap.put("localhost_12918", "MASTER");
+      stateMap.put("localhost_12919", "SLAVE");
+      record.setMapField(partition, stateMap);
+      record.setListField(partition, Arrays.asList("localhost_12918", "localhost_12919"));
+    }
+    return record;
+  }
+}
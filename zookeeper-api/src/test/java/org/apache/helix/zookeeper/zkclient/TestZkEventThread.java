@@ -0,0 +1,107 @@
+package org.apache.helix.zookeeper.zkclient;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZkEventThread {
+  private static final long TIMEOUT_MS = 10000L;
+
+  @Test
+  public void testWorkerDispatch() throws Exception {
+    ZkEventThread eventThread = new ZkEventThread("TestWorkerDispatch", 4);
+    Assert.assertEquals(eventThread.getWorkerCount(), 4);
+    eventThread.start();
+    try {
+      List<String> handled = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch release = new CountDownLatch(1);
+
+      // A slow listener of one path does not delay the events of the other paths.
+      eventThread.send(pathEvent("/slow", () -> {
+        release.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        handled.add("/slow-0");
+      }));
+      eventThread.send(pathEvent("/slow", () -> handled.add("/slow-1")));
+      String otherPath = getPathOnOtherWorker(eventThread, "/slow");
+      CountDownLatch otherHandled = new CountDownLatch(1);
+      eventThread.send(pathEvent(otherPath, otherHandled::countDown));
+      Assert.assertTrue(otherHandled.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      Assert.assertTrue(handled.isEmpty());
+      Assert.assertEquals(eventThread.getPendingEventsCount(), 1L);
+
+      // The event without a path waits for the events before it, and the events after it wait
+      // for it.
+      CountDownLatch barrierHandled = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("Barrier event") {
+        @Override
+        public void run() {
+          handled.add("barrier");
+          barrierHandled.countDown();
+        }
+      });
+      CountDownLatch lastHandled = new CountDownLatch(1);
+      eventThread.send(pathEvent(otherPath, () -> {
+        handled.add(otherPath);
+        lastHandled.countDown();
+      }));
+      Assert.assertFalse(barrierHandled.await(100, TimeUnit.MILLISECONDS));
+
+      release.countDown();
+      Assert.assertTrue(lastHandled.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      Assert.assertEquals(handled, List.of("/slow-0", "/slow-1", "barrier", otherPath));
+      Assert.assertEquals(eventThread.getTotalEventCount(), 5L);
+      Assert.assertEquals(eventThread.getTotalHandledEventCount(), 5L);
+    } finally {
+      eventThread.interrupt();
+      eventThread.join(TIMEOUT_MS);
+    }
+  }
+
+  private static String getPathOnOtherWorker(ZkEventThread eventThread, String path) {
+    int workerCount = eventThread.getWorkerCount();
+    for (int i = 0; ; i++) {
+      String otherPath = "/other" + i;
+      if (Math.floorMod(otherPath.hashCode(), workerCount) != Math
+          .floorMod(path.hashCode(), workerCount)) {
+        return otherPath;
+      }
+    }
+  }
+
+  private interface EventAction {
+    void run() throws Exception;
+  }
+
+  private static ZkEventThread.ZkEvent pathEvent(String path, EventAction action) {
+    return new ZkEventThread.ZkEvent("Event of " + path, null, path) {
+      @Override
+      public void run() throws Exception {
+        action.run();
+      }
+    };
+  }
+}